@@ -0,0 +1,121 @@
+package com.andrew.knowledge_graph.bench;
+
+import com.andrew.knowledge_graph.analytics.Centrality;
+import com.andrew.knowledge_graph.analytics.Components;
+import com.andrew.knowledge_graph.analytics.LabelPropagation;
+import com.andrew.knowledge_graph.analytics.PageRank;
+import com.andrew.knowledge_graph.graph.DenseGraph;
+import com.andrew.knowledge_graph.graph.GraphIndex;
+import com.andrew.knowledge_graph.model.RelationshipType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wall-clock time of each GraphAnalyticsService scoring step, and of all of them together, on a 1M-edge graph
+ * held in an in-memory GraphIndex. Persisting the scores is left out; the parameters are the application defaults.
+ * Run with: ./gradlew jmh -Pjmh.include=AnalyticsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AnalyticsBenchmark {
+
+    private static final RelationshipType[] TYPES = RelationshipType.values();
+
+    @Param({"1000000"})
+    public int edgeCount;
+
+    @Param({"4"})
+    public double averageDegree;
+
+    @Param({"UNIFORM", "POWER_LAW"})
+    public SyntheticGraphGenerator.Distribution distribution;
+
+    private GraphIndex graphIndex;
+    private DenseGraph graph;
+    private ForkJoinPool pool;
+    private double[] typeWeights;
+
+    @Setup(Level.Trial)
+    public void buildGraph() {
+        // Same shape as SyntheticGraphGenerator.seed, added straight to the index
+        int nodeCount = (int) Math.round(edgeCount / averageDegree);
+        graphIndex = new GraphIndex(null);
+        SplittableRandom seeder = new SplittableRandom(42L);
+        for (long e = 1; e <= edgeCount; e++) {
+            int from = 1 + seeder.nextInt(nodeCount);
+            int to = SyntheticGraphGenerator.pickTarget(seeder, nodeCount, distribution);
+            graphIndex.addEdge(e, from, to, TYPES[seeder.nextInt(TYPES.length)]);
+        }
+        graph = graphIndex.snapshot();
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        typeWeights = new double[TYPES.length];
+        Arrays.fill(typeWeights, 1.0);
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdownPool() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    public DenseGraph snapshot() {
+        return graphIndex.snapshot();
+    }
+
+    @Benchmark
+    public double[] pageRank() {
+        return PageRank.compute(graph, typeWeights, 0.85, 50, 1e-9, pool);
+    }
+
+    @Benchmark
+    public double[] degree() {
+        return Centrality.degree(graph, pool);
+    }
+
+    @Benchmark
+    public double[] betweenness() {
+        return Centrality.betweenness(graph, 256, 42L, pool);
+    }
+
+    @Benchmark
+    public int[] components() {
+        return Components.compute(graph, pool);
+    }
+
+    @Benchmark
+    public int[] labelPropagation() {
+        return LabelPropagation.compute(graph, 20, 0.001, pool);
+    }
+
+    // Everything recompute() does before persisting, starting from a fresh snapshot
+    @Benchmark
+    public int[] allScores() {
+        DenseGraph snapshot = graphIndex.snapshot();
+        PageRank.compute(snapshot, typeWeights, 0.85, 50, 1e-9, pool);
+        Centrality.degree(snapshot, pool);
+        Centrality.betweenness(snapshot, 256, 42L, pool);
+        Components.compute(snapshot, pool);
+        return LabelPropagation.compute(snapshot, 20, 0.001, pool);
+    }
+}
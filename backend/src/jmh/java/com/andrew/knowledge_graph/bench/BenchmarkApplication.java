@@ -0,0 +1,76 @@
+package com.andrew.knowledge_graph.bench;
+
+import com.andrew.knowledge_graph.KnowledgeGraphApplication;
+import com.andrew.knowledge_graph.graph.GraphIndex;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Boots the real application against a throwaway SQLite file seeded by {@link SyntheticGraphGenerator}.
+ * Shared by all benchmarks so they measure the same wiring as production.
+ */
+public final class BenchmarkApplication implements AutoCloseable {
+
+    private final Path databaseFile;
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkApplication(Path databaseFile, ConfigurableApplicationContext context) {
+        this.databaseFile = databaseFile;
+        this.context = context;
+    }
+
+    public static BenchmarkApplication start(int nodeCount, double averageDegree,
+                                             SyntheticGraphGenerator.Distribution distribution,
+                                             String... extraProperties) {
+        Path databaseFile;
+        try {
+            databaseFile = Files.createTempFile("knowledge-graph-bench-", ".db");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        String[] properties = new String[extraProperties.length + 5];
+        properties[0] = "spring.datasource.url=jdbc:sqlite:" + databaseFile;
+        properties[1] = "server.port=0";
+        // No actuator server, so a running instance holding the management port does not stop a benchmark
+        properties[2] = "management.server.port=-1";
+        properties[3] = "spring.jpa.show-sql=false";
+        properties[4] = "logging.level.root=WARN";
+        System.arraycopy(extraProperties, 0, properties, 5, extraProperties.length);
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(KnowledgeGraphApplication.class)
+                .properties(properties)
+                .run();
+
+        SyntheticGraphGenerator.seed(context.getBean(JdbcTemplate.class), nodeCount, averageDegree, distribution, 42L);
+        // The graph was written behind the application's back, so rebuild the in-memory index
+        context.getBean(GraphIndex.class).reload();
+        return new BenchmarkApplication(databaseFile, context);
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /** The HTTP port the embedded server was started on. */
+    public int port() {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        try {
+            Files.deleteIfExists(databaseFile);
+        } catch (IOException ignored) {
+            // Temp files are cleaned up by the OS eventually
+        }
+    }
+}
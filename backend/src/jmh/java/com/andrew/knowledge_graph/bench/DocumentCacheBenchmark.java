@@ -0,0 +1,124 @@
+package com.andrew.knowledge_graph.bench;
+
+import com.andrew.knowledge_graph.persistedquery.PersistedQueryDocumentProvider;
+
+import graphql.ExecutionInput;
+import graphql.ParseAndValidate;
+import graphql.ParseAndValidateResult;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.UnExecutableSchemaGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Per-request document cost for the graph page's initial query: parsing and validating against schema.graphqls
+ * every time, versus a hit in the persisted query document cache.
+ * Run with: ./gradlew jmh -Pjmh.include=DocumentCacheBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentCacheBenchmark {
+
+    // The query GraphPage.jsx sends for each page of the graph on load
+    private static final String QUERY = """
+            query GraphPage($after: String) {
+              graphVersion
+              nodeSearch(query: "", first: 100, after: $after) {
+                edges {
+                  node {
+                    id
+                    title
+                    description
+                    position { x y }
+                    connections {
+                      relationship {
+                        id
+                        type
+                        notes
+                        from { id }
+                        to { id }
+                      }
+                      node {
+                        id
+                        title
+                        description
+                      }
+                    }
+                  }
+                }
+                pageInfo { hasNextPage endCursor }
+              }
+            }
+            """;
+
+    private GraphQLSchema schema;
+    private Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidate;
+    private PersistedQueryDocumentProvider provider;
+    private ExecutionInput fullQuery;
+    private ExecutionInput hashOnly;
+
+    @Setup
+    public void buildSchema() throws IOException {
+        try (InputStream in = DocumentCacheBenchmark.class.getResourceAsStream("/graphql/schema.graphqls")) {
+            schema = UnExecutableSchemaGenerator.makeUnExecutableSchema(
+                    new SchemaParser().parse(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        }
+        parseAndValidate = input -> {
+            ParseAndValidateResult result = ParseAndValidate.parseAndValidate(schema, input);
+            return result.isFailure()
+                    ? new PreparsedDocumentEntry(result.getErrors())
+                    : new PreparsedDocumentEntry(result.getDocument());
+        };
+
+        String hash = PersistedQueryDocumentProvider.sha256(QUERY);
+        Map<String, Object> extensions = Map.of("persistedQuery", Map.of("version", 1, "sha256Hash", hash));
+        fullQuery = ExecutionInput.newExecutionInput().query(QUERY).build();
+        hashOnly = ExecutionInput.newExecutionInput().query("").extensions(extensions).build();
+
+        provider = new PersistedQueryDocumentProvider(1000, 10_000, false, Map.of());
+        // Register the query the way a client's first request would
+        ExecutionInput registration = ExecutionInput.newExecutionInput().query(QUERY).extensions(extensions).build();
+        if (provider.getDocumentAsync(registration, parseAndValidate).join().hasErrors()) {
+            throw new IllegalStateException("Benchmark query does not validate against schema.graphqls");
+        }
+    }
+
+    @Benchmark
+    public PreparsedDocumentEntry before_parseAndValidateEveryRequest() {
+        return parseAndValidate.apply(fullQuery);
+    }
+
+    /** A client that still sends the query text: the cost is hashing it. */
+    @Benchmark
+    public PreparsedDocumentEntry after_cachedDocumentFromQueryText() {
+        return provider.getDocumentAsync(fullQuery, parseAndValidate).join();
+    }
+
+    /** An APQ client that sends only the hash. */
+    @Benchmark
+    public PreparsedDocumentEntry after_cachedDocumentFromHash() {
+        return provider.getDocumentAsync(hashOnly, parseAndValidate).join();
+    }
+}
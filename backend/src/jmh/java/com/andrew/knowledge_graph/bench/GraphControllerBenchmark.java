@@ -0,0 +1,145 @@
+package com.andrew.knowledge_graph.bench;
+
+import com.andrew.knowledge_graph.controller.GraphController;
+import com.andrew.knowledge_graph.model.Connection;
+import com.andrew.knowledge_graph.model.Node;
+import com.andrew.knowledge_graph.model.Relationship;
+import com.andrew.knowledge_graph.model.RelationshipType;
+import com.andrew.knowledge_graph.model.inputs.AddNodeInput;
+import com.andrew.knowledge_graph.model.inputs.LinkNodesInput;
+import com.andrew.knowledge_graph.repository.DuplicateRelationshipException;
+import com.andrew.knowledge_graph.repository.NodeRepository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolver-level benchmarks for GraphController against seeded SQLite graphs.
+ * Run with: ./gradlew jmh -Pjmh.include=GraphControllerBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphControllerBenchmark {
+
+    // Number of nodes resolved per Node.connections batch, roughly one screen of search results
+    private static final int CONNECTIONS_BATCH = 100;
+
+    @Param({"1000", "10000", "100000"})
+    public int nodeCount;
+
+    @Param({"UNIFORM", "POWER_LAW"})
+    public SyntheticGraphGenerator.Distribution distribution;
+
+    @Param({"4"})
+    public double averageDegree;
+
+    private BenchmarkApplication application;
+    private GraphController controller;
+    private NodeRepository nodeRepository;
+    private SplittableRandom random;
+    private List<Node> connectionsBatch;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        application = BenchmarkApplication.start(nodeCount, averageDegree, distribution);
+        controller = application.getBean(GraphController.class);
+        nodeRepository = application.getBean(NodeRepository.class);
+        random = new SplittableRandom(7L);
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < CONNECTIONS_BATCH; i++) {
+            ids.add((long) SyntheticGraphGenerator.pickTarget(random, nodeCount, distribution));
+        }
+        connectionsBatch = nodeRepository.findAllById(ids);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        application.close();
+    }
+
+    @Benchmark
+    public List<Node> searchNodes() {
+        return controller.searchNodes("topic" + random.nextInt(1000), null);
+    }
+
+    @Benchmark
+    public Map<Node, List<Connection>> getConnections() {
+        return controller.getConnections(connectionsBatch);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public Node addNode() {
+        return controller.addNode(new AddNodeInput("Benchmark node", "Added by GraphControllerBenchmark"));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public Relationship linkNodes() {
+        while (true) {
+            int from = 1 + random.nextInt(nodeCount);
+            int to = 1 + random.nextInt(nodeCount);
+            if (from == to) {
+                continue;
+            }
+            try {
+                return controller.linkNodes(new LinkNodesInput(
+                        String.valueOf(from), String.valueOf(to), RelationshipType.RELATED_TO, null));
+            } catch (DuplicateRelationshipException e) {
+                // The pair is already linked, by the seed or an earlier call; rare, so just draw another
+            }
+        }
+    }
+
+    /**
+     * deleteNode needs a fresh victim for every call; creating it is excluded from the measurement.
+     */
+    @State(Scope.Thread)
+    public static class NodeToDelete {
+        String id;
+
+        @Setup(Level.Invocation)
+        public void create(GraphControllerBenchmark benchmark) {
+            Node node = benchmark.controller.addNode(new AddNodeInput("Doomed node", null));
+            // Consecutive targets from a random start, so no edge is repeated
+            int first = benchmark.random.nextInt(benchmark.nodeCount);
+            for (int i = 0; i < (int) benchmark.averageDegree; i++) {
+                benchmark.controller.linkNodes(new LinkNodesInput(
+                        String.valueOf(node.getId()),
+                        String.valueOf(1 + (first + i) % benchmark.nodeCount),
+                        RelationshipType.SUPPORTS,
+                        null));
+            }
+            id = String.valueOf(node.getId());
+        }
+    }
+
+    @Benchmark
+    public String deleteNode(NodeToDelete target) {
+        return controller.deleteNode(target.id);
+    }
+}
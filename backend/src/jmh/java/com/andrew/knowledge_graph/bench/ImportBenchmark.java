@@ -0,0 +1,82 @@
+package com.andrew.knowledge_graph.bench;
+
+import com.andrew.knowledge_graph.service.GraphImportService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NDJSON import throughput through GraphImportService, in records per second. Each invocation imports the same
+ * document of 10,000 nodes and 40,000 ref-linked relationships into the growing database, so the relationship
+ * table is always being appended to with its indexes in place, as in a real import.
+ * Run with: ./gradlew jmh -Pjmh.include=ImportBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ImportBenchmark {
+
+    private static final int NODES = 10_000;
+    private static final int LINKS_PER_NODE = 4;
+    private static final int RECORDS = NODES * (1 + LINKS_PER_NODE);
+
+    @Param({"1000", "10000"})
+    public int chunkSize;
+
+    private BenchmarkApplication application;
+    private GraphImportService importService;
+    private byte[] document;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        application = BenchmarkApplication.start(0, 0, SyntheticGraphGenerator.Distribution.UNIFORM,
+                "graph.import.chunk-size=" + chunkSize);
+        importService = application.getBean(GraphImportService.class);
+
+        StringBuilder ndjson = new StringBuilder(RECORDS * 80);
+        for (int i = 0; i < NODES; i++) {
+            ndjson.append("{\"kind\":\"node\",\"ref\":\"n").append(i)
+                    .append("\",\"title\":\"Imported ").append(i).append("\"}\n");
+        }
+        // Distinct non-zero offsets, so there are no self-loops and no repeated (from, to, type) triples
+        for (int i = 0; i < NODES; i++) {
+            for (int k = 1; k <= LINKS_PER_NODE; k++) {
+                ndjson.append("{\"kind\":\"relationship\",\"from\":\"n").append(i)
+                        .append("\",\"to\":\"n").append((i + k * 37) % NODES)
+                        .append("\",\"type\":\"RELATED_TO\"}\n");
+            }
+        }
+        document = ndjson.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        application.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public GraphImportService.ImportSummary importNdjson() throws IOException {
+        return importService.importNdjson(new ByteArrayInputStream(document));
+    }
+}
@@ -0,0 +1,93 @@
+package com.andrew.knowledge_graph.bench;
+
+import com.andrew.knowledge_graph.util.JwtUtil;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request JWT cost in the authentication filter, before and after parsing once per request.
+ * Run with: ./gradlew jmh -Pjmh.include=JwtValidationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtValidationBenchmark {
+
+    private static final String ISSUER = "https://localhost:8080";
+
+    private JwtUtil jwtUtil;
+    private JwtUtil cachingJwtUtil;
+    private String token;
+    private String cachingToken;
+
+    // The previous implementation is reproduced here with its own key, since JwtUtil no longer has it
+    private SecretKey legacyKey;
+    private String legacyToken;
+
+    @Setup
+    public void createTokens() {
+        jwtUtil = new JwtUtil(false, 0, new SimpleMeterRegistry());
+        token = jwtUtil.generateAccessToken("benchmark-user");
+        cachingJwtUtil = new JwtUtil(true, 10_000, new SimpleMeterRegistry());
+        cachingToken = cachingJwtUtil.generateAccessToken("benchmark-user");
+
+        legacyKey = Jwts.SIG.HS256.key().build();
+        legacyToken = Jwts.builder()
+                .subject("benchmark-user")
+                .issuer(ISSUER)
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + 15 * 60 * 1000))
+                .signWith(legacyKey)
+                .compact();
+    }
+
+    /**
+     * What the filter used to do: extractClaim("sub"), then isTokenValid, which calls extractClaim
+     * and isTokenExpired again — three parser builds and three signature verifications.
+     */
+    @Benchmark
+    public boolean before_threeParsesPerRequest() {
+        String subject = legacyParse(legacyToken).get("sub", String.class);
+        String subjectAgain = legacyParse(legacyToken).get("sub", String.class);
+        Date expiration = legacyParse(legacyToken).getExpiration();
+        return subject.equals(subjectAgain) && !expiration.before(new Date());
+    }
+
+    @Benchmark
+    public Claims after_parseAndValidate() {
+        return jwtUtil.parseAndValidate(token, JwtUtil.ACCESS_TOKEN);
+    }
+
+    @Benchmark
+    public Claims after_parseAndValidateWithVerifiedTokenCache() {
+        return cachingJwtUtil.parseAndValidate(cachingToken, JwtUtil.ACCESS_TOKEN);
+    }
+
+    private Claims legacyParse(String jwt) {
+        return Jwts.parser()
+                .verifyWith(legacyKey)
+                .requireIssuer(ISSUER)
+                .build()
+                .parseSignedClaims(jwt)
+                .getPayload();
+    }
+}
@@ -0,0 +1,92 @@
+package com.andrew.knowledge_graph.bench;
+
+import com.andrew.knowledge_graph.controller.GraphController;
+import com.andrew.knowledge_graph.model.Node;
+import com.andrew.knowledge_graph.model.inputs.AddNodeInput;
+import com.andrew.knowledge_graph.repository.NodeRepository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read throughput while a writer is active, with the default datasource versus the "prod" profile
+ * (WAL + split read/write pools). Compare the "readers" score across profiles; rerun with a different
+ * reader count via -tg (e.g. -tg 1,8) to see how reads scale with cores.
+ * Run with: ./gradlew jmh -Pjmh.include=SqliteConcurrencyBenchmark
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class SqliteConcurrencyBenchmark {
+
+    private static final int NODE_COUNT = 10_000;
+
+    @Param({"default", "prod"})
+    public String profile;
+
+    private BenchmarkApplication application;
+    private NodeRepository nodeRepository;
+    private GraphController controller;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        application = BenchmarkApplication.start(NODE_COUNT, 4, SyntheticGraphGenerator.Distribution.UNIFORM,
+                "spring.profiles.active=" + profile);
+        nodeRepository = application.getBean(NodeRepository.class);
+        controller = application.getBean(GraphController.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        application.close();
+    }
+
+    @Benchmark
+    @Group("readWhileWriting")
+    @GroupThreads(7)
+    public Optional<Node> readers() {
+        return nodeRepository.findById(1L + ThreadLocalRandom.current().nextInt(NODE_COUNT));
+    }
+
+    @Benchmark
+    @Group("readWhileWriting")
+    @GroupThreads(1)
+    public Node writer() {
+        return controller.addNode(new AddNodeInput("Written during reads", null));
+    }
+
+    @Benchmark
+    @Group("searchWhileWriting")
+    @GroupThreads(7)
+    public List<Node> searchers() {
+        return controller.searchNodes("topic" + ThreadLocalRandom.current().nextInt(1000), null);
+    }
+
+    @Benchmark
+    @Group("searchWhileWriting")
+    @GroupThreads(1)
+    public Node searchWriter() {
+        return controller.addNode(new AddNodeInput("Written during searches", null));
+    }
+}
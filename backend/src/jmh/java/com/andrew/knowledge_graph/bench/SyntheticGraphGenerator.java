@@ -0,0 +1,86 @@
+package com.andrew.knowledge_graph.bench;
+
+import com.andrew.knowledge_graph.graph.LongHashSet;
+import com.andrew.knowledge_graph.model.RelationshipType;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Seeds an SQLite database with a reproducible synthetic graph for the benchmarks.
+ *
+ * Node titles are "Concept <i> topic<i % 1000>", so searching for a topic matches about n / 1000 nodes.
+ * Edges are written with plain JDBC batches, bypassing JPA, so seeding 100k nodes takes seconds. Like the
+ * relationship table's unique constraint, the generator never repeats a (from, to, type) edge, and it skips
+ * self-loops.
+ */
+public final class SyntheticGraphGenerator {
+
+    public enum Distribution {
+        /** Every node is equally likely to be the target of an edge. */
+        UNIFORM,
+        /** Low ids are picked far more often, giving a few hubs and a long tail (roughly Zipf-like). */
+        POWER_LAW
+    }
+
+    private static final RelationshipType[] TYPES = RelationshipType.values();
+    private static final int BATCH_SIZE = 5_000;
+    // Exponent applied to a uniform sample; larger values concentrate more edges on the first nodes
+    private static final double POWER_LAW_SKEW = 3.0;
+
+    private SyntheticGraphGenerator() {}
+
+    /**
+     * Inserts {@code nodeCount} nodes with ids 1..nodeCount and {@code averageDegree * nodeCount} distinct edges
+     * (or every possible edge, if that is fewer). Expects empty node and relationship tables.
+     */
+    public static void seed(JdbcTemplate jdbcTemplate, int nodeCount, double averageDegree,
+                            Distribution distribution, long randomSeed) {
+        SplittableRandom random = new SplittableRandom(randomSeed);
+
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= nodeCount; i++) {
+            batch.add(new Object[] {i, "Concept " + i + " topic" + (i % 1000), "Synthetic node number " + i});
+            if (batch.size() == BATCH_SIZE || i == nodeCount) {
+                jdbcTemplate.batchUpdate("INSERT INTO node (id, title, description) VALUES (?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+
+        long possibleEdges = (long) nodeCount * (nodeCount - 1) * TYPES.length;
+        long edgeCount = Math.min(Math.round(nodeCount * averageDegree), possibleEdges);
+        LongHashSet seen = new LongHashSet((int) Math.min(edgeCount, Integer.MAX_VALUE / 4));
+        for (long e = 1; e <= edgeCount; e++) {
+            int from;
+            int to;
+            int type;
+            // Redraw until the edge is new; at benchmark densities that is almost always the first draw
+            do {
+                from = 1 + random.nextInt(nodeCount);
+                to = pickTarget(random, nodeCount, distribution);
+                type = random.nextInt(TYPES.length);
+            } while (from == to || !seen.add(edgeKey(from, to, type, nodeCount)));
+            batch.add(new Object[] {e, TYPES[type].name(), null, from, to});
+            if (batch.size() == BATCH_SIZE || e == edgeCount) {
+                jdbcTemplate.batchUpdate(
+                        "INSERT INTO relationship (id, type, notes, from_node_id, to_node_id) VALUES (?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    // Unique per (from, to, type) for ids in 1..nodeCount; fits in a long for up to a billion nodes
+    private static long edgeKey(int from, int to, int type, int nodeCount) {
+        return ((long) from * (nodeCount + 1) + to) * TYPES.length + type;
+    }
+
+    static int pickTarget(SplittableRandom random, int nodeCount, Distribution distribution) {
+        return switch (distribution) {
+            case UNIFORM -> 1 + random.nextInt(nodeCount);
+            case POWER_LAW -> 1 + (int) (nodeCount * Math.pow(random.nextDouble(), POWER_LAW_SKEW));
+        };
+    }
+}
@@ -0,0 +1,103 @@
+package com.andrew.knowledge_graph.bench;
+
+import com.andrew.knowledge_graph.controller.AuthController;
+import com.andrew.knowledge_graph.util.JwtUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end load test over HTTP: 256 concurrent clients posting a GraphQL operation with three independent root
+ * fields, against the platform-thread default and against virtual threads. Throughput mode reports requests per
+ * second; sample-time mode reports the latency distribution (p50, p99, p99.9).
+ * Run with: ./gradlew jmh -Pjmh.include=ThreadingLoadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(256)
+@Fork(1)
+public class ThreadingLoadBenchmark {
+
+    private static final int NODE_COUNT = 10_000;
+
+    // Each root field is resolved independently, so with virtual threads they run concurrently
+    private static final String QUERY = """
+            query($a: ID!, $b: ID!, $search: String!) {
+              a: node(id: $a) { id title connections { node { id title } } }
+              b: node(id: $b) { id title connections { node { id title } } }
+              search: searchNodes(titleQuery: $search) { id title }
+            }
+            """;
+
+    @Param({"platform", "virtual"})
+    public String threading;
+
+    private BenchmarkApplication application;
+    private HttpClient client;
+    private URI endpoint;
+    private String authorization;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        application = BenchmarkApplication.start(NODE_COUNT, 4, SyntheticGraphGenerator.Distribution.POWER_LAW,
+                "spring.threads.virtual.enabled=" + threading.equals("virtual"));
+        application.getBean(AuthController.class)
+                .register(Map.of("username", "load-test", "password", "load-test-password"));
+        authorization = "Bearer " + application.getBean(JwtUtil.class).generateAccessToken("load-test");
+        endpoint = URI.create("http://localhost:" + application.port() + "/graphql");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        client.close();
+        application.close();
+    }
+
+    @Benchmark
+    public int graphQlRequest() throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String body = """
+                {"query": %s, "variables": {"a": "%d", "b": "%d", "search": "topic%d"}}
+                """.formatted(jsonString(QUERY), 1 + random.nextInt(NODE_COUNT), 1 + random.nextInt(NODE_COUNT),
+                random.nextInt(1000));
+        HttpRequest request = HttpRequest.newBuilder(endpoint)
+                .header("Content-Type", "application/json")
+                .header("Authorization", authorization)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200 || response.body().contains("\"errors\"")) {
+            throw new IllegalStateException("Request failed: " + response.statusCode() + " " + response.body());
+        }
+        return response.body().length();
+    }
+
+    private static String jsonString(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+    }
+}
@@ -0,0 +1,78 @@
+package com.andrew.knowledge_graph.bench;
+
+import com.andrew.knowledge_graph.graph.GraphIndex;
+import com.andrew.knowledge_graph.model.Direction;
+import com.andrew.knowledge_graph.model.RelationshipType;
+import com.andrew.knowledge_graph.service.GraphTraversalService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency distribution of shortestPath and neighborhood between random nodes, straight against an in-memory
+ * GraphIndex so the database is not part of the measurement. SampleTime mode reports p50/p90/p99/p99.9;
+ * the p99 is the number to watch, since hub-heavy POWER_LAW graphs are where the node and time budgets bite.
+ * Run with: ./gradlew jmh -Pjmh.include=TraversalBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TraversalBenchmark {
+
+    private static final RelationshipType[] TYPES = RelationshipType.values();
+
+    @Param({"100000", "1000000"})
+    public int nodeCount;
+
+    @Param({"UNIFORM", "POWER_LAW"})
+    public SyntheticGraphGenerator.Distribution distribution;
+
+    @Param({"4"})
+    public double averageDegree;
+
+    private GraphTraversalService traversalService;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void buildIndex() {
+        // Same shape as SyntheticGraphGenerator.seed, added straight to the index
+        GraphIndex graphIndex = new GraphIndex(null);
+        SplittableRandom seeder = new SplittableRandom(42L);
+        long edgeCount = Math.round(nodeCount * averageDegree);
+        for (long e = 1; e <= edgeCount; e++) {
+            int from = 1 + seeder.nextInt(nodeCount);
+            int to = SyntheticGraphGenerator.pickTarget(seeder, nodeCount, distribution);
+            graphIndex.addEdge(e, from, to, TYPES[seeder.nextInt(TYPES.length)]);
+        }
+        traversalService = new GraphTraversalService(graphIndex, 100_000, 6, Duration.ofSeconds(1));
+        random = new SplittableRandom(7L);
+    }
+
+    @Benchmark
+    public GraphTraversalService.PathResult shortestPath() {
+        return traversalService.shortestPath(1 + random.nextInt(nodeCount), 1 + random.nextInt(nodeCount),
+                null, Direction.BOTH, 6);
+    }
+
+    @Benchmark
+    public GraphTraversalService.Subgraph neighborhood() {
+        return traversalService.neighborhood(1 + random.nextInt(nodeCount), 2, null, Direction.BOTH, 1000);
+    }
+}
@@ -0,0 +1,89 @@
+package com.andrew.knowledge_graph.bench;
+
+import com.andrew.knowledge_graph.controller.GraphController;
+import com.andrew.knowledge_graph.model.Node;
+import com.andrew.knowledge_graph.model.Relationship;
+import com.andrew.knowledge_graph.model.RelationshipType;
+import com.andrew.knowledge_graph.model.inputs.AddNodeInput;
+import com.andrew.knowledge_graph.model.inputs.LinkNodesInput;
+import com.andrew.knowledge_graph.repository.DuplicateRelationshipException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write throughput with 64 concurrent writers, each mutation in its own transaction versus group-committed by
+ * GraphWritePipeline. Compare the scores across the "pipeline" param; rerun with -t to change the writer count.
+ * Run with: ./gradlew jmh -Pjmh.include=WritePipelineBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(64)
+@Fork(1)
+public class WritePipelineBenchmark {
+
+    private static final int NODE_COUNT = 100_000;
+
+    @Param({"false", "true"})
+    public boolean pipeline;
+
+    @Param({"default", "prod"})
+    public String profile;
+
+    private BenchmarkApplication application;
+    private GraphController controller;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        application = BenchmarkApplication.start(NODE_COUNT, 4, SyntheticGraphGenerator.Distribution.UNIFORM,
+                "spring.profiles.active=" + profile,
+                "graph.write-pipeline.enabled=" + pipeline);
+        controller = application.getBean(GraphController.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        application.close();
+    }
+
+    @Benchmark
+    public Node addNode() {
+        return controller.addNode(new AddNodeInput("Written concurrently", null));
+    }
+
+    @Benchmark
+    public Relationship linkNodes() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (true) {
+            int from = 1 + random.nextInt(NODE_COUNT);
+            int to = 1 + random.nextInt(NODE_COUNT);
+            if (from == to) {
+                continue;
+            }
+            try {
+                return controller.linkNodes(new LinkNodesInput(
+                        String.valueOf(from), String.valueOf(to), RelationshipType.RELATED_TO, null));
+            } catch (DuplicateRelationshipException e) {
+                // The pair is already linked, by the seed or another writer; rare, so just draw another
+            }
+        }
+    }
+}
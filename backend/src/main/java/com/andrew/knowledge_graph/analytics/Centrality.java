@@ -0,0 +1,176 @@
+package com.andrew.knowledge_graph.analytics;
+
+import com.andrew.knowledge_graph.graph.DenseGraph;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Degree and betweenness centrality, both treating relationships as undirected and normalised to [0, 1].
+ */
+public final class Centrality {
+
+    private Centrality() {}
+
+    /**
+     * Number of relationships touching each node, divided by the most any node could have (n - 1).
+     */
+    public static double[] degree(DenseGraph graph, ForkJoinPool pool) {
+        int n = graph.nodeCount();
+        double[] degree = new double[n];
+        double scale = n > 1 ? 1.0 / (n - 1) : 0;
+        ParallelLoops.forRange(pool, n, (start, end) -> {
+            for (int v = start; v < end; v++) {
+                degree[v] = graph.degree(v) * scale;
+            }
+        });
+        return degree;
+    }
+
+    /**
+     * Betweenness by Brandes' algorithm: one BFS plus a dependency sweep per source, O(n * m) in total.
+     * With {@code samples < n} only that many randomly chosen sources are used and the result is scaled up,
+     * which keeps the cost at O(samples * m) with an error that shrinks with the sample size.
+     *
+     * Sources are split across the pool; each worker keeps its own BFS arrays and totals and the totals are
+     * summed at the end, so the sweeps never contend.
+     */
+    public static double[] betweenness(DenseGraph graph, int samples, long seed, ForkJoinPool pool) {
+        int n = graph.nodeCount();
+        double[] betweenness = new double[n];
+        if (n < 3) {
+            return betweenness;
+        }
+
+        int[] sources;
+        if (samples <= 0 || samples >= n) {
+            sources = new int[n];
+            for (int i = 0; i < n; i++) {
+                sources[i] = i;
+            }
+        } else {
+            // Partial Fisher-Yates shuffle: a uniform sample without repeats
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) {
+                all[i] = i;
+            }
+            SplittableRandom random = new SplittableRandom(seed);
+            for (int i = 0; i < samples; i++) {
+                int j = i + random.nextInt(n - i);
+                int swap = all[i];
+                all[i] = all[j];
+                all[j] = swap;
+            }
+            sources = Arrays.copyOf(all, samples);
+        }
+
+        int chunk = Math.max(1, sources.length / (pool.getParallelism() * 4));
+        ParallelLoops.forRange(pool, sources.length, chunk, (start, end) -> {
+            BrandesSweep sweep = new BrandesSweep(graph);
+            for (int i = start; i < end; i++) {
+                sweep.accumulate(sources[i]);
+            }
+            synchronized (betweenness) {
+                for (int v = 0; v < n; v++) {
+                    betweenness[v] += sweep.totals[v];
+                }
+            }
+        });
+
+        // Scale the sample up to all n sources, halve because every undirected pair is counted from both ends,
+        // and divide by the (n - 1)(n - 2) / 2 pairs a node could lie between
+        double scale = (double) n / sources.length / ((double) (n - 1) * (n - 2));
+        for (int v = 0; v < n; v++) {
+            betweenness[v] *= scale;
+        }
+        return betweenness;
+    }
+
+    /**
+     * Per-worker state for Brandes' algorithm on an unweighted, undirected view of the graph.
+     * Predecessors are not stored: they are the neighbours one BFS level closer to the source.
+     */
+    private static final class BrandesSweep {
+
+        final double[] totals;
+        private final int[] outOffsets;
+        private final int[] outTargets;
+        private final int[] inOffsets;
+        private final int[] inSources;
+        private final int[] distance;
+        private final double[] paths;
+        private final double[] dependency;
+        private final int[] order;
+
+        BrandesSweep(DenseGraph graph) {
+            int n = graph.nodeCount();
+            this.outOffsets = graph.outOffsets();
+            this.outTargets = graph.outTargets();
+            this.inOffsets = graph.inOffsets();
+            this.inSources = graph.inSources();
+            this.totals = new double[n];
+            this.distance = new int[n];
+            this.paths = new double[n];
+            this.dependency = new double[n];
+            this.order = new int[n];
+            Arrays.fill(distance, -1);
+        }
+
+        void accumulate(int source) {
+            // BFS; order doubles as the queue, and afterwards holds the visited nodes by distance
+            int head = 0;
+            int tail = 0;
+            order[tail++] = source;
+            distance[source] = 0;
+            paths[source] = 1;
+            while (head < tail) {
+                int v = order[head++];
+                for (int e = outOffsets[v]; e < outOffsets[v + 1]; e++) {
+                    tail = relax(v, outTargets[e], tail);
+                }
+                for (int e = inOffsets[v]; e < inOffsets[v + 1]; e++) {
+                    tail = relax(v, inSources[e], tail);
+                }
+            }
+
+            // Dependencies flow back from the farthest nodes
+            for (int i = tail - 1; i > 0; i--) {
+                int w = order[i];
+                double share = (1 + dependency[w]) / paths[w];
+                for (int e = outOffsets[w]; e < outOffsets[w + 1]; e++) {
+                    pushBack(outTargets[e], w, share);
+                }
+                for (int e = inOffsets[w]; e < inOffsets[w + 1]; e++) {
+                    pushBack(inSources[e], w, share);
+                }
+                totals[w] += dependency[w];
+            }
+
+            // Reset only what this sweep touched
+            for (int i = 0; i < tail; i++) {
+                int v = order[i];
+                distance[v] = -1;
+                paths[v] = 0;
+                dependency[v] = 0;
+            }
+        }
+
+        private int relax(int v, int w, int tail) {
+            if (distance[w] < 0) {
+                distance[w] = distance[v] + 1;
+                order[tail++] = w;
+            }
+            if (distance[w] == distance[v] + 1) {
+                paths[w] += paths[v];
+            }
+            return tail;
+        }
+
+        private void pushBack(int v, int w, double share) {
+            if (distance[v] >= 0 && distance[v] == distance[w] - 1) {
+                dependency[v] += paths[v] * share;
+            }
+        }
+    }
+}
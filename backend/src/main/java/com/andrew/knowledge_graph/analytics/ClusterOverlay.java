@@ -0,0 +1,187 @@
+package com.andrew.knowledge_graph.analytics;
+
+import com.andrew.knowledge_graph.graph.LongList;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps components and communities current between full recomputations, for links added since the last run.
+ *
+ * A new link can only ever join two components, so links are applied as unions over component ids (the
+ * smaller id wins, as in {@link Components}). A node created since the last run joins the community of the
+ * first node it is linked to, which is the step label propagation would take for it. Deletions can split
+ * components and are not applied here; they count towards the next recomputation instead.
+ *
+ * Links that arrive while a recomputation is running may be missing from its snapshot, so they are recorded
+ * and replayed on top of its result when it is published.
+ */
+public final class ClusterOverlay {
+
+    private GraphMetrics base = GraphMetrics.EMPTY;
+    // Union-find over component ids: merged component -> the component it was merged into
+    private final Map<Long, Long> mergedInto = new HashMap<>();
+    // Root component -> every component merged into it, directly or not
+    private final Map<Long, LongList> mergedComponents = new HashMap<>();
+    private final Map<Long, Long> newNodeCommunities = new HashMap<>();
+    private final Map<Long, LongList> newCommunityMembers = new HashMap<>();
+    private final List<long[]> linksDuringRun = new ArrayList<>();
+    private boolean recording;
+
+    /**
+     * Starts recording links; call before taking the snapshot for a recomputation.
+     */
+    public synchronized void beginRun() {
+        recording = true;
+        linksDuringRun.clear();
+    }
+
+    /**
+     * Replaces the base with a fresh result and replays the links recorded since {@link #beginRun}.
+     */
+    public synchronized void publish(GraphMetrics metrics) {
+        base = metrics;
+        mergedInto.clear();
+        mergedComponents.clear();
+        newNodeCommunities.clear();
+        newCommunityMembers.clear();
+        for (long[] link : linksDuringRun) {
+            apply(link[0], link[1]);
+        }
+        linksDuringRun.clear();
+        recording = false;
+    }
+
+    public synchronized void link(long fromNodeId, long toNodeId) {
+        if (recording) {
+            linksDuringRun.add(new long[] {fromNodeId, toNodeId});
+        }
+        apply(fromNodeId, toNodeId);
+    }
+
+    /**
+     * The node's component; a node the last run did not see is its own component until it is linked.
+     */
+    public synchronized long componentId(long nodeId) {
+        return root(baseComponent(nodeId));
+    }
+
+    /**
+     * @return the node's community, or null for a node the last run did not see that has not been linked since
+     */
+    public synchronized Long communityId(long nodeId) {
+        int index = base.indexOf(nodeId);
+        return index >= 0 ? Long.valueOf(base.communityId(index)) : newNodeCommunities.get(nodeId);
+    }
+
+    /**
+     * @return the number of nodes in the component as of the last run plus links since, 0 if the id is not
+     * (or no longer) a component root
+     */
+    public synchronized int componentSize(long componentId) {
+        if (mergedInto.containsKey(componentId)) {
+            return 0;
+        }
+        int size = groupSize(componentId);
+        LongList merged = mergedComponents.get(componentId);
+        for (int i = 0; merged != null && i < merged.size(); i++) {
+            size += groupSize(merged.get(i));
+        }
+        return size;
+    }
+
+    /**
+     * Ids of up to {@code limit} nodes of the component, grouped by the components it was merged from.
+     */
+    public synchronized long[] componentMembers(long componentId, int limit) {
+        LongList members = new LongList();
+        if (mergedInto.containsKey(componentId)) {
+            return members.toArray();
+        }
+        addGroupMembers(componentId, members, limit);
+        LongList merged = mergedComponents.get(componentId);
+        for (int i = 0; merged != null && i < merged.size() && members.size() < limit; i++) {
+            addGroupMembers(merged.get(i), members, limit);
+        }
+        return members.toArray();
+    }
+
+    public synchronized int communitySize(long communityId) {
+        LongList added = newCommunityMembers.get(communityId);
+        return base.communitySize(communityId) + (added == null ? 0 : added.size());
+    }
+
+    public synchronized long[] communityMembers(long communityId, int limit) {
+        long[] existing = base.communityMembers(communityId, limit);
+        LongList added = newCommunityMembers.get(communityId);
+        if (added == null || existing.length >= limit) {
+            return existing;
+        }
+        LongList members = new LongList(existing.length + added.size());
+        for (long id : existing) {
+            members.add(id);
+        }
+        for (int i = 0; i < added.size() && members.size() < limit; i++) {
+            members.add(added.get(i));
+        }
+        return members.toArray();
+    }
+
+    private void apply(long fromNodeId, long toNodeId) {
+        long a = root(baseComponent(fromNodeId));
+        long b = root(baseComponent(toNodeId));
+        if (a != b) {
+            long root = Math.min(a, b);
+            long child = Math.max(a, b);
+            mergedInto.put(child, root);
+            LongList merged = mergedComponents.computeIfAbsent(root, k -> new LongList(4));
+            merged.add(child);
+            LongList grandchildren = mergedComponents.remove(child);
+            for (int i = 0; grandchildren != null && i < grandchildren.size(); i++) {
+                merged.add(grandchildren.get(i));
+                mergedInto.put(grandchildren.get(i), root);
+            }
+        }
+        adoptCommunity(fromNodeId, toNodeId);
+        adoptCommunity(toNodeId, fromNodeId);
+    }
+
+    private void adoptCommunity(long nodeId, long neighbourId) {
+        if (base.indexOf(nodeId) >= 0 || newNodeCommunities.containsKey(nodeId)) {
+            return;
+        }
+        Long community = communityId(neighbourId);
+        if (community != null) {
+            newNodeCommunities.put(nodeId, community);
+            newCommunityMembers.computeIfAbsent(community, k -> new LongList(4)).add(nodeId);
+        }
+    }
+
+    private long baseComponent(long nodeId) {
+        int index = base.indexOf(nodeId);
+        return index >= 0 ? base.componentId(index) : nodeId;
+    }
+
+    // Every merged component points straight at its root, so this is a single lookup
+    private long root(long componentId) {
+        return mergedInto.getOrDefault(componentId, componentId);
+    }
+
+    // A component id the last run did not know is a node created since, alone in its component
+    private int groupSize(long componentId) {
+        int size = base.componentSize(componentId);
+        return size > 0 || base.indexOf(componentId) >= 0 ? size : 1;
+    }
+
+    private void addGroupMembers(long componentId, LongList members, int limit) {
+        if (base.componentSize(componentId) > 0) {
+            for (long id : base.componentMembers(componentId, limit - members.size())) {
+                members.add(id);
+            }
+        } else if (base.indexOf(componentId) < 0 && members.size() < limit) {
+            members.add(componentId);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.andrew.knowledge_graph.analytics;
+
+import com.andrew.knowledge_graph.graph.DenseGraph;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Weakly connected components with a lock-free union-find, so every worker can union its share of the edges
+ * at the same time.
+ *
+ * Roots are always linked towards the smaller index, which both rules out cycles between concurrent unions and
+ * makes the root of every component its smallest node index, so the result does not depend on scheduling.
+ */
+public final class Components {
+
+    private Components() {}
+
+    /**
+     * @return for every node, the index of the smallest-indexed node in its component
+     */
+    public static int[] compute(DenseGraph graph, ForkJoinPool pool) {
+        int n = graph.nodeCount();
+        AtomicIntegerArray parent = new AtomicIntegerArray(n);
+        for (int v = 0; v < n; v++) {
+            parent.set(v, v);
+        }
+        int[] outOffsets = graph.outOffsets();
+        int[] outTargets = graph.outTargets();
+
+        ParallelLoops.forRange(pool, n, (start, end) -> {
+            for (int u = start; u < end; u++) {
+                for (int e = outOffsets[u]; e < outOffsets[u + 1]; e++) {
+                    union(parent, u, outTargets[e]);
+                }
+            }
+        });
+
+        int[] component = new int[n];
+        ParallelLoops.forRange(pool, n, (start, end) -> {
+            for (int v = start; v < end; v++) {
+                component[v] = find(parent, v);
+            }
+        });
+        return component;
+    }
+
+    private static void union(AtomicIntegerArray parent, int a, int b) {
+        while (true) {
+            int rootA = find(parent, a);
+            int rootB = find(parent, b);
+            if (rootA == rootB) {
+                return;
+            }
+            int high = Math.max(rootA, rootB);
+            int low = Math.min(rootA, rootB);
+            // Fails if another worker re-parented high in the meantime; then look the roots up again
+            if (parent.compareAndSet(high, high, low)) {
+                return;
+            }
+        }
+    }
+
+    // Path halving; the shortcut is a best-effort CAS, since a lost race only leaves a longer path
+    private static int find(AtomicIntegerArray parent, int v) {
+        while (true) {
+            int p = parent.get(v);
+            if (p == v) {
+                return v;
+            }
+            int grandparent = parent.get(p);
+            if (grandparent != p) {
+                parent.compareAndSet(v, p, grandparent);
+            }
+            v = grandparent;
+        }
+    }
+}
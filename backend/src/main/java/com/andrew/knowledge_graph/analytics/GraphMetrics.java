@@ -0,0 +1,137 @@
+package com.andrew.knowledge_graph.analytics;
+
+import com.andrew.knowledge_graph.model.NodeMetric;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * One immutable set of computed node scores, indexed like the {@link com.andrew.knowledge_graph.graph.DenseGraph}
+ * they were computed from. A new instance replaces the old one in a single reference swap, so readers never
+ * wait for a recomputation and never see a half-written result.
+ */
+public final class GraphMetrics {
+
+    public static final GraphMetrics EMPTY = new GraphMetrics(new long[0], new double[0], new double[0], new double[0],
+            new long[0], new long[0], 0);
+
+    private final long[] nodeIds;
+    private final double[] pageRank;
+    private final double[] degreeCentrality;
+    private final double[] betweennessCentrality;
+    private final long[] componentIds;
+    private final long[] communityIds;
+    private final Membership components;
+    private final Membership communities;
+    private final long computedAt;
+    // Dense indexes sorted by descending score, one order per metric, so topNodes is a prefix read
+    private final int[][] rankings = new int[NodeMetric.values().length][];
+
+    /**
+     * @param nodeIds sorted ascending; the other arrays are parallel to it
+     * @param componentIds the connected component of each node, identified by its smallest node id
+     * @param communityIds the community of each node, identified by one of its node ids
+     * @param computedAt epoch millis
+     */
+    public GraphMetrics(long[] nodeIds, double[] pageRank, double[] degreeCentrality, double[] betweennessCentrality,
+                        long[] componentIds, long[] communityIds, long computedAt) {
+        this.nodeIds = nodeIds;
+        this.pageRank = pageRank;
+        this.degreeCentrality = degreeCentrality;
+        this.betweennessCentrality = betweennessCentrality;
+        this.componentIds = componentIds;
+        this.communityIds = communityIds;
+        this.components = new Membership(componentIds);
+        this.communities = new Membership(communityIds);
+        this.computedAt = computedAt;
+        for (NodeMetric metric : NodeMetric.values()) {
+            double[] scores = scores(metric);
+            rankings[metric.ordinal()] = IntStream.range(0, nodeIds.length).boxed()
+                    .sorted(Comparator.<Integer>comparingDouble(i -> scores[i]).reversed())
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+    }
+
+    public int size() {
+        return nodeIds.length;
+    }
+
+    public long computedAt() {
+        return computedAt;
+    }
+
+    public long nodeId(int index) {
+        return nodeIds[index];
+    }
+
+    /**
+     * @return the index of the node, or a negative value if it had not been created when these scores were computed
+     */
+    public int indexOf(long nodeId) {
+        return Arrays.binarySearch(nodeIds, nodeId);
+    }
+
+    public double score(NodeMetric metric, int index) {
+        return scores(metric)[index];
+    }
+
+    public long componentId(int index) {
+        return componentIds[index];
+    }
+
+    public long communityId(int index) {
+        return communityIds[index];
+    }
+
+    /**
+     * @return the number of nodes in the component, 0 if there is no such component
+     */
+    public int componentSize(long componentId) {
+        return components.size(componentId);
+    }
+
+    public int communitySize(long communityId) {
+        return communities.size(communityId);
+    }
+
+    /**
+     * Ids of up to {@code limit} nodes of the component, smallest first.
+     */
+    public long[] componentMembers(long componentId, int limit) {
+        return toNodeIds(components.members(componentId, limit));
+    }
+
+    public long[] communityMembers(long communityId, int limit) {
+        return toNodeIds(communities.members(communityId, limit));
+    }
+
+    /**
+     * Ids of the {@code limit} highest-scoring nodes for the metric, best first.
+     */
+    public long[] top(NodeMetric metric, int limit) {
+        int[] ranking = rankings[metric.ordinal()];
+        long[] ids = new long[Math.min(limit, ranking.length)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = nodeIds[ranking[i]];
+        }
+        return ids;
+    }
+
+    private long[] toNodeIds(int[] indexes) {
+        long[] ids = new long[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            ids[i] = nodeIds[indexes[i]];
+        }
+        return ids;
+    }
+
+    private double[] scores(NodeMetric metric) {
+        return switch (metric) {
+            case PAGE_RANK -> pageRank;
+            case DEGREE_CENTRALITY -> degreeCentrality;
+            case BETWEENNESS_CENTRALITY -> betweennessCentrality;
+        };
+    }
+}
@@ -0,0 +1,102 @@
+package com.andrew.knowledge_graph.analytics;
+
+import com.andrew.knowledge_graph.graph.DenseGraph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Community detection by label propagation: every node starts in its own community and repeatedly joins the
+ * community most of its neighbours (in either direction) belong to, until hardly any node moves.
+ *
+ * Updates are asynchronous: workers write new labels in place while others read them, which converges faster
+ * than alternating between two arrays and avoids the two-colour oscillation of the synchronous variant.
+ * The first round is the exception: while every label is still unique, an in-place sweep would let the first
+ * community to form run on through every node after it, across bridges, so that round reads the initial labels.
+ * Label reads and writes are single ints, so a racing reader sees either the old or the new label; the result
+ * can vary between runs on the same graph, as it does for label propagation in general.
+ */
+public final class LabelPropagation {
+
+    private LabelPropagation() {}
+
+    /**
+     * @param minMovedFraction stop once fewer than this fraction of nodes change community in an iteration
+     * @return for every node, the index of a node that identifies its community
+     */
+    public static int[] compute(DenseGraph graph, int maxIterations, double minMovedFraction, ForkJoinPool pool) {
+        int n = graph.nodeCount();
+        int[] labels = new int[n];
+        for (int v = 0; v < n; v++) {
+            labels[v] = v;
+        }
+        int[] outOffsets = graph.outOffsets();
+        int[] outTargets = graph.outTargets();
+        int[] inOffsets = graph.inOffsets();
+        int[] inSources = graph.inSources();
+        int maxDegree = 0;
+        for (int v = 0; v < n; v++) {
+            maxDegree = Math.max(maxDegree, graph.degree(v));
+        }
+        int scratchSize = maxDegree;
+
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            int[] source = iteration == 0 ? labels.clone() : labels;
+            AtomicInteger moved = new AtomicInteger();
+            ParallelLoops.forRange(pool, n, (start, end) -> {
+                int[] neighbourLabels = new int[scratchSize];
+                int movedHere = 0;
+                for (int v = start; v < end; v++) {
+                    int count = 0;
+                    for (int e = outOffsets[v]; e < outOffsets[v + 1]; e++) {
+                        neighbourLabels[count++] = source[outTargets[e]];
+                    }
+                    for (int e = inOffsets[v]; e < inOffsets[v + 1]; e++) {
+                        neighbourLabels[count++] = source[inSources[e]];
+                    }
+                    if (count == 0) {
+                        continue;
+                    }
+                    int best = mostFrequent(neighbourLabels, count, labels[v]);
+                    if (best != labels[v]) {
+                        labels[v] = best;
+                        movedHere++;
+                    }
+                }
+                moved.addAndGet(movedHere);
+            });
+            if (moved.get() < minMovedFraction * n) {
+                break;
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * The most frequent label, keeping the current one on a tie (which is what lets the process settle),
+     * and otherwise preferring the smallest label so the choice does not depend on edge order.
+     */
+    private static int mostFrequent(int[] labels, int count, int current) {
+        Arrays.sort(labels, 0, count);
+        int best = current;
+        int bestCount = 0;
+        int currentCount = 0;
+        for (int i = 0; i < count; ) {
+            int j = i;
+            while (j < count && labels[j] == labels[i]) {
+                j++;
+            }
+            int run = j - i;
+            if (labels[i] == current) {
+                currentCount = run;
+            }
+            if (run > bestCount) {
+                best = labels[i];
+                bestCount = run;
+            }
+            i = j;
+        }
+        return currentCount == bestCount ? current : best;
+    }
+}
@@ -0,0 +1,303 @@
+package com.andrew.knowledge_graph.analytics;
+
+import com.andrew.knowledge_graph.graph.DenseGraph;
+import com.andrew.knowledge_graph.graph.DoubleList;
+import com.andrew.knowledge_graph.graph.IntList;
+import com.andrew.knowledge_graph.graph.LongHashSet;
+import com.andrew.knowledge_graph.graph.LongList;
+import com.andrew.knowledge_graph.graph.LongLongHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Link prediction by neighbourhood overlap: two unlinked nodes that share neighbours are probably related.
+ * Every pair two hops apart is scored by
+ * <ul>
+ *     <li>common neighbours, |N(u) and N(v)|;</li>
+ *     <li>Adamic-Adar, the sum of 1 / ln |N(z)| over the shared neighbours z, so a shared neighbour counts for
+ *     more the fewer other neighbours it has;</li>
+ *     <li>Jaccard, |N(u) and N(v)| / |N(u) or N(v)|,</li>
+ * </ul>
+ * and ranked by Adamic-Adar. Direction and relationship type are ignored, and several relationships between
+ * the same two nodes count as one.
+ *
+ * Shared neighbours with more than {@code maxDegree} neighbours are skipped: a hub says little about any one
+ * pair it connects (Adamic-Adar already weighs it down), and expanding hubs is what makes candidate generation
+ * expensive. A node with more than {@code maxDegree} neighbours is scored through the first {@code maxDegree}
+ * of them, by id. Scoring one node therefore costs at most maxDegree^2, however large the graph.
+ */
+public final class LinkPrediction {
+
+    /**
+     * A suggested relationship from the scored node to {@code nodeId}.
+     */
+    public record Suggestion(long nodeId, int commonNeighbours, double adamicAdar, double jaccard) {}
+
+    /**
+     * The distinct neighbours of a node in either direction, without the node itself.
+     */
+    @FunctionalInterface
+    public interface NeighbourSource {
+        long[] neighbours(long nodeId);
+    }
+
+    private LinkPrediction() {}
+
+    /**
+     * The best {@code k} suggestions for one node, best first, reading the graph through {@code source}. Used
+     * for single nodes against the live graph; {@link #computeAll} gives the same answers for every node.
+     */
+    public static List<Suggestion> suggest(long nodeId, NeighbourSource source, int k, int maxDegree) {
+        long[] neighbours = source.neighbours(nodeId);
+        Arrays.sort(neighbours);
+        LongHashSet excluded = new LongHashSet(neighbours.length + 1);
+        excluded.add(nodeId);
+        for (long neighbour : neighbours) {
+            excluded.add(neighbour);
+        }
+
+        // Candidate id to its position in the parallel lists
+        LongLongHashMap positions = new LongLongHashMap();
+        LongList candidates = new LongList();
+        IntList common = new IntList();
+        DoubleList adamicAdar = new DoubleList();
+        for (int i = 0; i < Math.min(neighbours.length, maxDegree); i++) {
+            long[] second = source.neighbours(neighbours[i]);
+            if (second.length < 2 || second.length > maxDegree) {
+                continue;
+            }
+            double weight = 1 / Math.log(second.length);
+            for (long candidate : second) {
+                if (excluded.contains(candidate)) {
+                    continue;
+                }
+                int position = (int) positions.get(candidate, -1);
+                if (position < 0) {
+                    positions.put(candidate, candidates.size());
+                    candidates.add(candidate);
+                    common.add(1);
+                    adamicAdar.add(weight);
+                } else {
+                    common.set(position, common.get(position) + 1);
+                    adamicAdar.set(position, adamicAdar.get(position) + weight);
+                }
+            }
+        }
+
+        int[] best = new int[Math.min(k, candidates.size())];
+        int count = 0;
+        for (int c = 0; c < candidates.size(); c++) {
+            count = insert(best, count, c, (a, b) -> compare(adamicAdar.get(a), common.get(a), candidates.get(a),
+                    adamicAdar.get(b), common.get(b), candidates.get(b)));
+        }
+        List<Suggestion> suggestions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int c = best[i];
+            int candidateDegree = source.neighbours(candidates.get(c)).length;
+            suggestions.add(new Suggestion(candidates.get(c), common.get(c), adamicAdar.get(c),
+                    jaccard(common.get(c), neighbours.length, candidateDegree)));
+        }
+        return suggestions;
+    }
+
+    /**
+     * The best {@code k} suggestions for every node of the snapshot. Nodes are split across the pool, each
+     * worker with its own scratch arrays, so the only shared writes are to each node's own slots.
+     */
+    public static LinkSuggestions computeAll(DenseGraph graph, int k, int maxDegree, ForkJoinPool pool) {
+        int n = graph.nodeCount();
+        int[][] undirected = undirected(graph, pool);
+        int[] offsets = undirected[0];
+        int[] neighbours = undirected[1];
+        int[] degrees = new int[n];
+        for (int v = 0; v < n; v++) {
+            degrees[v] = offsets[v + 1] - offsets[v];
+        }
+
+        int[] counts = new int[n];
+        List<Chunk> chunks = new ArrayList<>();
+        int chunkSize = Math.max(1, n / (pool.getParallelism() * 4));
+        ParallelLoops.forRange(pool, n, chunkSize, (start, end) -> {
+            Chunk chunk = new Chunk(start);
+            Scratch scratch = new Scratch(n, k);
+            for (int u = start; u < end; u++) {
+                counts[u] = scratch.score(u, offsets, neighbours, degrees, maxDegree, chunk);
+            }
+            synchronized (chunks) {
+                chunks.add(chunk);
+            }
+        });
+
+        int[] resultOffsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            resultOffsets[v + 1] = resultOffsets[v] + counts[v];
+        }
+        int total = resultOffsets[n];
+        int[] targets = new int[total];
+        int[] common = new int[total];
+        double[] adamicAdar = new double[total];
+        // Each chunk holds the results of its nodes in node order, starting at its first node's offset
+        for (Chunk chunk : chunks) {
+            int at = resultOffsets[chunk.start];
+            for (int i = 0; i < chunk.targets.size(); i++) {
+                targets[at + i] = chunk.targets.get(i);
+                common[at + i] = chunk.common.get(i);
+                adamicAdar[at + i] = chunk.adamicAdar.get(i);
+            }
+        }
+        return new LinkSuggestions(graph.nodeIds(), degrees, resultOffsets, targets, common, adamicAdar);
+    }
+
+    static double jaccard(int common, int degree, int otherDegree) {
+        int union = degree + otherDegree - common;
+        return union == 0 ? 0 : (double) common / union;
+    }
+
+    // Higher Adamic-Adar first, then more common neighbours, then the lower id, so results are deterministic
+    private static int compare(double adamicAdar, int common, long id, double otherAdamicAdar, int otherCommon,
+                               long otherId) {
+        int order = Double.compare(otherAdamicAdar, adamicAdar);
+        if (order == 0) {
+            order = Integer.compare(otherCommon, common);
+        }
+        return order != 0 ? order : Long.compare(id, otherId);
+    }
+
+    @FunctionalInterface
+    private interface Order {
+        int compare(int a, int b);
+    }
+
+    // Insertion into a short array kept sorted best first; returns the new count
+    private static int insert(int[] best, int count, int candidate, Order order) {
+        if (best.length == 0 || (count == best.length && order.compare(candidate, best[count - 1]) >= 0)) {
+            return count;
+        }
+        int i = Math.min(count, best.length - 1);
+        while (i > 0 && order.compare(candidate, best[i - 1]) < 0) {
+            best[i] = best[i - 1];
+            i--;
+        }
+        best[i] = candidate;
+        return Math.min(count + 1, best.length);
+    }
+
+    // Distinct neighbours in either direction, sorted, without self loops, as {offsets, neighbours}
+    private static int[][] undirected(DenseGraph graph, ForkJoinPool pool) {
+        int n = graph.nodeCount();
+        int[] outOffsets = graph.outOffsets();
+        int[] outTargets = graph.outTargets();
+        int[] inOffsets = graph.inOffsets();
+        int[] inSources = graph.inSources();
+        int[][] lists = new int[n][];
+        ParallelLoops.forRange(pool, n, (start, end) -> {
+            for (int v = start; v < end; v++) {
+                int[] list = new int[graph.degree(v)];
+                int size = 0;
+                for (int e = outOffsets[v]; e < outOffsets[v + 1]; e++) {
+                    list[size++] = outTargets[e];
+                }
+                for (int e = inOffsets[v]; e < inOffsets[v + 1]; e++) {
+                    list[size++] = inSources[e];
+                }
+                Arrays.sort(list);
+                int distinct = 0;
+                for (int i = 0; i < size; i++) {
+                    if (list[i] != v && (distinct == 0 || list[i] != list[distinct - 1])) {
+                        list[distinct++] = list[i];
+                    }
+                }
+                lists[v] = distinct == size ? list : Arrays.copyOf(list, distinct);
+            }
+        });
+        int[] offsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] = offsets[v] + lists[v].length;
+        }
+        int[] neighbours = new int[offsets[n]];
+        for (int v = 0; v < n; v++) {
+            System.arraycopy(lists[v], 0, neighbours, offsets[v], lists[v].length);
+        }
+        return new int[][] {offsets, neighbours};
+    }
+
+    // The results of one contiguous range of nodes, in node order
+    private static final class Chunk {
+
+        final int start;
+        final IntList targets = new IntList();
+        final IntList common = new IntList();
+        final DoubleList adamicAdar = new DoubleList();
+
+        Chunk(int start) {
+            this.start = start;
+        }
+    }
+
+    // Per-worker accumulators indexed by node; only the entries a node touched are reset after it
+    private static final class Scratch {
+
+        private final int[] common;
+        private final double[] adamicAdar;
+        // Equal to the current stamp for the scored node and its neighbours
+        private final int[] excluded;
+        private final IntList touched = new IntList();
+        private final int[] best;
+        private int stamp;
+
+        Scratch(int n, int k) {
+            this.common = new int[n];
+            this.adamicAdar = new double[n];
+            this.excluded = new int[n];
+            this.best = new int[k];
+        }
+
+        int score(int u, int[] offsets, int[] neighbours, int[] degrees, int maxDegree, Chunk chunk) {
+            stamp++;
+            excluded[u] = stamp;
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                excluded[neighbours[e]] = stamp;
+            }
+            touched.clear();
+            int last = offsets[u] + Math.min(degrees[u], maxDegree);
+            for (int e = offsets[u]; e < last; e++) {
+                int z = neighbours[e];
+                if (degrees[z] < 2 || degrees[z] > maxDegree) {
+                    continue;
+                }
+                double weight = 1 / Math.log(degrees[z]);
+                for (int f = offsets[z]; f < offsets[z + 1]; f++) {
+                    int w = neighbours[f];
+                    if (excluded[w] == stamp) {
+                        continue;
+                    }
+                    if (common[w] == 0) {
+                        touched.add(w);
+                    }
+                    common[w]++;
+                    adamicAdar[w] += weight;
+                }
+            }
+
+            // Node indexes follow node ids, so comparing indexes breaks ties the same way as comparing ids
+            int count = 0;
+            for (int i = 0; i < touched.size(); i++) {
+                count = insert(best, count, touched.get(i), (a, b) -> compare(adamicAdar[a], common[a], a,
+                        adamicAdar[b], common[b], b));
+            }
+            for (int i = 0; i < count; i++) {
+                chunk.targets.add(best[i]);
+                chunk.common.add(common[best[i]]);
+                chunk.adamicAdar.add(adamicAdar[best[i]]);
+            }
+            for (int i = 0; i < touched.size(); i++) {
+                common[touched.get(i)] = 0;
+                adamicAdar[touched.get(i)] = 0;
+            }
+            return count;
+        }
+    }
+}
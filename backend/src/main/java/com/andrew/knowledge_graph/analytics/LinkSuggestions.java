@@ -0,0 +1,64 @@
+package com.andrew.knowledge_graph.analytics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The precomputed top suggestions of every node, indexed like the {@link com.andrew.knowledge_graph.graph.DenseGraph}
+ * they were computed from. Like {@link GraphMetrics}, a new instance replaces the old one in a single reference
+ * swap.
+ */
+public final class LinkSuggestions {
+
+    public static final LinkSuggestions EMPTY = new LinkSuggestions(new long[0], new int[0], new int[1], new int[0],
+            new int[0], new double[0]);
+
+    private final long[] nodeIds;
+    private final int[] degrees;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] common;
+    private final double[] adamicAdar;
+
+    /**
+     * @param nodeIds sorted ascending
+     * @param degrees the number of distinct neighbours of each node
+     * @param offsets the suggestions of node i are at [offsets[i], offsets[i + 1]) of the other arrays, best first
+     * @param targets the suggested node, as an index into nodeIds
+     */
+    public LinkSuggestions(long[] nodeIds, int[] degrees, int[] offsets, int[] targets, int[] common,
+                           double[] adamicAdar) {
+        this.nodeIds = nodeIds;
+        this.degrees = degrees;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.common = common;
+        this.adamicAdar = adamicAdar;
+    }
+
+    public int size() {
+        return nodeIds.length;
+    }
+
+    /**
+     * @return the index of the node, or a negative value if it had not been created when these were computed
+     */
+    public int indexOf(long nodeId) {
+        return Arrays.binarySearch(nodeIds, nodeId);
+    }
+
+    /**
+     * Up to {@code limit} suggestions for the node at {@code index}, best first.
+     */
+    public List<LinkPrediction.Suggestion> suggestions(int index, int limit) {
+        int end = Math.min(offsets[index + 1], offsets[index] + limit);
+        List<LinkPrediction.Suggestion> suggestions = new ArrayList<>(Math.max(0, end - offsets[index]));
+        for (int i = offsets[index]; i < end; i++) {
+            int target = targets[i];
+            suggestions.add(new LinkPrediction.Suggestion(nodeIds[target], common[i], adamicAdar[i],
+                    LinkPrediction.jaccard(common[i], degrees[index], degrees[target])));
+        }
+        return suggestions;
+    }
+}
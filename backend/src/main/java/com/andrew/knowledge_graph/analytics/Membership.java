@@ -0,0 +1,65 @@
+package com.andrew.knowledge_graph.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Groups node indexes by a per-node group id (a component or community id), so the members of a group are one
+ * contiguous slice: O(n log g) to build with primitive sorts, O(log g) to find a group.
+ */
+final class Membership {
+
+    private final long[] groups;
+    private final int[] offsets;
+    private final int[] members;
+
+    /**
+     * @param groupIds the group id of every node index
+     */
+    Membership(long[] groupIds) {
+        long[] sorted = groupIds.clone();
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        groups = Arrays.copyOf(sorted, distinct);
+
+        // Counting sort of the node indexes by group
+        offsets = new int[distinct + 1];
+        int[] groupOf = new int[groupIds.length];
+        for (int v = 0; v < groupIds.length; v++) {
+            groupOf[v] = Arrays.binarySearch(groups, groupIds[v]);
+            offsets[groupOf[v] + 1]++;
+        }
+        for (int g = 0; g < distinct; g++) {
+            offsets[g + 1] += offsets[g];
+        }
+        members = new int[groupIds.length];
+        int[] cursor = Arrays.copyOf(offsets, distinct);
+        for (int v = 0; v < groupIds.length; v++) {
+            members[cursor[groupOf[v]]++] = v;
+        }
+    }
+
+    int groupCount() {
+        return groups.length;
+    }
+
+    int size(long groupId) {
+        int g = Arrays.binarySearch(groups, groupId);
+        return g < 0 ? 0 : offsets[g + 1] - offsets[g];
+    }
+
+    /**
+     * Up to {@code limit} member node indexes of the group, in index (and so node id) order.
+     */
+    int[] members(long groupId, int limit) {
+        int g = Arrays.binarySearch(groups, groupId);
+        if (g < 0) {
+            return new int[0];
+        }
+        return Arrays.copyOfRange(members, offsets[g], Math.min(offsets[g + 1], offsets[g] + limit));
+    }
+}
@@ -0,0 +1,70 @@
+package com.andrew.knowledge_graph.analytics;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork-join loops over index ranges, for algorithms that work on primitive arrays indexed by dense node index.
+ */
+public final class ParallelLoops {
+
+    /**
+     * Processes the indexes in [start, end). Ranges never overlap, so bodies may write their own slots of
+     * shared arrays without synchronisation.
+     */
+    @FunctionalInterface
+    public interface RangeBody {
+        void run(int start, int end);
+    }
+
+    // Below this, splitting costs more than it saves
+    private static final int MIN_CHUNK = 1024;
+
+    private ParallelLoops() {}
+
+    /**
+     * Runs {@code body} over [0, size), split into enough chunks to keep every worker busy.
+     */
+    public static void forRange(ForkJoinPool pool, int size, RangeBody body) {
+        forRange(pool, size, Math.max(MIN_CHUNK, size / (pool.getParallelism() * 8)), body);
+    }
+
+    /**
+     * Runs {@code body} over [0, size) in chunks of at most {@code chunkSize} indexes.
+     */
+    public static void forRange(ForkJoinPool pool, int size, int chunkSize, RangeBody body) {
+        if (size <= 0) {
+            return;
+        }
+        if (size <= chunkSize) {
+            body.run(0, size);
+            return;
+        }
+        pool.invoke(new RangeTask(0, size, Math.max(1, chunkSize), body));
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+
+        private final int start;
+        private final int end;
+        private final int chunkSize;
+        private final RangeBody body;
+
+        RangeTask(int start, int end, int chunkSize, RangeBody body) {
+            this.start = start;
+            this.end = end;
+            this.chunkSize = chunkSize;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= chunkSize) {
+                body.run(start, end);
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(new RangeTask(start, middle, chunkSize, body), new RangeTask(middle, end, chunkSize, body));
+        }
+    }
+}
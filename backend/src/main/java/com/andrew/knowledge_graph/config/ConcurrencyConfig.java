@@ -0,0 +1,111 @@
+package com.andrew.knowledge_graph.config;
+
+import com.andrew.knowledge_graph.concurrency.ConcurrencyLimitingDataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.graphql.data.method.annotation.support.AnnotatedControllerConfigurer;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Request concurrency. With spring.threads.virtual.enabled=true Tomcat serves every request on its own virtual
+ * thread, and GraphQL controller methods (including @BatchMapping loaders) are invoked on virtual threads too, so
+ * independent fields of one operation resolve concurrently instead of one after another on the request thread.
+ * In that mode the DataSource also sits behind a {@link ConcurrencyLimitingDataSource}; with platform threads the
+ * Tomcat thread pool and the connection pool already bound how many threads reach the database.
+ */
+@Configuration
+public class ConcurrencyConfig {
+
+    // Static so the post-processor is registered before the DataSource is created
+    @Bean
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public static ConcurrencyLimitingDataSourcePostProcessor concurrencyLimitingDataSourcePostProcessor(
+            Environment environment, ObjectProvider<MeterRegistry> meterRegistry, ObjectProvider<HikariDataSource> pools) {
+        return new ConcurrencyLimitingDataSourcePostProcessor(environment, meterRegistry, pools);
+    }
+
+    @Bean
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public static BeanPostProcessor virtualThreadControllerPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                // Controller methods with a blocking signature are invoked on the executor
+                if (bean instanceof AnnotatedControllerConfigurer configurer) {
+                    configurer.setExecutor(new VirtualThreadTaskExecutor("graphql-"));
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Wraps the primary "dataSource" bean in a {@link ConcurrencyLimitingDataSource}. It runs first among the
+     * DataSource post-processors, so the limiter sits directly on the pool and MetricsConfig's statement counting
+     * wraps it. The declared return type is this class rather than BeanPostProcessor so the container sees the
+     * order before creating it.
+     */
+    static final class ConcurrencyLimitingDataSourcePostProcessor implements BeanPostProcessor, Ordered {
+
+        private final Environment environment;
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+        private final ObjectProvider<HikariDataSource> pools;
+
+        ConcurrencyLimitingDataSourcePostProcessor(Environment environment, ObjectProvider<MeterRegistry> meterRegistry,
+                                                   ObjectProvider<HikariDataSource> pools) {
+            this.environment = environment;
+            this.meterRegistry = meterRegistry;
+            this.pools = pools;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && "dataSource".equals(beanName)
+                    && !(bean instanceof ConcurrencyLimitingDataSource)) {
+                int configured = environment.getProperty("graph.datasource.max-concurrency", Integer.class, 0);
+                int maxConcurrency = configured > 0 ? configured : poolSize(dataSource);
+                Duration acquireTimeout = environment.getProperty("graph.datasource.acquire-timeout",
+                        Duration.class, Duration.ofSeconds(5));
+                ConcurrencyLimitingDataSource limited =
+                        new ConcurrencyLimitingDataSource(dataSource, maxConcurrency, acquireTimeout);
+                MeterRegistry registry = meterRegistry.getObject();
+                Gauge.builder("db.concurrency.active", limited, ConcurrencyLimitingDataSource::activeConnections)
+                        .description("Threads holding a database permit")
+                        .register(registry);
+                Gauge.builder("db.concurrency.waiting", limited, ConcurrencyLimitingDataSource::waitingThreads)
+                        .description("Threads queued for a database permit")
+                        .register(registry);
+                return limited;
+            }
+            return bean;
+        }
+
+        // One permit per pooled connection: a thread past that would only park inside the pool instead.
+        // In the prod profile "dataSource" routes between the writer and reader pools, so their sizes add up.
+        private int poolSize(DataSource dataSource) {
+            if (dataSource instanceof HikariDataSource pool) {
+                return pool.getMaximumPoolSize();
+            }
+            int total = pools.stream().mapToInt(HikariDataSource::getMaximumPoolSize).sum();
+            return total > 0 ? total : Runtime.getRuntime().availableProcessors();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.andrew.knowledge_graph.config;
+
+import com.andrew.knowledge_graph.persistedquery.PersistedQueryDocumentProvider;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.graphql.GraphQlSourceBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+public class GraphQlConfig {
+
+    @Bean
+    public PersistedQueryDocumentProvider persistedQueryDocumentProvider(
+            @Value("${graph.persisted-queries.document-cache-size:1000}") long documentCacheSize,
+            @Value("${graph.persisted-queries.query-store-size:10000}") long queryStoreSize,
+            @Value("${graph.persisted-queries.allowlist-only:false}") boolean allowlistOnly,
+            @Value("${graph.persisted-queries.manifest:classpath:graphql/persisted-queries.json}") Resource manifest,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) throws IOException {
+        Map<String, String> allowlist = readManifest(manifest, objectMapper);
+        if (allowlistOnly && allowlist.isEmpty()) {
+            throw new IllegalStateException("graph.persisted-queries.allowlist-only is set but " + manifest + " has no operations");
+        }
+        PersistedQueryDocumentProvider provider =
+                new PersistedQueryDocumentProvider(documentCacheSize, queryStoreSize, allowlistOnly, allowlist);
+        CaffeineCacheMetrics.monitor(meterRegistry, provider.documentCache(), "graphql.documents");
+        CaffeineCacheMetrics.monitor(meterRegistry, provider.queryCache(), "graphql.persisted-queries");
+        return provider;
+    }
+
+    @Bean
+    public GraphQlSourceBuilderCustomizer persistedQueryCustomizer(PersistedQueryDocumentProvider provider) {
+        return builder -> builder.configureGraphQl(graphQl -> graphQl.preparsedDocumentProvider(provider));
+    }
+
+    // Apollo persisted query manifest: {"operations": [{"id": "<sha256>", "body": "<query>", ...}]}
+    private static Map<String, String> readManifest(Resource manifest, ObjectMapper objectMapper) throws IOException {
+        Map<String, String> queries = new HashMap<>();
+        if (!manifest.exists()) {
+            return queries;
+        }
+        try (InputStream in = manifest.getInputStream()) {
+            for (JsonNode operation : objectMapper.readTree(in).path("operations")) {
+                String body = operation.path("body").asText();
+                String hash = PersistedQueryDocumentProvider.sha256(body);
+                if (!hash.equals(operation.path("id").asText().toLowerCase())) {
+                    throw new IllegalStateException("Persisted query manifest entry " + operation.path("id").asText()
+                            + " does not match the SHA-256 of its body");
+                }
+                queries.put(hash, body);
+            }
+        }
+        return queries;
+    }
+}
@@ -0,0 +1,55 @@
+package com.andrew.knowledge_graph.config;
+
+import com.andrew.knowledge_graph.metrics.StatementCountingDataSource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class MetricsConfig {
+
+    // Static so the post-processor is registered before the DataSource is created.
+    // Only the primary "dataSource" bean is wrapped; in the prod profile that is the read/write routing proxy.
+    @Bean
+    public static StatementCountingDataSourcePostProcessor statementCountingDataSourcePostProcessor(
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return new StatementCountingDataSourcePostProcessor(meterRegistry);
+    }
+
+    /**
+     * Runs last among the DataSource post-processors, so every statement is counted at the outermost wrapper.
+     * The declared return type is this class rather than BeanPostProcessor so the container sees the order.
+     */
+    static final class StatementCountingDataSourcePostProcessor implements BeanPostProcessor, Ordered {
+
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+
+        StatementCountingDataSourcePostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && "dataSource".equals(beanName)
+                    && !(bean instanceof StatementCountingDataSource)) {
+                Counter statements = Counter.builder("db.statements")
+                        .description("SQL statements prepared")
+                        .register(meterRegistry.getObject());
+                return new StatementCountingDataSource(dataSource, statements);
+            }
+            return bean;
+        }
+    }
+}
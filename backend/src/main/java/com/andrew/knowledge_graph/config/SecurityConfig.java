@@ -4,12 +4,14 @@ import com.andrew.knowledge_graph.security.JwtAuthenticationFilter;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.lang.NonNull;
 
@@ -34,9 +36,17 @@ public class SecurityConfig {
             .csrf(csrf -> csrf.disable())
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+            // Missing or rejected tokens are a 401, not the 403 Spring Security sends when no login method is set up
+            .exceptionHandling(exceptions -> exceptions.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
             .authorizeHttpRequests(auth -> auth 
                 .requestMatchers("/api/auth/**").permitAll()
+                // Scraped by Prometheus, which has no user token. Actuator is only served on the management port,
+                // which listens on localhost (management.server.*), so these are not reachable from outside
+                .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
                 .requestMatchers("/graphql").hasAuthority("ROLE_USER")
+                // The WebSocket handshake carries no token; WebSocketAuthInterceptor checks it in connection_init
+                .requestMatchers("/graphql-ws").permitAll()
+                .requestMatchers("/api/graph/**").hasAuthority("ROLE_USER")
                 .anyRequest().authenticated()
             );
 
@@ -0,0 +1,20 @@
+package com.andrew.knowledge_graph.config;
+
+import com.andrew.knowledge_graph.semantic.HashingTextEmbedder;
+import com.andrew.knowledge_graph.semantic.TextEmbedder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SemanticSearchConfig {
+
+    // Another TextEmbedder bean (e.g. one running a local model) takes over from the hashing embedder
+    @Bean
+    @ConditionalOnMissingBean(TextEmbedder.class)
+    public TextEmbedder textEmbedder(@Value("${graph.semantic.dimensions:256}") int dimensions) {
+        return new HashingTextEmbedder(dimensions);
+    }
+}
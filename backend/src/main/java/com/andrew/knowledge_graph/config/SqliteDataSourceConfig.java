@@ -0,0 +1,92 @@
+package com.andrew.knowledge_graph.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Production persistence setup for SQLite (activate with the "prod" profile).
+ *
+ * The database runs in WAL mode so readers never block the writer or each other. Because SQLite only
+ * allows one writer at a time, writes go through a single-connection pool while reads get a pool sized
+ * to the number of cores. Read-only transactions (@Transactional(readOnly = true), which includes the
+ * Spring Data finder methods) are routed to the read pool; everything else uses the writer.
+ */
+@Configuration
+@Profile("prod")
+public class SqliteDataSourceConfig {
+
+    @Value("${graph.sqlite.journal-mode:WAL}")
+    private String journalMode;
+
+    // NORMAL is durable in WAL mode except for the last transactions before a power loss
+    @Value("${graph.sqlite.synchronous:NORMAL}")
+    private String synchronous;
+
+    // Negative values are in KiB, so -65536 is a 64 MB page cache per connection
+    @Value("${graph.sqlite.cache-size:-65536}")
+    private String cacheSize;
+
+    @Value("${graph.sqlite.mmap-size:268435456}")
+    private String mmapSize;
+
+    @Value("${graph.sqlite.busy-timeout:5000}")
+    private String busyTimeout;
+
+    // 0 means one read connection per available core
+    @Value("${graph.sqlite.read-pool-size:0}")
+    private int readPoolSize;
+
+    @Bean
+    public HikariDataSource writeDataSource(DataSourceProperties properties) {
+        HikariConfig config = baseConfig(properties, "sqlite-writer");
+        config.setMaximumPoolSize(1);
+        return new HikariDataSource(config);
+    }
+
+    @Bean
+    public HikariDataSource readDataSource(DataSourceProperties properties, HikariDataSource writeDataSource) {
+        // Depends on the writer so the database is switched to WAL before any read connection opens it
+        HikariConfig config = baseConfig(properties, "sqlite-reader");
+        int size = readPoolSize > 0 ? readPoolSize : Runtime.getRuntime().availableProcessors();
+        config.setMaximumPoolSize(size);
+        config.setMinimumIdle(size);
+        config.setConnectionInitSql("PRAGMA query_only = 1");
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * The DataSource the rest of the application sees. Connections are only fetched on the first
+     * statement, by which point the transaction's read-only flag is known and picks the pool.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource writeDataSource, HikariDataSource readDataSource) {
+        LazyConnectionDataSourceProxy routing = new LazyConnectionDataSourceProxy(writeDataSource);
+        routing.setReadOnlyDataSource(readDataSource);
+        return routing;
+    }
+
+    // Pragmas are passed as driver properties, which sqlite-jdbc applies to every new connection
+    private HikariConfig baseConfig(DataSourceProperties properties, String poolName) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setJdbcUrl(properties.determineUrl());
+        config.setDriverClassName(properties.determineDriverClassName());
+        config.addDataSourceProperty("journal_mode", journalMode);
+        config.addDataSourceProperty("synchronous", synchronous);
+        config.addDataSourceProperty("cache_size", cacheSize);
+        config.addDataSourceProperty("mmap_size", mmapSize);
+        config.addDataSourceProperty("busy_timeout", busyTimeout);
+        config.addDataSourceProperty("foreign_keys", "true");
+        return config;
+    }
+}
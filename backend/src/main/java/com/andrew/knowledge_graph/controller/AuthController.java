@@ -2,10 +2,12 @@ package com.andrew.knowledge_graph.controller;
 
 import com.andrew.knowledge_graph.repository.RoleRepository;
 import com.andrew.knowledge_graph.repository.UserRepository;
+import com.andrew.knowledge_graph.service.CustomUserDetailsService;
 import com.andrew.knowledge_graph.util.JwtUtil;
 import com.andrew.knowledge_graph.model.Role;
 import com.andrew.knowledge_graph.model.User;
 
+import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -35,6 +37,9 @@ public class AuthController {
     @Autowired
     private PasswordEncoder passwordEncoder; // For /register
 
+    @Autowired
+    private CustomUserDetailsService userDetailsService; // For /register
+
     @PostMapping("/register")
     /**
      * Registers a new user.
@@ -59,6 +64,7 @@ public class AuthController {
         user.setRoles(Set.of(userRole));
 
         userRepository.save(user);
+        userDetailsService.evict(username);
         return ResponseEntity.ok(Map.of("message", "User registered successfully"));
     }
 
@@ -102,12 +108,13 @@ public class AuthController {
             return ResponseEntity.status(401).body(Map.of("error", "Missing refresh token"));
         }
 
-        final String username = jwtUtil.extractClaim(refreshToken, "sub");
+        final Claims claims = jwtUtil.parseAndValidate(refreshToken, JwtUtil.REFRESH_TOKEN);
 
-        if (refreshToken == null || !jwtUtil.isTokenValid(refreshToken, username)) {
+        if (claims == null || claims.getSubject() == null) {
             return ResponseEntity.status(401).body(Map.of("error", "Invalid refresh token"));
         }
 
+        final String username = claims.getSubject();
         final String newAccessToken = jwtUtil.generateAccessToken(username);
         return ResponseEntity.ok(Map.of("accessToken", newAccessToken));
     }
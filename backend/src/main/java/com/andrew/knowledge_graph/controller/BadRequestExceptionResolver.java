@@ -0,0 +1,30 @@
+package com.andrew.knowledge_graph.controller;
+
+import com.andrew.knowledge_graph.service.InvalidArgumentException;
+
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import graphql.schema.DataFetchingEnvironment;
+import org.springframework.graphql.execution.DataFetcherExceptionResolverAdapter;
+import org.springframework.graphql.execution.ErrorType;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports arguments the resolvers reject (malformed cursors, oversized batches, ...) as BAD_REQUEST errors with
+ * their message, instead of as generic internal errors. Only {@link InvalidArgumentException} is mapped: any other
+ * IllegalArgumentException comes from a bug, and its message is not meant for the client.
+ */
+@Component
+public class BadRequestExceptionResolver extends DataFetcherExceptionResolverAdapter {
+
+    @Override
+    protected GraphQLError resolveToSingleError(Throwable ex, DataFetchingEnvironment env) {
+        if (ex instanceof InvalidArgumentException) {
+            return GraphqlErrorBuilder.newError(env)
+                    .errorType(ErrorType.BAD_REQUEST)
+                    .message(ex.getMessage())
+                    .build();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,150 @@
+package com.andrew.knowledge_graph.controller;
+
+import com.andrew.knowledge_graph.analytics.ClusterOverlay;
+import com.andrew.knowledge_graph.analytics.GraphMetrics;
+import com.andrew.knowledge_graph.model.Node;
+import com.andrew.knowledge_graph.model.NodeCentrality;
+import com.andrew.knowledge_graph.model.NodeCluster;
+import com.andrew.knowledge_graph.model.NodeMetric;
+import com.andrew.knowledge_graph.repository.NodeRepository;
+import com.andrew.knowledge_graph.service.GraphAnalyticsService;
+
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.stereotype.Controller;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+
+@Controller
+public class GraphAnalyticsController {
+
+    private static final int MAX_TOP_NODES = 1000;
+    private static final int MAX_CLUSTER_NODES = 1000;
+
+    private final GraphAnalyticsService analyticsService;
+    private final NodeRepository nodeRepository;
+
+    public GraphAnalyticsController(GraphAnalyticsService analyticsService, NodeRepository nodeRepository) {
+        this.analyticsService = analyticsService;
+        this.nodeRepository = nodeRepository;
+    }
+
+    @QueryMapping // Maps to the "topNodes" query
+    public List<Node> topNodes(@Argument NodeMetric metric, @Argument int limit) {
+        return findInOrder(analyticsService.metrics().top(metric, Math.clamp(limit, 0, MAX_TOP_NODES)));
+    }
+
+    @QueryMapping // Maps to the "component" query
+    public NodeCluster component(@Argument String id) {
+        try {
+            long componentId = Long.parseLong(id);
+            int size = analyticsService.clusters().componentSize(componentId);
+            // Ids the last run did not know count as new nodes; only real ones are components
+            if (size == 1 && analyticsService.metrics().indexOf(componentId) < 0 && !nodeRepository.existsById(componentId)) {
+                return null;
+            }
+            return size == 0 ? null : new NodeCluster(id, size, NodeCluster.Kind.COMPONENT);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @QueryMapping // Maps to the "community" query
+    public NodeCluster community(@Argument String id) {
+        try {
+            int size = analyticsService.clusters().communitySize(Long.parseLong(id));
+            return size == 0 ? null : new NodeCluster(id, size, NodeCluster.Kind.COMMUNITY);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @SchemaMapping(typeName = "NodeCluster", field = "nodes")
+    public List<Node> getClusterNodes(NodeCluster cluster, @Argument int limit) {
+        ClusterOverlay clusters = analyticsService.clusters();
+        long id = Long.parseLong(cluster.id());
+        int bounded = Math.clamp(limit, 0, MAX_CLUSTER_NODES);
+        return findInOrder(cluster.kind() == NodeCluster.Kind.COMPONENT
+                ? clusters.componentMembers(id, bounded)
+                : clusters.communityMembers(id, bounded));
+    }
+
+    // Scores are read from memory, so these batches never touch the database
+
+    @BatchMapping(typeName = "Node", field = "rank")
+    public Map<Node, Double> getRank(List<Node> nodes) {
+        GraphMetrics metrics = analyticsService.metrics();
+        Map<Node, Double> result = new HashMap<>();
+        for (Node node : nodes) {
+            int index = metrics.indexOf(node.getId());
+            if (index >= 0) {
+                result.put(node, metrics.score(NodeMetric.PAGE_RANK, index));
+            }
+        }
+        return result;
+    }
+
+    @BatchMapping(typeName = "Node", field = "componentId")
+    public Map<Node, String> getComponentId(List<Node> nodes) {
+        ClusterOverlay clusters = analyticsService.clusters();
+        Map<Node, String> result = new HashMap<>();
+        for (Node node : nodes) {
+            result.put(node, String.valueOf(clusters.componentId(node.getId())));
+        }
+        return result;
+    }
+
+    @BatchMapping(typeName = "Node", field = "communityId")
+    public Map<Node, String> getCommunityId(List<Node> nodes) {
+        ClusterOverlay clusters = analyticsService.clusters();
+        Map<Node, String> result = new HashMap<>();
+        for (Node node : nodes) {
+            Long communityId = clusters.communityId(node.getId());
+            if (communityId != null) {
+                result.put(node, String.valueOf(communityId));
+            }
+        }
+        return result;
+    }
+
+    @BatchMapping(typeName = "Node", field = "centrality")
+    public Map<Node, NodeCentrality> getCentrality(List<Node> nodes) {
+        GraphMetrics metrics = analyticsService.metrics();
+        Map<Node, NodeCentrality> result = new HashMap<>();
+        for (Node node : nodes) {
+            int index = metrics.indexOf(node.getId());
+            if (index >= 0) {
+                result.put(node, new NodeCentrality(
+                        metrics.score(NodeMetric.DEGREE_CENTRALITY, index),
+                        metrics.score(NodeMetric.BETWEENNESS_CENTRALITY, index)));
+            }
+        }
+        return result;
+    }
+
+    // Keeps the given order; nodes deleted since the scores were computed are skipped
+    private List<Node> findInOrder(long[] ids) {
+        List<Long> boxed = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            boxed.add(id);
+        }
+        Map<Long, Node> nodesById = nodeRepository.findAllById(boxed).stream()
+                .collect(Collectors.toMap(Node::getId, Function.identity()));
+        List<Node> nodes = new ArrayList<>(ids.length);
+        for (Long id : boxed) {
+            Node node = nodesById.get(id);
+            if (node != null) {
+                nodes.add(node);
+            }
+        }
+        return nodes;
+    }
+}
@@ -1,31 +1,101 @@
 package com.andrew.knowledge_graph.controller;
 
+import com.andrew.knowledge_graph.graph.GraphIndex;
+import com.andrew.knowledge_graph.model.Direction;
+import com.andrew.knowledge_graph.model.GraphChanges;
+import com.andrew.knowledge_graph.model.ImportGraphResult;
+import com.andrew.knowledge_graph.model.ImportedNode;
+import com.andrew.knowledge_graph.model.Neighborhood;
 import com.andrew.knowledge_graph.model.Node;
 import com.andrew.knowledge_graph.model.Connection;
+import com.andrew.knowledge_graph.model.NodeSearchConnection;
+import com.andrew.knowledge_graph.model.NodeSearchEdge;
+import com.andrew.knowledge_graph.model.PageInfo;
+import com.andrew.knowledge_graph.model.Path;
 import com.andrew.knowledge_graph.model.Relationship;
+import com.andrew.knowledge_graph.model.RelationshipType;
 import com.andrew.knowledge_graph.model.inputs.AddNodeInput;
+import com.andrew.knowledge_graph.model.inputs.ImportGraphInput;
+import com.andrew.knowledge_graph.model.inputs.ImportNodeInput;
+import com.andrew.knowledge_graph.model.inputs.ImportRecord;
+import com.andrew.knowledge_graph.model.inputs.ImportRelationshipInput;
 import com.andrew.knowledge_graph.model.inputs.LinkNodesInput;
+import com.andrew.knowledge_graph.repository.NodeSearchRepository;
+import com.andrew.knowledge_graph.service.GraphChangeService;
+import com.andrew.knowledge_graph.service.GraphImportService;
+import com.andrew.knowledge_graph.service.GraphTraversalService;
+import com.andrew.knowledge_graph.service.GraphWritePipeline;
+import com.andrew.knowledge_graph.service.GraphWriteService;
+import com.andrew.knowledge_graph.service.InvalidArgumentException;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
-import org.springframework.graphql.data.method.annotation.SchemaMapping;
 import org.springframework.stereotype.Controller;
 
-import java.util.List;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
 
 
 @Controller
 public class GraphController {
 
+    private static final Logger log = LoggerFactory.getLogger(GraphController.class);
+
+    // Upper bound on keys per batch load; keeps IN (...) lists well under SQLite's parameter limit
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    // Larger imports should be streamed to the REST endpoint instead of held in one GraphQL document
+    private static final int MAX_IMPORT_MUTATION_SIZE = 10_000;
+    private static final int MAX_CHANGES_PAGE_SIZE = 10_000;
+
     private final com.andrew.knowledge_graph.repository.NodeRepository nodeRepository;
     private final com.andrew.knowledge_graph.repository.RelationshipRepository relationshipRepository;
+    private final NodeSearchRepository nodeSearchRepository;
+    private final GraphIndex graphIndex;
+    private final GraphTraversalService traversalService;
+    private final GraphImportService importService;
+    private final GraphWriteService writeService;
+    private final GraphWritePipeline writePipeline;
+    private final GraphChangeService changeService;
 
     public GraphController(com.andrew.knowledge_graph.repository.NodeRepository nodeRepository,
-                          com.andrew.knowledge_graph.repository.RelationshipRepository relationshipRepository) {
+                          com.andrew.knowledge_graph.repository.RelationshipRepository relationshipRepository,
+                          NodeSearchRepository nodeSearchRepository,
+                          GraphIndex graphIndex,
+                          GraphTraversalService traversalService,
+                          GraphImportService importService,
+                          GraphWriteService writeService,
+                          GraphWritePipeline writePipeline,
+                          GraphChangeService changeService) {
         this.nodeRepository = nodeRepository;
         this.relationshipRepository = relationshipRepository;
+        this.nodeSearchRepository = nodeSearchRepository;
+        this.graphIndex = graphIndex;
+        this.traversalService = traversalService;
+        this.importService = importService;
+        this.writeService = writeService;
+        this.writePipeline = writePipeline;
+        this.changeService = changeService;
     }
 
     // Query methods
@@ -41,11 +111,103 @@ public class GraphController {
     }
 
     @QueryMapping // Maps to the "searchNodes" query
-    public List<Node> searchNodes(@Argument String titleQuery) {
-        // Example: find all nodes containing the titleQuery in their title
-        return nodeRepository.findAll().stream()
-                .filter(node -> node.getTitle() != null && node.getTitle().toLowerCase().contains(titleQuery.toLowerCase()))
-                .toList();
+    public List<Node> searchNodes(@Argument String titleQuery, @Argument Integer limit) {
+        // Bounded like every other list; an empty query gives the first nodes, and nodeSearch pages through the rest
+        int pageSize = Math.clamp(limit == null ? DEFAULT_PAGE_SIZE : limit, 1, MAX_PAGE_SIZE);
+        List<NodeSearchRepository.SearchHit> hits = nodeSearchRepository.search(titleQuery, pageSize, null, null);
+        return loadInHitOrder(hits);
+    }
+
+    @QueryMapping // Maps to the "nodeSearch" query
+    public NodeSearchConnection nodeSearch(@Argument String query, @Argument Integer first, @Argument String after) {
+        int pageSize = Math.clamp(first == null ? DEFAULT_PAGE_SIZE : first, 1, MAX_PAGE_SIZE);
+        Double afterScore = null;
+        Long afterId = null;
+        if (after != null) {
+            NodeSearchRepository.SearchHit position = decodeCursor(after);
+            afterScore = position.score();
+            afterId = position.nodeId();
+        }
+
+        // Fetch one extra hit to find out whether there is another page
+        List<NodeSearchRepository.SearchHit> hits = nodeSearchRepository.search(query, pageSize + 1, afterScore, afterId);
+        boolean hasNextPage = hits.size() > pageSize;
+        List<NodeSearchRepository.SearchHit> page = hasNextPage ? hits.subList(0, pageSize) : hits;
+
+        Map<Long, Node> nodesById = findNodesById(page.stream().map(NodeSearchRepository.SearchHit::nodeId).toList());
+        List<NodeSearchEdge> edges = new ArrayList<>();
+        for (NodeSearchRepository.SearchHit hit : page) {
+            Node node = nodesById.get(hit.nodeId());
+            if (node != null) {
+                edges.add(new NodeSearchEdge(encodeCursor(hit), node));
+            }
+        }
+        String endCursor = page.isEmpty() ? null : encodeCursor(page.get(page.size() - 1));
+        return new NodeSearchConnection(edges, new PageInfo(hasNextPage, endCursor));
+    }
+
+    @QueryMapping // Maps to the "neighborhood" query
+    public Neighborhood neighborhood(@Argument String id, @Argument int depth, @Argument List<RelationshipType> types,
+                                     @Argument Direction direction, @Argument int limit) {
+        try {
+            long nodeId = Long.parseLong(id);
+            GraphTraversalService.Subgraph subgraph = traversalService.neighborhood(nodeId, depth, toTypeSet(types), direction, limit);
+            List<Node> nodes = loadInOrder(subgraph.nodeIds(), findNodesById(boxed(subgraph.nodeIds())));
+            if (nodes.isEmpty() || !nodes.get(0).getId().equals(nodeId)) {
+                return null; // The start node does not exist
+            }
+            List<Relationship> relationships = loadInOrder(subgraph.relationshipIds(), findRelationshipsById(boxed(subgraph.relationshipIds())));
+            return new Neighborhood(nodes, relationships, subgraph.truncated());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @QueryMapping // Maps to the "shortestPath" query
+    public Path shortestPath(@Argument String fromId, @Argument String toId, @Argument List<RelationshipType> types,
+                             @Argument int maxDepth, @Argument Direction direction) {
+        try {
+            GraphTraversalService.PathResult path = traversalService.shortestPath(
+                    Long.parseLong(fromId), Long.parseLong(toId), toTypeSet(types), direction, maxDepth);
+            if (path == null) {
+                return null;
+            }
+            List<Node> nodes = loadInOrder(path.nodeIds(), findNodesById(boxed(path.nodeIds())));
+            List<Relationship> relationships = loadInOrder(path.relationshipIds(), findRelationshipsById(boxed(path.relationshipIds())));
+            if (nodes.size() != path.nodeIds().length) {
+                return null; // fromId == toId for a node that does not exist
+            }
+            return new Path(nodes, relationships, relationships.size());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @QueryMapping // Maps to the "graphVersion" query
+    public String graphVersion() {
+        return String.valueOf(changeService.currentVersion());
+    }
+
+    @QueryMapping // Maps to the "changesSince" query
+    public GraphChanges changesSince(@Argument String since, @Argument int limit) {
+        long sinceVersion;
+        try {
+            sinceVersion = Long.parseLong(since);
+        } catch (NumberFormatException e) {
+            sinceVersion = -1; // Not a version we ever issued, so the client is told to resync
+        }
+        GraphChangeService.ChangeSet changes = changeService.changesSince(sinceVersion, Math.clamp(limit, 1, MAX_CHANGES_PAGE_SIZE));
+        Map<Long, Node> nodesById = findNodesById(changes.upsertedNodeIds());
+        Map<Long, Relationship> relationshipsById = findRelationshipsById(changes.upsertedRelationshipIds());
+        // Anything missing here was deleted after the change was logged; its tombstone comes in a later page
+        return new GraphChanges(
+                String.valueOf(changes.version()),
+                changes.hasMore(),
+                changes.resyncRequired(),
+                changes.upsertedNodeIds().stream().map(nodesById::get).filter(Objects::nonNull).toList(),
+                changes.upsertedRelationshipIds().stream().map(relationshipsById::get).filter(Objects::nonNull).toList(),
+                changes.deletedNodeIds().stream().map(String::valueOf).toList(),
+                changes.deletedRelationshipIds().stream().map(String::valueOf).toList());
     }
 
     // Mutation methods
@@ -53,7 +215,10 @@ public class GraphController {
     @MutationMapping // Maps to the "addNode" mutation
     public Node addNode(@Argument AddNodeInput input) {
         Node node = new Node(input.title(), input.description());
-        return nodeRepository.save(node);
+        if (writePipeline.isEnabled()) {
+            return await(writePipeline.addNode(node));
+        }
+        return writeService.addNode(node);
     }
 
     @MutationMapping // Maps to the "linkNodes" mutation
@@ -61,76 +226,266 @@ public class GraphController {
         Relationship relationship = new Relationship(
                 input.type(),
                 input.notes(),
-                Long.parseLong(input.fromNodeId()),
-                Long.parseLong(input.toNodeId())
+                parseLinkEndpoint(input.fromNodeId()),
+                parseLinkEndpoint(input.toNodeId())
         );
-        return relationshipRepository.save(relationship);
+        if (writePipeline.isEnabled()) {
+            // The pipeline adds the edge to the index itself, once its batch has committed
+            return await(writePipeline.linkNode(relationship));
+        }
+        Relationship saved = writeService.linkNode(relationship);
+        graphIndex.addEdges(List.of(saved));
+        return saved;
+    }
+
+    @MutationMapping // Maps to the "importGraph" mutation
+    public ImportGraphResult importGraph(@Argument ImportGraphInput input) {
+        List<ImportNodeInput> nodeInputs = input.nodes() == null ? List.of() : input.nodes();
+        List<ImportRelationshipInput> relationshipInputs = input.relationships() == null ? List.of() : input.relationships();
+        if (nodeInputs.size() + relationshipInputs.size() > MAX_IMPORT_MUTATION_SIZE) {
+            throw new InvalidArgumentException("importGraph accepts at most " + MAX_IMPORT_MUTATION_SIZE
+                    + " items; use POST /api/graph/import for larger graphs");
+        }
+
+        // Nodes go first so relationships can refer to them by ref
+        Iterator<ImportRecord> records = Stream.concat(
+                nodeInputs.stream().map(ImportRecord::node),
+                relationshipInputs.stream().map(ImportRecord::relationship)).iterator();
+        GraphImportService.ImportSummary summary = importService.importRecords(records);
+
+        List<ImportedNode> importedNodes = new ArrayList<>();
+        for (ImportNodeInput nodeInput : nodeInputs) {
+            Node node = new Node(nodeInput.title(), nodeInput.description());
+            node.setId(summary.nodeIdsByRef().get(nodeInput.ref()));
+            importedNodes.add(new ImportedNode(nodeInput.ref(), node));
+        }
+        return new ImportGraphResult(importedNodes, summary.relationshipCount());
+    }
+
+    @MutationMapping // Maps to the "linkNodesBatch" mutation
+    public List<Relationship> linkNodesBatch(@Argument List<LinkNodesInput> inputs) {
+        if (inputs.size() > MAX_IMPORT_MUTATION_SIZE) {
+            throw new InvalidArgumentException("linkNodesBatch accepts at most " + MAX_IMPORT_MUTATION_SIZE + " links");
+        }
+        List<Relationship> relationships = new ArrayList<>(inputs.size());
+        for (LinkNodesInput input : inputs) {
+            relationships.add(new Relationship(
+                    input.type(),
+                    input.notes(),
+                    parseLinkEndpoint(input.fromNodeId()),
+                    parseLinkEndpoint(input.toNodeId())
+            ));
+        }
+        List<Relationship> saved = writeService.linkNodes(relationships);
+        graphIndex.addEdges(saved);
+        return saved;
     }
 
     @MutationMapping // Maps to the "deleteNode" mutation
     public String deleteNode(@Argument String id) {
-        System.out.println("Deleting node with ID: " + id);
+        log.debug("Deleting node {}", id);
         try {
-            Long nodeId = Long.parseLong(id);
-            // Delete all relationships where this node is source or target
-            relationshipRepository.findByFromNodeId(nodeId).forEach(rel -> relationshipRepository.deleteById(rel.getId()));
-            relationshipRepository.findByToNodeId(nodeId).forEach(rel -> relationshipRepository.deleteById(rel.getId()));
-            // Delete the node itself
-            nodeRepository.deleteById(nodeId);
+            List<Long> deleted = writeService.deleteNodes(List.of(Long.parseLong(id)));
+            graphIndex.removeNodes(deleted);
             return id;
         } catch (NumberFormatException e) {
             return null;
         }
     }
 
+    @MutationMapping // Maps to the "deleteNodes" mutation
+    public List<String> deleteNodes(@Argument List<String> ids) {
+        List<Long> deleted = writeService.deleteNodes(parseIds(ids));
+        graphIndex.removeNodes(deleted);
+        return deleted.stream().map(String::valueOf).toList();
+    }
+
     @MutationMapping // Maps to the "deleteLink" mutation
     public String deleteLink(@Argument String id) {
-        System.out.println("Deleting link with ID: " + id);
+        log.debug("Deleting link {}", id);
         try {
-            Long relId = Long.parseLong(id);
-            relationshipRepository.deleteById(relId);
+            List<Long> deleted = writeService.deleteLinks(List.of(Long.parseLong(id)));
+            graphIndex.removeEdges(deleted);
             return id;
         } catch (NumberFormatException e) {
             return null;
         }
     }
+
+    @MutationMapping // Maps to the "deleteLinks" mutation
+    public List<String> deleteLinks(@Argument List<String> ids) {
+        List<Long> deleted = writeService.deleteLinks(parseIds(ids));
+        graphIndex.removeEdges(deleted);
+        return deleted.stream().map(String::valueOf).toList();
+    }
     
     // Field resolvers for Nodes.connections
+    // These are batch mappings: each one runs once per GraphQL request level with every
+    // parent object of that level, so a full-graph query costs a constant number of queries.
 
-    @SchemaMapping(typeName = "Relationship", field = "from")
-    public Node getFromNode(Relationship relationship) {
-        return nodeRepository.findById(relationship.getFromNodeId()).orElse(null);
+    @BatchMapping(typeName = "Relationship", field = "from", maxBatchSize = MAX_BATCH_SIZE)
+    public Map<Relationship, Node> getFromNode(List<Relationship> relationships) {
+        Map<Long, Node> nodesById = findNodesById(relationships.stream().map(Relationship::getFromNodeId).toList());
+        Map<Relationship, Node> result = new HashMap<>();
+        for (Relationship rel : relationships) {
+            Node node = nodesById.get(rel.getFromNodeId());
+            if (node != null) {
+                result.put(rel, node);
+            }
+        }
+        return result;
     }
 
-    @SchemaMapping(typeName = "Relationship", field = "to")
-    public Node getToNode(Relationship relationship) {
-        return nodeRepository.findById(relationship.getToNodeId()).orElse(null);
+    @BatchMapping(typeName = "Relationship", field = "to", maxBatchSize = MAX_BATCH_SIZE)
+    public Map<Relationship, Node> getToNode(List<Relationship> relationships) {
+        Map<Long, Node> nodesById = findNodesById(relationships.stream().map(Relationship::getToNodeId).toList());
+        Map<Relationship, Node> result = new HashMap<>();
+        for (Relationship rel : relationships) {
+            Node node = nodesById.get(rel.getToNodeId());
+            if (node != null) {
+                result.put(rel, node);
+            }
+        }
+        return result;
     }
 
-    @SchemaMapping(typeName = "Node", field = "connections")
-    public List<Connection> getConnections(Node node) {
-        System.out.println("Fetching connections for node: " + node.getId());
-        Long nodeId = node.getId();
-        // Find all relationships where this node is either the source or target
-        List<Relationship> outgoing = relationshipRepository.findByFromNodeId(nodeId);
-        List<Relationship> incoming = relationshipRepository.findByToNodeId(nodeId);
+    @BatchMapping(typeName = "Node", field = "connections", maxBatchSize = MAX_BATCH_SIZE)
+    public Map<Node, List<Connection>> getConnections(List<Node> nodes) {
+        log.debug("Fetching connections for {} nodes", nodes.size());
+        // Neighbour and relationship ids come from the in-memory index; outgoing edges are visited before incoming ones
+        Map<Long, List<ConnectionRef>> refsByNodeId = new HashMap<>();
+        Set<Long> relationshipIds = new HashSet<>();
+        Set<Long> otherEndIds = new HashSet<>();
+        for (Node node : nodes) {
+            List<ConnectionRef> refs = new ArrayList<>();
+            graphIndex.forEachEdge(node.getId(), Direction.BOTH, null, (edgeId, neighbourId, type) -> {
+                refs.add(new ConnectionRef(edgeId, neighbourId));
+                relationshipIds.add(edgeId);
+                otherEndIds.add(neighbourId);
+            });
+            refsByNodeId.put(node.getId(), refs);
+        }
+
+        // Load the relationship details and the nodes on the other end by primary key, in one go
+        Map<Long, Relationship> relationships = findRelationshipsById(relationshipIds);
+        Map<Long, Node> otherEnds = findNodesById(otherEndIds);
 
-        // Build Connection objects for outgoing relationships
-        List<Connection> connections = new ArrayList<>();
-        for (Relationship rel : outgoing) {
-            Node target = nodeRepository.findById(rel.getToNodeId()).orElse(null);
-            if (target != null) {
-                connections.add(new Connection(rel, target));
+        Map<Node, List<Connection>> result = new LinkedHashMap<>();
+        for (Node node : nodes) {
+            List<Connection> connections = new ArrayList<>();
+            for (ConnectionRef ref : refsByNodeId.get(node.getId())) {
+                Relationship rel = relationships.get(ref.relationshipId());
+                Node other = otherEnds.get(ref.nodeId());
+                if (rel != null && other != null) {
+                    connections.add(new Connection(rel, other));
+                }
             }
+            result.put(node, connections);
+        }
+        return result;
+    }
+
+    private record ConnectionRef(long relationshipId, long nodeId) {}
+
+    private Map<Long, Relationship> findRelationshipsById(Collection<Long> ids) {
+        List<Long> distinctIds = ids.stream().distinct().toList();
+        Map<Long, Relationship> relationshipsById = new HashMap<>();
+        for (int i = 0; i < distinctIds.size(); i += MAX_BATCH_SIZE) {
+            List<Long> chunk = distinctIds.subList(i, Math.min(i + MAX_BATCH_SIZE, distinctIds.size()));
+            relationshipRepository.findAllById(chunk).forEach(rel -> relationshipsById.put(rel.getId(), rel));
+        }
+        return relationshipsById;
+    }
+
+    // Loads nodes by ID, chunked so large batches stay under SQLite's bound parameter limit
+    private Map<Long, Node> findNodesById(Collection<Long> ids) {
+        List<Long> distinctIds = ids.stream().distinct().toList();
+        Map<Long, Node> nodesById = new HashMap<>();
+        for (int i = 0; i < distinctIds.size(); i += MAX_BATCH_SIZE) {
+            List<Long> chunk = distinctIds.subList(i, Math.min(i + MAX_BATCH_SIZE, distinctIds.size()));
+            nodeRepository.findAllById(chunk).forEach(node -> nodesById.put(node.getId(), node));
         }
-        // Build Connection objects for incoming relationships
-        for (Relationship rel : incoming) {
-            Node source = nodeRepository.findById(rel.getFromNodeId()).orElse(null);
-            if (source != null) {
-                connections.add(new Connection(rel, source));
+        return nodesById;
+    }
+
+    private List<Node> loadInHitOrder(List<NodeSearchRepository.SearchHit> hits) {
+        Map<Long, Node> nodesById = findNodesById(hits.stream().map(NodeSearchRepository.SearchHit::nodeId).toList());
+        return hits.stream()
+                .map(hit -> nodesById.get(hit.nodeId()))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    // Cursors are opaque to clients: base64 of "<score>:<nodeId>" for the last hit on a page
+    private static String encodeCursor(NodeSearchRepository.SearchHit hit) {
+        String position = hit.score() + ":" + hit.nodeId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Anything that is not a cursor we issued is rejected as a bad request
+    private static NodeSearchRepository.SearchHit decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = position.split(":");
+            if (parts.length == 2) {
+                return new NodeSearchRepository.SearchHit(Long.parseLong(parts[1]), Double.parseDouble(parts[0]));
             }
+        } catch (IllegalArgumentException e) {
+            // Not base64, or not numbers; NumberFormatException is an IllegalArgumentException too
+        }
+        throw new InvalidArgumentException("Invalid cursor: " + cursor);
+    }
+
+    private static Set<RelationshipType> toTypeSet(List<RelationshipType> types) {
+        return types == null || types.isEmpty() ? null : EnumSet.copyOf(types);
+    }
+
+    // Ids that are not numbers cannot exist, so they are skipped like any other unknown id
+    private static List<Long> parseIds(List<String> ids) {
+        List<Long> parsed = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            try {
+                parsed.add(Long.parseLong(id));
+            } catch (NumberFormatException e) {
+                // skip
+            }
+        }
+        return parsed;
+    }
+
+    // Unlike a lookup or a delete, a link cannot just skip an id that is not a number
+    private static long parseLinkEndpoint(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            throw new InvalidArgumentException("Invalid node id: " + id);
         }
-        return connections;
     }
-}
 
+    private static List<Long> boxed(long[] ids) {
+        return Arrays.stream(ids).boxed().toList();
+    }
+
+    private static <T> List<T> loadInOrder(long[] ids, Map<Long, T> byId) {
+        List<T> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            T value = byId.get(id);
+            if (value != null) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    // Rethrows what the write failed with, so errors look the same as without the pipeline
+    private static <T> T await(CompletableFuture<T> write) {
+        try {
+            return write.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.andrew.knowledge_graph.controller;
+
+import com.andrew.knowledge_graph.layout.NodePositions;
+import com.andrew.knowledge_graph.layout.ViewportIndex;
+import com.andrew.knowledge_graph.model.GraphViewport;
+import com.andrew.knowledge_graph.model.Node;
+import com.andrew.knowledge_graph.model.NodePosition;
+import com.andrew.knowledge_graph.model.Relationship;
+import com.andrew.knowledge_graph.model.ViewportCluster;
+import com.andrew.knowledge_graph.model.ViewportClusterEdge;
+import com.andrew.knowledge_graph.repository.NodeRepository;
+import com.andrew.knowledge_graph.repository.RelationshipRepository;
+import com.andrew.knowledge_graph.service.GraphLayoutService;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.stereotype.Controller;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+
+@Controller
+public class GraphLayoutController {
+
+    // Keeps each IN (...) list well under SQLite's bound parameter limit
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    private final GraphLayoutService layoutService;
+    private final NodeRepository nodeRepository;
+    private final RelationshipRepository relationshipRepository;
+
+    public GraphLayoutController(GraphLayoutService layoutService,
+                                 NodeRepository nodeRepository,
+                                 RelationshipRepository relationshipRepository) {
+        this.layoutService = layoutService;
+        this.nodeRepository = nodeRepository;
+        this.relationshipRepository = relationshipRepository;
+    }
+
+    @QueryMapping // Maps to the "graphViewport" query
+    public GraphViewport graphViewport(@Argument double minX, @Argument double minY, @Argument double maxX,
+                                       @Argument double maxY, @Argument double zoom, @Argument int limit) {
+        GraphLayoutService.Viewport viewport = layoutService.viewport(minX, minY, maxX, maxY, zoom, limit);
+
+        List<ViewportCluster> clusters = new ArrayList<>(viewport.clusters().size());
+        Map<Integer, String> clusterIds = new HashMap<>();
+        for (ViewportIndex.Cluster cluster : viewport.clusters()) {
+            // Ids only mean something within one layout; they change whenever the layout is republished
+            String id = cluster.level() + ":" + cluster.column() + ":" + cluster.row();
+            clusterIds.put(cluster.index(), id);
+            clusters.add(new ViewportCluster(id, cluster.x(), cluster.y(), cluster.size()));
+        }
+        List<ViewportClusterEdge> clusterEdges = viewport.clusterEdges().stream()
+                .map(edge -> new ViewportClusterEdge(clusterIds.get(edge.from()), clusterIds.get(edge.to()), edge.count()))
+                .toList();
+
+        // Nodes or relationships deleted since the layout was published are skipped
+        List<Node> nodes = findInOrder(nodeRepository, viewport.nodeIds(), Node::getId);
+        List<Relationship> relationships = findInOrder(relationshipRepository, viewport.relationshipIds(), Relationship::getId);
+        return new GraphViewport(nodes, relationships, clusters, clusterEdges, viewport.truncated());
+    }
+
+    // Positions are read from memory, so this batch never touches the database
+    @BatchMapping(typeName = "Node", field = "position")
+    public Map<Node, NodePosition> getPosition(List<Node> nodes) {
+        NodePositions positions = layoutService.positions();
+        Map<Node, NodePosition> result = new HashMap<>();
+        for (Node node : nodes) {
+            int index = positions.indexOf(node.getId());
+            if (index >= 0) {
+                result.put(node, new NodePosition(positions.x(index), positions.y(index)));
+            }
+        }
+        return result;
+    }
+
+    private static <T> List<T> findInOrder(CrudRepository<T, Long> repository, long[] ids, Function<T, Long> idOf) {
+        Map<Long, T> byId = new HashMap<>();
+        for (int from = 0; from < ids.length; from += MAX_BATCH_SIZE) {
+            List<Long> chunk = new ArrayList<>();
+            for (int i = from; i < Math.min(ids.length, from + MAX_BATCH_SIZE); i++) {
+                chunk.add(ids[i]);
+            }
+            repository.findAllById(chunk).forEach(entity -> byId.put(idOf.apply(entity), entity));
+        }
+        List<T> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            T entity = byId.get(id);
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,40 @@
+package com.andrew.knowledge_graph.controller;
+
+import com.andrew.knowledge_graph.model.NodeChange;
+import com.andrew.knowledge_graph.model.RelationshipChange;
+import com.andrew.knowledge_graph.service.InvalidArgumentException;
+import com.andrew.knowledge_graph.subscription.GraphChangePublisher;
+
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.SubscriptionMapping;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+
+
+@Controller
+public class GraphSubscriptionController {
+
+    private final GraphChangePublisher changePublisher;
+
+    public GraphSubscriptionController(GraphChangePublisher changePublisher) {
+        this.changePublisher = changePublisher;
+    }
+
+    @SubscriptionMapping // Maps to the "nodeChanged" subscription
+    public Flux<NodeChange> nodeChanged(@Argument String near, @Argument int depth) {
+        try {
+            return changePublisher.nodeChanges(near == null ? null : Long.parseLong(near), depth);
+        } catch (NumberFormatException e) {
+            return Flux.error(new InvalidArgumentException("Invalid node id '" + near + "'"));
+        }
+    }
+
+    @SubscriptionMapping // Maps to the "relationshipChanged" subscription
+    public Flux<RelationshipChange> relationshipChanged(@Argument String near, @Argument int depth) {
+        try {
+            return changePublisher.relationshipChanges(near == null ? null : Long.parseLong(near), depth);
+        } catch (NumberFormatException e) {
+            return Flux.error(new InvalidArgumentException("Invalid node id '" + near + "'"));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.andrew.knowledge_graph.controller;
+
+import com.andrew.knowledge_graph.service.GraphExportService;
+import com.andrew.knowledge_graph.service.GraphImportService;
+import com.andrew.knowledge_graph.service.InvalidArgumentException;
+
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@RequestMapping("/api/graph")
+public class GraphTransferController {
+
+    private final GraphImportService importService;
+    private final GraphExportService exportService;
+
+    public GraphTransferController(GraphImportService importService, GraphExportService exportService) {
+        this.importService = importService;
+        this.exportService = exportService;
+    }
+
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "application/jsonl"})
+    /**
+     * Bulk-imports a graph from an NDJSON request body, one node or relationship per line.
+     * The body is read straight from the request stream, so arbitrarily large files can be sent, e.g.
+     * curl -H "Content-Type: application/x-ndjson" --data-binary @graph.ndjson .../api/graph/import
+     * @param request the raw request, whose body is parsed incrementally
+     * @return JSON with the number of imported nodes and relationships, or an error message
+     */
+    public ResponseEntity<?> importGraph(HttpServletRequest request) throws IOException {
+        try {
+            GraphImportService.ImportSummary summary = importService.importNdjson(request.getInputStream());
+            return ResponseEntity.ok(Map.of(
+                "nodesImported", summary.nodeCount(),
+                "relationshipsImported", summary.relationshipCount()
+            ));
+        } catch (InvalidArgumentException | JacksonException | RuntimeJsonMappingException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+
+    @GetMapping("/export")
+    /**
+     * Streams the whole graph as NDJSON (default) or GraphML, compressed with gzip when the client accepts it.
+     * Rows go from the database cursor to the response as they are read; nothing is buffered in between.
+     * @param format "ndjson" or "graphml"
+     * @param acceptEncoding the client's Accept-Encoding header, checked for gzip support
+     * @return the streamed export, or an error message for an unknown format
+     */
+    public ResponseEntity<?> exportGraph(@RequestParam(defaultValue = "ndjson") String format,
+                                         @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        final boolean graphml = "graphml".equalsIgnoreCase(format);
+        if (!graphml && !"ndjson".equalsIgnoreCase(format)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unsupported export format: " + format));
+        }
+        final boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+
+        StreamingResponseBody body = output -> {
+            OutputStream target = gzip ? new GZIPOutputStream(output, 64 * 1024) : output;
+            if (graphml) {
+                exportService.writeGraphml(target);
+            } else {
+                exportService.writeNdjson(target);
+            }
+            if (target instanceof GZIPOutputStream gzipOutput) {
+                gzipOutput.finish();
+            }
+            target.flush();
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(graphml ? MediaType.APPLICATION_XML : MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"knowledge-graph." + (graphml ? "graphml" : "ndjson") + "\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+}
@@ -0,0 +1,50 @@
+package com.andrew.knowledge_graph.controller;
+
+import com.andrew.knowledge_graph.analytics.LinkPrediction;
+import com.andrew.knowledge_graph.model.LinkSuggestion;
+import com.andrew.knowledge_graph.model.Node;
+import com.andrew.knowledge_graph.repository.NodeRepository;
+import com.andrew.knowledge_graph.service.LinkSuggestionService;
+
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.stereotype.Controller;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+
+@Controller
+public class LinkSuggestionController {
+
+    private static final int MAX_SUGGESTIONS = 100;
+
+    private final LinkSuggestionService linkSuggestionService;
+    private final NodeRepository nodeRepository;
+
+    public LinkSuggestionController(LinkSuggestionService linkSuggestionService, NodeRepository nodeRepository) {
+        this.linkSuggestionService = linkSuggestionService;
+        this.nodeRepository = nodeRepository;
+    }
+
+    @QueryMapping // Maps to the "suggestLinks" query
+    public List<LinkSuggestion> suggestLinks(@Argument String nodeId, @Argument int limit) {
+        List<LinkPrediction.Suggestion> suggestions;
+        try {
+            suggestions = linkSuggestionService.suggest(Long.parseLong(nodeId), Math.clamp(limit, 0, MAX_SUGGESTIONS));
+        } catch (NumberFormatException e) {
+            return List.of();
+        }
+        // Keeps the ranking; nodes deleted since the suggestions were computed are skipped
+        Map<Long, Node> nodesById = nodeRepository.findAllById(
+                        suggestions.stream().map(LinkPrediction.Suggestion::nodeId).toList()).stream()
+                .collect(Collectors.toMap(Node::getId, Function.identity()));
+        return suggestions.stream()
+                .filter(suggestion -> nodesById.containsKey(suggestion.nodeId()))
+                .map(suggestion -> new LinkSuggestion(nodesById.get(suggestion.nodeId()),
+                        suggestion.commonNeighbours(), suggestion.adamicAdar(), suggestion.jaccard()))
+                .toList();
+    }
+}
@@ -0,0 +1,53 @@
+package com.andrew.knowledge_graph.controller;
+
+import com.andrew.knowledge_graph.model.Node;
+import com.andrew.knowledge_graph.repository.NodeRepository;
+import com.andrew.knowledge_graph.semantic.HnswIndex;
+import com.andrew.knowledge_graph.service.SemanticSearchService;
+
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.stereotype.Controller;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+
+@Controller
+public class SemanticSearchController {
+
+    private static final int MAX_RESULTS = 1000;
+
+    private final SemanticSearchService semanticSearchService;
+    private final NodeRepository nodeRepository;
+
+    public SemanticSearchController(SemanticSearchService semanticSearchService, NodeRepository nodeRepository) {
+        this.semanticSearchService = semanticSearchService;
+        this.nodeRepository = nodeRepository;
+    }
+
+    @QueryMapping // Maps to the "similarNodes" query
+    public List<Node> similarNodes(@Argument String id, @Argument int k) {
+        try {
+            return findInOrder(semanticSearchService.similarNodes(Long.parseLong(id), Math.clamp(k, 0, MAX_RESULTS)));
+        } catch (NumberFormatException e) {
+            return List.of();
+        }
+    }
+
+    @QueryMapping // Maps to the "semanticSearch" query
+    public List<Node> semanticSearch(@Argument String text, @Argument int k) {
+        return findInOrder(semanticSearchService.semanticSearch(text, Math.clamp(k, 0, MAX_RESULTS)));
+    }
+
+    // Keeps the ranking; nodes deleted since they were indexed are skipped
+    private List<Node> findInOrder(List<HnswIndex.Hit> hits) {
+        List<Long> ids = hits.stream().map(HnswIndex.Hit::nodeId).toList();
+        Map<Long, Node> nodesById = nodeRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Node::getId, Function.identity()));
+        return ids.stream().map(nodesById::get).filter(Objects::nonNull).toList();
+    }
+}
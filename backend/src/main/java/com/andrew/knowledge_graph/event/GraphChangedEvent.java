@@ -0,0 +1,53 @@
+package com.andrew.knowledge_graph.event;
+
+import com.andrew.knowledge_graph.model.Relationship;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Published inside the writing transaction whenever nodes or relationships are created, updated or deleted.
+ * Deleting a node also deletes its relationships; those are listed as deleted relationships too, so readers of
+ * the change log never keep an edge to a node that is gone.
+ *
+ * {@code linkedNodeIds} are the nodes at either end of the created and deleted relationships, for listeners that
+ * care about which nodes gained or lost a neighbour rather than about the relationships themselves.
+ */
+public record GraphChangedEvent(List<Long> upsertedNodeIds,
+                                List<Long> deletedNodeIds,
+                                List<Long> upsertedRelationshipIds,
+                                List<Long> deletedRelationshipIds,
+                                List<Long> linkedNodeIds) {
+
+    public static GraphChangedEvent nodesUpserted(List<Long> ids) {
+        return new GraphChangedEvent(ids, List.of(), List.of(), List.of(), List.of());
+    }
+
+    public static GraphChangedEvent nodesDeleted(List<Long> ids, List<Long> relationshipIds) {
+        return new GraphChangedEvent(List.of(), ids, List.of(), relationshipIds, List.of());
+    }
+
+    public static GraphChangedEvent relationshipsUpserted(List<Relationship> relationships) {
+        return new GraphChangedEvent(List.of(), List.of(), ids(relationships), List.of(), endpoints(relationships));
+    }
+
+    public static GraphChangedEvent relationshipsDeleted(List<Relationship> relationships) {
+        return new GraphChangedEvent(List.of(), List.of(), List.of(), ids(relationships), endpoints(relationships));
+    }
+
+    public static List<Long> ids(List<Relationship> relationships) {
+        return relationships.stream().map(Relationship::getId).toList();
+    }
+
+    public static List<Long> endpoints(List<Relationship> relationships) {
+        return relationships.stream()
+                .flatMap(rel -> Stream.of(rel.getFromNodeId(), rel.getToNodeId()))
+                .distinct()
+                .toList();
+    }
+
+    public boolean isEmpty() {
+        return upsertedNodeIds.isEmpty() && deletedNodeIds.isEmpty()
+                && upsertedRelationshipIds.isEmpty() && deletedRelationshipIds.isEmpty();
+    }
+}
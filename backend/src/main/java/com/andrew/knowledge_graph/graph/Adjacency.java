@@ -0,0 +1,125 @@
+package com.andrew.knowledge_graph.graph;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The edges of one direction and one relationship type: a compacted CSR base plus a small
+ * map of edges added since the last compaction. Removals are tracked by the owning index.
+ * Not thread-safe; {@link GraphIndex} guards every access with its lock.
+ */
+final class Adjacency {
+
+    private Csr base = Csr.EMPTY;
+    // node id -> interleaved (neighbour id, edge id) pairs added since the last compaction
+    private final Map<Long, LongList> added = new HashMap<>();
+    private int addedCount;
+
+    void add(long nodeId, long neighbourId, long edgeId) {
+        LongList edges = added.computeIfAbsent(nodeId, k -> new LongList(4));
+        edges.add(neighbourId);
+        edges.add(edgeId);
+        addedCount++;
+    }
+
+    /**
+     * Calls the visitor for every live edge of the node.
+     */
+    void forEach(long nodeId, LongHashSet removed, EdgeSink sink) {
+        forEach(nodeId, removed, Integer.MAX_VALUE, sink);
+    }
+
+    /**
+     * Calls the visitor for at most {@code limit} live edges of the node.
+     *
+     * @return the number of edges visited, or -1 if the node has more than {@code limit}
+     */
+    int forEach(long nodeId, LongHashSet removed, int limit, EdgeSink sink) {
+        int visited = 0;
+        int row = base.row(nodeId);
+        if (row >= 0) {
+            for (int i = base.offsets[row]; i < base.offsets[row + 1]; i++) {
+                if (!removed.contains(base.edgeIds[i])) {
+                    if (visited == limit) {
+                        return -1;
+                    }
+                    sink.accept(base.edgeIds[i], base.neighbours[i]);
+                    visited++;
+                }
+            }
+        }
+        LongList edges = added.get(nodeId);
+        if (edges != null) {
+            for (int i = 0; i < edges.size(); i += 2) {
+                long edgeId = edges.get(i + 1);
+                if (!removed.contains(edgeId)) {
+                    if (visited == limit) {
+                        return -1;
+                    }
+                    sink.accept(edgeId, edges.get(i));
+                    visited++;
+                }
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Calls the sink for every live edge in this adjacency.
+     */
+    void forEachEdge(LongHashSet removed, EdgeTripleSink sink) {
+        for (int row = 0; row < base.keys.length; row++) {
+            for (int i = base.offsets[row]; i < base.offsets[row + 1]; i++) {
+                if (!removed.contains(base.edgeIds[i])) {
+                    sink.accept(base.keys[row], base.neighbours[i], base.edgeIds[i]);
+                }
+            }
+        }
+        added.forEach((nodeId, edges) -> {
+            for (int i = 0; i < edges.size(); i += 2) {
+                if (!removed.contains(edges.get(i + 1))) {
+                    sink.accept(nodeId, edges.get(i), edges.get(i + 1));
+                }
+            }
+        });
+    }
+
+    int size() {
+        return base.edgeCount() + addedCount;
+    }
+
+    long sizeInBytes() {
+        return base.sizeInBytes();
+    }
+
+    /**
+     * Folds the added edges into a fresh CSR, dropping removed ones.
+     */
+    void compact(LongHashSet removed) {
+        LongList sources = new LongList(size());
+        LongList targets = new LongList(size());
+        LongList edgeIds = new LongList(size());
+        forEachEdge(removed, (nodeId, neighbourId, edgeId) -> {
+            sources.add(nodeId);
+            targets.add(neighbourId);
+            edgeIds.add(edgeId);
+        });
+        replace(Csr.build(sources, targets, edgeIds));
+    }
+
+    void replace(Csr csr) {
+        base = csr;
+        added.clear();
+        addedCount = 0;
+    }
+
+    @FunctionalInterface
+    interface EdgeSink {
+        void accept(long edgeId, long neighbourId);
+    }
+
+    @FunctionalInterface
+    interface EdgeTripleSink {
+        void accept(long nodeId, long neighbourId, long edgeId);
+    }
+}
@@ -0,0 +1,81 @@
+package com.andrew.knowledge_graph.graph;
+
+import java.util.Arrays;
+
+/**
+ * An immutable compressed sparse row adjacency structure.
+ * Row i holds the edges of node keys[i]; they occupy [offsets[i], offsets[i + 1]) in the
+ * neighbours/edgeIds arrays. Only nodes with at least one edge get a row.
+ */
+final class Csr {
+
+    static final Csr EMPTY = new Csr(new long[0], new int[] {0}, new long[0], new long[0]);
+
+    final long[] keys;
+    final int[] offsets;
+    final long[] neighbours;
+    final long[] edgeIds;
+
+    private Csr(long[] keys, int[] offsets, long[] neighbours, long[] edgeIds) {
+        this.keys = keys;
+        this.offsets = offsets;
+        this.neighbours = neighbours;
+        this.edgeIds = edgeIds;
+    }
+
+    /**
+     * @return the row of the node, or a negative value if it has no edges here
+     */
+    int row(long nodeId) {
+        return Arrays.binarySearch(keys, nodeId);
+    }
+
+    int edgeCount() {
+        return edgeIds.length;
+    }
+
+    long sizeInBytes() {
+        return keys.length * 8L + offsets.length * 4L + neighbours.length * 8L + edgeIds.length * 8L;
+    }
+
+    /**
+     * Builds a CSR from parallel edge lists. Sort cost is O(m log m) on the primitive key array.
+     */
+    static Csr build(LongList sources, LongList targets, LongList edgeIds) {
+        int edgeCount = sources.size();
+        if (edgeCount == 0) {
+            return EMPTY;
+        }
+
+        long[] sorted = sources.toArray();
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < edgeCount; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        long[] keys = Arrays.copyOf(sorted, distinct);
+
+        // Counting pass, then prefix sums turn counts into row offsets
+        int[] offsets = new int[distinct + 1];
+        int[] rows = new int[edgeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            rows[i] = Arrays.binarySearch(keys, sources.get(i));
+            offsets[rows[i] + 1]++;
+        }
+        for (int i = 0; i < distinct; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        long[] neighbours = new long[edgeCount];
+        long[] ids = new long[edgeCount];
+        int[] cursor = Arrays.copyOf(offsets, distinct);
+        for (int i = 0; i < edgeCount; i++) {
+            int position = cursor[rows[i]]++;
+            neighbours[position] = targets.get(i);
+            ids[position] = edgeIds.get(i);
+        }
+        return new Csr(keys, offsets, neighbours, ids);
+    }
+}
@@ -0,0 +1,156 @@
+package com.andrew.knowledge_graph.graph;
+
+import com.andrew.knowledge_graph.model.RelationshipType;
+
+import java.util.Arrays;
+
+/**
+ * An immutable snapshot of the whole graph for whole-graph algorithms (ranking, clustering, layout).
+ *
+ * Nodes are renumbered densely: node {@code i} has database id {@code nodeIds()[i]}, and ids are sorted so
+ * {@link #indexOf} is a binary search. Edges are stored twice in CSR form, grouped by source (out) and by
+ * target (in), as int node indexes plus the relationship type ordinal, so algorithms run over primitive
+ * arrays without boxing or hashing. The arrays are shared, not copied: callers must not modify them.
+ */
+public final class DenseGraph {
+
+    public static final DenseGraph EMPTY = build(new long[0], new LongList(), new LongList(), new LongList());
+
+    private final long[] nodeIds;
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final byte[] outTypes;
+    private final int[] inOffsets;
+    private final int[] inSources;
+    private final byte[] inTypes;
+
+    private DenseGraph(long[] nodeIds, int[] outOffsets, int[] outTargets, byte[] outTypes,
+                       int[] inOffsets, int[] inSources, byte[] inTypes) {
+        this.nodeIds = nodeIds;
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.outTypes = outTypes;
+        this.inOffsets = inOffsets;
+        this.inSources = inSources;
+        this.inTypes = inTypes;
+    }
+
+    /**
+     * @param nodeIds every node id, sorted ascending
+     * @param fromIds source node id per edge
+     * @param toIds target node id per edge
+     * @param types relationship type ordinal per edge
+     * Edges touching an id that is not in {@code nodeIds} are dropped.
+     */
+    public static DenseGraph build(long[] nodeIds, LongList fromIds, LongList toIds, LongList types) {
+        int nodeCount = nodeIds.length;
+        int[] from = new int[fromIds.size()];
+        int[] to = new int[fromIds.size()];
+        byte[] type = new byte[fromIds.size()];
+        int edgeCount = 0;
+        for (int i = 0; i < fromIds.size(); i++) {
+            int source = Arrays.binarySearch(nodeIds, fromIds.get(i));
+            int target = Arrays.binarySearch(nodeIds, toIds.get(i));
+            if (source >= 0 && target >= 0) {
+                from[edgeCount] = source;
+                to[edgeCount] = target;
+                type[edgeCount] = (byte) types.get(i);
+                edgeCount++;
+            }
+        }
+
+        int[] outOffsets = new int[nodeCount + 1];
+        int[] inOffsets = new int[nodeCount + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            outOffsets[from[e] + 1]++;
+            inOffsets[to[e] + 1]++;
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            outOffsets[i + 1] += outOffsets[i];
+            inOffsets[i + 1] += inOffsets[i];
+        }
+
+        int[] outTargets = new int[edgeCount];
+        byte[] outTypes = new byte[edgeCount];
+        int[] inSources = new int[edgeCount];
+        byte[] inTypes = new byte[edgeCount];
+        int[] outCursor = Arrays.copyOf(outOffsets, nodeCount);
+        int[] inCursor = Arrays.copyOf(inOffsets, nodeCount);
+        for (int e = 0; e < edgeCount; e++) {
+            int out = outCursor[from[e]]++;
+            outTargets[out] = to[e];
+            outTypes[out] = type[e];
+            int in = inCursor[to[e]]++;
+            inSources[in] = from[e];
+            inTypes[in] = type[e];
+        }
+        return new DenseGraph(nodeIds, outOffsets, outTargets, outTypes, inOffsets, inSources, inTypes);
+    }
+
+    public int nodeCount() {
+        return nodeIds.length;
+    }
+
+    public int edgeCount() {
+        return outTargets.length;
+    }
+
+    public long nodeId(int index) {
+        return nodeIds[index];
+    }
+
+    /**
+     * @return the dense index of the node, or a negative value if it is not in the snapshot
+     */
+    public int indexOf(long nodeId) {
+        return Arrays.binarySearch(nodeIds, nodeId);
+    }
+
+    public long[] nodeIds() {
+        return nodeIds;
+    }
+
+    /** Out-edges of node i occupy [outOffsets[i], outOffsets[i + 1]) in {@link #outTargets} and {@link #outTypes}. */
+    public int[] outOffsets() {
+        return outOffsets;
+    }
+
+    public int[] outTargets() {
+        return outTargets;
+    }
+
+    /** {@link RelationshipType} ordinals. */
+    public byte[] outTypes() {
+        return outTypes;
+    }
+
+    /** In-edges of node i occupy [inOffsets[i], inOffsets[i + 1]) in {@link #inSources} and {@link #inTypes}. */
+    public int[] inOffsets() {
+        return inOffsets;
+    }
+
+    public int[] inSources() {
+        return inSources;
+    }
+
+    public byte[] inTypes() {
+        return inTypes;
+    }
+
+    public int outDegree(int index) {
+        return outOffsets[index + 1] - outOffsets[index];
+    }
+
+    public int inDegree(int index) {
+        return inOffsets[index + 1] - inOffsets[index];
+    }
+
+    /** Degree ignoring direction; a self-loop counts twice. */
+    public int degree(int index) {
+        return outDegree(index) + inDegree(index);
+    }
+
+    public long sizeInBytes() {
+        return nodeIds.length * 8L + (outOffsets.length + inOffsets.length) * 4L + outTargets.length * 10L;
+    }
+}
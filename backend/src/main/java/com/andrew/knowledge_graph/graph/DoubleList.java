@@ -0,0 +1,49 @@
+package com.andrew.knowledge_graph.graph;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive doubles, the counterpart of {@link LongList} for per-node scores.
+ */
+public final class DoubleList {
+
+    private double[] values;
+    private int size;
+
+    public DoubleList() {
+        this(16);
+    }
+
+    public DoubleList(int initialCapacity) {
+        this.values = new double[Math.max(1, initialCapacity)];
+    }
+
+    public void add(double value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    public double get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return values[index];
+    }
+
+    public void set(int index, double value) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        values[index] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
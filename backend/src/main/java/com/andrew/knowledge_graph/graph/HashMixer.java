@@ -0,0 +1,12 @@
+package com.andrew.knowledge_graph.graph;
+
+final class HashMixer {
+
+    private HashMixer() {}
+
+    // Fibonacci hashing spreads sequential database ids across the whole table
+    static int mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,94 @@
+package com.andrew.knowledge_graph.graph;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash set of primitive longs (linear probing, load factor 0.5).
+ * Long.MIN_VALUE is reserved as the empty-slot marker: it cannot be added and is never contained.
+ * Database ids are always positive so this never matters in practice.
+ */
+public final class LongHashSet {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] slots;
+    private int mask;
+    private int size;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize number of elements the set should hold without resizing
+     */
+    public LongHashSet(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * @return true if the value was not already present
+     * @throws IllegalArgumentException if the value is Long.MIN_VALUE
+     */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            throw new IllegalArgumentException("Long.MIN_VALUE cannot be stored");
+        }
+        int index = indexOf(value);
+        if (slots[index] == value) {
+            return false;
+        }
+        slots[index] = value;
+        if (++size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return true;
+    }
+
+    public boolean contains(long value) {
+        return value != EMPTY && slots[indexOf(value)] == value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, EMPTY);
+        size = 0;
+    }
+
+    // Returns the slot holding the value, or the empty slot where it would be inserted
+    private int indexOf(long value) {
+        int index = HashMixer.mix(value) & mask;
+        while (slots[index] != EMPTY && slots[index] != value) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] old = slots;
+        allocate(newCapacity);
+        for (long value : old) {
+            if (value != EMPTY) {
+                slots[indexOf(value)] = value;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        slots = new long[capacity];
+        Arrays.fill(slots, EMPTY);
+        mask = capacity - 1;
+    }
+
+    static int tableSizeFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        return Math.max(16, capacity);
+    }
+}
@@ -0,0 +1,51 @@
+package com.andrew.knowledge_graph.graph;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive longs, used instead of List<Long> on hot graph paths
+ * to avoid boxing every id.
+ */
+public final class LongList {
+
+    private long[] values;
+    private int size;
+
+    public LongList() {
+        this(16);
+    }
+
+    public LongList(int initialCapacity) {
+        this.values = new long[Math.max(1, initialCapacity)];
+    }
+
+    public void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    public long get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,94 @@
+package com.andrew.knowledge_graph.graph;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from primitive long keys to primitive long values
+ * (linear probing, load factor 0.5). Long.MIN_VALUE is reserved as the empty-key marker and cannot be a key.
+ */
+public final class LongLongHashMap {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+
+    public LongLongHashMap() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize number of entries the map should hold without resizing
+     */
+    public LongLongHashMap(int expectedSize) {
+        allocate(LongHashSet.tableSizeFor(expectedSize));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the key is Long.MIN_VALUE
+     */
+    public void put(long key, long value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Long.MIN_VALUE cannot be a key");
+        }
+        int index = indexOf(key);
+        if (keys[index] != key) {
+            keys[index] = key;
+            if (++size * 2 > keys.length) {
+                values[index] = value;
+                rehash(keys.length * 2);
+                return;
+            }
+        }
+        values[index] = value;
+    }
+
+    /**
+     * @return the value for the key, or {@code defaultValue} if it is absent
+     */
+    public long get(long key, long defaultValue) {
+        if (key == EMPTY) {
+            return defaultValue;
+        }
+        int index = indexOf(key);
+        return keys[index] == key ? values[index] : defaultValue;
+    }
+
+    public boolean containsKey(long key) {
+        return key != EMPTY && keys[indexOf(key)] == key;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int indexOf(long key) {
+        int index = HashMixer.mix(key) & mask;
+        while (keys[index] != EMPTY && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+}
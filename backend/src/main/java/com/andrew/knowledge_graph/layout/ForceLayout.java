@@ -0,0 +1,146 @@
+package com.andrew.knowledge_graph.layout;
+
+import com.andrew.knowledge_graph.analytics.ParallelLoops;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Fruchterman-Reingold force-directed layout with Barnes-Hut repulsion.
+ *
+ * Every node repels every other with force k^2/d (approximated through a {@link QuadTree}, O(n log n) per
+ * iteration instead of O(n^2)), linked nodes attract with force d^2/k, and a weak gravity keeps disconnected
+ * parts from drifting apart. Each iteration computes all displacements in parallel from the same positions
+ * and then applies them, capped by a temperature that cools linearly to zero, so a run always settles.
+ *
+ * Only the {@code movable} nodes are moved; the rest still repel and attract them but stay put. A full layout
+ * moves every node; an incremental one moves the neighbourhood of a change and leaves the rest of the picture
+ * where the user last saw it. The fixed nodes go into one quadtree built once per run, and only the movable
+ * ones are re-indexed every iteration, so an incremental run costs O(m log n) per iteration for m moving nodes.
+ */
+public final class ForceLayout {
+
+    /**
+     * @param idealLength the preferred edge length, k
+     * @param theta Barnes-Hut accuracy: a quadtree cell is treated as one body once its side is below theta times
+     *              its distance (0 is exact)
+     * @param gravity pull towards the origin per unit of distance
+     */
+    public record Settings(double idealLength, double theta, double gravity) {}
+
+    private ForceLayout() {}
+
+    /**
+     * Gives every unplaced node among {@code nodes} a starting position: next to the mean of its placed
+     * neighbours if it has any, otherwise at a random point within {@code spread} of the origin.
+     *
+     * @param placed which nodes already have a position; updated as nodes are placed
+     * @param offsets CSR offsets parallel to {@code nodes}, as for {@link #run}
+     * @param jitter how far from its neighbours' mean a node may land, so new siblings do not coincide
+     */
+    public static void place(double[] x, double[] y, boolean[] placed, int[] nodes, int[] offsets, int[] neighbours,
+                             double jitter, double spread, SplittableRandom random) {
+        // A node whose only neighbours are new can follow them once they are placed, hence the second pass
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < nodes.length; i++) {
+                int v = nodes[i];
+                if (placed[v]) {
+                    continue;
+                }
+                double sumX = 0;
+                double sumY = 0;
+                int count = 0;
+                for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+                    int u = neighbours[e];
+                    if (placed[u]) {
+                        sumX += x[u];
+                        sumY += y[u];
+                        count++;
+                    }
+                }
+                double angle = random.nextDouble(2 * Math.PI);
+                if (count > 0) {
+                    double radius = random.nextDouble(jitter);
+                    x[v] = sumX / count + radius * Math.cos(angle);
+                    y[v] = sumY / count + radius * Math.sin(angle);
+                } else if (pass == 1) {
+                    // Uniform over the disc
+                    double radius = spread * Math.sqrt(random.nextDouble());
+                    x[v] = radius * Math.cos(angle);
+                    y[v] = radius * Math.sin(angle);
+                } else {
+                    continue;
+                }
+                placed[v] = true;
+            }
+        }
+    }
+
+    /**
+     * Moves the movable nodes in place.
+     *
+     * @param x x coordinate per node; updated in place
+     * @param y y coordinate per node; updated in place
+     * @param movable indexes of the nodes that may move, without duplicates
+     * @param offsets CSR offsets parallel to {@code movable}: the neighbours of {@code movable[i]} are
+     *                {@code neighbours[offsets[i]]..neighbours[offsets[i + 1] - 1]}
+     * @param neighbours node indexes of the neighbours, in either direction
+     * @param temperature the largest step a node may take in the first iteration
+     */
+    public static void run(double[] x, double[] y, int[] movable, int[] offsets, int[] neighbours,
+                           Settings settings, int iterations, double temperature, ForkJoinPool pool) {
+        boolean[] moves = new boolean[x.length];
+        for (int v : movable) {
+            moves[v] = true;
+        }
+        int[] fixed = new int[x.length - movable.length];
+        int fixedCount = 0;
+        for (int v = 0; v < x.length; v++) {
+            if (!moves[v]) {
+                fixed[fixedCount++] = v;
+            }
+        }
+        QuadTree fixedTree = new QuadTree(x, y, fixed);
+        double k = settings.idealLength();
+        double repulsion = k * k;
+        double[] dx = new double[movable.length];
+        double[] dy = new double[movable.length];
+
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            QuadTree movableTree = new QuadTree(x, y, movable);
+            double step = temperature * (1 - (double) iteration / iterations);
+            ParallelLoops.forRange(pool, movable.length, 256, (start, end) -> {
+                double[] force = new double[2];
+                for (int i = start; i < end; i++) {
+                    int v = movable[i];
+                    force[0] = -settings.gravity() * x[v];
+                    force[1] = -settings.gravity() * y[v];
+                    fixedTree.repulsion(v, x[v], y[v], settings.theta(), repulsion, force);
+                    movableTree.repulsion(v, x[v], y[v], settings.theta(), repulsion, force);
+                    for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+                        int u = neighbours[e];
+                        double ex = x[v] - x[u];
+                        double ey = y[v] - y[u];
+                        double distance = Math.sqrt(ex * ex + ey * ey);
+                        // d^2/k along the edge, pointing at the neighbour
+                        force[0] -= ex * distance / k;
+                        force[1] -= ey * distance / k;
+                    }
+                    dx[i] = force[0];
+                    dy[i] = force[1];
+                }
+            });
+            // The trees read x and y, so positions only change once every displacement is known
+            ParallelLoops.forRange(pool, movable.length, (start, end) -> {
+                for (int i = start; i < end; i++) {
+                    double length = Math.sqrt(dx[i] * dx[i] + dy[i] * dy[i]);
+                    if (length > 0) {
+                        double scale = Math.min(length, step) / length;
+                        x[movable[i]] += dx[i] * scale;
+                        y[movable[i]] += dy[i] * scale;
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.andrew.knowledge_graph.layout;
+
+import com.andrew.knowledge_graph.graph.LongHashSet;
+
+import java.util.Arrays;
+
+/**
+ * One immutable set of laid-out node positions, sorted by node id. Like
+ * {@link com.andrew.knowledge_graph.analytics.GraphMetrics}, a new instance replaces the old one in a single
+ * reference swap, so readers never see a layout in progress.
+ */
+public final class NodePositions {
+
+    public static final NodePositions EMPTY = new NodePositions(new long[0], new double[0], new double[0]);
+
+    private final long[] nodeIds;
+    private final double[] x;
+    private final double[] y;
+
+    /**
+     * @param nodeIds sorted ascending; {@code x} and {@code y} are parallel to it
+     */
+    public NodePositions(long[] nodeIds, double[] x, double[] y) {
+        this.nodeIds = nodeIds;
+        this.x = x;
+        this.y = y;
+    }
+
+    public int size() {
+        return nodeIds.length;
+    }
+
+    public long nodeId(int index) {
+        return nodeIds[index];
+    }
+
+    /**
+     * @return the index of the node, or a negative value if it has not been laid out
+     */
+    public int indexOf(long nodeId) {
+        return Arrays.binarySearch(nodeIds, nodeId);
+    }
+
+    public double x(int index) {
+        return x[index];
+    }
+
+    public double y(int index) {
+        return y[index];
+    }
+
+    // The arrays themselves, for indexes built over them; not to be modified
+    double[] xs() {
+        return x;
+    }
+
+    double[] ys() {
+        return y;
+    }
+
+    /**
+     * A copy with the given positions added or replaced and the removed nodes left out.
+     *
+     * @param ids nodes to add or move, in any order and without duplicates
+     */
+    public NodePositions with(long[] ids, double[] newX, double[] newY, LongHashSet removed) {
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(ids[a], ids[b]));
+
+        // Merge of two sorted runs; on equal ids the new position wins
+        int capacity = nodeIds.length + ids.length;
+        long[] mergedIds = new long[capacity];
+        double[] mergedX = new double[capacity];
+        double[] mergedY = new double[capacity];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < nodeIds.length || j < order.length) {
+            long oldId = i < nodeIds.length ? nodeIds[i] : Long.MAX_VALUE;
+            long newId = j < order.length ? ids[order[j]] : Long.MAX_VALUE;
+            long id;
+            double px;
+            double py;
+            if (j < order.length && newId <= oldId) {
+                id = newId;
+                px = newX[order[j]];
+                py = newY[order[j]];
+                j++;
+                if (newId == oldId) {
+                    i++;
+                }
+            } else {
+                id = oldId;
+                px = x[i];
+                py = y[i];
+                i++;
+            }
+            if (!removed.contains(id)) {
+                mergedIds[count] = id;
+                mergedX[count] = px;
+                mergedY[count] = py;
+                count++;
+            }
+        }
+        return new NodePositions(Arrays.copyOf(mergedIds, count), Arrays.copyOf(mergedX, count),
+                Arrays.copyOf(mergedY, count));
+    }
+}
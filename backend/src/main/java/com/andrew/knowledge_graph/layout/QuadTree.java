@@ -0,0 +1,246 @@
+package com.andrew.knowledge_graph.layout;
+
+import java.util.Arrays;
+
+/**
+ * A point quadtree over node positions, built once per layout iteration (or per published layout) from
+ * primitive coordinate arrays.
+ *
+ * Cells are stored in parallel arrays and a cell's four children are always consecutive, so a cell is just an
+ * int. The points are permuted so every cell covers one contiguous slice of {@link #points}; leaves hold up to
+ * {@value #LEAF_SIZE} points. Every cell also keeps its point count and centre of mass, which is all
+ * Barnes-Hut needs to stand in for the points below it.
+ */
+public final class QuadTree {
+
+    private static final int LEAF_SIZE = 8;
+    // Coincident points cannot be split; past this depth they share one oversized leaf
+    private static final int MAX_DEPTH = 40;
+    // Squared distance below which two points count as coincident
+    private static final double MIN_DISTANCE_SQUARED = 1e-6;
+
+    private final double[] x;
+    private final double[] y;
+    private final int[] points;
+
+    private int cellCount;
+    private int[] start;
+    private int[] end;
+    private int[] firstChild;
+    private double[] minX;
+    private double[] minY;
+    private double[] side;
+    private double[] centreX;
+    private double[] centreY;
+
+    /**
+     * @param x x coordinate per point; kept, not copied, and must not change while the tree is in use
+     * @param y y coordinate per point
+     * @param indexes the points to include
+     */
+    public QuadTree(double[] x, double[] y, int[] indexes) {
+        this.x = x;
+        this.y = y;
+        this.points = indexes.clone();
+        int capacity = Math.max(4, indexes.length / 2);
+        start = new int[capacity];
+        end = new int[capacity];
+        firstChild = new int[capacity];
+        minX = new double[capacity];
+        minY = new double[capacity];
+        side = new double[capacity];
+        centreX = new double[capacity];
+        centreY = new double[capacity];
+
+        double loX = Double.POSITIVE_INFINITY;
+        double loY = Double.POSITIVE_INFINITY;
+        double hiX = Double.NEGATIVE_INFINITY;
+        double hiY = Double.NEGATIVE_INFINITY;
+        for (int p : points) {
+            loX = Math.min(loX, x[p]);
+            loY = Math.min(loY, y[p]);
+            hiX = Math.max(hiX, x[p]);
+            hiY = Math.max(hiY, y[p]);
+        }
+        if (points.length == 0) {
+            loX = loY = hiX = hiY = 0;
+        }
+        // Square cells, slightly larger than the bounds so the largest coordinates fall inside
+        double rootSide = Math.max(hiX - loX, hiY - loY) * (1 + 1e-9) + 1e-9;
+        int root = newCell(0, points.length, loX, loY, rootSide);
+        split(root, 0);
+    }
+
+    public int size() {
+        return points.length;
+    }
+
+    /**
+     * Adds the Barnes-Hut approximation of the repulsion on ({@code px}, {@code py}) from every point in the
+     * tree, except {@code self}, to {@code force}. Each point pushes with magnitude {@code strength / distance};
+     * a cell whose side is under {@code theta} times its distance acts as one point of its whole mass.
+     *
+     * @param self the index of the point the force acts on, or -1 if it is not in the tree
+     * @param force receives the force as {x, y}
+     */
+    public void repulsion(int self, double px, double py, double theta, double strength, double[] force) {
+        if (points.length == 0) {
+            return;
+        }
+        double thetaSquared = theta * theta;
+        double fx = 0;
+        double fy = 0;
+        int[] stack = new int[4 * MAX_DEPTH + 4];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int cell = stack[--top];
+            int count = end[cell] - start[cell];
+            if (count == 0) {
+                continue;
+            }
+            if (firstChild[cell] < 0) {
+                for (int i = start[cell]; i < end[cell]; i++) {
+                    int p = points[i];
+                    if (p == self) {
+                        continue;
+                    }
+                    double dx = px - x[p];
+                    double dy = py - y[p];
+                    double d2 = dx * dx + dy * dy;
+                    if (d2 < MIN_DISTANCE_SQUARED) {
+                        // Push coincident points apart in a direction that only depends on the pair
+                        dx = p < self ? 0.01 : -0.01;
+                        dy = 0.01;
+                        d2 = MIN_DISTANCE_SQUARED;
+                    }
+                    fx += strength * dx / d2;
+                    fy += strength * dy / d2;
+                }
+                continue;
+            }
+            double dx = px - centreX[cell];
+            double dy = py - centreY[cell];
+            double d2 = dx * dx + dy * dy;
+            if (side[cell] * side[cell] < thetaSquared * d2) {
+                fx += count * strength * dx / d2;
+                fy += count * strength * dy / d2;
+            } else {
+                int child = firstChild[cell];
+                stack[top++] = child;
+                stack[top++] = child + 1;
+                stack[top++] = child + 2;
+                stack[top++] = child + 3;
+            }
+        }
+        force[0] += fx;
+        force[1] += fy;
+    }
+
+    /**
+     * Up to {@code limit} points inside the rectangle (bounds inclusive), in no particular order. Only cells that
+     * overlap the rectangle are visited, so the cost follows the result, not the tree.
+     */
+    public int[] within(double loX, double loY, double hiX, double hiY, int limit) {
+        int[] found = new int[Math.min(limit, points.length)];
+        int count = 0;
+        int[] stack = new int[4 * MAX_DEPTH + 4];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0 && count < found.length) {
+            int cell = stack[--top];
+            if (end[cell] == start[cell] || minX[cell] > hiX || minY[cell] > hiY
+                    || minX[cell] + side[cell] < loX || minY[cell] + side[cell] < loY) {
+                continue;
+            }
+            if (firstChild[cell] < 0) {
+                for (int i = start[cell]; i < end[cell] && count < found.length; i++) {
+                    int p = points[i];
+                    if (x[p] >= loX && x[p] <= hiX && y[p] >= loY && y[p] <= hiY) {
+                        found[count++] = p;
+                    }
+                }
+            } else {
+                int child = firstChild[cell];
+                stack[top++] = child;
+                stack[top++] = child + 1;
+                stack[top++] = child + 2;
+                stack[top++] = child + 3;
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    private void split(int cell, int depth) {
+        int from = start[cell];
+        int to = end[cell];
+        double sumX = 0;
+        double sumY = 0;
+        for (int i = from; i < to; i++) {
+            sumX += x[points[i]];
+            sumY += y[points[i]];
+        }
+        int count = to - from;
+        centreX[cell] = count == 0 ? 0 : sumX / count;
+        centreY[cell] = count == 0 ? 0 : sumY / count;
+        firstChild[cell] = -1;
+        if (count <= LEAF_SIZE || depth == MAX_DEPTH) {
+            return;
+        }
+
+        double half = side[cell] / 2;
+        double midX = minX[cell] + half;
+        double midY = minY[cell] + half;
+        // Quadrants in slice order: lower-left, lower-right, upper-left, upper-right
+        int lowerEnd = partition(from, to, y, midY);
+        int lowerLeftEnd = partition(from, lowerEnd, x, midX);
+        int upperLeftEnd = partition(lowerEnd, to, x, midX);
+
+        int child = newCell(from, lowerLeftEnd, minX[cell], minY[cell], half);
+        newCell(lowerLeftEnd, lowerEnd, midX, minY[cell], half);
+        newCell(lowerEnd, upperLeftEnd, minX[cell], midY, half);
+        newCell(upperLeftEnd, to, midX, midY, half);
+        firstChild[cell] = child;
+        for (int c = child; c < child + 4; c++) {
+            split(c, depth + 1);
+        }
+    }
+
+    // Moves the points in [from, to) with coordinate < pivot to the front; returns where the rest begin
+    private int partition(int from, int to, double[] coordinate, double pivot) {
+        int i = from;
+        int j = to - 1;
+        while (i <= j) {
+            if (coordinate[points[i]] < pivot) {
+                i++;
+            } else {
+                int swap = points[i];
+                points[i] = points[j];
+                points[j] = swap;
+                j--;
+            }
+        }
+        return i;
+    }
+
+    private int newCell(int from, int to, double cellMinX, double cellMinY, double cellSide) {
+        if (cellCount == start.length) {
+            int capacity = cellCount * 2;
+            start = Arrays.copyOf(start, capacity);
+            end = Arrays.copyOf(end, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            minX = Arrays.copyOf(minX, capacity);
+            minY = Arrays.copyOf(minY, capacity);
+            side = Arrays.copyOf(side, capacity);
+            centreX = Arrays.copyOf(centreX, capacity);
+            centreY = Arrays.copyOf(centreY, capacity);
+        }
+        int cell = cellCount++;
+        start[cell] = from;
+        end[cell] = to;
+        minX[cell] = cellMinX;
+        minY[cell] = cellMinY;
+        side[cell] = cellSide;
+        return cell;
+    }
+}
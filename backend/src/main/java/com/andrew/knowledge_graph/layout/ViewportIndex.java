@@ -0,0 +1,309 @@
+package com.andrew.knowledge_graph.layout;
+
+import com.andrew.knowledge_graph.graph.DenseGraph;
+import com.andrew.knowledge_graph.graph.IntList;
+import com.andrew.knowledge_graph.graph.LongList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Spatial index over one published layout, for drawing the part of the graph a client is looking at.
+ *
+ * Individual nodes are found through a {@link QuadTree}. For zoomed-out views the layout is also
+ * pre-aggregated into a pyramid of square grids: level L splits the layout's bounding square into 2^L by 2^L
+ * cells, and every occupied cell keeps its node count, centre of mass and the number of relationships to each
+ * other cell. Levels stop once cells hold only a handful of nodes, where drawing the nodes themselves is cheap.
+ *
+ * Every query costs in proportion to what the viewport shows (at most {@code limit} nodes or cells), not to the
+ * size of the graph. Building costs O((n + e) * levels) and happens on the layout thread whenever a layout is
+ * published.
+ */
+public final class ViewportIndex {
+
+    public static final ViewportIndex EMPTY = build(NodePositions.EMPTY, DenseGraph.EMPTY);
+
+    /**
+     * One occupied grid cell standing in for the nodes in it.
+     *
+     * @param index the cell's position in its level, as used by {@link ClusterEdge}
+     * @param x the centre of mass of the cell's nodes
+     * @param y the centre of mass of the cell's nodes
+     */
+    public record Cluster(int level, int index, int column, int row, int size, double x, double y) {}
+
+    /**
+     * Relationships between two cells of a level, in either direction.
+     */
+    public record ClusterEdge(int from, int to, int count) {}
+
+    // Cells of the finest level hold about this many nodes on average
+    private static final int NODES_PER_FINEST_CELL = 16;
+    // Keeps column and row within 16 bits each
+    private static final int MAX_LEVEL = 15;
+
+    private final NodePositions positions;
+    private final QuadTree tree;
+    private final double originX;
+    private final double originY;
+    private final double side;
+    private final Level[] levels;
+
+    private ViewportIndex(NodePositions positions, QuadTree tree, double originX, double originY, double side,
+                          Level[] levels) {
+        this.positions = positions;
+        this.tree = tree;
+        this.originX = originX;
+        this.originY = originY;
+        this.side = side;
+        this.levels = levels;
+    }
+
+    /**
+     * @param graph the relationships to aggregate; nodes without a position are left out
+     */
+    public static ViewportIndex build(NodePositions positions, DenseGraph graph) {
+        int n = positions.size();
+        double[] x = positions.xs();
+        double[] y = positions.ys();
+        int[] all = new int[n];
+        double loX = n == 0 ? 0 : Double.POSITIVE_INFINITY;
+        double loY = n == 0 ? 0 : Double.POSITIVE_INFINITY;
+        double hiX = n == 0 ? 0 : Double.NEGATIVE_INFINITY;
+        double hiY = n == 0 ? 0 : Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            all[i] = i;
+            loX = Math.min(loX, x[i]);
+            loY = Math.min(loY, y[i]);
+            hiX = Math.max(hiX, x[i]);
+            hiY = Math.max(hiY, y[i]);
+        }
+        QuadTree tree = new QuadTree(x, y, all);
+        double side = Math.max(hiX - loX, hiY - loY) * (1 + 1e-9) + 1e-9;
+
+        // Relationship endpoints as position indexes, looked up once for every level
+        int[] positionOf = new int[graph.nodeCount()];
+        for (int v = 0; v < graph.nodeCount(); v++) {
+            positionOf[v] = positions.indexOf(graph.nodeId(v));
+        }
+        IntList from = new IntList(graph.edgeCount());
+        IntList to = new IntList(graph.edgeCount());
+        int[] outOffsets = graph.outOffsets();
+        int[] outTargets = graph.outTargets();
+        for (int v = 0; v < graph.nodeCount(); v++) {
+            for (int e = outOffsets[v]; e < outOffsets[v + 1]; e++) {
+                int a = positionOf[v];
+                int b = positionOf[outTargets[e]];
+                if (a >= 0 && b >= 0 && a != b) {
+                    from.add(a);
+                    to.add(b);
+                }
+            }
+        }
+
+        int finest = 0;
+        while (finest < MAX_LEVEL && (1L << (2 * (finest + 1))) * NODES_PER_FINEST_CELL <= n) {
+            finest++;
+        }
+        Level[] levels = new Level[finest + 1];
+        for (int level = 0; level <= finest; level++) {
+            levels[level] = new Level(level, x, y, loX, loY, side / (1 << level), from, to);
+        }
+        return new ViewportIndex(positions, tree, loX, loY, side, levels);
+    }
+
+    public NodePositions positions() {
+        return positions;
+    }
+
+    public int levelCount() {
+        return levels.length;
+    }
+
+    /**
+     * Position indexes of up to {@code limit} nodes inside the rectangle.
+     */
+    public int[] nodesWithin(double minX, double minY, double maxX, double maxY, int limit) {
+        return tree.within(minX, minY, maxX, maxY, limit);
+    }
+
+    /**
+     * The finest level whose cells are at least {@code minCellSize} wide and of which at most {@code limit}
+     * cover the rectangle, or 0 if none qualifies.
+     */
+    public int levelFor(double minX, double minY, double maxX, double maxY, double minCellSize, int limit) {
+        for (int level = levels.length - 1; level > 0; level--) {
+            double cellSide = side / (1 << level);
+            double columns = Math.floor((maxX - minX) / cellSide) + 2;
+            double rows = Math.floor((maxY - minY) / cellSide) + 2;
+            if (cellSide >= minCellSize && columns * rows <= limit) {
+                return level;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Up to {@code limit} occupied cells of the level that overlap the rectangle, largest first.
+     */
+    public List<Cluster> clustersWithin(int level, double minX, double minY, double maxX, double maxY, int limit) {
+        Level grid = levels[Math.clamp(level, 0, levels.length - 1)];
+        int maxCell = (1 << grid.level) - 1;
+        int firstColumn = Math.clamp((long) Math.floor((minX - originX) / grid.cellSide), 0, maxCell);
+        int lastColumn = Math.clamp((long) Math.floor((maxX - originX) / grid.cellSide), 0, maxCell);
+        int firstRow = Math.clamp((long) Math.floor((minY - originY) / grid.cellSide), 0, maxCell);
+        int lastRow = Math.clamp((long) Math.floor((maxY - originY) / grid.cellSide), 0, maxCell);
+        List<Cluster> clusters = new ArrayList<>();
+        if (maxX < minX || maxY < minY) {
+            return clusters;
+        }
+        // Keys sort by column, then row, so each column of the rectangle is one slice of the sorted keys
+        for (int column = firstColumn; column <= lastColumn; column++) {
+            int lo = grid.lowerBound(key(column, firstRow));
+            int hi = grid.lowerBound(key(column, lastRow) + 1);
+            for (int cell = lo; cell < hi; cell++) {
+                clusters.add(grid.cluster(cell));
+            }
+        }
+        clusters.sort(Comparator.comparingInt(Cluster::size).reversed());
+        return clusters.size() > limit ? new ArrayList<>(clusters.subList(0, limit)) : clusters;
+    }
+
+    /**
+     * Up to {@code limit} of the heaviest cell-to-cell relationship counts among the given cells of one level.
+     */
+    public List<ClusterEdge> edgesBetween(int level, List<Cluster> clusters, int limit) {
+        Level grid = levels[Math.clamp(level, 0, levels.length - 1)];
+        int[] visible = new int[clusters.size()];
+        for (int i = 0; i < visible.length; i++) {
+            visible[i] = clusters.get(i).index();
+        }
+        Arrays.sort(visible);
+        List<ClusterEdge> edges = new ArrayList<>();
+        for (int cell : visible) {
+            for (int e = grid.edgeOffsets[cell]; e < grid.edgeOffsets[cell + 1]; e++) {
+                int other = grid.edgeTargets[e];
+                // Each pair is stored in both directions; report it once
+                if (cell < other && Arrays.binarySearch(visible, other) >= 0) {
+                    edges.add(new ClusterEdge(cell, other, grid.edgeCounts[e]));
+                }
+            }
+        }
+        edges.sort(Comparator.comparingInt(ClusterEdge::count).reversed());
+        return edges.size() > limit ? new ArrayList<>(edges.subList(0, limit)) : edges;
+    }
+
+    private static long key(int column, int row) {
+        return ((long) column << 32) | row;
+    }
+
+    private static final class Level {
+
+        final int level;
+        final double cellSide;
+        final long[] keys;
+        final int[] sizes;
+        final double[] centreX;
+        final double[] centreY;
+        // Symmetric CSR over cells: neighbouring cell and relationship count
+        final int[] edgeOffsets;
+        final int[] edgeTargets;
+        final int[] edgeCounts;
+
+        Level(int level, double[] x, double[] y, double originX, double originY, double cellSide,
+              IntList from, IntList to) {
+            this.level = level;
+            this.cellSide = cellSide;
+            int n = x.length;
+            int maxCell = (1 << level) - 1;
+            long[] nodeKeys = new long[n];
+            for (int i = 0; i < n; i++) {
+                int column = Math.clamp((long) ((x[i] - originX) / cellSide), 0, maxCell);
+                int row = Math.clamp((long) ((y[i] - originY) / cellSide), 0, maxCell);
+                nodeKeys[i] = key(column, row);
+            }
+            long[] sorted = nodeKeys.clone();
+            Arrays.sort(sorted);
+            int distinct = 0;
+            for (int i = 0; i < n; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[distinct++] = sorted[i];
+                }
+            }
+            keys = Arrays.copyOf(sorted, distinct);
+
+            sizes = new int[distinct];
+            centreX = new double[distinct];
+            centreY = new double[distinct];
+            int[] cellOf = new int[n];
+            for (int i = 0; i < n; i++) {
+                int cell = Arrays.binarySearch(keys, nodeKeys[i]);
+                cellOf[i] = cell;
+                sizes[cell]++;
+                centreX[cell] += x[i];
+                centreY[cell] += y[i];
+            }
+            for (int cell = 0; cell < distinct; cell++) {
+                centreX[cell] /= sizes[cell];
+                centreY[cell] /= sizes[cell];
+            }
+
+            // Count relationships per unordered cell pair, then store every pair in both directions
+            LongList pairs = new LongList();
+            for (int e = 0; e < from.size(); e++) {
+                int a = cellOf[from.get(e)];
+                int b = cellOf[to.get(e)];
+                if (a != b) {
+                    pairs.add(((long) Math.min(a, b) << 32) | Math.max(a, b));
+                }
+            }
+            long[] sortedPairs = pairs.toArray();
+            Arrays.sort(sortedPairs);
+            IntList pairFrom = new IntList();
+            IntList pairTo = new IntList();
+            IntList pairCount = new IntList();
+            for (int i = 0; i < sortedPairs.length; ) {
+                int j = i;
+                while (j < sortedPairs.length && sortedPairs[j] == sortedPairs[i]) {
+                    j++;
+                }
+                pairFrom.add((int) (sortedPairs[i] >>> 32));
+                pairTo.add((int) sortedPairs[i]);
+                pairCount.add(j - i);
+                i = j;
+            }
+            edgeOffsets = new int[distinct + 1];
+            for (int p = 0; p < pairFrom.size(); p++) {
+                edgeOffsets[pairFrom.get(p) + 1]++;
+                edgeOffsets[pairTo.get(p) + 1]++;
+            }
+            for (int cell = 0; cell < distinct; cell++) {
+                edgeOffsets[cell + 1] += edgeOffsets[cell];
+            }
+            edgeTargets = new int[edgeOffsets[distinct]];
+            edgeCounts = new int[edgeOffsets[distinct]];
+            int[] cursor = Arrays.copyOf(edgeOffsets, distinct);
+            for (int p = 0; p < pairFrom.size(); p++) {
+                int a = pairFrom.get(p);
+                int b = pairTo.get(p);
+                edgeTargets[cursor[a]] = b;
+                edgeCounts[cursor[a]++] = pairCount.get(p);
+                edgeTargets[cursor[b]] = a;
+                edgeCounts[cursor[b]++] = pairCount.get(p);
+            }
+        }
+
+        Cluster cluster(int cell) {
+            return new Cluster(level, cell, (int) (keys[cell] >>> 32), (int) keys[cell], sizes[cell],
+                    centreX[cell], centreY[cell]);
+        }
+
+        // The first cell whose key is not below the given one
+        int lowerBound(long key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+}
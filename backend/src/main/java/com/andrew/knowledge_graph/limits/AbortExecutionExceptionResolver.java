@@ -0,0 +1,25 @@
+package com.andrew.knowledge_graph.limits;
+
+import graphql.GraphQLError;
+import graphql.execution.AbortExecutionException;
+import graphql.schema.DataFetchingEnvironment;
+import org.springframework.graphql.execution.DataFetcherExceptionResolverAdapter;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Reports limits hit while resolving (see {@link QueryLimitsInstrumentation}) with their structured errors,
+ * instead of as generic internal errors.
+ */
+@Component
+public class AbortExecutionExceptionResolver extends DataFetcherExceptionResolverAdapter {
+
+    @Override
+    protected List<GraphQLError> resolveToMultipleErrors(Throwable ex, DataFetchingEnvironment env) {
+        if (ex instanceof AbortExecutionException abort && !abort.getUnderlyingErrors().isEmpty()) {
+            return abort.getUnderlyingErrors();
+        }
+        return null;
+    }
+}
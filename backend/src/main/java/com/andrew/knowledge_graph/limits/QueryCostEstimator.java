@@ -0,0 +1,189 @@
+package com.andrew.knowledge_graph.limits;
+
+import com.andrew.knowledge_graph.graph.GraphIndex;
+import com.andrew.knowledge_graph.graph.LongList;
+import com.andrew.knowledge_graph.model.Direction;
+
+import graphql.normalized.ExecutableNormalizedField;
+import graphql.normalized.ExecutableNormalizedOperation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Static cost analysis of a GraphQL operation, before anything is resolved.
+ *
+ * The cost is an estimate of how many objects the operation will resolve, each weighted by its field's weight
+ * (1 unless configured otherwise); scalar fields are free. List sizes come from the arguments that bound them
+ * ({@code limit}, {@code first}, {@code maxDepth}, ...). {@code Node.connections} is priced by actual degree:
+ * whenever the parent node ids are known (from {@code node(id:)} and the connections below it), the adjacency index
+ * is walked to count the exact fan-out; otherwise the average degree is used.
+ */
+@Component
+public class QueryCostEstimator {
+
+    /**
+     * The estimate for one operation. {@code aborted} is true if counting stopped early because the cost already exceeded the limit.
+     */
+    public record Cost(double cost, int depth, boolean aborted) {}
+
+    // A set of parent objects: how many there are and, when known, their node ids
+    private record Parents(double count, LongList nodeIds) {}
+
+    // Above this many known ids, fan-out is estimated rather than counted
+    private static final int MAX_EXACT_IDS = 10_000;
+    private static final long NODE_COUNT_REFRESH_NANOS = 10_000_000_000L;
+
+    private final GraphIndex graphIndex;
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, Double> fieldWeights;
+    private final int nodeBudget;
+
+    private volatile long nodeCount = -1;
+    private volatile long nodeCountReadAt;
+
+    public QueryCostEstimator(GraphIndex graphIndex,
+                              JdbcTemplate jdbcTemplate,
+                              @Value("#{${graph.query-limits.field-weights:{:}}}") Map<String, Double> fieldWeights,
+                              @Value("${graph.traversal.node-budget:100000}") int nodeBudget) {
+        this.graphIndex = graphIndex;
+        this.jdbcTemplate = jdbcTemplate;
+        this.fieldWeights = fieldWeights;
+        this.nodeBudget = nodeBudget;
+    }
+
+    public Cost estimate(ExecutableNormalizedOperation operation, double maxCost) {
+        Estimation estimation = new Estimation(maxCost);
+        int depth = 0;
+        for (ExecutableNormalizedField field : operation.getTopLevelFields()) {
+            if (!field.getName().startsWith("__")) {
+                estimation.visit(field, new Parents(1, null), 1);
+                depth = Math.max(depth, depth(field));
+            }
+        }
+        return new Cost(estimation.cost, depth, estimation.cost > maxCost);
+    }
+
+    private static int depth(ExecutableNormalizedField field) {
+        int depth = field.getLevel();
+        for (ExecutableNormalizedField child : field.getChildren()) {
+            depth = Math.max(depth, depth(child));
+        }
+        return depth;
+    }
+
+    private final class Estimation {
+        final double maxCost;
+        double cost;
+
+        Estimation(double maxCost) {
+            this.maxCost = maxCost;
+        }
+
+        // sizeHint carries a list bound (limit, first, ...) from a root field down to the list fields it bounds
+        void visit(ExecutableNormalizedField field, Parents parents, double sizeHint) {
+            if (field.getChildren().isEmpty() || cost > maxCost) {
+                return; // Scalars are free, and there is no point counting past the limit
+            }
+            String key = field.getSingleObjectTypeName() + "." + field.getName();
+            Map<String, Object> args = field.getResolvedArguments();
+            double childHint = sizeHint;
+            Parents children = switch (key) {
+                case "Query.node" -> new Parents(1, singleId(args.get("id")));
+                case "Query.searchNodes" -> new Parents(Math.clamp(intArg(args, "limit", 20), 1, 100), null);
+                case "Query.nodeSearch" -> {
+                    childHint = Math.clamp(intArg(args, "first", 20), 1, 100);
+                    yield parents;
+                }
+                case "Query.neighborhood" -> {
+                    childHint = Math.clamp(intArg(args, "limit", 500), 1, nodeBudget);
+                    yield parents;
+                }
+                case "Query.shortestPath" -> {
+                    childHint = Math.max(1, intArg(args, "maxDepth", 6)) + 1;
+                    yield parents;
+                }
+                case "Query.changesSince" -> {
+                    childHint = Math.clamp(intArg(args, "limit", 1000), 1, 10_000);
+                    yield parents;
+                }
+                case "Query.graphViewport" -> {
+                    childHint = Math.clamp(intArg(args, "limit", 500), 1, 10_000);
+                    yield parents;
+                }
+                case "Query.topNodes" -> new Parents(Math.clamp(intArg(args, "limit", 10), 0, 1000), null);
+                case "Query.similarNodes", "Query.semanticSearch" ->
+                        new Parents(Math.clamp(intArg(args, "k", 10), 0, 1000), null);
+                case "Query.suggestLinks" -> new Parents(Math.clamp(intArg(args, "limit", 10), 0, 100), null);
+                case "Mutation.linkNodesBatch" -> new Parents(size(args.get("inputs")), null);
+                case "Mutation.deleteNodes", "Mutation.deleteLinks" -> new Parents(size(args.get("ids")), null);
+                case "NodeSearchConnection.edges", "Neighborhood.nodes", "Neighborhood.relationships",
+                     "Path.nodes", "Path.relationships", "GraphChanges.nodes", "GraphChanges.relationships",
+                     "ImportGraphResult.nodes", "GraphViewport.nodes", "GraphViewport.clusters"
+                        -> new Parents(parents.count() * sizeHint, null);
+                // Up to four per node or cluster (see GraphLayoutService)
+                case "GraphViewport.relationships", "GraphViewport.clusterEdges" -> new Parents(parents.count() * sizeHint * 4, null);
+                case "NodeCluster.nodes" -> new Parents(parents.count() * Math.clamp(intArg(args, "limit", 100), 0, 1000), null);
+                case "Node.connections" -> connections(parents);
+                // The neighbour ids collected for connections are the ids of the nodes they lead to
+                case "Connection.node" -> parents;
+                default -> new Parents(parents.count(), null);
+            };
+            cost += children.count() * fieldWeights.getOrDefault(key, 1.0);
+            for (ExecutableNormalizedField child : field.getChildren()) {
+                visit(child, children, childHint);
+            }
+        }
+    }
+
+    private Parents connections(Parents parents) {
+        LongList ids = parents.nodeIds();
+        if (ids == null || ids.size() > MAX_EXACT_IDS) {
+            return new Parents(parents.count() * averageDegree(), null);
+        }
+        LongList neighbours = new LongList();
+        for (int i = 0; i < ids.size() && neighbours.size() <= MAX_EXACT_IDS; i++) {
+            graphIndex.forEachEdge(ids.get(i), Direction.BOTH, null, (edgeId, neighbourId, type) -> neighbours.add(neighbourId));
+        }
+        if (neighbours.size() > MAX_EXACT_IDS) {
+            return new Parents(parents.count() * averageDegree(), null);
+        }
+        return new Parents(neighbours.size(), neighbours);
+    }
+
+    private double averageDegree() {
+        return Math.max(1.0, 2.0 * graphIndex.edgeCount() / Math.max(1, nodeCount()));
+    }
+
+    // Counting rows is a scan in SQLite, so the count is refreshed at most every few seconds
+    private long nodeCount() {
+        long now = System.nanoTime();
+        if (nodeCount < 0 || now - nodeCountReadAt > NODE_COUNT_REFRESH_NANOS) {
+            Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM node", Long.class);
+            nodeCount = count == null ? 0 : count;
+            nodeCountReadAt = now;
+        }
+        return nodeCount;
+    }
+
+    private static LongList singleId(Object id) {
+        try {
+            LongList ids = new LongList(1);
+            ids.add(Long.parseLong(String.valueOf(id)));
+            return ids;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static int intArg(Map<String, Object> args, String name, int defaultValue) {
+        return args.get(name) instanceof Number number ? number.intValue() : defaultValue;
+    }
+
+    private static int size(Object list) {
+        return list instanceof Collection<?> collection ? collection.size() : 1;
+    }
+}
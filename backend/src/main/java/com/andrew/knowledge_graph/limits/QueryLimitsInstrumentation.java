@@ -0,0 +1,143 @@
+package com.andrew.knowledge_graph.limits;
+
+import graphql.ExecutionResult;
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.AbortExecutionException;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationCreateStateParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
+import graphql.schema.DataFetcher;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.graphql.execution.ErrorType;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rejects GraphQL operations that are too deep or too expensive before any resolver runs, using
+ * {@link QueryCostEstimator}, and stops operations that resolve more objects than allowed while they run
+ * (the estimate can be off when it has to fall back to the average degree).
+ *
+ * Rejections are errors with {@code extensions.code} set to QUERY_TOO_DEEP, QUERY_TOO_EXPENSIVE or
+ * TOO_MANY_OBJECTS, along with the measured value and the limit. Every estimated cost is recorded in the
+ * {@code graphql.operation.cost} histogram and stored in the GraphQL context under {@link #COST_KEY}.
+ */
+@Component
+public class QueryLimitsInstrumentation extends SimplePerformantInstrumentation {
+
+    public static final String COST_KEY = "graphql.operation.cost";
+
+    static final class ResolvedObjects implements InstrumentationState {
+        final AtomicLong count = new AtomicLong();
+    }
+
+    private final QueryCostEstimator estimator;
+    private final int maxDepth;
+    private final double maxCost;
+    private final long maxObjects;
+    private final DistributionSummary costSummary;
+    private final MeterRegistry meterRegistry;
+
+    public QueryLimitsInstrumentation(QueryCostEstimator estimator,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${graph.query-limits.max-depth:10}") int maxDepth,
+                                      @Value("${graph.query-limits.max-cost:500000}") double maxCost,
+                                      @Value("${graph.query-limits.max-objects:500000}") long maxObjects) {
+        this.estimator = estimator;
+        this.maxDepth = maxDepth;
+        this.maxCost = maxCost;
+        this.maxObjects = maxObjects;
+        this.meterRegistry = meterRegistry;
+        this.costSummary = DistributionSummary.builder(COST_KEY)
+                .description("Estimated cost of GraphQL operations")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Override
+    public InstrumentationState createState(InstrumentationCreateStateParameters parameters) {
+        return new ResolvedObjects();
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(InstrumentationExecuteOperationParameters parameters,
+                                                                         InstrumentationState state) {
+        ExecutionContext executionContext = parameters.getExecutionContext();
+        QueryCostEstimator.Cost cost = estimator.estimate(executionContext.getNormalizedQueryTree().get(), maxCost);
+        costSummary.record(cost.cost());
+        executionContext.getGraphQLContext().put(COST_KEY, cost.cost());
+
+        if (cost.depth() > maxDepth) {
+            throw reject("QUERY_TOO_DEEP", "Query depth " + cost.depth() + " exceeds the limit of " + maxDepth,
+                    "depth", cost.depth(), maxDepth);
+        }
+        if (cost.aborted()) {
+            // The estimator stops counting once the limit is passed, so the reported cost is a lower bound
+            throw reject("QUERY_TOO_EXPENSIVE", "Query cost exceeds the limit of " + (long) maxCost,
+                    "cost", (long) cost.cost(), (long) maxCost);
+        }
+        return SimpleInstrumentationContext.noOp();
+    }
+
+    @Override
+    public DataFetcher<?> instrumentDataFetcher(DataFetcher<?> dataFetcher, InstrumentationFieldFetchParameters parameters,
+                                                InstrumentationState state) {
+        if (parameters.isTrivialDataFetcher()) {
+            return dataFetcher;
+        }
+        AtomicLong resolved = ((ResolvedObjects) state).count;
+        return environment -> {
+            if (resolved.get() > maxObjects) {
+                throw tooManyObjects(resolved.get());
+            }
+            Object result = dataFetcher.get(environment);
+            if (result instanceof CompletionStage<?> stage) {
+                return stage.thenApply(value -> {
+                    if (resolved.addAndGet(objectCount(value)) > maxObjects) {
+                        throw new CompletionException(tooManyObjects(resolved.get()));
+                    }
+                    return value;
+                });
+            }
+            if (resolved.addAndGet(objectCount(result)) > maxObjects) {
+                throw tooManyObjects(resolved.get());
+            }
+            return result;
+        };
+    }
+
+    private AbortExecutionException tooManyObjects(long resolved) {
+        return reject("TOO_MANY_OBJECTS", "Query resolved more than " + maxObjects + " objects",
+                "objects", resolved, maxObjects);
+    }
+
+    private AbortExecutionException reject(String code, String message, String measure, Number value, Number limit) {
+        meterRegistry.counter("graphql.operation.rejected", "code", code).increment();
+        GraphQLError error = GraphqlErrorBuilder.newError()
+                .errorType(ErrorType.BAD_REQUEST)
+                .message(message)
+                .extensions(Map.of("code", code, measure, value, "limit", limit))
+                .build();
+        return new AbortExecutionException(List.of(error));
+    }
+
+    private static long objectCount(Object value) {
+        if (value instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        return value == null ? 0 : 1;
+    }
+}
@@ -0,0 +1,142 @@
+package com.andrew.knowledge_graph.metrics;
+
+import graphql.ExecutionResult;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationCreateStateParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
+import graphql.language.Field;
+import graphql.language.OperationDefinition;
+import graphql.schema.DataFetcher;
+import graphql.schema.GraphQLObjectType;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records, for every GraphQL request:
+ * <ul>
+ *   <li>{@code graphql.operation}: end-to-end latency, tagged with the operation type, root field and outcome</li>
+ *   <li>{@code graphql.operation.sql.statements}: SQL statements issued while resolving it</li>
+ *   <li>{@code graphql.field}: latency of every non-trivial field resolver, tagged with the parent type and field</li>
+ * </ul>
+ * Property fetchers (plain getters) are not timed, which keeps the per-field overhead off the hot path.
+ * All tags come from the schema, never from client input, so the number of time series stays bounded.
+ */
+@Component
+public class GraphQlMetricsInstrumentation extends SimplePerformantInstrumentation {
+
+    static final class RequestMetrics implements InstrumentationState {
+        final long startNanos = System.nanoTime();
+        final AtomicLong statements = new AtomicLong();
+        volatile String operationType = "unknown";
+        volatile String rootField = "unknown";
+        AtomicLong previousCounter;
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> fieldTimers = new ConcurrentHashMap<>();
+
+    public GraphQlMetricsInstrumentation(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public InstrumentationState createState(InstrumentationCreateStateParameters parameters) {
+        return new RequestMetrics();
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecution(InstrumentationExecutionParameters parameters,
+                                                                  InstrumentationState state) {
+        RequestMetrics metrics = (RequestMetrics) state;
+        // Synchronous resolvers run on this thread before the execution is dispatched
+        metrics.previousCounter = SqlStatementCounter.bind(metrics.statements);
+        parameters.getExecutionInput().getGraphQLContext().put(SqlStatementCounter.CONTEXT_KEY, metrics.statements);
+        return new SimpleInstrumentationContext<>() {
+            @Override
+            public void onDispatched() {
+                SqlStatementCounter.restore(metrics.previousCounter);
+            }
+
+            @Override
+            public void onCompleted(ExecutionResult result, Throwable t) {
+                boolean failed = t != null || (result != null && !result.getErrors().isEmpty());
+                Timer.builder("graphql.operation")
+                        .description("GraphQL request latency")
+                        .tag("type", metrics.operationType)
+                        .tag("root", metrics.rootField)
+                        .tag("outcome", failed ? "error" : "success")
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - metrics.startNanos, TimeUnit.NANOSECONDS);
+                DistributionSummary.builder("graphql.operation.sql.statements")
+                        .description("SQL statements issued by one GraphQL request")
+                        .tag("type", metrics.operationType)
+                        .tag("root", metrics.rootField)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)
+                        .record(metrics.statements.get());
+            }
+        };
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(InstrumentationExecuteOperationParameters parameters,
+                                                                         InstrumentationState state) {
+        RequestMetrics metrics = (RequestMetrics) state;
+        OperationDefinition operation = parameters.getExecutionContext().getOperationDefinition();
+        metrics.operationType = operation.getOperation().name().toLowerCase();
+        if (!operation.getSelectionSet().getSelections().isEmpty()
+                && operation.getSelectionSet().getSelections().get(0) instanceof Field field) {
+            metrics.rootField = field.getName();
+        }
+        return SimpleInstrumentationContext.noOp();
+    }
+
+    @Override
+    public DataFetcher<?> instrumentDataFetcher(DataFetcher<?> dataFetcher, InstrumentationFieldFetchParameters parameters,
+                                                InstrumentationState state) {
+        GraphQLObjectType parent = parameters.getExecutionStepInfo().getObjectType();
+        // Subscription fetchers return a stream, not a value, so there is nothing meaningful to time
+        if (parameters.isTrivialDataFetcher() || parent.getName().equals("Subscription")) {
+            return dataFetcher;
+        }
+        RequestMetrics metrics = (RequestMetrics) state;
+        String field = parameters.getExecutionStepInfo().getFieldDefinition().getName();
+        Timer timer = fieldTimers.computeIfAbsent(parent.getName() + "." + field, key -> Timer.builder("graphql.field")
+                .description("GraphQL field resolver latency")
+                .tag("parent", parent.getName())
+                .tag("field", field)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+
+        return environment -> {
+            long start = System.nanoTime();
+            // Resolvers may run on another thread; bind the request's counter there too
+            AtomicLong previous = SqlStatementCounter.bind(metrics.statements);
+            try {
+                Object result = dataFetcher.get(environment);
+                if (result instanceof CompletionStage<?> stage) {
+                    // Batch-loaded fields complete when their batch does, so time them to completion
+                    return stage.whenComplete((value, error) -> timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+                }
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return result;
+            } finally {
+                SqlStatementCounter.restore(previous);
+            }
+        };
+    }
+}
@@ -0,0 +1,31 @@
+package com.andrew.knowledge_graph.metrics;
+
+import com.andrew.knowledge_graph.service.SemanticSearchService;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * The semantic index on /actuator/health: DOWN if it could not be opened (most often because another instance
+ * holds its directory), UNKNOWN while it is still opening and UP once it is.
+ */
+@Component
+public class SemanticIndexHealthIndicator implements HealthIndicator {
+
+    private final SemanticSearchService semanticSearchService;
+
+    public SemanticIndexHealthIndicator(SemanticSearchService semanticSearchService) {
+        this.semanticSearchService = semanticSearchService;
+    }
+
+    @Override
+    public Health health() {
+        RuntimeException failure = semanticSearchService.openFailure();
+        if (failure != null) {
+            return Health.down(failure).build();
+        }
+        int indexed = semanticSearchService.indexedCount();
+        return indexed < 0 ? Health.unknown().build() : Health.up().withDetail("nodes", indexed).build();
+    }
+}
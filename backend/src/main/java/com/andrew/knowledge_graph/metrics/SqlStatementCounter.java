@@ -0,0 +1,51 @@
+package com.andrew.knowledge_graph.metrics;
+
+import io.micrometer.context.ContextRegistry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Attributes SQL statements to the request that issued them. A request binds its counter to the thread it
+ * runs on, and {@link StatementCountingDataSource} increments whatever counter is bound when a statement is prepared.
+ */
+public final class SqlStatementCounter {
+
+    /**
+     * GraphQL context key for the request's counter. Spring GraphQL restores context entries with a registered
+     * accessor on the threads it invokes controller methods on, so statements issued there are attributed too.
+     */
+    public static final String CONTEXT_KEY = SqlStatementCounter.class.getName();
+
+    private static final ThreadLocal<AtomicLong> CURRENT = new ThreadLocal<>();
+
+    static {
+        ContextRegistry.getInstance().registerThreadLocalAccessor(CONTEXT_KEY, CURRENT::get, CURRENT::set, CURRENT::remove);
+    }
+
+    private SqlStatementCounter() {}
+
+    /**
+     * Binds {@code counter} to the current thread.
+     * @return the previously bound counter, to pass to {@link #restore}
+     */
+    public static AtomicLong bind(AtomicLong counter) {
+        AtomicLong previous = CURRENT.get();
+        CURRENT.set(counter);
+        return previous;
+    }
+
+    public static void restore(AtomicLong previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    static void increment() {
+        AtomicLong counter = CURRENT.get();
+        if (counter != null) {
+            counter.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.andrew.knowledge_graph.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Counts every statement prepared through the application's DataSource, whether it comes from Hibernate or
+ * from a JdbcTemplate, both in total and for the request currently bound to {@link SqlStatementCounter}.
+ * It wraps the pool rather than replacing it, so the pool's own metrics (like connection wait time) are unaffected.
+ */
+public class StatementCountingDataSource extends DelegatingDataSource {
+
+    private final Counter statements;
+    private final List<Consumer<String>> sqlListeners = new CopyOnWriteArrayList<>();
+
+    public StatementCountingDataSource(DataSource target, Counter statements) {
+        super(target);
+        this.statements = statements;
+    }
+
+    /**
+     * Registers a listener that is given the SQL of every PreparedStatement created from now on, on the creating
+     * thread. Plain Statements get their SQL only when executed and are not reported. Meant for tests that check
+     * the statements Hibernate and the repositories actually send.
+     */
+    public void addSqlListener(Consumer<String> listener) {
+        sqlListeners.add(listener);
+    }
+
+    public void removeSqlListener(Consumer<String> listener) {
+        sqlListeners.remove(listener);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return counting(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return counting(super.getConnection(username, password));
+    }
+
+    private Connection counting(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("prepare") || name.equals("createStatement")) {
+                        statements.increment();
+                        SqlStatementCounter.increment();
+                        if (args != null && args.length > 0 && args[0] instanceof String sql) {
+                            sqlListeners.forEach(listener -> listener.accept(sql));
+                        }
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,7 @@
+package com.andrew.knowledge_graph.model;
+
+public enum Direction {
+    OUTGOING,
+    INCOMING,
+    BOTH
+}
@@ -0,0 +1,13 @@
+package com.andrew.knowledge_graph.model;
+
+import java.util.List;
+
+public record GraphChanges(
+    String version,
+    boolean hasMore,
+    boolean resyncRequired,
+    List<Node> nodes,
+    List<Relationship> relationships,
+    List<String> deletedNodeIds,
+    List<String> deletedRelationshipIds
+) {}
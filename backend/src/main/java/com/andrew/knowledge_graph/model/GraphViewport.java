@@ -0,0 +1,11 @@
+package com.andrew.knowledge_graph.model;
+
+import java.util.List;
+
+public record GraphViewport(
+    List<Node> nodes,
+    List<Relationship> relationships,
+    List<ViewportCluster> clusters,
+    List<ViewportClusterEdge> clusterEdges,
+    boolean truncated
+) {}
@@ -0,0 +1,8 @@
+package com.andrew.knowledge_graph.model;
+
+import java.util.List;
+
+public record ImportGraphResult(
+    List<ImportedNode> nodes,
+    long relationshipCount
+) {}
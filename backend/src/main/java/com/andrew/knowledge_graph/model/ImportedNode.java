@@ -0,0 +1,6 @@
+package com.andrew.knowledge_graph.model;
+
+public record ImportedNode(
+    String ref,
+    Node node
+) {}
@@ -0,0 +1,8 @@
+package com.andrew.knowledge_graph.model;
+
+public record LinkSuggestion(
+    Node node,
+    int commonNeighbours,
+    double adamicAdar,
+    double jaccard
+) {}
@@ -0,0 +1,9 @@
+package com.andrew.knowledge_graph.model;
+
+import java.util.List;
+
+public record Neighborhood(
+    List<Node> nodes,
+    List<Relationship> relationships,
+    boolean truncated
+) {}
@@ -0,0 +1,7 @@
+package com.andrew.knowledge_graph.model;
+
+public record NodeChange(
+    String id,
+    boolean deleted,
+    Node node
+) {}
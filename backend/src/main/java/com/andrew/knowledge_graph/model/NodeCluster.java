@@ -0,0 +1,15 @@
+package com.andrew.knowledge_graph.model;
+
+/**
+ * A connected component or a community. Members are resolved on demand by the cluster's nodes field.
+ */
+public record NodeCluster(
+    String id,
+    int size,
+    Kind kind
+) {
+    public enum Kind {
+        COMPONENT,
+        COMMUNITY
+    }
+}
@@ -0,0 +1,7 @@
+package com.andrew.knowledge_graph.model;
+
+public enum NodeMetric {
+    PAGE_RANK,
+    DEGREE_CENTRALITY,
+    BETWEENNESS_CENTRALITY
+}
@@ -0,0 +1,6 @@
+package com.andrew.knowledge_graph.model;
+
+public record PageInfo(
+    boolean hasNextPage,
+    String endCursor
+) {}
@@ -0,0 +1,9 @@
+package com.andrew.knowledge_graph.model;
+
+import java.util.List;
+
+public record Path(
+    List<Node> nodes,
+    List<Relationship> relationships,
+    int length
+) {}
@@ -0,0 +1,7 @@
+package com.andrew.knowledge_graph.model;
+
+public record RelationshipChange(
+    String id,
+    boolean deleted,
+    Relationship relationship
+) {}
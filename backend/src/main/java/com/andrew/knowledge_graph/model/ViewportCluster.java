@@ -0,0 +1,8 @@
+package com.andrew.knowledge_graph.model;
+
+public record ViewportCluster(
+    String id,
+    double x,
+    double y,
+    int size
+) {}
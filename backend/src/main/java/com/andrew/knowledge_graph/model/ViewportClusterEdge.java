@@ -0,0 +1,7 @@
+package com.andrew.knowledge_graph.model;
+
+public record ViewportClusterEdge(
+    String from,
+    String to,
+    int count
+) {}
@@ -0,0 +1,8 @@
+package com.andrew.knowledge_graph.model.inputs;
+
+import java.util.List;
+
+public record ImportGraphInput(
+    List<ImportNodeInput> nodes,
+    List<ImportRelationshipInput> relationships
+) {}
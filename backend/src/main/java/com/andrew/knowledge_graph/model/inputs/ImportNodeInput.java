@@ -0,0 +1,7 @@
+package com.andrew.knowledge_graph.model.inputs;
+
+public record ImportNodeInput(
+    String ref,
+    String title,
+    String description
+) {}
@@ -0,0 +1,33 @@
+package com.andrew.knowledge_graph.model.inputs;
+
+import com.andrew.knowledge_graph.model.RelationshipType;
+
+/**
+ * One line of a bulk import. A record with kind "node" creates a node that later records can refer to by
+ * {@code ref}; a record with kind "relationship" links two nodes, given either as refs ({@code from}/{@code to})
+ * or as existing node ids ({@code fromNodeId}/{@code toNodeId}).
+ */
+public record ImportRecord(
+    String kind,
+    String ref,
+    String title,
+    String description,
+    String from,
+    String to,
+    String fromNodeId,
+    String toNodeId,
+    RelationshipType type,
+    String notes
+) {
+    public static final String NODE = "node";
+    public static final String RELATIONSHIP = "relationship";
+
+    public static ImportRecord node(ImportNodeInput input) {
+        return new ImportRecord(NODE, input.ref(), input.title(), input.description(), null, null, null, null, null, null);
+    }
+
+    public static ImportRecord relationship(ImportRelationshipInput input) {
+        return new ImportRecord(RELATIONSHIP, null, null, null, input.from(), input.to(),
+                input.fromNodeId(), input.toNodeId(), input.type(), input.notes());
+    }
+}
@@ -0,0 +1,12 @@
+package com.andrew.knowledge_graph.model.inputs;
+
+import com.andrew.knowledge_graph.model.RelationshipType;
+
+public record ImportRelationshipInput(
+    String from,
+    String to,
+    String fromNodeId,
+    String toNodeId,
+    RelationshipType type,
+    String notes
+) {}
@@ -0,0 +1,149 @@
+package com.andrew.knowledge_graph.persistedquery;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import graphql.ExecutionInput;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import graphql.execution.preparsed.persisted.PersistedQueryIdInvalid;
+import graphql.execution.preparsed.persisted.PersistedQueryNotFound;
+import org.springframework.graphql.execution.ErrorType;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Automatic Persisted Queries plus a cache of parsed and validated documents, both keyed by the query's SHA-256.
+ *
+ * A client sends {@code extensions.persistedQuery.sha256Hash} without the query text. If the hash is unknown the
+ * response is a PersistedQueryNotFound error and the client resends with the text, which registers it. Documents
+ * that parse and validate are cached, so a known query costs a hash lookup instead of a parse and a validation.
+ *
+ * In allowlist mode only the queries given at construction (e.g. from a build-time manifest) are accepted;
+ * registration is refused and plain queries without a hash are rejected.
+ */
+public class PersistedQueryDocumentProvider implements PreparsedDocumentProvider {
+
+    private static final String PERSISTED_QUERY_EXTENSION = "persistedQuery";
+    private static final String HASH_KEY = "sha256Hash";
+
+    private final Cache<String, PreparsedDocumentEntry> documents;
+    // Query text by hash, for requests that only send the hash
+    private final Cache<String, String> queries;
+    private final Map<String, String> allowlist;
+    private final boolean allowlistOnly;
+
+    /**
+     * @param allowlist pre-registered queries by SHA-256 hash; in allowlist mode, the only queries accepted
+     */
+    public PersistedQueryDocumentProvider(long maxDocuments, long maxQueries, boolean allowlistOnly, Map<String, String> allowlist) {
+        this.documents = Caffeine.newBuilder().maximumSize(maxDocuments).recordStats().build();
+        this.queries = Caffeine.newBuilder().maximumSize(maxQueries).recordStats().build();
+        this.allowlist = Map.copyOf(allowlist);
+        this.allowlistOnly = allowlistOnly;
+    }
+
+    public Cache<String, PreparsedDocumentEntry> documentCache() {
+        return documents;
+    }
+
+    public Cache<String, String> queryCache() {
+        return queries;
+    }
+
+    @Override
+    public CompletableFuture<PreparsedDocumentEntry> getDocumentAsync(ExecutionInput executionInput,
+                                                                      Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidateFunction) {
+        return CompletableFuture.completedFuture(getDocument(executionInput, parseAndValidateFunction));
+    }
+
+    private PreparsedDocumentEntry getDocument(ExecutionInput executionInput,
+                                               Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidateFunction) {
+        String query = executionInput.getQuery();
+        boolean hasQuery = query != null && !query.isBlank();
+        String hash = requestedHash(executionInput);
+
+        if (hash == null) {
+            if (!hasQuery) {
+                return parseAndValidateFunction.apply(executionInput); // Nothing to look up; let graphql-java report it
+            }
+            if (allowlistOnly) {
+                return error("Only persisted queries are accepted", "PERSISTED_QUERY_REQUIRED");
+            }
+            return cachedOrParsed(sha256(query), executionInput, parseAndValidateFunction);
+        }
+
+        if (!hasQuery) {
+            String known = lookup(hash);
+            if (known == null) {
+                return new PreparsedDocumentEntry(new PersistedQueryNotFound(hash));
+            }
+            ExecutionInput withQuery = executionInput.transform(builder -> builder.query(known));
+            return cachedOrParsed(hash, withQuery, parseAndValidateFunction);
+        }
+
+        // The client is registering (or simply re-sending) a query along with its hash
+        if (!sha256(query).equals(hash)) {
+            return new PreparsedDocumentEntry(new PersistedQueryIdInvalid(hash));
+        }
+        if (allowlistOnly && !allowlist.containsKey(hash)) {
+            return error("Query is not in the persisted query allowlist", "PERSISTED_QUERY_NOT_ALLOWED");
+        }
+        PreparsedDocumentEntry entry = cachedOrParsed(hash, executionInput, parseAndValidateFunction);
+        if (!entry.hasErrors() && !allowlistOnly) {
+            queries.put(hash, query);
+        }
+        return entry;
+    }
+
+    private String lookup(String hash) {
+        String query = allowlist.get(hash);
+        return query != null || allowlistOnly ? query : queries.getIfPresent(hash);
+    }
+
+    // Only valid documents are cached, so a broken query cannot crowd out working ones
+    private PreparsedDocumentEntry cachedOrParsed(String hash, ExecutionInput executionInput,
+                                                  Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidateFunction) {
+        PreparsedDocumentEntry cached = documents.getIfPresent(hash);
+        if (cached != null) {
+            return cached;
+        }
+        PreparsedDocumentEntry entry = parseAndValidateFunction.apply(executionInput);
+        if (!entry.hasErrors()) {
+            documents.put(hash, entry);
+        }
+        return entry;
+    }
+
+    private static String requestedHash(ExecutionInput executionInput) {
+        Map<String, Object> extensions = executionInput.getExtensions();
+        if (extensions != null && extensions.get(PERSISTED_QUERY_EXTENSION) instanceof Map<?, ?> persistedQuery
+                && persistedQuery.get(HASH_KEY) instanceof String hash) {
+            return hash.toLowerCase();
+        }
+        return null;
+    }
+
+    private static PreparsedDocumentEntry error(String message, String code) {
+        return new PreparsedDocumentEntry(GraphqlErrorBuilder.newError()
+                .errorType(ErrorType.BAD_REQUEST)
+                .message(message)
+                .extensions(Map.of("code", code))
+                .build());
+    }
+
+    public static String sha256(String query) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(query.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.andrew.knowledge_graph.repository;
+
+import com.andrew.knowledge_graph.model.Relationship;
+import com.andrew.knowledge_graph.service.InvalidArgumentException;
+
+import java.util.List;
+
+/**
+ * A relationship repeats an existing (from, to, type) edge, which the uk_relationship_edge constraint forbids.
+ * It is an InvalidArgumentException so GraphQL and REST callers get a bad-request error rather than an
+ * internal one.
+ */
+public class DuplicateRelationshipException extends InvalidArgumentException {
+
+    // SQLite's message for the constraint; the JDBC driver gives no more specific error type to check
+    private static final String CONSTRAINT_MESSAGE = "UNIQUE constraint failed: relationship.";
+
+    public DuplicateRelationshipException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    /**
+     * @return a DuplicateRelationshipException for the relationships if the failure is the unique edge constraint,
+     *         otherwise the failure itself
+     */
+    public static RuntimeException translate(RuntimeException failure, List<Relationship> relationships) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().contains(CONSTRAINT_MESSAGE)) {
+                return new DuplicateRelationshipException(relationships.size() == 1
+                        ? "Relationship already exists: " + describe(relationships.get(0))
+                        : "Relationship already exists: the batch repeats an existing edge or one of its own", failure);
+            }
+        }
+        return failure;
+    }
+
+    private static String describe(Relationship rel) {
+        return rel.getFromNodeId() + " -[" + rel.getType() + "]-> " + rel.getToNodeId();
+    }
+}
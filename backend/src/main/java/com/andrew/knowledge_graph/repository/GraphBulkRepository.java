@@ -0,0 +1,84 @@
+package com.andrew.knowledge_graph.repository;
+
+import com.andrew.knowledge_graph.model.Node;
+import com.andrew.knowledge_graph.model.Relationship;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Plain JDBC batch writes for bulk operations, where going through JPA one entity at a time
+ * (with an insert-and-fetch round trip per IDENTITY row) would be far too slow.
+ *
+ * Callers assign ids themselves, starting after the last id ever used, and must do so inside the same
+ * transaction as the insert so no other writer can take the same ids. Both tables are AUTOINCREMENT, so SQLite
+ * records the highest id inserted in sqlite_sequence, including explicit ones, and a deleted id is never reused.
+ */
+@Repository
+public class GraphBulkRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public GraphBulkRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * The highest node id ever assigned, even if that node has since been deleted.
+     */
+    public long lastNodeId() {
+        return lastId("node");
+    }
+
+    /**
+     * The highest relationship id ever assigned, even if that relationship has since been deleted.
+     */
+    public long lastRelationshipId() {
+        return lastId("relationship");
+    }
+
+    private long lastId(String table) {
+        // The table's own maximum too, in case it has never been inserted into since the sequence was created
+        Long last = jdbcTemplate.queryForObject(
+                "SELECT MAX(COALESCE((SELECT seq FROM sqlite_sequence WHERE name = ?), 0), "
+                        + "COALESCE((SELECT MAX(id) FROM " + table + "), 0))",
+                Long.class, table);
+        return last == null ? 0 : last;
+    }
+
+    /**
+     * Inserts nodes whose ids have already been assigned.
+     */
+    public void insertNodes(List<Node> nodes) {
+        jdbcTemplate.batchUpdate("INSERT INTO node (id, title, description) VALUES (?, ?, ?)", nodes, nodes.size(),
+                (ps, node) -> {
+                    ps.setLong(1, node.getId());
+                    ps.setString(2, node.getTitle());
+                    ps.setString(3, node.getDescription());
+                });
+    }
+
+    /**
+     * Inserts relationships whose ids have already been assigned.
+     * @throws DuplicateRelationshipException if one of them repeats an existing edge, or another in the list
+     */
+    public void insertRelationships(List<Relationship> relationships) {
+        try {
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO relationship (id, type, notes, from_node_id, to_node_id) VALUES (?, ?, ?, ?, ?)",
+                    relationships, relationships.size(),
+                    (ps, rel) -> {
+                        ps.setLong(1, rel.getId());
+                        ps.setString(2, rel.getType().name());
+                        ps.setString(3, rel.getNotes());
+                        ps.setLong(4, rel.getFromNodeId());
+                        ps.setLong(5, rel.getToNodeId());
+                    });
+        } catch (DataAccessException e) {
+            throw DuplicateRelationshipException.translate(e, relationships);
+        }
+    }
+}
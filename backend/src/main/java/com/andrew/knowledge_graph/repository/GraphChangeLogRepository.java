@@ -0,0 +1,87 @@
+package com.andrew.knowledge_graph.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * The persisted change log behind incremental sync. Each row records that one node or relationship
+ * was upserted or deleted, stamped with the graph version it produced.
+ *
+ * SQLite has a single writer, so versions are handed out in commit order: once a reader sees version N,
+ * every change up to N is visible too.
+ */
+@Repository
+public class GraphChangeLogRepository {
+
+    public static final String NODE = "NODE";
+    public static final String RELATIONSHIP = "RELATIONSHIP";
+
+    public record ChangeEntry(long version, String entity, long entityId, boolean deleted) {}
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public GraphChangeLogRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Appends one entry per id. Must run inside the transaction that made the change.
+     */
+    public void append(String entity, List<Long> entityIds, boolean deleted) {
+        if (entityIds.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO graph_change (entity, entity_id, deleted, changed_at) VALUES (?, ?, ?, ?)",
+                entityIds, entityIds.size(),
+                (ps, id) -> {
+                    ps.setString(1, entity);
+                    ps.setLong(2, id);
+                    ps.setInt(3, deleted ? 1 : 0);
+                    ps.setLong(4, now);
+                });
+    }
+
+    /**
+     * The latest version ever handed out, 0 for an empty log. Unaffected by compaction.
+     */
+    public long currentVersion() {
+        Long version = jdbcTemplate.queryForObject(
+                "SELECT COALESCE((SELECT seq FROM sqlite_sequence WHERE name = 'graph_change'), 0)", Long.class);
+        return version == null ? 0 : version;
+    }
+
+    /**
+     * The oldest version a client can still sync from: everything after it is in the log.
+     */
+    public long oldestSyncableVersion() {
+        Long oldest = jdbcTemplate.queryForObject("SELECT MIN(version) - 1 FROM graph_change", Long.class);
+        return oldest == null ? currentVersion() : oldest;
+    }
+
+    /**
+     * Entries with a version greater than {@code version}, oldest first.
+     */
+    public List<ChangeEntry> findSince(long version, int limit) {
+        return jdbcTemplate.query(
+                "SELECT version, entity, entity_id, deleted FROM graph_change WHERE version > ? ORDER BY version LIMIT ?",
+                (rs, rowNum) -> new ChangeEntry(rs.getLong("version"), rs.getString("entity"),
+                        rs.getLong("entity_id"), rs.getInt("deleted") != 0),
+                version, limit);
+    }
+
+    /**
+     * Drops entries at or below {@code version}, along with everything before the newest entry older than
+     * {@code changedBefore} (epoch millis). Only ever removes a prefix of the log, so there are no gaps to sync over.
+     * @return the number of entries removed
+     */
+    public int deletePrefix(long version, long changedBefore) {
+        return jdbcTemplate.update("""
+                DELETE FROM graph_change WHERE version <= MAX(?,
+                    (SELECT COALESCE(MAX(version), 0) FROM graph_change WHERE changed_at < ?))
+                """, version, changedBefore);
+    }
+}
@@ -0,0 +1,97 @@
+package com.andrew.knowledge_graph.repository;
+
+import com.andrew.knowledge_graph.analytics.GraphMetrics;
+import com.andrew.knowledge_graph.graph.DoubleList;
+import com.andrew.knowledge_graph.graph.LongList;
+import com.andrew.knowledge_graph.model.NodeMetric;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Persisted node scores (see GraphAnalyticsService), so a restart serves the last results instead of
+ * waiting for a full recomputation.
+ */
+@Repository
+public class NodeMetricRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public NodeMetricRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Writes the scores of nodes [from, to) of {@code metrics}, skipping nodes deleted since they were computed.
+     */
+    public void upsert(GraphMetrics metrics, int from, int to) {
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO node_metric (node_id, page_rank, degree_centrality, betweenness_centrality,
+                                         component_id, community_id, computed_at)
+                SELECT ?, ?, ?, ?, ?, ?, ? WHERE EXISTS (SELECT 1 FROM node WHERE id = ?)
+                ON CONFLICT (node_id) DO UPDATE SET
+                    page_rank = excluded.page_rank,
+                    degree_centrality = excluded.degree_centrality,
+                    betweenness_centrality = excluded.betweenness_centrality,
+                    component_id = excluded.component_id,
+                    community_id = excluded.community_id,
+                    computed_at = excluded.computed_at
+                """, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                int index = from + i;
+                ps.setLong(1, metrics.nodeId(index));
+                ps.setDouble(2, metrics.score(NodeMetric.PAGE_RANK, index));
+                ps.setDouble(3, metrics.score(NodeMetric.DEGREE_CENTRALITY, index));
+                ps.setDouble(4, metrics.score(NodeMetric.BETWEENNESS_CENTRALITY, index));
+                ps.setLong(5, metrics.componentId(index));
+                ps.setLong(6, metrics.communityId(index));
+                ps.setLong(7, metrics.computedAt());
+                ps.setLong(8, metrics.nodeId(index));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return to - from;
+            }
+        });
+    }
+
+    /**
+     * Removes rows left over from earlier runs.
+     */
+    public int deleteComputedBefore(long computedAt) {
+        return jdbcTemplate.update("DELETE FROM node_metric WHERE computed_at < ?", computedAt);
+    }
+
+    public GraphMetrics load() {
+        LongList ids = new LongList(1024);
+        DoubleList pageRank = new DoubleList(1024);
+        DoubleList degree = new DoubleList(1024);
+        DoubleList betweenness = new DoubleList(1024);
+        LongList components = new LongList(1024);
+        LongList communities = new LongList(1024);
+        long[] computedAt = {0};
+        jdbcTemplate.query("""
+                SELECT node_id, page_rank, degree_centrality, betweenness_centrality, component_id, community_id, computed_at
+                FROM node_metric ORDER BY node_id
+                """, rs -> {
+            ids.add(rs.getLong(1));
+            pageRank.add(rs.getDouble(2));
+            degree.add(rs.getDouble(3));
+            betweenness.add(rs.getDouble(4));
+            components.add(rs.getLong(5));
+            communities.add(rs.getLong(6));
+            computedAt[0] = Math.max(computedAt[0], rs.getLong(7));
+        });
+        if (ids.isEmpty()) {
+            return GraphMetrics.EMPTY;
+        }
+        return new GraphMetrics(ids.toArray(), pageRank.toArray(), degree.toArray(), betweenness.toArray(),
+                components.toArray(), communities.toArray(), computedAt[0]);
+    }
+}
@@ -0,0 +1,66 @@
+package com.andrew.knowledge_graph.repository;
+
+import com.andrew.knowledge_graph.graph.DoubleList;
+import com.andrew.knowledge_graph.graph.LongList;
+import com.andrew.knowledge_graph.layout.NodePositions;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Persisted layout coordinates (see GraphLayoutService), so a restart serves the last layout instead of
+ * laying the graph out from scratch.
+ */
+@Repository
+public class NodePositionRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public NodePositionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Writes the positions of nodes [from, to) of the given arrays, skipping nodes deleted in the meantime.
+     */
+    public void upsert(long[] nodeIds, double[] x, double[] y, int from, int to) {
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO node_position (node_id, x, y)
+                SELECT ?, ?, ? WHERE EXISTS (SELECT 1 FROM node WHERE id = ?)
+                ON CONFLICT (node_id) DO UPDATE SET x = excluded.x, y = excluded.y
+                """, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                int index = from + i;
+                ps.setLong(1, nodeIds[index]);
+                ps.setDouble(2, x[index]);
+                ps.setDouble(3, y[index]);
+                ps.setLong(4, nodeIds[index]);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return to - from;
+            }
+        });
+    }
+
+    public NodePositions load() {
+        LongList ids = new LongList(1024);
+        DoubleList x = new DoubleList(1024);
+        DoubleList y = new DoubleList(1024);
+        jdbcTemplate.query("SELECT node_id, x, y FROM node_position ORDER BY node_id", rs -> {
+            ids.add(rs.getLong(1));
+            x.add(rs.getDouble(2));
+            y.add(rs.getDouble(3));
+        });
+        if (ids.isEmpty()) {
+            return NodePositions.EMPTY;
+        }
+        return new NodePositions(ids.toArray(), x.toArray(), y.toArray());
+    }
+}
@@ -2,9 +2,22 @@ package com.andrew.knowledge_graph.repository;
 
 import com.andrew.knowledge_graph.model.Node;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface NodeRepository extends JpaRepository<Node, Long> {
-    // You can add custom query methods here if needed
+
+    @Query("select n.id from Node n where n.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Set-based delete: one statement for the whole collection, no entities loaded
+    @Modifying
+    @Query("delete from Node n where n.id in :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<Long> ids);
 }
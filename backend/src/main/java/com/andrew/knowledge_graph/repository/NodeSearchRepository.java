@@ -0,0 +1,94 @@
+package com.andrew.knowledge_graph.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Full-text search over node titles and descriptions, backed by an SQLite FTS5 table.
+ * The FTS table is an external-content index over "node" and is kept in sync by triggers
+ * (see db/migration/V3__node_search_index.sql), so every insert, update or delete on "node"
+ * (from JPA or anywhere else) is reflected here.
+ */
+@Repository
+public class NodeSearchRepository {
+
+    // Title matches count ten times as much as description matches when ranking
+    private static final String RANKED_HITS = """
+            WITH hits AS MATERIALIZED (
+                SELECT rowid AS id, bm25(node_fts, 10.0, 1.0) AS score
+                FROM node_fts
+                WHERE node_fts MATCH ?
+            )
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public NodeSearchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * A single search result. Lower scores are better matches (bm25 is negated in FTS5).
+     */
+    public record SearchHit(long nodeId, double score) {}
+
+    /**
+     * Returns up to {@code limit} hits for the given user query, best match first.
+     * When {@code afterScore}/{@code afterId} are given, only hits ranked after that position are returned.
+     * A query with no words matches every node, all with score 0, so they come in id order.
+     */
+    @Transactional(readOnly = true)
+    public List<SearchHit> search(String userQuery, int limit, Double afterScore, Long afterId) {
+        String match = toMatchExpression(userQuery);
+        if (match.isEmpty()) {
+            return jdbcTemplate.query("SELECT id FROM node WHERE id > ? ORDER BY id LIMIT ?",
+                    (rs, rowNum) -> new SearchHit(rs.getLong("id"), 0),
+                    afterId == null ? 0 : afterId, limit);
+        }
+        if (afterScore == null || afterId == null) {
+            return jdbcTemplate.query(
+                    RANKED_HITS + "SELECT id, score FROM hits ORDER BY score, id LIMIT ?",
+                    (rs, rowNum) -> new SearchHit(rs.getLong("id"), rs.getDouble("score")),
+                    match, limit);
+        }
+        return jdbcTemplate.query(
+                RANKED_HITS + "SELECT id, score FROM hits WHERE score > ? OR (score = ? AND id > ?) ORDER BY score, id LIMIT ?",
+                (rs, rowNum) -> new SearchHit(rs.getLong("id"), rs.getDouble("score")),
+                match, afterScore, afterScore, afterId, limit);
+    }
+
+    /**
+     * The searchable text of one node.
+     */
+    public record NodeText(long nodeId, String title, String description) {}
+
+    /**
+     * Up to {@code limit} nodes with ids above {@code afterId}, in id order, for walking every node a page at a
+     * time.
+     */
+    @Transactional(readOnly = true)
+    public List<NodeText> textsAfter(long afterId, int limit) {
+        return jdbcTemplate.query("SELECT id, title, description FROM node WHERE id > ? ORDER BY id LIMIT ?",
+                (rs, rowNum) -> new NodeText(rs.getLong("id"), rs.getString("title"), rs.getString("description")),
+                afterId, limit);
+    }
+
+    /**
+     * Turns free text into an FTS5 expression: every word must match as a prefix.
+     * Words are quoted so FTS5 operators typed by the user are treated as plain text.
+     */
+    static String toMatchExpression(String userQuery) {
+        if (userQuery == null) {
+            return "";
+        }
+        return Arrays.stream(userQuery.split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .map(word -> "\"" + word + "\"*")
+                .collect(Collectors.joining(" "));
+    }
+}
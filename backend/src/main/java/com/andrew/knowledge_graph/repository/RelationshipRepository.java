@@ -2,13 +2,38 @@ package com.andrew.knowledge_graph.repository;
 
 import com.andrew.knowledge_graph.model.Relationship;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface RelationshipRepository extends JpaRepository<Relationship, Long> {
+    // Read-only so the "prod" profile can route them to the read pool
+    @Transactional(readOnly = true)
     List<Relationship> findByFromNodeId(Long fromNodeId);
+
+    @Transactional(readOnly = true)
     List<Relationship> findByToNodeId(Long toNodeId);
+
+
+    @Query("select r.id from Relationship r where r.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Set-based deletes: one statement for the whole collection, no entities loaded
+    @Modifying
+    @Query("delete from Relationship r where r.id in :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select r.id from Relationship r where r.fromNodeId in :nodeIds or r.toNodeId in :nodeIds")
+    List<Long> findIdsTouchingNodes(@Param("nodeIds") Collection<Long> nodeIds);
+
+    @Modifying
+    @Query("delete from Relationship r where r.fromNodeId in :nodeIds or r.toNodeId in :nodeIds")
+    int deleteAllTouchingNodes(@Param("nodeIds") Collection<Long> nodeIds);
     // Add more custom queries as needed
 }
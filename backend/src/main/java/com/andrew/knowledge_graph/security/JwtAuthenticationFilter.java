@@ -1,6 +1,9 @@
 package com.andrew.knowledge_graph.security;
 
 import com.andrew.knowledge_graph.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -19,6 +22,8 @@ import java.io.IOException;
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+
     private final JwtUtil jwtUtil;
     private final UserDetailsService userDetailsService;
 
@@ -43,12 +48,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         final int lengthOfBearer = "Bearer ".length();
         final String jwt = authHeader.substring(lengthOfBearer);
-        final String username = jwtUtil.extractClaim(jwt, "sub");
+        // One parse verifies signature, issuer, expiry and token type; the claims are reused below
+        final Claims claims = jwtUtil.parseAndValidate(jwt, JwtUtil.ACCESS_TOKEN);
+        final String username = claims == null ? null : claims.getSubject();
 
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
             UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
             
-            if ((userDetails != null) && jwtUtil.isTokenValid(jwt, userDetails.getUsername())) {
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
                         null,
@@ -56,12 +63,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 );
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
-                System.out.println("SUCCESS: JWT is valid. Authenticated user '" + userDetails.getUsername() + "' and set SecurityContext with authorities: " + authToken.getAuthorities());
+                log.debug("Authenticated user '{}' with authorities {}", userDetails.getUsername(), authToken.getAuthorities());
             }
         }
         
         filterChain.doFilter(request, response);
 
-        System.out.println("[JwtFilter - AFTER] ... Final Response Status: " + response.getStatus());
+        log.trace("Response status {}", response.getStatus());
     }
 }
@@ -0,0 +1,70 @@
+package com.andrew.knowledge_graph.security;
+
+import com.andrew.knowledge_graph.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.graphql.server.WebSocketGraphQlInterceptor;
+import org.springframework.graphql.server.WebSocketGraphQlRequest;
+import org.springframework.graphql.server.WebSocketSessionInfo;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Authenticates GraphQL over WebSocket. Browsers cannot set headers on a WebSocket handshake, so the client sends
+ * its access token in the {@code connection_init} payload instead, as {@code {"Authorization": "Bearer <jwt>"}}.
+ * A rejected token closes the connection with 4401 Unauthorized.
+ */
+@Component
+public class WebSocketAuthInterceptor implements WebSocketGraphQlInterceptor {
+
+    private static final String USERNAME_ATTRIBUTE = WebSocketAuthInterceptor.class.getName() + ".username";
+
+    private final JwtUtil jwtUtil;
+    private final UserDetailsService userDetailsService;
+
+    public WebSocketAuthInterceptor(JwtUtil jwtUtil, UserDetailsService userDetailsService) {
+        this.jwtUtil = jwtUtil;
+        this.userDetailsService = userDetailsService;
+    }
+
+    @Override
+    public Mono<Object> handleConnectionInitialization(WebSocketSessionInfo sessionInfo, Map<String, Object> payload) {
+        Object header = payload.get("Authorization");
+        if (!(header instanceof String value) || !value.startsWith("Bearer ")) {
+            return Mono.error(new IllegalStateException("Missing bearer token"));
+        }
+        Claims claims = jwtUtil.parseAndValidate(value.substring("Bearer ".length()), JwtUtil.ACCESS_TOKEN);
+        if (claims == null || !hasUserRole(claims.getSubject())) {
+            return Mono.error(new IllegalStateException("Invalid bearer token"));
+        }
+        sessionInfo.getAttributes().put(USERNAME_ATTRIBUTE, claims.getSubject());
+        return Mono.empty();
+    }
+
+    @Override
+    public Mono<WebGraphQlResponse> intercept(WebGraphQlRequest request, WebGraphQlInterceptor.Chain chain) {
+        // HTTP requests are authenticated by JwtAuthenticationFilter; this only guards WebSocket operations
+        if (request instanceof WebSocketGraphQlRequest webSocketRequest
+                && webSocketRequest.getSessionInfo().getAttributes().get(USERNAME_ATTRIBUTE) == null) {
+            return Mono.error(new IllegalStateException("Unauthorized"));
+        }
+        return chain.next(request);
+    }
+
+    private boolean hasUserRole(String username) {
+        try {
+            UserDetails user = userDetailsService.loadUserByUsername(username);
+            return user.getAuthorities().stream().map(GrantedAuthority::getAuthority).anyMatch("ROLE_USER"::equals);
+        } catch (UsernameNotFoundException e) {
+            return false;
+        }
+    }
+}
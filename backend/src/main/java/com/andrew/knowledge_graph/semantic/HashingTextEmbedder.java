@@ -0,0 +1,104 @@
+package com.andrew.knowledge_graph.semantic;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * An offline embedder that needs no model file and no corpus statistics: words, adjacent word pairs and the
+ * character trigrams of each word are hashed into a fixed number of buckets, each feature with a pseudo-random
+ * sign so that collisions cancel out on average instead of piling up. Trigrams let forms of one word ("graph",
+ * "graphs", "graphing") share most of their features. Title features weigh twice as much as description
+ * features, and common English stop words are skipped.
+ *
+ * The same text always gives the same vector, whatever else is in the graph, which is what lets the index be
+ * updated one node at a time. It measures shared vocabulary, not meaning: synonyms without common words or
+ * word parts do not come out as similar.
+ */
+public final class HashingTextEmbedder implements TextEmbedder {
+
+    private static final float TITLE_WEIGHT = 2f;
+    private static final float PAIR_WEIGHT = 0.5f;
+    private static final float TRIGRAM_WEIGHT = 0.25f;
+    // Separate hash seeds keep a word, a pair and a trigram with the same characters apart
+    private static final long WORD_SEED = 0x5851F42D4C957F2DL;
+    private static final long PAIR_SEED = 0x14057B7EF767814FL;
+    private static final long TRIGRAM_SEED = 0x2545F4914F6CDD1DL;
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "has", "have", "in", "is", "it",
+            "its", "of", "on", "or", "that", "the", "this", "to", "was", "were", "which", "with");
+
+    private final int dimensions;
+
+    public HashingTextEmbedder(int dimensions) {
+        if (dimensions < 1) {
+            throw new IllegalArgumentException("dimensions must be positive, got " + dimensions);
+        }
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public float[] embed(String title, String description) {
+        float[] vector = new float[dimensions];
+        addText(vector, title, TITLE_WEIGHT);
+        addText(vector, description, 1f);
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < dimensions; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    private void addText(float[] vector, String text, float weight) {
+        if (text == null || text.isBlank()) {
+            return;
+        }
+        String previous = null;
+        for (String word : WORD_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (word.isEmpty() || STOP_WORDS.contains(word)) {
+                continue;
+            }
+            add(vector, hash(WORD_SEED, word, 0, word.length()), weight);
+            if (previous != null) {
+                long pair = hash(PAIR_SEED, previous, 0, previous.length());
+                add(vector, hash(pair ^ ' ', word, 0, word.length()), weight * PAIR_WEIGHT);
+            }
+            // Boundary markers make prefixes and suffixes features of their own
+            String padded = "<" + word + ">";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                add(vector, hash(TRIGRAM_SEED, padded, i, i + 3), weight * TRIGRAM_WEIGHT);
+            }
+            previous = word;
+        }
+    }
+
+    private void add(float[] vector, long hash, float weight) {
+        int bucket = (int) Math.floorMod(hash, (long) dimensions);
+        vector[bucket] += hash < 0 ? -weight : weight;
+    }
+
+    // FNV-1a over the characters, finished with a 64-bit mixer so the low and sign bits are both usable
+    private static long hash(long seed, String text, int from, int to) {
+        long h = seed ^ 0xCBF29CE484222325L;
+        for (int i = from; i < to; i++) {
+            h ^= text.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,585 @@
+package com.andrew.knowledge_graph.semantic;
+
+import com.andrew.knowledge_graph.graph.LongHashSet;
+import com.andrew.knowledge_graph.graph.LongLongHashMap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An approximate nearest-neighbour index over unit vectors, after Malkov and Yashunin's hierarchical navigable
+ * small worlds (HNSW), answering "which nodes are most like this vector" in roughly logarithmic time.
+ *
+ * Every vector is on level 0 and, with exponentially falling probability, on levels above it; each level is a
+ * graph linking a vector to up to M nearby vectors (2M on level 0), picked so that they also lie in different
+ * directions. A search descends greedily through the sparse upper levels to a good starting point and then
+ * runs a best-first search of width {@code ef} on level 0. Wider searches find more of the true nearest
+ * neighbours at proportionally higher cost.
+ *
+ * Vectors and level-0 links live in a memory-mapped {@link VectorFile}; the upper levels, a small fraction of
+ * the whole, are on the heap and written next to it on {@link #close()}. Deleting only marks a vector: it
+ * keeps routing searches but is never returned, until a rebuild reclaims it. Searches run concurrently;
+ * writes take an exclusive lock.
+ */
+public final class HnswIndex implements Closeable {
+
+    /**
+     * @param score cosine similarity to the query, 1 for the same direction
+     */
+    public record Hit(long nodeId, float score) {}
+
+    /**
+     * The version of the data the index reflects, recorded with it so a reopened index can be checked against
+     * the data as it is now. It must change with every change to the data; {@code UNKNOWN} matches nothing.
+     */
+    public record Fingerprint(long sourceVersion) {
+
+        public static final Fingerprint UNKNOWN = new Fingerprint(-1);
+    }
+
+    private static final String VECTORS_FILE = "vectors.bin";
+    private static final String UPPER_LINKS_FILE = "upper-links.bin";
+    private static final String LOCK_FILE = "index.lock";
+    private static final int UPPER_LINKS_MAGIC = 0x4B47554C;
+    private static final int MAX_LEVEL = 16;
+
+    private final Path directory;
+    // Held while open, so two applications (or two contexts in one JVM) never share the files
+    private final FileLock directoryLock;
+    private final VectorFile vectors;
+    private final int m;
+    private final int efConstruction;
+    private final double levelFactor;
+    private final boolean restored;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Only used under the write lock
+    private final SplittableRandom random = new SplittableRandom();
+    // The slot of each node's live vector, or -1 once it has been deleted
+    private final LongLongHashMap slots = new LongLongHashMap();
+    // Links on levels 1 and up: upper[slot][level - 1] = {count, link, link, ...}; null for level-0 slots
+    private int[][][] upper;
+    private int liveCount;
+    private boolean closed;
+
+    private HnswIndex(Path directory, FileLock directoryLock, VectorFile vectors, int m, int efConstruction,
+                      int[][][] upper, boolean restored) {
+        this.directory = directory;
+        this.directoryLock = directoryLock;
+        this.vectors = vectors;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.levelFactor = 1 / Math.log(m);
+        this.upper = upper;
+        this.restored = restored;
+        for (int slot = 0; slot < vectors.slotCount(); slot++) {
+            if (!vectors.deleted(slot)) {
+                slots.put(vectors.nodeId(slot), slot);
+                liveCount++;
+            }
+        }
+        // Until the next clean close, a crash leaves the files marked for a rebuild
+        vectors.setClean(false);
+    }
+
+    /**
+     * Reopens the index in {@code directory} if it was closed cleanly with the same settings, or starts an
+     * empty one there; {@link #restored()} tells which.
+     *
+     * @param m links per vector on the upper levels (twice that on level 0)
+     * @param efConstruction search width when linking a new vector; higher builds a better graph, slower
+     * @throws IllegalStateException if another open index is using the directory
+     */
+    public static HnswIndex open(Path directory, int dimensions, int m, int efConstruction) {
+        FileLock directoryLock = lockDirectory(directory);
+        VectorFile vectors;
+        try {
+            vectors = VectorFile.open(directory.resolve(VECTORS_FILE), dimensions, 2 * m);
+        } catch (RuntimeException e) {
+            release(directoryLock);
+            throw e;
+        }
+        int[][][] upper = vectors == null ? null : readUpperLinks(directory.resolve(UPPER_LINKS_FILE), vectors, m);
+        if (upper != null) {
+            return new HnswIndex(directory, directoryLock, vectors, m, efConstruction, upper, true);
+        }
+        if (vectors != null) {
+            vectors.close();
+        }
+        return createLocked(directory, directoryLock, dimensions, m, efConstruction);
+    }
+
+    /**
+     * Starts an empty index in {@code directory}, replacing any index there.
+     *
+     * @throws IllegalStateException if another open index is using the directory
+     */
+    public static HnswIndex create(Path directory, int dimensions, int m, int efConstruction) {
+        return createLocked(directory, lockDirectory(directory), dimensions, m, efConstruction);
+    }
+
+    private static HnswIndex createLocked(Path directory, FileLock directoryLock, int dimensions, int m,
+                                          int efConstruction) {
+        try {
+            Files.deleteIfExists(directory.resolve(UPPER_LINKS_FILE));
+            VectorFile vectors = VectorFile.create(directory.resolve(VECTORS_FILE), dimensions, 2 * m);
+            return new HnswIndex(directory, directoryLock, vectors, m, efConstruction, new int[1024][][], false);
+        } catch (IOException e) {
+            release(directoryLock);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            release(directoryLock);
+            throw e;
+        }
+    }
+
+    /**
+     * Whether this index was reopened from disk rather than started empty.
+     */
+    public boolean restored() {
+        return restored;
+    }
+
+    public int dimensions() {
+        return vectors.dimensions();
+    }
+
+    /**
+     * The fingerprint last recorded with {@link #setFingerprint}, or {@link Fingerprint#UNKNOWN} for a new index.
+     */
+    public Fingerprint fingerprint() {
+        lock.readLock().lock();
+        try {
+            return new Fingerprint(vectors.sourceVersion());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records what the index now reflects. It is saved with the files and read back by {@link #open}.
+     */
+    public void setFingerprint(Fingerprint fingerprint) {
+        lock.writeLock().lock();
+        try {
+            if (!closed) {
+                vectors.setSourceVersion(fingerprint.sourceVersion());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The number of live vectors.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The number of deleted or replaced vectors still taking up space.
+     */
+    public int deletedCount() {
+        lock.readLock().lock();
+        try {
+            return vectors.slotCount() - liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return a copy of the node's vector, or null if it is not in the index
+     */
+    public float[] vector(long nodeId) {
+        lock.readLock().lock();
+        try {
+            int slot = (int) slots.get(nodeId, -1);
+            return slot < 0 || closed ? null : vectors.vector(slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the node's vector, replacing the one it had.
+     */
+    public void upsert(long nodeId, float[] vector) {
+        if (vector.length != vectors.dimensions()) {
+            throw new IllegalArgumentException("Expected " + vectors.dimensions() + " dimensions, got " + vector.length);
+        }
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("The index is closed");
+            }
+            removeLocked(nodeId);
+            int level = Math.min(MAX_LEVEL, (int) (-Math.log(1 - random.nextDouble()) * levelFactor));
+            int slot = vectors.allocate(nodeId, level);
+            vectors.setVector(slot, vector);
+            if (slot >= upper.length) {
+                upper = Arrays.copyOf(upper, Math.max(slot + 1, upper.length * 2));
+            }
+            if (level > 0) {
+                upper[slot] = new int[level][m + 1];
+            }
+            slots.put(nodeId, slot);
+            liveCount++;
+
+            int entry = vectors.entryPoint();
+            if (entry < 0) {
+                vectors.setEntryPoint(slot, level);
+                return;
+            }
+            int maxLevel = vectors.maxLevel();
+            for (int l = maxLevel; l > level; l--) {
+                entry = greedy(vector, entry, l);
+            }
+            int[] selected = new int[2 * m];
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                // Deleted vectors are linked too, so they go on connecting the graph
+                long[] candidates = searchLevel(vector, entry, efConstruction, l, false);
+                int count = selectNeighbours(candidates, candidates.length, maxLinks(l), selected);
+                for (int i = 0; i < count; i++) {
+                    addLink(slot, selected[i], l);
+                    addLink(selected[i], slot, l);
+                }
+                entry = slotOf(candidates[0]);
+            }
+            if (level > maxLevel) {
+                vectors.setEntryPoint(slot, level);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return whether the node was in the index
+     */
+    public boolean remove(long nodeId) {
+        lock.writeLock().lock();
+        try {
+            return !closed && removeLocked(nodeId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Up to {@code k} live vectors most similar to {@code query}, most similar first.
+     *
+     * @param ef search width, raised to {@code k} if smaller
+     */
+    public List<Hit> search(float[] query, int k, int ef) {
+        lock.readLock().lock();
+        try {
+            int entry = vectors.entryPoint();
+            if (closed || entry < 0 || k <= 0) {
+                return List.of();
+            }
+            for (int l = vectors.maxLevel(); l > 0; l--) {
+                entry = greedy(query, entry, l);
+            }
+            long[] found = searchLevel(query, entry, Math.max(ef, k), 0, true);
+            List<Hit> hits = new ArrayList<>(Math.min(k, found.length));
+            for (int i = 0; i < found.length && i < k; i++) {
+                int slot = slotOf(found[i]);
+                hits.add(new Hit(vectors.nodeId(slot), 1 - distanceOf(found[i])));
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the upper levels and marks the files as consistent, so the next {@link #open} can reuse them.
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            writeUpperLinks();
+            vectors.setClean(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not save the index in " + directory, e);
+        } finally {
+            vectors.close();
+            release(directoryLock);
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static FileLock lockDirectory(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+            FileLock directoryLock;
+            try {
+                directoryLock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                directoryLock = null;
+            }
+            if (directoryLock == null) {
+                channel.close();
+                throw new IllegalStateException("The index in " + directory + " is in use");
+            }
+            return directoryLock;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not lock " + directory, e);
+        }
+    }
+
+    private static void release(FileLock directoryLock) {
+        try {
+            directoryLock.channel().close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean removeLocked(long nodeId) {
+        int slot = (int) slots.get(nodeId, -1);
+        if (slot < 0) {
+            return false;
+        }
+        vectors.markDeleted(slot);
+        slots.put(nodeId, -1);
+        liveCount--;
+        return true;
+    }
+
+    // Follows ever-nearer neighbours on one level until none is nearer
+    private int greedy(float[] query, int entry, int level) {
+        int current = entry;
+        float best = distance(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int from = current;
+            int count = linkCount(from, level);
+            for (int i = 0; i < count; i++) {
+                int neighbour = link(from, level, i);
+                float distance = distance(query, neighbour);
+                if (distance < best) {
+                    best = distance;
+                    current = neighbour;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    // Best-first search of one level; returns up to ef keys, nearest first
+    private long[] searchLevel(float[] query, int entry, int ef, int level, boolean liveOnly) {
+        LongHashSet visited = new LongHashSet(ef * m);
+        // Nearest first
+        LongHeap candidates = new LongHeap(ef * 2);
+        // Farthest first, as negated keys
+        LongHeap results = new LongHeap(ef + 1);
+        visited.add(entry);
+        long entryKey = key(distance(query, entry), entry);
+        candidates.push(entryKey);
+        if (!liveOnly || !vectors.deleted(entry)) {
+            results.push(-entryKey);
+        }
+        while (!candidates.isEmpty()) {
+            long nearest = candidates.pop();
+            if (results.size() >= ef && nearest > -results.peek()) {
+                break;
+            }
+            int slot = slotOf(nearest);
+            int count = linkCount(slot, level);
+            for (int i = 0; i < count; i++) {
+                int neighbour = link(slot, level, i);
+                if (!visited.add(neighbour)) {
+                    continue;
+                }
+                long key = key(distance(query, neighbour), neighbour);
+                if (results.size() < ef || key < -results.peek()) {
+                    candidates.push(key);
+                    if (!liveOnly || !vectors.deleted(neighbour)) {
+                        results.push(-key);
+                        if (results.size() > ef) {
+                            results.pop();
+                        }
+                    }
+                }
+            }
+        }
+        long[] found = new long[results.size()];
+        for (int i = found.length - 1; i >= 0; i--) {
+            found[i] = -results.pop();
+        }
+        return found;
+    }
+
+    // Keeps each candidate (nearest first) only if it is nearer to the base than to every candidate kept so
+    // far, so the links point in different directions rather than all into the nearest cluster
+    private int selectNeighbours(long[] candidates, int count, int max, int[] selected) {
+        int kept = 0;
+        for (int c = 0; c < count && kept < max; c++) {
+            int slot = slotOf(candidates[c]);
+            float distance = distanceOf(candidates[c]);
+            boolean diverse = true;
+            for (int s = 0; s < kept && diverse; s++) {
+                diverse = distance(slot, selected[s]) >= distance;
+            }
+            if (diverse) {
+                selected[kept++] = slot;
+            }
+        }
+        return kept;
+    }
+
+    private void addLink(int from, int to, int level) {
+        int count = linkCount(from, level);
+        int max = maxLinks(level);
+        if (count < max) {
+            if (level == 0) {
+                vectors.addLink(from, to);
+            } else {
+                int[] links = upper[from][level - 1];
+                links[++links[0]] = to;
+            }
+            return;
+        }
+        // Full: keep the best spread of the old links and the new one
+        long[] candidates = new long[count + 1];
+        for (int i = 0; i < count; i++) {
+            int neighbour = link(from, level, i);
+            candidates[i] = key(distance(from, neighbour), neighbour);
+        }
+        candidates[count] = key(distance(from, to), to);
+        Arrays.sort(candidates);
+        int[] kept = new int[max];
+        int keptCount = selectNeighbours(candidates, candidates.length, max, kept);
+        if (level == 0) {
+            vectors.setLinks(from, kept, keptCount);
+        } else {
+            int[] links = upper[from][level - 1];
+            links[0] = keptCount;
+            System.arraycopy(kept, 0, links, 1, keptCount);
+        }
+    }
+
+    private int maxLinks(int level) {
+        return level == 0 ? 2 * m : m;
+    }
+
+    private int linkCount(int slot, int level) {
+        return level == 0 ? vectors.linkCount(slot) : upper[slot][level - 1][0];
+    }
+
+    private int link(int slot, int level, int i) {
+        return level == 0 ? vectors.link(slot, i) : upper[slot][level - 1][i + 1];
+    }
+
+    private float distance(float[] query, int slot) {
+        return Math.max(0f, 1 - vectors.dot(slot, query));
+    }
+
+    private float distance(int slot, int other) {
+        return Math.max(0f, 1 - vectors.dot(slot, other));
+    }
+
+    // Distances are never negative, so their float bits sort like the distances; the slot breaks ties
+    private static long key(float distance, int slot) {
+        return ((long) Float.floatToIntBits(distance) << 32) | slot;
+    }
+
+    private static int slotOf(long key) {
+        return (int) key;
+    }
+
+    private static float distanceOf(long key) {
+        return Float.intBitsToFloat((int) (key >>> 32));
+    }
+
+    private void writeUpperLinks() throws IOException {
+        Path target = directory.resolve(UPPER_LINKS_FILE);
+        Path temporary = directory.resolve(UPPER_LINKS_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(UPPER_LINKS_MAGIC);
+            out.writeInt(vectors.slotCount());
+            for (int slot = 0; slot < vectors.slotCount(); slot++) {
+                int[][] levels = upper[slot];
+                if (levels == null) {
+                    continue;
+                }
+                out.writeInt(slot);
+                out.writeInt(levels.length);
+                for (int[] links : levels) {
+                    for (int i = 0; i <= links[0]; i++) {
+                        out.writeInt(links[i]);
+                    }
+                }
+            }
+            out.writeInt(-1);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Null if the file is missing or does not match the vectors
+    private static int[][][] readUpperLinks(Path path, VectorFile vectors, int m) {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            int slotCount = vectors.slotCount();
+            if (in.readInt() != UPPER_LINKS_MAGIC || in.readInt() != slotCount) {
+                return null;
+            }
+            int[][][] upper = new int[Math.max(1024, slotCount)][][];
+            for (int slot = in.readInt(); slot >= 0; slot = in.readInt()) {
+                int levelCount = in.readInt();
+                if (slot >= slotCount || levelCount != vectors.level(slot)) {
+                    return null;
+                }
+                int[][] levels = new int[levelCount][m + 1];
+                for (int[] links : levels) {
+                    links[0] = in.readInt();
+                    if (links[0] < 0 || links[0] > m) {
+                        return null;
+                    }
+                    for (int i = 1; i <= links[0]; i++) {
+                        links[i] = in.readInt();
+                    }
+                }
+                upper[slot] = levels;
+            }
+            return upper;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.andrew.knowledge_graph.semantic;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of primitive longs. {@link HnswIndex} packs a distance and a slot into each value, so
+ * ordering the values orders by distance; a max-heap is the same heap over negated values.
+ */
+final class LongHeap {
+
+    private long[] items;
+    private int size;
+
+    LongHeap(int initialCapacity) {
+        items = new long[Math.max(4, initialCapacity)];
+    }
+
+    void push(long value) {
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (items[parent] <= value) {
+                break;
+            }
+            items[i] = items[parent];
+            i = parent;
+        }
+        items[i] = value;
+    }
+
+    long peek() {
+        return items[0];
+    }
+
+    long pop() {
+        long top = items[0];
+        long last = items[--size];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && items[child + 1] < items[child]) {
+                child++;
+            }
+            if (last <= items[child]) {
+                break;
+            }
+            items[i] = items[child];
+            i = child;
+        }
+        if (size > 0) {
+            items[i] = last;
+        }
+        return top;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+}
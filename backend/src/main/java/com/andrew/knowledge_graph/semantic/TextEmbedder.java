@@ -0,0 +1,18 @@
+package com.andrew.knowledge_graph.semantic;
+
+/**
+ * Turns node text into a fixed-length vector for {@link HnswIndex}. Vectors must be L2-normalised (or all
+ * zero for text with nothing to embed), so the dot product of two of them is their cosine similarity.
+ *
+ * The default is {@link HashingTextEmbedder}; a model-backed embedder replaces it by declaring its own bean.
+ * Changing the embedder or its dimensions makes the index rebuild itself on the next start.
+ */
+public interface TextEmbedder {
+
+    int dimensions();
+
+    /**
+     * @param description may be null, as may {@code title}
+     */
+    float[] embed(String title, String description);
+}
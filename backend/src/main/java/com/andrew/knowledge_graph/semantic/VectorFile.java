@@ -0,0 +1,313 @@
+package com.andrew.knowledge_graph.semantic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The memory-mapped part of an {@link HnswIndex}: a fixed-size record per slot holding the node id, a deleted
+ * flag, the slot's HNSW level, its level-0 links and its vector. That is nearly all of the index's size, and
+ * mapping it leaves caching to the operating system instead of the heap.
+ *
+ * The file is mapped in segments of {@value #SLOTS_PER_SEGMENT} slots, since one mapping cannot exceed 2 GB,
+ * and grows a segment at a time. Not thread-safe for writes; {@link HnswIndex} serialises them.
+ */
+final class VectorFile implements Closeable {
+
+    private static final int MAGIC = 0x4B47564E;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOTS_PER_SEGMENT = 1 << 16;
+
+    // Header fields
+    private static final int MAGIC_AT = 0;
+    private static final int VERSION_AT = 4;
+    private static final int DIMENSIONS_AT = 8;
+    private static final int MAX_LINKS_AT = 12;
+    private static final int SLOT_COUNT_AT = 16;
+    private static final int ENTRY_POINT_AT = 20;
+    private static final int MAX_LEVEL_AT = 24;
+    private static final int CLEAN_AT = 28;
+    // The version of the data the index reflects, as given by its owner; -1 until set
+    private static final int SOURCE_VERSION_AT = 32;
+
+    // Slot fields
+    private static final int NODE_ID_AT = 0;
+    private static final int DELETED_AT = 8;
+    private static final int LEVEL_AT = 12;
+    private static final int LINK_COUNT_AT = 16;
+    private static final int LINKS_AT = 20;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final int dimensions;
+    private final int maxLinks;
+    private final int slotBytes;
+    private final int vectorAt;
+    private MappedByteBuffer[] segments;
+    // The same segments viewed as floats, for whole-vector copies and slightly faster dot products
+    private FloatBuffer[] floatSegments;
+    private int slotCount;
+
+    private VectorFile(FileChannel channel, MappedByteBuffer header, int dimensions, int maxLinks, int slotCount)
+            throws IOException {
+        this.channel = channel;
+        this.header = header;
+        this.dimensions = dimensions;
+        this.maxLinks = maxLinks;
+        this.vectorAt = LINKS_AT + 4 * maxLinks;
+        this.slotBytes = vectorAt + 4 * dimensions;
+        if ((long) SLOTS_PER_SEGMENT * slotBytes > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IllegalArgumentException("Vectors of " + dimensions + " dimensions are too large to map");
+        }
+        this.slotCount = slotCount;
+        this.segments = new MappedByteBuffer[0];
+        this.floatSegments = new FloatBuffer[0];
+        while ((long) segments.length * SLOTS_PER_SEGMENT < slotCount) {
+            mapSegment();
+        }
+    }
+
+    /**
+     * Opens the file if it was closed cleanly with the same layout, and returns null otherwise (missing,
+     * another version or shape, or left open by a crash), in which case it should be {@link #create}d again.
+     */
+    static VectorFile open(Path path, int dimensions, int maxLinks) {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (channel.size() < HEADER_BYTES) {
+                channel.close();
+                return null;
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(MAGIC_AT) != MAGIC || header.getInt(VERSION_AT) != VERSION
+                    || header.getInt(DIMENSIONS_AT) != dimensions || header.getInt(MAX_LINKS_AT) != maxLinks
+                    || header.getInt(CLEAN_AT) != 1) {
+                channel.close();
+                return null;
+            }
+            return new VectorFile(channel, header, dimensions, maxLinks, header.getInt(SLOT_COUNT_AT));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open " + path, e);
+        }
+    }
+
+    /**
+     * Replaces whatever is at {@code path} with an empty file.
+     */
+    static VectorFile create(Path path, int dimensions, int maxLinks) {
+        try {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            // A new file rather than a truncated one, so mappings of the old file stay valid until collected
+            Files.deleteIfExists(path);
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC_AT, MAGIC);
+            header.putInt(VERSION_AT, VERSION);
+            header.putInt(DIMENSIONS_AT, dimensions);
+            header.putInt(MAX_LINKS_AT, maxLinks);
+            header.putInt(SLOT_COUNT_AT, 0);
+            header.putInt(ENTRY_POINT_AT, -1);
+            header.putInt(MAX_LEVEL_AT, -1);
+            header.putInt(CLEAN_AT, 0);
+            header.putLong(SOURCE_VERSION_AT, -1);
+            return new VectorFile(channel, header, dimensions, maxLinks, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create " + path, e);
+        }
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    int slotCount() {
+        return slotCount;
+    }
+
+    /**
+     * Appends an empty slot, growing the file if needed.
+     */
+    int allocate(long nodeId, int level) {
+        int slot = slotCount;
+        if (slot / SLOTS_PER_SEGMENT == segments.length) {
+            mapSegment();
+        }
+        MappedByteBuffer segment = segment(slot);
+        int at = offset(slot);
+        segment.putLong(at + NODE_ID_AT, nodeId);
+        segment.putInt(at + DELETED_AT, 0);
+        segment.putInt(at + LEVEL_AT, level);
+        segment.putInt(at + LINK_COUNT_AT, 0);
+        slotCount++;
+        header.putInt(SLOT_COUNT_AT, slotCount);
+        return slot;
+    }
+
+    long nodeId(int slot) {
+        return segment(slot).getLong(offset(slot) + NODE_ID_AT);
+    }
+
+    boolean deleted(int slot) {
+        return segment(slot).getInt(offset(slot) + DELETED_AT) != 0;
+    }
+
+    void markDeleted(int slot) {
+        segment(slot).putInt(offset(slot) + DELETED_AT, 1);
+    }
+
+    int level(int slot) {
+        return segment(slot).getInt(offset(slot) + LEVEL_AT);
+    }
+
+    int linkCount(int slot) {
+        return segment(slot).getInt(offset(slot) + LINK_COUNT_AT);
+    }
+
+    int link(int slot, int i) {
+        return segment(slot).getInt(offset(slot) + LINKS_AT + 4 * i);
+    }
+
+    /**
+     * Replaces the level-0 links with the first {@code count} of {@code links}.
+     */
+    void setLinks(int slot, int[] links, int count) {
+        MappedByteBuffer segment = segment(slot);
+        int at = offset(slot);
+        for (int i = 0; i < count; i++) {
+            segment.putInt(at + LINKS_AT + 4 * i, links[i]);
+        }
+        segment.putInt(at + LINK_COUNT_AT, count);
+    }
+
+    void addLink(int slot, int link) {
+        MappedByteBuffer segment = segment(slot);
+        int at = offset(slot);
+        int count = segment.getInt(at + LINK_COUNT_AT);
+        segment.putInt(at + LINKS_AT + 4 * count, link);
+        segment.putInt(at + LINK_COUNT_AT, count + 1);
+    }
+
+    void setVector(int slot, float[] vector) {
+        floats(slot).put(vectorIndex(slot), vector);
+    }
+
+    float[] vector(int slot) {
+        float[] vector = new float[dimensions];
+        floats(slot).get(vectorIndex(slot), vector);
+        return vector;
+    }
+
+    float dot(int slot, float[] query) {
+        FloatBuffer floats = floats(slot);
+        int at = vectorIndex(slot);
+        float sum = 0;
+        for (int i = 0; i < dimensions; i++) {
+            sum += floats.get(at + i) * query[i];
+        }
+        return sum;
+    }
+
+    float dot(int slot, int other) {
+        FloatBuffer floats = floats(slot);
+        FloatBuffer otherFloats = floats(other);
+        int at = vectorIndex(slot);
+        int otherAt = vectorIndex(other);
+        float sum = 0;
+        for (int i = 0; i < dimensions; i++) {
+            sum += floats.get(at + i) * otherFloats.get(otherAt + i);
+        }
+        return sum;
+    }
+
+    int entryPoint() {
+        return header.getInt(ENTRY_POINT_AT);
+    }
+
+    int maxLevel() {
+        return header.getInt(MAX_LEVEL_AT);
+    }
+
+    void setEntryPoint(int slot, int level) {
+        header.putInt(ENTRY_POINT_AT, slot);
+        header.putInt(MAX_LEVEL_AT, level);
+    }
+
+    long sourceVersion() {
+        return header.getLong(SOURCE_VERSION_AT);
+    }
+
+    void setSourceVersion(long version) {
+        header.putLong(SOURCE_VERSION_AT, version);
+    }
+
+    /**
+     * Flushes everything and records whether the file is consistent. An index is marked unclean while it is
+     * open, so a crash leaves it marked for a rebuild.
+     */
+    void setClean(boolean clean) {
+        if (clean) {
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+        }
+        header.putInt(CLEAN_AT, clean ? 1 : 0);
+        header.force();
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void mapSegment() {
+        try {
+            long position = HEADER_BYTES + (long) segments.length * SLOTS_PER_SEGMENT * slotBytes;
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, position,
+                    (long) SLOTS_PER_SEGMENT * slotBytes);
+            segment.order(ByteOrder.LITTLE_ENDIAN);
+            segments = Arrays.copyOf(segments, segments.length + 1);
+            segments[segments.length - 1] = segment;
+            floatSegments = Arrays.copyOf(floatSegments, floatSegments.length + 1);
+            floatSegments[floatSegments.length - 1] = segment.asFloatBuffer();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not grow the vector file", e);
+        }
+    }
+
+    private MappedByteBuffer segment(int slot) {
+        return segments[slot / SLOTS_PER_SEGMENT];
+    }
+
+    private FloatBuffer floats(int slot) {
+        return floatSegments[slot / SLOTS_PER_SEGMENT];
+    }
+
+    // Slots and vectors start at multiples of four bytes, so a vector is at a whole float index
+    private int vectorIndex(int slot) {
+        return (offset(slot) + vectorAt) / 4;
+    }
+
+    private int offset(int slot) {
+        return (slot % SLOTS_PER_SEGMENT) * slotBytes;
+    }
+}
@@ -1,23 +1,72 @@
 package com.andrew.knowledge_graph.service;
 
 import com.andrew.knowledge_graph.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
     @Autowired
     private UserRepository userRepository;
 
+    // Every authenticated request looks its principal up here, so keep recently seen users in memory.
+    // Entries expire after the TTL; anything that creates a user or changes their roles or password must call evict().
+    // Entries are detached snapshots, never the JPA entity, and callers get a copy: Spring Security erases the
+    // password of the principal it authenticates, which must not reach the cached entry.
+    private final Cache<String, UserDetails> principalCache;
+
+    public CustomUserDetailsService(@Value("${security.principal-cache.maximum-size:10000}") long maximumSize,
+                                    @Value("${security.principal-cache.ttl:5m}") Duration ttl,
+                                    MeterRegistry meterRegistry) {
+        this.principalCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        // Publishes cache.gets{result=hit|miss}, cache.evictions, etc. tagged with cache=principals
+        CaffeineCacheMetrics.monitor(meterRegistry, principalCache, "principals");
+    }
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        // Your User entity now IS a UserDetails object.
-        // You just need to find it by username and return it.
-        return userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+        // Unknown usernames are not cached
+        UserDetails user = principalCache.get(username, key -> userRepository.findByUsername(key)
+                .map(CustomUserDetailsService::snapshot)
+                .orElse(null));
+        if (user == null) {
+            throw new UsernameNotFoundException("User not found with username: " + username);
+        }
+        return User.withUserDetails(user).build();
+    }
+
+    /**
+     * Drops the cached principal for a user, so the next lookup reads them from the database again.
+     * Called after anything that creates or changes a user.
+     */
+    public void evict(String username) {
+        principalCache.invalidate(username);
+    }
+
+    private static UserDetails snapshot(UserDetails user) {
+        return User.withUsername(user.getUsername())
+                .password(user.getPassword())
+                .authorities(user.getAuthorities())
+                .accountExpired(!user.isAccountNonExpired())
+                .accountLocked(!user.isAccountNonLocked())
+                .credentialsExpired(!user.isCredentialsNonExpired())
+                .disabled(!user.isEnabled())
+                .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,237 @@
+package com.andrew.knowledge_graph.service;
+
+import com.andrew.knowledge_graph.analytics.Centrality;
+import com.andrew.knowledge_graph.analytics.ClusterOverlay;
+import com.andrew.knowledge_graph.analytics.Components;
+import com.andrew.knowledge_graph.analytics.GraphMetrics;
+import com.andrew.knowledge_graph.analytics.LabelPropagation;
+import com.andrew.knowledge_graph.analytics.PageRank;
+import com.andrew.knowledge_graph.event.GraphChangedEvent;
+import com.andrew.knowledge_graph.graph.DenseGraph;
+import com.andrew.knowledge_graph.graph.GraphIndex;
+import com.andrew.knowledge_graph.model.Relationship;
+import com.andrew.knowledge_graph.model.RelationshipType;
+import com.andrew.knowledge_graph.repository.NodeMetricRepository;
+import com.andrew.knowledge_graph.repository.RelationshipRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Whole-graph node scores: PageRank (weighted per relationship type), degree and betweenness centrality,
+ * connected components and label-propagation communities.
+ *
+ * Scores are computed in the background from a {@link GraphIndex#snapshot()}, on a schedule and after enough
+ * mutations, with the algorithms spread over a dedicated fork-join pool. Readers always get the last completed
+ * {@link GraphMetrics} from memory; a finished run replaces it in one reference swap and is then persisted,
+ * so a restart starts from the last results. Between runs, components and communities are kept current for
+ * new links by a {@link ClusterOverlay}.
+ */
+@Service
+public class GraphAnalyticsService {
+
+    private static final Logger log = LoggerFactory.getLogger(GraphAnalyticsService.class);
+    private static final int PERSIST_CHUNK_SIZE = 10_000;
+    // Larger batches (imports) are left to the recomputation they trigger
+    private static final int MAX_INCREMENTAL_LINKS = 10_000;
+
+    private final GraphIndex graphIndex;
+    private final NodeMetricRepository metricRepository;
+    private final RelationshipRepository relationshipRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer recomputeTimer;
+    private final double[] typeWeights;
+    private final double damping;
+    private final int maxIterations;
+    private final double tolerance;
+    private final int betweennessSamples;
+    private final int labelPropagationIterations;
+    private final double labelPropagationMinMoved;
+    private final long recomputeAfterChanges;
+    private final ForkJoinPool pool;
+    // Runs one recomputation at a time; further requests while one is queued are merged into it
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("graph-analytics").daemon().factory());
+    // Applies new links to the cluster overlay in commit order, off the committing thread and without waiting
+    // behind a recomputation
+    private final ExecutorService linker = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("graph-analytics-links").daemon().factory());
+    private final AtomicBoolean queued = new AtomicBoolean();
+    private final AtomicLong changesSinceRun = new AtomicLong();
+    private final ClusterOverlay clusters = new ClusterOverlay();
+
+    private volatile GraphMetrics metrics = GraphMetrics.EMPTY;
+
+    public GraphAnalyticsService(GraphIndex graphIndex,
+                                 NodeMetricRepository metricRepository,
+                                 RelationshipRepository relationshipRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("#{${graph.analytics.page-rank.type-weights:{:}}}") Map<String, Double> typeWeights,
+                                 @Value("${graph.analytics.page-rank.damping:0.85}") double damping,
+                                 @Value("${graph.analytics.page-rank.max-iterations:50}") int maxIterations,
+                                 @Value("${graph.analytics.page-rank.tolerance:1e-9}") double tolerance,
+                                 @Value("${graph.analytics.betweenness-samples:256}") int betweennessSamples,
+                                 @Value("${graph.analytics.label-propagation.max-iterations:20}") int labelPropagationIterations,
+                                 @Value("${graph.analytics.label-propagation.min-moved-fraction:0.001}") double labelPropagationMinMoved,
+                                 @Value("${graph.analytics.recompute-after-changes:1000}") long recomputeAfterChanges,
+                                 @Value("${graph.analytics.parallelism:0}") int parallelism) {
+        this.graphIndex = graphIndex;
+        this.metricRepository = metricRepository;
+        this.relationshipRepository = relationshipRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.recomputeTimer = Timer.builder("graph.analytics.recompute")
+                .description("Time to recompute and persist node scores")
+                .register(meterRegistry);
+        // Unlisted relationship types weigh 1.0
+        this.typeWeights = new double[RelationshipType.values().length];
+        for (RelationshipType type : RelationshipType.values()) {
+            this.typeWeights[type.ordinal()] = typeWeights.getOrDefault(type.name(), 1.0);
+        }
+        this.damping = damping;
+        this.maxIterations = maxIterations;
+        this.tolerance = tolerance;
+        this.betweennessSamples = betweennessSamples;
+        this.labelPropagationIterations = labelPropagationIterations;
+        this.labelPropagationMinMoved = labelPropagationMinMoved;
+        this.recomputeAfterChanges = recomputeAfterChanges;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * The latest completed scores. Never blocks.
+     */
+    public GraphMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Components and communities as of the last run plus links added since.
+     */
+    public ClusterOverlay clusters() {
+        return clusters;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadStoredMetrics() {
+        GraphMetrics stored = metricRepository.load();
+        if (stored.size() > 0) {
+            metrics = stored;
+            clusters.publish(stored);
+        } else {
+            requestRecompute();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${graph.analytics.interval:PT10M}", fixedDelayString = "${graph.analytics.interval:PT10M}")
+    public void scheduledRecompute() {
+        requestRecompute();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onGraphChanged(GraphChangedEvent event) {
+        long changes = event.upsertedNodeIds().size() + event.deletedNodeIds().size()
+                + event.upsertedRelationshipIds().size() + event.deletedRelationshipIds().size();
+        if (recomputeAfterChanges > 0 && changesSinceRun.addAndGet(changes) >= recomputeAfterChanges) {
+            requestRecompute();
+        }
+        List<Long> linked = event.upsertedRelationshipIds();
+        if (!linked.isEmpty() && linked.size() <= MAX_INCREMENTAL_LINKS) {
+            linker.execute(() -> {
+                try {
+                    for (Relationship relationship : relationshipRepository.findAllById(linked)) {
+                        clusters.link(relationship.getFromNodeId(), relationship.getToNodeId());
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Could not apply new links to the cluster overlay", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Queues a recomputation unless one is already queued.
+     */
+    public void requestRecompute() {
+        if (queued.compareAndSet(false, true)) {
+            runner.execute(() -> {
+                try {
+                    recompute();
+                } catch (RuntimeException e) {
+                    log.warn("Graph analytics recomputation failed", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Recomputes every score on the calling thread and publishes the result.
+     */
+    public GraphMetrics recompute() {
+        // Changes from here on are not in the snapshot, so they count towards the next run
+        queued.set(false);
+        changesSinceRun.set(0);
+        return recomputeTimer.record(() -> {
+            clusters.beginRun();
+            DenseGraph graph = graphIndex.snapshot();
+            long computedAt = System.currentTimeMillis();
+            double[] pageRank = PageRank.compute(graph, typeWeights, damping, maxIterations, tolerance, pool);
+            double[] degree = Centrality.degree(graph, pool);
+            double[] betweenness = Centrality.betweenness(graph, betweennessSamples, computedAt, pool);
+            int[] components = Components.compute(graph, pool);
+            int[] communities = LabelPropagation.compute(graph, labelPropagationIterations, labelPropagationMinMoved, pool);
+            GraphMetrics result = new GraphMetrics(graph.nodeIds(), pageRank, degree, betweenness,
+                    toNodeIds(graph, components), toNodeIds(graph, communities), computedAt);
+            metrics = result;
+            clusters.publish(result);
+            persist(result);
+            log.debug("Recomputed scores for {} nodes and {} relationships", graph.nodeCount(), graph.edgeCount());
+            return result;
+        });
+    }
+
+    private static long[] toNodeIds(DenseGraph graph, int[] indexes) {
+        long[] ids = new long[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            ids[i] = graph.nodeId(indexes[i]);
+        }
+        return ids;
+    }
+
+    // One short transaction per chunk, so writers are never held off for the whole table
+    private void persist(GraphMetrics result) {
+        for (int from = 0; from < result.size(); from += PERSIST_CHUNK_SIZE) {
+            int start = from;
+            int end = Math.min(result.size(), from + PERSIST_CHUNK_SIZE);
+            transactionTemplate.executeWithoutResult(status -> metricRepository.upsert(result, start, end));
+        }
+        transactionTemplate.executeWithoutResult(status -> metricRepository.deleteComputedBefore(result.computedAt()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+        linker.shutdownNow();
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,109 @@
+package com.andrew.knowledge_graph.service;
+
+import com.andrew.knowledge_graph.event.GraphChangedEvent;
+import com.andrew.knowledge_graph.repository.GraphChangeLogRepository;
+import com.andrew.knowledge_graph.repository.GraphChangeLogRepository.ChangeEntry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incremental sync. Every {@link GraphChangedEvent} is written to the change log in the same transaction
+ * as the change itself, and clients catch up with {@link #changesSince} instead of re-reading the graph.
+ *
+ * Old entries are compacted away on a schedule (by age and by count). A client whose version is older
+ * than what the log still holds is told to resync.
+ */
+@Service
+public class GraphChangeService {
+
+    /**
+     * One page of changes after a client's version, with repeated changes to the same entity collapsed
+     * to the latest. {@code version} is what the client should pass next time.
+     */
+    public record ChangeSet(long version, boolean hasMore, boolean resyncRequired,
+                            List<Long> upsertedNodeIds, List<Long> deletedNodeIds,
+                            List<Long> upsertedRelationshipIds, List<Long> deletedRelationshipIds) {}
+
+    private final GraphChangeLogRepository changeLog;
+    private final Duration retention;
+    private final long maxEntries;
+
+    public GraphChangeService(GraphChangeLogRepository changeLog,
+                              @Value("${graph.change-log.retention:P7D}") Duration retention,
+                              @Value("${graph.change-log.max-entries:1000000}") long maxEntries) {
+        this.changeLog = changeLog;
+        this.retention = retention;
+        this.maxEntries = maxEntries;
+    }
+
+    // Runs synchronously on the publishing thread, so the entries commit or roll back with the change
+    @EventListener
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onGraphChanged(GraphChangedEvent event) {
+        changeLog.append(GraphChangeLogRepository.NODE, event.upsertedNodeIds(), false);
+        changeLog.append(GraphChangeLogRepository.NODE, event.deletedNodeIds(), true);
+        changeLog.append(GraphChangeLogRepository.RELATIONSHIP, event.upsertedRelationshipIds(), false);
+        changeLog.append(GraphChangeLogRepository.RELATIONSHIP, event.deletedRelationshipIds(), true);
+    }
+
+    @Transactional(readOnly = true)
+    public long currentVersion() {
+        return changeLog.currentVersion();
+    }
+
+    @Transactional(readOnly = true)
+    public ChangeSet changesSince(long since, int limit) {
+        long current = changeLog.currentVersion();
+        if (since < changeLog.oldestSyncableVersion() || since > current) {
+            // The client has to reload the graph; changes from this version on can then be replayed safely
+            return new ChangeSet(current, false, true, List.of(), List.of(), List.of(), List.of());
+        }
+
+        // Fetch one extra entry to find out whether there is more to come
+        List<ChangeEntry> entries = changeLog.findSince(since, limit + 1);
+        boolean hasMore = entries.size() > limit;
+        List<ChangeEntry> page = hasMore ? entries.subList(0, limit) : entries;
+
+        Map<Long, Boolean> nodes = new LinkedHashMap<>();
+        Map<Long, Boolean> relationships = new LinkedHashMap<>();
+        for (ChangeEntry entry : page) {
+            Map<Long, Boolean> target = GraphChangeLogRepository.NODE.equals(entry.entity()) ? nodes : relationships;
+            target.remove(entry.entityId()); // keep the latest change, in the order it happened
+            target.put(entry.entityId(), entry.deleted());
+        }
+        long version = page.isEmpty() ? since : page.get(page.size() - 1).version();
+        return new ChangeSet(version, hasMore, false,
+                select(nodes, false), select(nodes, true),
+                select(relationships, false), select(relationships, true));
+    }
+
+    @Scheduled(initialDelayString = "${graph.change-log.compaction-interval:PT1H}",
+            fixedDelayString = "${graph.change-log.compaction-interval:PT1H}")
+    @Transactional
+    public void compact() {
+        long keepAfter = changeLog.currentVersion() - maxEntries;
+        long changedBefore = System.currentTimeMillis() - retention.toMillis();
+        changeLog.deletePrefix(keepAfter, changedBefore);
+    }
+
+    private static List<Long> select(Map<Long, Boolean> changes, boolean deleted) {
+        List<Long> ids = new ArrayList<>();
+        changes.forEach((id, isDeleted) -> {
+            if (isDeleted == deleted) {
+                ids.add(id);
+            }
+        });
+        return ids;
+    }
+}
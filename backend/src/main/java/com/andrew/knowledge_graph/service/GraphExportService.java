@@ -0,0 +1,166 @@
+package com.andrew.knowledge_graph.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+
+/**
+ * Streams the whole graph to an output stream straight from JDBC cursors. Rows are written as they are
+ * read and never collected into entity lists, so heap use stays flat regardless of graph size.
+ *
+ * Both tables are read inside one read-only transaction, so the export is a consistent snapshot.
+ */
+@Service
+public class GraphExportService {
+
+    private static final int FETCH_SIZE = 5_000;
+    private static final String NODES_SQL = "SELECT id, title, description FROM node ORDER BY id";
+    private static final String RELATIONSHIPS_SQL =
+            "SELECT id, type, notes, from_node_id, to_node_id FROM relationship ORDER BY id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public GraphExportService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Writes one JSON object per line, in the same format POST /api/graph/import accepts
+     * (node ids become refs), so an export can be imported again as is.
+     */
+    public void writeNdjson(OutputStream output) throws IOException {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(output)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.setRootValueSeparator(null); // Lines are terminated explicitly below
+            readOnlyTransaction.executeWithoutResult(status -> {
+                stream(NODES_SQL, rs -> {
+                    try {
+                        json.writeStartObject();
+                        json.writeStringField("kind", "node");
+                        json.writeStringField("ref", String.valueOf(rs.getLong("id")));
+                        json.writeStringField("title", rs.getString("title"));
+                        json.writeStringField("description", rs.getString("description"));
+                        json.writeEndObject();
+                        json.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                stream(RELATIONSHIPS_SQL, rs -> {
+                    try {
+                        json.writeStartObject();
+                        json.writeStringField("kind", "relationship");
+                        json.writeStringField("from", String.valueOf(rs.getLong("from_node_id")));
+                        json.writeStringField("to", String.valueOf(rs.getLong("to_node_id")));
+                        json.writeStringField("type", rs.getString("type"));
+                        json.writeStringField("notes", rs.getString("notes"));
+                        json.writeEndObject();
+                        json.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Writes the graph as GraphML, with title/description as node data and type/notes as edge data.
+     */
+    public void writeGraphml(OutputStream output) throws IOException {
+        try {
+            XMLStreamWriter xml = XMLOutputFactory.newFactory().createXMLStreamWriter(output, StandardCharsets.UTF_8.name());
+            xml.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+            xml.writeStartElement("graphml");
+            xml.writeDefaultNamespace("http://graphml.graphdrawing.org/xmlns");
+            writeKey(xml, "title", "node");
+            writeKey(xml, "description", "node");
+            writeKey(xml, "type", "edge");
+            writeKey(xml, "notes", "edge");
+            xml.writeStartElement("graph");
+            xml.writeAttribute("id", "knowledge-graph");
+            xml.writeAttribute("edgedefault", "directed");
+
+            readOnlyTransaction.executeWithoutResult(status -> {
+                stream(NODES_SQL, rs -> {
+                    try {
+                        xml.writeStartElement("node");
+                        xml.writeAttribute("id", "n" + rs.getLong("id"));
+                        writeData(xml, "title", rs.getString("title"));
+                        writeData(xml, "description", rs.getString("description"));
+                        xml.writeEndElement();
+                    } catch (XMLStreamException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                stream(RELATIONSHIPS_SQL, rs -> {
+                    try {
+                        xml.writeStartElement("edge");
+                        xml.writeAttribute("id", "e" + rs.getLong("id"));
+                        xml.writeAttribute("source", "n" + rs.getLong("from_node_id"));
+                        xml.writeAttribute("target", "n" + rs.getLong("to_node_id"));
+                        writeData(xml, "type", rs.getString("type"));
+                        writeData(xml, "notes", rs.getString("notes"));
+                        xml.writeEndElement();
+                    } catch (XMLStreamException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+            });
+
+            xml.writeEndElement(); // graph
+            xml.writeEndElement(); // graphml
+            xml.writeEndDocument();
+            xml.flush();
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to write GraphML", e);
+        }
+    }
+
+    private void stream(String sql, RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, handler);
+    }
+
+    private static void writeKey(XMLStreamWriter xml, String name, String target) throws XMLStreamException {
+        xml.writeEmptyElement("key");
+        xml.writeAttribute("id", name);
+        xml.writeAttribute("for", target);
+        xml.writeAttribute("attr.name", name);
+        xml.writeAttribute("attr.type", "string");
+    }
+
+    private static void writeData(XMLStreamWriter xml, String key, String value) throws XMLStreamException {
+        if (value == null) {
+            return;
+        }
+        xml.writeStartElement("data");
+        xml.writeAttribute("key", key);
+        xml.writeCharacters(value);
+        xml.writeEndElement();
+    }
+}
@@ -0,0 +1,195 @@
+package com.andrew.knowledge_graph.service;
+
+import com.andrew.knowledge_graph.event.GraphChangedEvent;
+import com.andrew.knowledge_graph.graph.GraphIndex;
+import com.andrew.knowledge_graph.model.Node;
+import com.andrew.knowledge_graph.model.Relationship;
+import com.andrew.knowledge_graph.model.inputs.ImportRecord;
+import com.andrew.knowledge_graph.repository.GraphBulkRepository;
+
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bulk graph import. Records are consumed one at a time and written in chunks, each chunk in its own
+ * transaction using JDBC batches, so memory use does not depend on the size of the input.
+ *
+ * The one exception is the map from client refs to generated node ids, which grows with the number of
+ * imported nodes (it is needed to resolve relationships). A relationship may only use refs of nodes that
+ * appear earlier in the input; this is checked as records are read, so it does not depend on where the chunk
+ * boundaries fall. Chunks committed before a failure are kept; the chunk being read when it happens is not written.
+ */
+@Service
+public class GraphImportService {
+
+    /**
+     * Outcome of an import: counts, plus the id generated for every node ref.
+     */
+    public record ImportSummary(long nodeCount, long relationshipCount, Map<String, Long> nodeIdsByRef) {}
+
+    private final GraphBulkRepository bulkRepository;
+    private final GraphIndex graphIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+
+    public GraphImportService(GraphBulkRepository bulkRepository,
+                              GraphIndex graphIndex,
+                              TransactionTemplate transactionTemplate,
+                              ObjectMapper objectMapper,
+                              ApplicationEventPublisher eventPublisher,
+                              @Value("${graph.import.chunk-size:10000}") int chunkSize) {
+        this.bulkRepository = bulkRepository;
+        this.graphIndex = graphIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports newline-delimited JSON, one {@link ImportRecord} per line, parsing incrementally from the stream.
+     *
+     * @throws InvalidArgumentException for a line that is not a valid record, as for any other invalid record
+     */
+    public ImportSummary importNdjson(InputStream input) throws IOException {
+        try (MappingIterator<ImportRecord> records = objectMapper.readerFor(ImportRecord.class).readValues(input)) {
+            return importRecords(records);
+        } catch (RuntimeException e) {
+            // MappingIterator reports syntax errors as a plain RuntimeException around the parser's exception
+            if (e instanceof RuntimeJsonMappingException || e.getCause() instanceof JacksonException) {
+                throw new InvalidArgumentException("Malformed import record: " + e.getMessage(), e);
+            }
+            throw e;
+        }
+    }
+
+    public ImportSummary importRecords(Iterator<ImportRecord> records) {
+        Map<String, Long> nodeIdsByRef = new HashMap<>();
+        // Refs of the nodes in the current, unwritten chunk
+        Set<String> pendingRefs = new HashSet<>();
+        List<ImportRecord> nodeChunk = new ArrayList<>();
+        List<ImportRecord> relationshipChunk = new ArrayList<>();
+        long[] counts = {0, 0};
+        long recordNumber = 0;
+
+        while (records.hasNext()) {
+            ImportRecord record = records.next();
+            recordNumber++;
+            if (ImportRecord.NODE.equals(record.kind())) {
+                validateNode(record, recordNumber);
+                if (record.ref() != null
+                        && (nodeIdsByRef.containsKey(record.ref()) || !pendingRefs.add(record.ref()))) {
+                    throw new InvalidArgumentException("Record " + recordNumber + ": duplicate node ref '" + record.ref() + "'");
+                }
+                nodeChunk.add(record);
+            } else if (ImportRecord.RELATIONSHIP.equals(record.kind())) {
+                if (record.type() == null) {
+                    throw new InvalidArgumentException("Record " + recordNumber + ": relationship type is required");
+                }
+                checkDefined(record.from(), nodeIdsByRef, pendingRefs, recordNumber);
+                checkDefined(record.to(), nodeIdsByRef, pendingRefs, recordNumber);
+                relationshipChunk.add(record);
+            } else {
+                throw new InvalidArgumentException("Record " + recordNumber + ": unknown kind '" + record.kind() + "'");
+            }
+
+            if (nodeChunk.size() + relationshipChunk.size() >= chunkSize) {
+                writeChunk(nodeChunk, relationshipChunk, nodeIdsByRef, counts);
+                pendingRefs.clear();
+            }
+        }
+        writeChunk(nodeChunk, relationshipChunk, nodeIdsByRef, counts);
+        return new ImportSummary(counts[0], counts[1], nodeIdsByRef);
+    }
+
+    private void writeChunk(List<ImportRecord> nodeChunk, List<ImportRecord> relationshipChunk,
+                            Map<String, Long> nodeIdsByRef, long[] counts) {
+        if (nodeChunk.isEmpty() && relationshipChunk.isEmpty()) {
+            return;
+        }
+        List<Relationship> relationships = new ArrayList<>(relationshipChunk.size());
+        transactionTemplate.executeWithoutResult(status -> {
+            // Ids are assigned here rather than by the database so a whole chunk can go out as one batch
+            long nextNodeId = bulkRepository.lastNodeId() + 1;
+            List<Node> nodes = new ArrayList<>(nodeChunk.size());
+            for (ImportRecord record : nodeChunk) {
+                Node node = new Node(record.title(), record.description());
+                node.setId(nextNodeId++);
+                if (record.ref() != null && nodeIdsByRef.putIfAbsent(record.ref(), node.getId()) != null) {
+                    throw new InvalidArgumentException("Duplicate node ref '" + record.ref() + "'");
+                }
+                nodes.add(node);
+            }
+            bulkRepository.insertNodes(nodes);
+
+            long nextRelationshipId = bulkRepository.lastRelationshipId() + 1;
+            for (ImportRecord record : relationshipChunk) {
+                Relationship rel = new Relationship(record.type(), record.notes(),
+                        resolveNodeId(record.from(), record.fromNodeId(), nodeIdsByRef),
+                        resolveNodeId(record.to(), record.toNodeId(), nodeIdsByRef));
+                rel.setId(nextRelationshipId++);
+                relationships.add(rel);
+            }
+            bulkRepository.insertRelationships(relationships);
+            eventPublisher.publishEvent(new GraphChangedEvent(
+                    nodes.stream().map(Node::getId).toList(), List.of(),
+                    GraphChangedEvent.ids(relationships), List.of(), GraphChangedEvent.endpoints(relationships)));
+        });
+
+        // Only publish edges to the in-memory index once they are committed
+        graphIndex.addEdges(relationships);
+        counts[0] += nodeChunk.size();
+        counts[1] += relationshipChunk.size();
+        nodeChunk.clear();
+        relationshipChunk.clear();
+    }
+
+    private static void validateNode(ImportRecord record, long recordNumber) {
+        if (record.title() == null || record.title().isBlank()) {
+            throw new InvalidArgumentException("Record " + recordNumber + ": node title must not be empty");
+        }
+    }
+
+    private static void checkDefined(String ref, Map<String, Long> nodeIdsByRef, Set<String> pendingRefs, long recordNumber) {
+        if (ref != null && !nodeIdsByRef.containsKey(ref) && !pendingRefs.contains(ref)) {
+            throw new InvalidArgumentException("Record " + recordNumber + ": node ref '" + ref
+                    + "' is not defined by an earlier record");
+        }
+    }
+
+    private static long resolveNodeId(String ref, String nodeId, Map<String, Long> nodeIdsByRef) {
+        if (ref != null) {
+            Long id = nodeIdsByRef.get(ref);
+            if (id == null) {
+                throw new InvalidArgumentException("Unknown node ref '" + ref + "'");
+            }
+            return id;
+        }
+        if (nodeId != null) {
+            try {
+                return Long.parseLong(nodeId);
+            } catch (NumberFormatException e) {
+                throw new InvalidArgumentException("Invalid node id '" + nodeId + "'");
+            }
+        }
+        throw new InvalidArgumentException("A relationship needs either a ref or a node id for each end");
+    }
+}
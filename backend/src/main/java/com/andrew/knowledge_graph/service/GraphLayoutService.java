@@ -0,0 +1,486 @@
+package com.andrew.knowledge_graph.service;
+
+import com.andrew.knowledge_graph.event.GraphChangedEvent;
+import com.andrew.knowledge_graph.graph.DenseGraph;
+import com.andrew.knowledge_graph.graph.GraphIndex;
+import com.andrew.knowledge_graph.graph.IntList;
+import com.andrew.knowledge_graph.graph.LongHashSet;
+import com.andrew.knowledge_graph.graph.LongList;
+import com.andrew.knowledge_graph.graph.LongLongHashMap;
+import com.andrew.knowledge_graph.layout.ForceLayout;
+import com.andrew.knowledge_graph.layout.NodePositions;
+import com.andrew.knowledge_graph.layout.ViewportIndex;
+import com.andrew.knowledge_graph.model.Direction;
+import com.andrew.knowledge_graph.model.Relationship;
+import com.andrew.knowledge_graph.repository.NodePositionRepository;
+import com.andrew.knowledge_graph.repository.RelationshipRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-side graph layout, so clients can draw the graph straight away instead of simulating it.
+ *
+ * A full layout runs {@link ForceLayout} over a {@link GraphIndex#snapshot()} on a dedicated fork-join pool,
+ * warm-started from the previous positions so the picture stays recognisable. After that, new nodes and links
+ * only re-lay out their neighbourhood: the new nodes, the endpoints of new links and their direct neighbours
+ * move, everything else stays where it is. Once enough changes have piled up, the next full layout tidies up.
+ *
+ * All layout work runs on one thread, in the order it was requested, and readers always get the last published
+ * {@link NodePositions} and the {@link ViewportIndex} over them from memory. Publishing rebuilds the index over
+ * the whole graph, so incremental layouts are throttled: changes are collected for {@code incremental-delay}
+ * and laid out together, which bounds the rebuilds to one per delay however fast the graph changes. Positions are persisted, so a
+ * restart starts from the last layout.
+ */
+@Service
+public class GraphLayoutService {
+
+    /**
+     * What a viewport shows: either individual nodes with the relationships between them, or, when zoomed out
+     * or crowded, grid cells of one {@link ViewportIndex} level with the relationship counts between them.
+     */
+    public record Viewport(long[] nodeIds,
+                           long[] relationshipIds,
+                           int level,
+                           List<ViewportIndex.Cluster> clusters,
+                           List<ViewportIndex.ClusterEdge> clusterEdges,
+                           boolean truncated) {}
+
+    // Relationships (or cluster edges) returned per node (or cluster) at most
+    private static final int MAX_EDGES_PER_ITEM = 4;
+    private static final Logger log = LoggerFactory.getLogger(GraphLayoutService.class);
+    private static final int PERSIST_CHUNK_SIZE = 10_000;
+    // Larger batches (imports) are left to a full layout
+    private static final int MAX_INCREMENTAL_CHANGES = 10_000;
+
+    private final GraphIndex graphIndex;
+    private final NodePositionRepository positionRepository;
+    private final RelationshipRepository relationshipRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer fullTimer;
+    private final Timer incrementalTimer;
+    private final ForceLayout.Settings settings;
+    private final int iterations;
+    private final int incrementalIterations;
+    private final int neighbourhoodLimit;
+    private final long relayoutAfterChanges;
+    private final double detailZoom;
+    private final double minClusterPixels;
+    private final int maxViewportItems;
+    private final int maxEdgesPerNode;
+    private final Duration incrementalDelay;
+    private final ForkJoinPool pool;
+    private final ScheduledExecutorService runner = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("graph-layout").daemon().factory());
+    private final AtomicBoolean fullQueued = new AtomicBoolean();
+    private final AtomicBoolean incrementalQueued = new AtomicBoolean();
+    private final AtomicLong changesSinceFull = new AtomicLong();
+    // Changes waiting for the next incremental run; guarded by itself
+    private final PendingChanges pending = new PendingChanges();
+    // Only used on the layout thread
+    private final SplittableRandom random = new SplittableRandom();
+
+    private volatile NodePositions positions = NodePositions.EMPTY;
+    private volatile ViewportIndex viewport = ViewportIndex.EMPTY;
+
+    public GraphLayoutService(GraphIndex graphIndex,
+                              NodePositionRepository positionRepository,
+                              RelationshipRepository relationshipRepository,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${graph.layout.ideal-edge-length:150}") double idealEdgeLength,
+                              @Value("${graph.layout.theta:0.8}") double theta,
+                              @Value("${graph.layout.gravity:0.1}") double gravity,
+                              @Value("${graph.layout.iterations:300}") int iterations,
+                              @Value("${graph.layout.incremental-iterations:50}") int incrementalIterations,
+                              @Value("${graph.layout.incremental-delay:2s}") Duration incrementalDelay,
+                              @Value("${graph.layout.neighbourhood-limit:500}") int neighbourhoodLimit,
+                              @Value("${graph.layout.relayout-after-changes:10000}") long relayoutAfterChanges,
+                              @Value("${graph.layout.parallelism:0}") int parallelism,
+                              @Value("${graph.viewport.detail-zoom:0.25}") double detailZoom,
+                              @Value("${graph.viewport.min-cluster-pixels:48}") double minClusterPixels,
+                              @Value("${graph.viewport.max-items:2000}") int maxViewportItems,
+                              @Value("${graph.viewport.max-edges-per-node:100}") int maxEdgesPerNode) {
+        this.graphIndex = graphIndex;
+        this.positionRepository = positionRepository;
+        this.relationshipRepository = relationshipRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.fullTimer = Timer.builder("graph.layout")
+                .description("Time to lay out the graph and persist the positions")
+                .tag("mode", "full")
+                .register(meterRegistry);
+        this.incrementalTimer = Timer.builder("graph.layout")
+                .description("Time to lay out the graph and persist the positions")
+                .tag("mode", "incremental")
+                .register(meterRegistry);
+        this.settings = new ForceLayout.Settings(idealEdgeLength, theta, gravity);
+        this.iterations = iterations;
+        this.incrementalIterations = incrementalIterations;
+        this.incrementalDelay = incrementalDelay;
+        this.neighbourhoodLimit = neighbourhoodLimit;
+        this.relayoutAfterChanges = relayoutAfterChanges;
+        this.detailZoom = detailZoom;
+        this.minClusterPixels = minClusterPixels;
+        this.maxViewportItems = maxViewportItems;
+        this.maxEdgesPerNode = maxEdgesPerNode;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * The latest published layout. Never blocks.
+     */
+    public NodePositions positions() {
+        return positions;
+    }
+
+    /**
+     * The spatial index over the latest published layout. Never blocks.
+     */
+    public ViewportIndex viewport() {
+        return viewport;
+    }
+
+    /**
+     * The part of the layout inside the rectangle, at most {@code limit} nodes or clusters however large the
+     * graph is. Nodes are returned when {@code zoom} (screen pixels per layout unit) is at least the detail
+     * zoom and no more than {@code limit} of them are visible; otherwise the finest grid level whose cells are
+     * still {@code min-cluster-pixels} wide on screen.
+     */
+    public Viewport viewport(double minX, double minY, double maxX, double maxY, double zoom, int limit) {
+        ViewportIndex index = viewport;
+        int itemLimit = Math.clamp(limit, 1, maxViewportItems);
+        int edgeLimit = itemLimit * MAX_EDGES_PER_ITEM;
+        if (zoom >= detailZoom) {
+            // One extra to tell "exactly limit" from "more than limit"
+            int[] visible = index.nodesWithin(minX, minY, maxX, maxY, itemLimit + 1);
+            if (visible.length <= itemLimit) {
+                NodePositions shown = index.positions();
+                long[] nodeIds = new long[visible.length];
+                LongHashSet visibleIds = new LongHashSet(visible.length);
+                for (int i = 0; i < visible.length; i++) {
+                    nodeIds[i] = shown.nodeId(visible[i]);
+                    visibleIds.add(nodeIds[i]);
+                }
+                // Outgoing only, so every relationship between two visible nodes is seen once. A hub's list is
+                // only looked at up to max-edges-per-node, so one hub cannot make the query cost its degree
+                LongList relationshipIds = new LongList();
+                boolean skippedEdges = false;
+                for (int i = 0; i < nodeIds.length && relationshipIds.size() <= edgeLimit; i++) {
+                    skippedEdges |= !graphIndex.forEachEdge(nodeIds[i], Direction.OUTGOING, null, maxEdgesPerNode,
+                            (edgeId, neighbourId, type) -> {
+                                if (visibleIds.contains(neighbourId)) {
+                                    relationshipIds.add(edgeId);
+                                }
+                            });
+                }
+                boolean truncated = skippedEdges || relationshipIds.size() > edgeLimit;
+                long[] relationships = relationshipIds.toArray();
+                return new Viewport(nodeIds, relationships.length > edgeLimit ? Arrays.copyOf(relationships, edgeLimit)
+                        : relationships, -1, List.of(), List.of(), truncated);
+            }
+        }
+        int level = index.levelFor(minX, minY, maxX, maxY, minClusterPixels / Math.max(zoom, 1e-9), itemLimit);
+        // Fetch one extra of each to report truncation
+        List<ViewportIndex.Cluster> clusters = index.clustersWithin(level, minX, minY, maxX, maxY, itemLimit + 1);
+        boolean truncated = clusters.size() > itemLimit;
+        if (truncated) {
+            clusters = clusters.subList(0, itemLimit);
+        }
+        List<ViewportIndex.ClusterEdge> edges = index.edgesBetween(level, clusters, edgeLimit + 1);
+        if (edges.size() > edgeLimit) {
+            truncated = true;
+            edges = edges.subList(0, edgeLimit);
+        }
+        return new Viewport(new long[0], new long[0], level, clusters, edges, truncated);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadStoredPositions() {
+        NodePositions stored = positionRepository.load();
+        if (stored.size() > 0) {
+            publish(stored, graphIndex.snapshot());
+        } else {
+            requestFullLayout();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onGraphChanged(GraphChangedEvent event) {
+        long changes = event.upsertedNodeIds().size() + event.deletedNodeIds().size()
+                + event.upsertedRelationshipIds().size() + event.deletedRelationshipIds().size();
+        if (relayoutAfterChanges > 0 && changesSinceFull.addAndGet(changes) >= relayoutAfterChanges) {
+            requestFullLayout();
+        }
+        boolean tooLarge = event.upsertedNodeIds().size() + event.upsertedRelationshipIds().size() > MAX_INCREMENTAL_CHANGES;
+        synchronized (pending) {
+            if (tooLarge) {
+                requestFullLayout();
+            } else {
+                event.upsertedNodeIds().forEach(pending.nodeIds::add);
+                pending.relationshipIds.addAll(event.upsertedRelationshipIds());
+            }
+            // Deletions only drop positions, so they are applied however many there are
+            event.deletedNodeIds().forEach(pending.deletedNodeIds::add);
+        }
+        if (!event.upsertedNodeIds().isEmpty() || !event.upsertedRelationshipIds().isEmpty()
+                || !event.deletedNodeIds().isEmpty()) {
+            requestIncrementalLayout();
+        }
+    }
+
+    /**
+     * Queues a full layout unless one is already queued.
+     */
+    public void requestFullLayout() {
+        if (fullQueued.compareAndSet(false, true)) {
+            runner.execute(() -> {
+                try {
+                    layoutAll();
+                } catch (RuntimeException e) {
+                    log.warn("Graph layout failed", e);
+                }
+            });
+        }
+    }
+
+    // Changes arriving before the run starts join it, so this is at most one run (and one index rebuild) per delay
+    private void requestIncrementalLayout() {
+        if (incrementalQueued.compareAndSet(false, true)) {
+            runner.schedule(() -> {
+                try {
+                    layoutChanges();
+                } catch (RuntimeException e) {
+                    log.warn("Incremental graph layout failed", e);
+                }
+            }, incrementalDelay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Lays out the whole graph on the calling thread and publishes the result.
+     */
+    public NodePositions layoutAll() {
+        // Changes from here on are not in the snapshot, so they count towards the next run
+        fullQueued.set(false);
+        changesSinceFull.set(0);
+        return fullTimer.record(() -> {
+            DenseGraph graph = graphIndex.snapshot();
+            int n = graph.nodeCount();
+            NodePositions current = positions;
+            double[] x = new double[n];
+            double[] y = new double[n];
+            boolean[] placed = new boolean[n];
+            int placedCount = 0;
+            for (int v = 0; v < n; v++) {
+                int index = current.indexOf(graph.nodeId(v));
+                if (index >= 0) {
+                    x[v] = current.x(index);
+                    y[v] = current.y(index);
+                    placed[v] = true;
+                    placedCount++;
+                }
+            }
+
+            // Both directions in one CSR: relationship direction does not matter for the picture
+            int[] nodes = new int[n];
+            int[] offsets = new int[n + 1];
+            for (int v = 0; v < n; v++) {
+                nodes[v] = v;
+                offsets[v + 1] = offsets[v] + graph.degree(v);
+            }
+            int[] neighbours = new int[offsets[n]];
+            int[] outOffsets = graph.outOffsets();
+            int[] outTargets = graph.outTargets();
+            int[] inOffsets = graph.inOffsets();
+            int[] inSources = graph.inSources();
+            for (int v = 0; v < n; v++) {
+                int cursor = offsets[v];
+                for (int e = outOffsets[v]; e < outOffsets[v + 1]; e++) {
+                    neighbours[cursor++] = outTargets[e];
+                }
+                for (int e = inOffsets[v]; e < inOffsets[v + 1]; e++) {
+                    neighbours[cursor++] = inSources[e];
+                }
+            }
+
+            double k = settings.idealLength();
+            double spread = k * Math.sqrt(Math.max(1, n));
+            ForceLayout.place(x, y, placed, nodes, offsets, neighbours, k / 2, spread, random);
+            // A warm start only needs tidying; a cold one has to untangle a random scatter
+            double temperature = placedCount * 2 >= n ? k : Math.max(k, spread / 4);
+            ForceLayout.run(x, y, nodes, offsets, neighbours, settings, iterations, temperature, pool);
+
+            NodePositions result = new NodePositions(graph.nodeIds(), x, y);
+            publish(result, graph);
+            persist(graph.nodeIds(), x, y);
+            log.debug("Laid out {} nodes and {} relationships", n, graph.edgeCount());
+            return result;
+        });
+    }
+
+    // Moves the neighbourhood of the pending changes, keeping every other node where it is
+    private void layoutChanges() {
+        incrementalQueued.set(false);
+        LongList nodeIds;
+        List<Long> relationshipIds;
+        LongHashSet deleted = new LongHashSet();
+        synchronized (pending) {
+            nodeIds = pending.nodeIds;
+            relationshipIds = pending.relationshipIds;
+            for (int i = 0; i < pending.deletedNodeIds.size(); i++) {
+                deleted.add(pending.deletedNodeIds.get(i));
+            }
+            pending.clear();
+        }
+        NodePositions published = positions;
+        NodePositions result = incrementalTimer.record(() -> {
+            NodePositions current = deleted.isEmpty()
+                    ? published
+                    : published.with(new long[0], new double[0], new double[0], deleted);
+
+            // New nodes and the endpoints of new links, then their neighbours up to the limit
+            LongList moving = new LongList();
+            LongHashSet isMoving = new LongHashSet();
+            for (int i = 0; i < nodeIds.size(); i++) {
+                long id = nodeIds.get(i);
+                // Updates to nodes that are already placed do not change the picture
+                if (current.indexOf(id) < 0 && !deleted.contains(id) && isMoving.add(id)) {
+                    moving.add(id);
+                }
+            }
+            for (Relationship relationship : relationshipRepository.findAllById(relationshipIds)) {
+                for (long id : new long[] {relationship.getFromNodeId(), relationship.getToNodeId()}) {
+                    if (!deleted.contains(id) && isMoving.add(id)) {
+                        moving.add(id);
+                    }
+                }
+            }
+            if (moving.isEmpty()) {
+                return current;
+            }
+            int seeds = moving.size();
+            for (int i = 0; i < seeds && moving.size() < neighbourhoodLimit; i++) {
+                graphIndex.forEachEdge(moving.get(i), Direction.BOTH, null, (edgeId, neighbourId, type) -> {
+                    if (moving.size() < neighbourhoodLimit && !deleted.contains(neighbourId)
+                            && current.indexOf(neighbourId) >= 0 && isMoving.add(neighbourId)) {
+                        moving.add(neighbourId);
+                    }
+                });
+            }
+
+            // Indexes: every placed node as in current, then the moving nodes that have no position yet
+            int n = current.size();
+            LongLongHashMap newIndexes = new LongLongHashMap();
+            for (int i = 0; i < moving.size(); i++) {
+                if (current.indexOf(moving.get(i)) < 0) {
+                    newIndexes.put(moving.get(i), n + newIndexes.size());
+                }
+            }
+            int total = n + newIndexes.size();
+            double[] x = new double[total];
+            double[] y = new double[total];
+            boolean[] placed = new boolean[total];
+            for (int v = 0; v < n; v++) {
+                x[v] = current.x(v);
+                y[v] = current.y(v);
+                placed[v] = true;
+            }
+            int[] movable = new int[moving.size()];
+            int[] offsets = new int[moving.size() + 1];
+            IntList neighbourList = new IntList();
+            for (int i = 0; i < moving.size(); i++) {
+                movable[i] = indexOf(current, newIndexes, moving.get(i));
+                graphIndex.forEachEdge(moving.get(i), Direction.BOTH, null, (edgeId, neighbourId, type) -> {
+                    int u = indexOf(current, newIndexes, neighbourId);
+                    // Neighbours that are neither placed nor moving (brand new, past the limit) are ignored
+                    if (u >= 0 && !deleted.contains(neighbourId)) {
+                        neighbourList.add(u);
+                    }
+                });
+                offsets[i + 1] = neighbourList.size();
+            }
+            int[] neighbours = neighbourList.toArray();
+
+            double k = settings.idealLength();
+            ForceLayout.place(x, y, placed, movable, offsets, neighbours, k / 2,
+                    k * Math.sqrt(Math.max(1, total)), random);
+            ForceLayout.run(x, y, movable, offsets, neighbours, settings, incrementalIterations, k, pool);
+
+            long[] movedIds = moving.toArray();
+            double[] movedX = new double[movable.length];
+            double[] movedY = new double[movable.length];
+            for (int i = 0; i < movable.length; i++) {
+                movedX[i] = x[movable[i]];
+                movedY[i] = y[movable[i]];
+            }
+            persist(movedIds, movedX, movedY);
+            return current.with(movedIds, movedX, movedY, new LongHashSet());
+        });
+        if (result != published) {
+            publish(result, graphIndex.snapshot());
+        }
+    }
+
+    // The index is built first, so the positions and the index over them are swapped in back to back
+    private void publish(NodePositions result, DenseGraph graph) {
+        ViewportIndex index = ViewportIndex.build(result, graph);
+        positions = result;
+        viewport = index;
+    }
+
+    private static int indexOf(NodePositions current, LongLongHashMap newIndexes, long nodeId) {
+        int index = current.indexOf(nodeId);
+        return index >= 0 ? index : (int) newIndexes.get(nodeId, -1);
+    }
+
+    // One short transaction per chunk, so writers are never held off for the whole table
+    private void persist(long[] nodeIds, double[] x, double[] y) {
+        for (int from = 0; from < nodeIds.length; from += PERSIST_CHUNK_SIZE) {
+            int start = from;
+            int end = Math.min(nodeIds.length, from + PERSIST_CHUNK_SIZE);
+            transactionTemplate.executeWithoutResult(status -> positionRepository.upsert(nodeIds, x, y, start, end));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    private static final class PendingChanges {
+
+        private LongList nodeIds = new LongList();
+        private List<Long> relationshipIds = new ArrayList<>();
+        private LongList deletedNodeIds = new LongList();
+
+        void clear() {
+            nodeIds = new LongList();
+            relationshipIds = new ArrayList<>();
+            deletedNodeIds = new LongList();
+        }
+    }
+}
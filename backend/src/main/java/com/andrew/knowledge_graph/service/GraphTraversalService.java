@@ -0,0 +1,255 @@
+package com.andrew.knowledge_graph.service;
+
+import com.andrew.knowledge_graph.graph.GraphIndex;
+import com.andrew.knowledge_graph.graph.LongHashSet;
+import com.andrew.knowledge_graph.graph.LongList;
+import com.andrew.knowledge_graph.graph.LongLongHashMap;
+import com.andrew.knowledge_graph.model.Direction;
+import com.andrew.knowledge_graph.model.RelationshipType;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Multi-hop traversals over the in-memory {@link GraphIndex}. Nothing here touches the database;
+ * callers load the returned node and relationship ids themselves.
+ *
+ * Every traversal is bounded by a per-query node budget and time budget, so a single request can never walk the
+ * whole graph. Both are checked after every expanded node, not just between levels, because one level of a
+ * traversal through a hub can already hold most of the graph.
+ */
+@Service
+public class GraphTraversalService {
+
+    /**
+     * Node and relationship ids reached by a traversal, in breadth-first order.
+     */
+    public record Subgraph(long[] nodeIds, long[] relationshipIds, boolean truncated) {}
+
+    /**
+     * A path as alternating node and relationship ids: nodeIds has one more element than relationshipIds.
+     */
+    public record PathResult(long[] nodeIds, long[] relationshipIds) {}
+
+    private static final long NO_PARENT = -1L;
+    // Visited sets start at this size (or the budget, if smaller) and grow only for large traversals
+    private static final int INITIAL_VISITED_CAPACITY = 1024;
+
+    private final GraphIndex graphIndex;
+    private final int nodeBudget;
+    private final int maxDepth;
+    private final long timeBudgetNanos;
+
+    public GraphTraversalService(GraphIndex graphIndex,
+                                 @Value("${graph.traversal.node-budget:100000}") int nodeBudget,
+                                 @Value("${graph.traversal.max-depth:6}") int maxDepth,
+                                 @Value("${graph.traversal.time-budget:1s}") Duration timeBudget) {
+        this.graphIndex = graphIndex;
+        this.nodeBudget = nodeBudget;
+        this.maxDepth = maxDepth;
+        this.timeBudgetNanos = timeBudget.toNanos();
+    }
+
+    /**
+     * Breadth-first expansion from a node, up to {@code depth} hops and {@code limit} nodes.
+     * The relationships returned are those followed between nodes in the result. The result is marked truncated
+     * if the limit or the time budget cut the expansion short.
+     */
+    public Subgraph neighborhood(long startId, int depth, Set<RelationshipType> types, Direction direction, int limit) {
+        int depthLimit = Math.clamp(depth, 0, maxDepth);
+        int nodeLimit = Math.clamp(limit, 1, nodeBudget);
+
+        NeighborhoodVisitor visitor = new NeighborhoodVisitor(nodeLimit);
+        visitor.visited.add(startId);
+        visitor.nodes.add(startId);
+
+        long deadline = System.nanoTime() + timeBudgetNanos;
+        LongList frontier = new LongList();
+        frontier.add(startId);
+        for (int level = 0; level < depthLimit && !frontier.isEmpty() && !visitor.truncated; level++) {
+            visitor.next = new LongList();
+            for (int i = 0; i < frontier.size() && !visitor.truncated; i++) {
+                graphIndex.forEachEdge(frontier.get(i), direction, types, visitor);
+                if (System.nanoTime() - deadline >= 0) {
+                    visitor.truncated = true;
+                }
+            }
+            frontier = visitor.next;
+        }
+        return new Subgraph(visitor.nodes.toArray(), visitor.edges.toArray(), visitor.truncated);
+    }
+
+    /**
+     * Bidirectional breadth-first search for a shortest path of at most {@code maxDepth} hops.
+     * {@code direction} is the direction edges are followed from {@code fromId}; the backward search uses the reverse.
+     *
+     * @return the path, or null if none exists within the depth limit or the node or time budget ran out first
+     */
+    public PathResult shortestPath(long fromId, long toId, Set<RelationshipType> types, Direction direction, int maxDepth) {
+        if (fromId == toId) {
+            return new PathResult(new long[] {fromId}, new long[0]);
+        }
+        int depthLimit = Math.clamp(maxDepth, 1, this.maxDepth);
+        long deadline = System.nanoTime() + timeBudgetNanos;
+
+        SearchSide forward = new SearchSide(fromId, direction);
+        SearchSide backward = new SearchSide(toId, reverse(direction));
+        while (forward.depth + backward.depth < depthLimit
+                && !forward.frontier.isEmpty() && !backward.frontier.isEmpty()) {
+            // Always grow the smaller frontier; this is what keeps bidirectional search cheap
+            boolean expandForward = forward.frontier.size() <= backward.frontier.size();
+            SearchSide side = expandForward ? forward : backward;
+            SearchSide other = expandForward ? backward : forward;
+
+            Meeting meeting = side.expand(other, types, deadline);
+            if (side.exhausted) {
+                // A meeting from a partly expanded level is a path, but not necessarily the shortest one
+                return null;
+            }
+            if (meeting != null) {
+                return expandForward
+                        ? buildPath(forward, meeting.near(), meeting.edgeId(), backward, meeting.far())
+                        : buildPath(forward, meeting.far(), meeting.edgeId(), backward, meeting.near());
+            }
+        }
+        return null;
+    }
+
+    private static PathResult buildPath(SearchSide forward, long forwardNode, long edgeId, SearchSide backward, long backwardNode) {
+        LongList forwardNodes = new LongList();
+        LongList forwardEdges = new LongList();
+        for (long node = forwardNode; node != NO_PARENT; node = forward.parentNode.get(node, NO_PARENT)) {
+            forwardNodes.add(node);
+            long parentEdge = forward.parentEdge.get(node, NO_PARENT);
+            if (parentEdge != NO_PARENT) {
+                forwardEdges.add(parentEdge);
+            }
+        }
+
+        LongList nodes = new LongList(forwardNodes.size() + backward.depth + 1);
+        LongList edges = new LongList(forwardEdges.size() + backward.depth + 1);
+        // The forward chain was collected from the meeting point back to the source, so reverse it
+        for (int i = forwardNodes.size() - 1; i >= 0; i--) {
+            nodes.add(forwardNodes.get(i));
+        }
+        for (int i = forwardEdges.size() - 1; i >= 0; i--) {
+            edges.add(forwardEdges.get(i));
+        }
+        edges.add(edgeId);
+        for (long node = backwardNode; node != NO_PARENT; node = backward.parentNode.get(node, NO_PARENT)) {
+            nodes.add(node);
+            long parentEdge = backward.parentEdge.get(node, NO_PARENT);
+            if (parentEdge != NO_PARENT) {
+                edges.add(parentEdge);
+            }
+        }
+        return new PathResult(nodes.toArray(), edges.toArray());
+    }
+
+    private static Direction reverse(Direction direction) {
+        return switch (direction) {
+            case OUTGOING -> Direction.INCOMING;
+            case INCOMING -> Direction.OUTGOING;
+            case BOTH -> Direction.BOTH;
+        };
+    }
+
+    private static final class NeighborhoodVisitor implements GraphIndex.EdgeVisitor {
+        final LongHashSet visited;
+        final LongHashSet seenEdges = new LongHashSet();
+        final LongList nodes = new LongList();
+        final LongList edges = new LongList();
+        final int nodeLimit;
+        LongList next;
+        boolean truncated;
+
+        NeighborhoodVisitor(int nodeLimit) {
+            this.nodeLimit = nodeLimit;
+            this.visited = new LongHashSet(Math.min(nodeLimit, INITIAL_VISITED_CAPACITY));
+        }
+
+        @Override
+        public void visit(long edgeId, long neighbourId, RelationshipType type) {
+            if (!visited.contains(neighbourId)) {
+                if (nodes.size() >= nodeLimit) {
+                    truncated = true;
+                    return;
+                }
+                visited.add(neighbourId);
+                nodes.add(neighbourId);
+                next.add(neighbourId);
+            }
+            if (seenEdges.add(edgeId)) {
+                edges.add(edgeId);
+            }
+        }
+    }
+
+    private record Meeting(long near, long edgeId, long far) {}
+
+    /**
+     * One half of a bidirectional search: the search tree grown from one endpoint.
+     */
+    private final class SearchSide {
+        final Direction direction;
+        final LongLongHashMap parentNode = new LongLongHashMap(INITIAL_VISITED_CAPACITY);
+        final LongLongHashMap parentEdge = new LongLongHashMap(INITIAL_VISITED_CAPACITY);
+        final LongLongHashMap depthOf = new LongLongHashMap(INITIAL_VISITED_CAPACITY);
+        LongList frontier = new LongList();
+        int depth;
+        // Set when the node or time budget ran out partway through a level
+        boolean exhausted;
+
+        SearchSide(long root, Direction direction) {
+            this.direction = direction;
+            depthOf.put(root, 0);
+            frontier.add(root);
+        }
+
+        int size() {
+            return depthOf.size();
+        }
+
+        boolean contains(long node) {
+            return depthOf.containsKey(node);
+        }
+
+        /**
+         * Expands the whole current level and returns the shortest meeting with the other side, if any.
+         * Stops early, setting {@link #exhausted}, once both sides together exceed the node budget or the deadline passes.
+         */
+        Meeting expand(SearchSide other, Set<RelationshipType> types, long deadline) {
+            LongList next = new LongList();
+            Meeting[] best = {null};
+            long[] bestLength = {Long.MAX_VALUE};
+            for (int i = 0; i < frontier.size(); i++) {
+                long node = frontier.get(i);
+                graphIndex.forEachEdge(node, direction, types, (edgeId, neighbourId, type) -> {
+                    if (other.contains(neighbourId)) {
+                        long length = depth + 1 + other.depthOf.get(neighbourId, 0);
+                        if (length < bestLength[0]) {
+                            bestLength[0] = length;
+                            best[0] = new Meeting(node, edgeId, neighbourId);
+                        }
+                    }
+                    if (!contains(neighbourId)) {
+                        parentNode.put(neighbourId, node);
+                        parentEdge.put(neighbourId, edgeId);
+                        depthOf.put(neighbourId, depth + 1);
+                        next.add(neighbourId);
+                    }
+                });
+                if (size() + other.size() > nodeBudget || System.nanoTime() - deadline >= 0) {
+                    exhausted = true;
+                    return null;
+                }
+            }
+            depth++;
+            frontier = next;
+            return best[0];
+        }
+    }
+}
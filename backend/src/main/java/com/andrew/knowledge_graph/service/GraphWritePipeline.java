@@ -0,0 +1,248 @@
+package com.andrew.knowledge_graph.service;
+
+import com.andrew.knowledge_graph.event.GraphChangedEvent;
+import com.andrew.knowledge_graph.graph.GraphIndex;
+import com.andrew.knowledge_graph.model.Node;
+import com.andrew.knowledge_graph.model.Relationship;
+import com.andrew.knowledge_graph.repository.GraphBulkRepository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit for single-row mutations. SQLite has one writer, and every write transaction ends in a sync, so
+ * concurrent addNode and linkNodes calls each paying for their own transaction queue up behind one another.
+ * With the pipeline enabled they are handed to one writer thread instead, which commits everything that arrives
+ * within {@code max-delay} of the first waiting write (or {@code max-batch-size} writes, if sooner) as one
+ * transaction, and completes each caller's future with its saved entity once that transaction has committed.
+ *
+ * Ids are assigned inside the transaction, after the current maximum, as for {@link GraphWriteService#linkNodes}.
+ * One failing write (a duplicate or dangling link) would roll back everything batched with it, so a failed batch
+ * is retried one write per transaction and only the writes that fail on their own are failed.
+ *
+ * As with {@link GraphWriteService}, each transaction publishes a {@link GraphChangedEvent}, and relationships are
+ * added to the {@link GraphIndex} after it commits and before the callers are completed.
+ */
+@Service
+public class GraphWritePipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(GraphWritePipeline.class);
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final GraphBulkRepository bulkRepository;
+    private final GraphIndex graphIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer commitTimer;
+    private final DistributionSummary batchSizes;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    // Unbounded, but each caller waits for its write, so it never holds more than one write per request thread
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    // Null when the pipeline is disabled
+    private final Thread writer;
+
+    private volatile boolean running = true;
+
+    public GraphWritePipeline(GraphBulkRepository bulkRepository,
+                              GraphIndex graphIndex,
+                              ApplicationEventPublisher eventPublisher,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${graph.write-pipeline.enabled:false}") boolean enabled,
+                              @Value("${graph.write-pipeline.max-batch-size:256}") int maxBatchSize,
+                              @Value("${graph.write-pipeline.max-delay:2ms}") Duration maxDelay) {
+        this.bulkRepository = bulkRepository;
+        this.graphIndex = graphIndex;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.commitTimer = Timer.builder("graph.write-pipeline.commit")
+                .description("Time to write and commit one batch of queued mutations")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("graph.write-pipeline.batch-size")
+                .description("Mutations committed together in one transaction")
+                .register(meterRegistry);
+        this.enabled = enabled;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.writer = enabled ? Thread.ofPlatform().name("graph-writer").daemon().start(this::run) : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues the node for insertion.
+     * @return completed with the node, its id set, once it has been committed
+     */
+    public CompletableFuture<Node> addNode(Node node) {
+        CompletableFuture<Node> result = new CompletableFuture<>();
+        submit(new PendingWrite(node, null, result));
+        return result;
+    }
+
+    /**
+     * Queues the relationship for insertion.
+     * @return completed with the relationship, its id set, once it has been committed and added to the index
+     */
+    public CompletableFuture<Relationship> linkNode(Relationship relationship) {
+        CompletableFuture<Relationship> result = new CompletableFuture<>();
+        submit(new PendingWrite(null, relationship, result));
+        return result;
+    }
+
+    private void submit(PendingWrite write) {
+        if (!enabled || !running) {
+            write.result().completeExceptionally(new IllegalStateException("The write pipeline is not running"));
+            return;
+        }
+        queue.add(write);
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Writes keep arriving while the previous batch commits; wait a little longer for more
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(batch, new IllegalStateException("The write pipeline was stopped", e));
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Committing {} queued writes failed", batch.size(), e);
+                fail(batch, e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingWrite> batch) {
+        List<Node> nodes = new ArrayList<>();
+        List<Relationship> relationships = new ArrayList<>();
+        for (PendingWrite write : batch) {
+            if (write.node() != null) {
+                nodes.add(write.node());
+            } else {
+                relationships.add(write.relationship());
+            }
+        }
+        long started = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(nodes, relationships));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                fail(batch, e);
+            } else {
+                for (PendingWrite write : batch) {
+                    commit(List.of(write));
+                }
+            }
+            return;
+        }
+        commitTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        batchSizes.record(batch.size());
+
+        graphIndex.addEdges(relationships);
+        for (PendingWrite write : batch) {
+            write.complete();
+        }
+    }
+
+    // Nodes go first, so the foreign keys of every relationship are checked against the nodes before it
+    private void insert(List<Node> nodes, List<Relationship> relationships) {
+        if (!nodes.isEmpty()) {
+            long nextNodeId = bulkRepository.lastNodeId() + 1;
+            for (Node node : nodes) {
+                node.setId(nextNodeId++);
+            }
+            bulkRepository.insertNodes(nodes);
+        }
+        if (!relationships.isEmpty()) {
+            long nextRelationshipId = bulkRepository.lastRelationshipId() + 1;
+            for (Relationship rel : relationships) {
+                rel.setId(nextRelationshipId++);
+            }
+            bulkRepository.insertRelationships(relationships);
+        }
+        eventPublisher.publishEvent(new GraphChangedEvent(
+                nodes.stream().map(Node::getId).toList(), List.of(),
+                GraphChangedEvent.ids(relationships), List.of(), GraphChangedEvent.endpoints(relationships)));
+    }
+
+    private static void fail(List<PendingWrite> batch, Throwable cause) {
+        for (PendingWrite write : batch) {
+            write.result().completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Stops taking writes, commits those already queued and waits for the writer to finish.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (writer == null) {
+            return;
+        }
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        if (writer.isAlive()) {
+            writer.interrupt();
+        }
+        // Anything queued after the writer's last look at the queue
+        List<PendingWrite> left = new ArrayList<>();
+        queue.drainTo(left);
+        fail(left, new IllegalStateException("The write pipeline is not running"));
+    }
+
+    // Exactly one of node and relationship is set; result is completed with it
+    private record PendingWrite(Node node, Relationship relationship, CompletableFuture<?> result) {
+
+        @SuppressWarnings("unchecked")
+        void complete() {
+            if (node != null) {
+                ((CompletableFuture<Node>) result).complete(node);
+            } else {
+                ((CompletableFuture<Relationship>) result).complete(relationship);
+            }
+        }
+    }
+}
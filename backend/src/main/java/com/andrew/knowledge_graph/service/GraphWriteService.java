@@ -0,0 +1,136 @@
+package com.andrew.knowledge_graph.service;
+
+import com.andrew.knowledge_graph.event.GraphChangedEvent;
+import com.andrew.knowledge_graph.model.Node;
+import com.andrew.knowledge_graph.model.Relationship;
+import com.andrew.knowledge_graph.repository.DuplicateRelationshipException;
+import com.andrew.knowledge_graph.repository.GraphBulkRepository;
+import com.andrew.knowledge_graph.repository.NodeRepository;
+import com.andrew.knowledge_graph.repository.RelationshipRepository;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Multi-row graph writes, each done with set-based statements inside a single transaction.
+ * Id collections are processed in chunks so every IN (...) list stays under SQLite's parameter limit;
+ * deleting a node with 50k relationships is still just three statements.
+ *
+ * Methods return once the transaction has committed, so callers can safely update in-memory state afterwards.
+ * Every write publishes a {@link GraphChangedEvent} inside its transaction.
+ */
+@Service
+public class GraphWriteService {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private final NodeRepository nodeRepository;
+    private final RelationshipRepository relationshipRepository;
+    private final GraphBulkRepository bulkRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public GraphWriteService(NodeRepository nodeRepository,
+                             RelationshipRepository relationshipRepository,
+                             GraphBulkRepository bulkRepository,
+                             ApplicationEventPublisher eventPublisher) {
+        this.nodeRepository = nodeRepository;
+        this.relationshipRepository = relationshipRepository;
+        this.bulkRepository = bulkRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Transactional
+    public Node addNode(Node node) {
+        Node saved = nodeRepository.save(node);
+        eventPublisher.publishEvent(GraphChangedEvent.nodesUpserted(List.of(saved.getId())));
+        return saved;
+    }
+
+    /**
+     * @throws DuplicateRelationshipException if the same edge (from, to and type) already exists
+     */
+    @Transactional
+    public Relationship linkNode(Relationship relationship) {
+        Relationship saved;
+        try {
+            saved = relationshipRepository.save(relationship);
+        } catch (DataAccessException e) {
+            throw DuplicateRelationshipException.translate(e, List.of(relationship));
+        }
+        eventPublisher.publishEvent(GraphChangedEvent.relationshipsUpserted(List.of(saved)));
+        return saved;
+    }
+
+    /**
+     * Deletes the nodes and every relationship touching them.
+     * @return the ids of the nodes that existed and were deleted
+     */
+    @Transactional
+    public List<Long> deleteNodes(Collection<Long> nodeIds) {
+        List<Long> deleted = new ArrayList<>();
+        // Logged as deleted along with the nodes, so change-log readers drop them too
+        List<Long> deletedRelationships = new ArrayList<>();
+        for (List<Long> chunk : chunks(nodeIds)) {
+            List<Long> existing = nodeRepository.findExistingIds(chunk);
+            if (existing.isEmpty()) {
+                continue;
+            }
+            deletedRelationships.addAll(relationshipRepository.findIdsTouchingNodes(existing));
+            relationshipRepository.deleteAllTouchingNodes(existing);
+            nodeRepository.deleteAllByIdIn(existing);
+            deleted.addAll(existing);
+        }
+        eventPublisher.publishEvent(GraphChangedEvent.nodesDeleted(deleted, deletedRelationships));
+        return deleted;
+    }
+
+    /**
+     * @return the ids of the relationships that existed and were deleted
+     */
+    @Transactional
+    public List<Long> deleteLinks(Collection<Long> relationshipIds) {
+        List<Relationship> deleted = new ArrayList<>();
+        for (List<Long> chunk : chunks(relationshipIds)) {
+            // Loaded rather than just checked for, so the event can name the nodes that lost a neighbour
+            List<Relationship> existing = relationshipRepository.findAllById(chunk);
+            if (existing.isEmpty()) {
+                continue;
+            }
+            relationshipRepository.deleteAllByIdIn(GraphChangedEvent.ids(existing));
+            deleted.addAll(existing);
+        }
+        eventPublisher.publishEvent(GraphChangedEvent.relationshipsDeleted(deleted));
+        return GraphChangedEvent.ids(deleted);
+    }
+
+    /**
+     * Inserts all relationships with one JDBC batch. Ids are assigned here, inside the transaction.
+     * @return the same relationships with their ids set
+     * @throws DuplicateRelationshipException if any of them repeats an existing edge or another in the list
+     */
+    @Transactional
+    public List<Relationship> linkNodes(List<Relationship> relationships) {
+        long nextId = bulkRepository.lastRelationshipId() + 1;
+        for (Relationship rel : relationships) {
+            rel.setId(nextId++);
+        }
+        bulkRepository.insertRelationships(relationships);
+        eventPublisher.publishEvent(GraphChangedEvent.relationshipsUpserted(relationships));
+        return relationships;
+    }
+
+    private static List<List<Long>> chunks(Collection<Long> ids) {
+        List<Long> distinct = ids.stream().distinct().toList();
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int i = 0; i < distinct.size(); i += CHUNK_SIZE) {
+            chunks.add(distinct.subList(i, Math.min(i + CHUNK_SIZE, distinct.size())));
+        }
+        return chunks;
+    }
+}
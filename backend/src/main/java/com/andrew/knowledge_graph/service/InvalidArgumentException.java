@@ -0,0 +1,17 @@
+package com.andrew.knowledge_graph.service;
+
+/**
+ * An argument from the client that the API rejects: a malformed id or cursor, an oversized batch, an invalid
+ * import record, ... Its message is written for the client, and BadRequestExceptionResolver reports it as a
+ * BAD_REQUEST error. Any other IllegalArgumentException is a bug and stays an internal error.
+ */
+public class InvalidArgumentException extends IllegalArgumentException {
+
+    public InvalidArgumentException(String message) {
+        super(message);
+    }
+
+    public InvalidArgumentException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,265 @@
+package com.andrew.knowledge_graph.service;
+
+import com.andrew.knowledge_graph.analytics.LinkPrediction;
+import com.andrew.knowledge_graph.analytics.LinkSuggestions;
+import com.andrew.knowledge_graph.event.GraphChangedEvent;
+import com.andrew.knowledge_graph.graph.DenseGraph;
+import com.andrew.knowledge_graph.graph.GraphIndex;
+import com.andrew.knowledge_graph.graph.LongHashSet;
+import com.andrew.knowledge_graph.graph.LongList;
+import com.andrew.knowledge_graph.model.Direction;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Suggested relationships for each node, scored by {@link LinkPrediction}.
+ *
+ * The top suggestions of every node are computed in the background from a {@link GraphIndex#snapshot()}, on
+ * a schedule and after enough mutations, spread over a dedicated fork-join pool. They are not persisted; a
+ * restart recomputes them.
+ *
+ * Linking or unlinking two nodes changes the suggestions of both and of their neighbours, so those nodes are
+ * marked stale until the next run. A stale node, or one created since the run, is scored on demand against the
+ * live {@link GraphIndex} and the result cached until the node is marked again or the entry expires.
+ *
+ * Nodes are marked when the change commits, which is before the committing thread applies it to the
+ * {@link GraphIndex}; a node scored in between would cache its old neighbours. So the marked nodes are
+ * invalidated a second time once that thread has updated the index.
+ */
+@Service
+public class LinkSuggestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(LinkSuggestionService.class);
+    // Larger batches (imports) only mark their own endpoints and are left to the recomputation they trigger
+    private static final int MAX_INCREMENTAL_NODES = 10_000;
+
+    private final GraphIndex graphIndex;
+    private final Timer recomputeTimer;
+    private final int topK;
+    private final int maxDegree;
+    private final long recomputeAfterChanges;
+    private final ForkJoinPool pool;
+    // Runs one recomputation at a time; further requests while one is queued are merged into it
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("link-prediction").daemon().factory());
+    private final AtomicBoolean queued = new AtomicBoolean();
+    private final AtomicLong changesSinceRun = new AtomicLong();
+    private final Cache<Long, List<LinkPrediction.Suggestion>> onDemand;
+    // Nodes marked by the current thread's last commit that it has not yet applied to the GraphIndex
+    private final ThreadLocal<LongList> awaitingIndex = new ThreadLocal<>();
+
+    private volatile LinkSuggestions suggestions = LinkSuggestions.EMPTY;
+    // Nodes whose precomputed suggestions are out of date, and those marked since the running computation took
+    // its snapshot (null when none is running); guarded by this
+    private LongHashSet stale = new LongHashSet();
+    private LongHashSet staleSinceSnapshot;
+
+    public LinkSuggestionService(GraphIndex graphIndex,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${graph.link-prediction.top-k:10}") int topK,
+                                 @Value("${graph.link-prediction.max-degree:500}") int maxDegree,
+                                 @Value("${graph.link-prediction.recompute-after-changes:1000}") long recomputeAfterChanges,
+                                 @Value("${graph.link-prediction.parallelism:0}") int parallelism,
+                                 @Value("${graph.link-prediction.cache.maximum-size:10000}") long cacheSize,
+                                 @Value("${graph.link-prediction.cache.ttl:5m}") Duration cacheTtl) {
+        this.graphIndex = graphIndex;
+        this.recomputeTimer = Timer.builder("graph.link-prediction.recompute")
+                .description("Time to recompute the suggested links of every node")
+                .register(meterRegistry);
+        this.topK = topK;
+        this.maxDegree = maxDegree;
+        this.recomputeAfterChanges = recomputeAfterChanges;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.onDemand = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, onDemand, "link-suggestions");
+        graphIndex.addUpdateListener(this::onIndexUpdated);
+    }
+
+    /**
+     * Up to {@code limit} (at most the configured top-k) suggested relationships for the node, best first.
+     * Never waits for a recomputation.
+     */
+    public List<LinkPrediction.Suggestion> suggest(long nodeId, int limit) {
+        int count = Math.min(limit, topK);
+        if (count <= 0) {
+            return List.of();
+        }
+        LinkSuggestions current = suggestions;
+        int index = current.indexOf(nodeId);
+        if (index >= 0 && !isStale(nodeId)) {
+            return current.suggestions(index, count);
+        }
+        List<LinkPrediction.Suggestion> scored = onDemand.get(nodeId,
+                id -> LinkPrediction.suggest(id, this::neighbours, topK, maxDegree));
+        return scored.subList(0, Math.min(count, scored.size()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void computeOnStartup() {
+        requestRecompute();
+    }
+
+    @Scheduled(initialDelayString = "${graph.link-prediction.interval:PT10M}", fixedDelayString = "${graph.link-prediction.interval:PT10M}")
+    public void scheduledRecompute() {
+        requestRecompute();
+    }
+
+    // Runs before the committing thread applies the change to the GraphIndex, so the nodes found there are the
+    // neighbours from before it: a deleted node's edges are still listed, a new relationship not yet
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onGraphChanged(GraphChangedEvent event) {
+        long changes = event.upsertedNodeIds().size() + event.deletedNodeIds().size()
+                + event.upsertedRelationshipIds().size() + event.deletedRelationshipIds().size();
+        if (recomputeAfterChanges > 0 && changesSinceRun.addAndGet(changes) >= recomputeAfterChanges) {
+            requestRecompute();
+        }
+        List<Long> linked = event.linkedNodeIds();
+        List<Long> deleted = event.deletedNodeIds();
+        if (linked.isEmpty() && deleted.isEmpty()) {
+            return;
+        }
+        boolean withNeighbours = linked.size() + deleted.size() <= MAX_INCREMENTAL_NODES;
+        LongList marked = new LongList();
+        for (long nodeId : linked) {
+            marked.add(nodeId);
+            if (withNeighbours) {
+                addNeighbours(nodeId, marked);
+            }
+        }
+        // The nodes themselves are gone; their neighbours lose a neighbour
+        for (long nodeId : deleted) {
+            if (withNeighbours) {
+                addNeighbours(nodeId, marked);
+            }
+        }
+        markStale(marked);
+        LongList awaiting = awaitingIndex.get();
+        if (awaiting == null) {
+            awaitingIndex.set(marked);
+        } else {
+            for (int i = 0; i < marked.size(); i++) {
+                awaiting.add(marked.get(i));
+            }
+        }
+    }
+
+    // The committing thread has applied its change to the GraphIndex, so scores cached since it was marked are old
+    private void onIndexUpdated() {
+        LongList awaiting = awaitingIndex.get();
+        if (awaiting == null) {
+            return;
+        }
+        awaitingIndex.remove();
+        for (int i = 0; i < awaiting.size(); i++) {
+            onDemand.invalidate(awaiting.get(i));
+        }
+    }
+
+    /**
+     * Queues a recomputation unless one is already queued.
+     */
+    public void requestRecompute() {
+        if (queued.compareAndSet(false, true)) {
+            runner.execute(() -> {
+                try {
+                    recompute();
+                } catch (RuntimeException e) {
+                    log.warn("Link prediction recomputation failed", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Recomputes every node's suggestions on the calling thread and publishes the result.
+     */
+    public LinkSuggestions recompute() {
+        // Changes from here on are not in the snapshot, so they count towards the next run
+        queued.set(false);
+        changesSinceRun.set(0);
+        return recomputeTimer.record(() -> {
+            synchronized (this) {
+                staleSinceSnapshot = new LongHashSet();
+            }
+            DenseGraph graph = graphIndex.snapshot();
+            LinkSuggestions result = LinkPrediction.computeAll(graph, topK, maxDegree, pool);
+            synchronized (this) {
+                suggestions = result;
+                stale = staleSinceSnapshot;
+                staleSinceSnapshot = null;
+            }
+            onDemand.invalidateAll();
+            log.debug("Recomputed suggested links for {} nodes", graph.nodeCount());
+            return result;
+        });
+    }
+
+    // A node's own neighbours change its candidates' weights only when it is not too large to be expanded
+    private void addNeighbours(long nodeId, LongList marked) {
+        if (graphIndex.degree(nodeId, Direction.BOTH, null) <= maxDegree) {
+            graphIndex.forEachEdge(nodeId, Direction.BOTH, null, (edgeId, neighbourId, type) -> marked.add(neighbourId));
+        }
+    }
+
+    private void markStale(LongList nodeIds) {
+        synchronized (this) {
+            for (int i = 0; i < nodeIds.size(); i++) {
+                stale.add(nodeIds.get(i));
+                if (staleSinceSnapshot != null) {
+                    staleSinceSnapshot.add(nodeIds.get(i));
+                }
+            }
+        }
+        for (int i = 0; i < nodeIds.size(); i++) {
+            onDemand.invalidate(nodeIds.get(i));
+        }
+    }
+
+    private synchronized boolean isStale(long nodeId) {
+        return stale.contains(nodeId);
+    }
+
+    // Distinct neighbours in either direction, read from the live index
+    private long[] neighbours(long nodeId) {
+        LongHashSet seen = new LongHashSet();
+        LongList neighbours = new LongList();
+        graphIndex.forEachEdge(nodeId, Direction.BOTH, null, (edgeId, neighbourId, type) -> {
+            if (neighbourId != nodeId && seen.add(neighbourId)) {
+                neighbours.add(neighbourId);
+            }
+        });
+        return neighbours.toArray();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,316 @@
+package com.andrew.knowledge_graph.service;
+
+import com.andrew.knowledge_graph.event.GraphChangedEvent;
+import com.andrew.knowledge_graph.graph.LongHashSet;
+import com.andrew.knowledge_graph.graph.LongList;
+import com.andrew.knowledge_graph.model.Node;
+import com.andrew.knowledge_graph.repository.GraphChangeLogRepository;
+import com.andrew.knowledge_graph.repository.NodeRepository;
+import com.andrew.knowledge_graph.repository.NodeSearchRepository;
+import com.andrew.knowledge_graph.semantic.HnswIndex;
+import com.andrew.knowledge_graph.semantic.TextEmbedder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Finds nodes by similarity of their text rather than by matching words: every node's title and description
+ * are turned into a vector by the {@link TextEmbedder} and kept in an {@link HnswIndex} on disk.
+ *
+ * The index is reopened on startup. If it is missing, was not closed cleanly, is mostly deleted entries or was
+ * built from other data (the change-log version recorded at its last clean shutdown is not the current one), it is
+ * rebuilt from the database in the background; until then searches only see the nodes indexed so far. If it
+ * cannot be opened at all, for example because another instance holds its directory, semantic search stays
+ * empty and the failure is reported as DOWN on the health endpoint.
+ * After that, created, edited and deleted nodes are applied after each commit. All index writes run on one
+ * thread, in the order they were requested; searches run on the caller's thread and never wait for them.
+ */
+@Service
+public class SemanticSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(SemanticSearchService.class);
+    private static final int REBUILD_PAGE_SIZE = 10_000;
+    // Keeps each IN (...) list well under SQLite's bound parameter limit
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    private final TextEmbedder embedder;
+    private final NodeRepository nodeRepository;
+    private final NodeSearchRepository nodeSearchRepository;
+    private final GraphChangeLogRepository changeLog;
+    private final Timer similarTimer;
+    private final Timer textTimer;
+    private final Path directory;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("semantic-index").daemon().factory());
+    private final AtomicBoolean updateQueued = new AtomicBoolean();
+    // Changes waiting to be applied; guarded by itself
+    private final PendingChanges pending = new PendingChanges();
+
+    // Null until the index has been opened
+    private volatile HnswIndex index;
+    // Set if opening failed, in which case index stays null
+    private volatile RuntimeException openFailure;
+    // Set if a change could not be queued while shutting down, so the closed index must not be trusted
+    private volatile boolean changesMissed;
+
+    public SemanticSearchService(TextEmbedder embedder,
+                                 NodeRepository nodeRepository,
+                                 NodeSearchRepository nodeSearchRepository,
+                                 GraphChangeLogRepository changeLog,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${graph.semantic.index-dir:semantic-index}") String directory,
+                                 @Value("${graph.semantic.m:16}") int m,
+                                 @Value("${graph.semantic.ef-construction:100}") int efConstruction,
+                                 @Value("${graph.semantic.ef-search:64}") int efSearch) {
+        this.embedder = embedder;
+        this.nodeRepository = nodeRepository;
+        this.nodeSearchRepository = nodeSearchRepository;
+        this.changeLog = changeLog;
+        this.similarTimer = Timer.builder("graph.semantic.search")
+                .description("Time to find the nearest nodes in the semantic index")
+                .tag("query", "similarNodes")
+                .register(meterRegistry);
+        this.textTimer = Timer.builder("graph.semantic.search")
+                .description("Time to find the nearest nodes in the semantic index")
+                .tag("query", "semanticSearch")
+                .register(meterRegistry);
+        this.directory = Path.of(directory);
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+    }
+
+    /**
+     * Why the index could not be opened, or null if it is open or still opening.
+     */
+    public RuntimeException openFailure() {
+        return openFailure;
+    }
+
+    /**
+     * The number of nodes in the index, or -1 until it is open.
+     */
+    public int indexedCount() {
+        HnswIndex current = index;
+        return current == null ? -1 : current.size();
+    }
+
+    /**
+     * Up to {@code k} other nodes whose text is most like the given node's, most similar first. Empty if the
+     * node does not exist or has no text to compare.
+     */
+    public List<HnswIndex.Hit> similarNodes(long nodeId, int k) {
+        HnswIndex current = index;
+        if (current == null || k <= 0) {
+            return List.of();
+        }
+        float[] vector = current.vector(nodeId);
+        if (vector == null) {
+            // Not indexed yet, so embed it here
+            Node node = nodeRepository.findById(nodeId).orElse(null);
+            if (node == null) {
+                return List.of();
+            }
+            vector = embedder.embed(node.getTitle(), node.getDescription());
+        }
+        float[] query = vector;
+        // One extra, since the node is its own nearest neighbour
+        List<HnswIndex.Hit> hits = similarTimer.record(() -> search(current, query, k + 1));
+        return hits.stream().filter(hit -> hit.nodeId() != nodeId).limit(k).toList();
+    }
+
+    /**
+     * Up to {@code k} nodes whose text is most like {@code text}, most similar first.
+     */
+    public List<HnswIndex.Hit> semanticSearch(String text, int k) {
+        HnswIndex current = index;
+        if (current == null || k <= 0) {
+            return List.of();
+        }
+        float[] query = embedder.embed(text, null);
+        return textTimer.record(() -> search(current, query, k));
+    }
+
+    private List<HnswIndex.Hit> search(HnswIndex current, float[] query, int k) {
+        boolean empty = true;
+        for (int i = 0; i < query.length && empty; i++) {
+            empty = query[i] == 0;
+        }
+        if (empty) {
+            return List.of();
+        }
+        // Nodes sharing nothing with the query score 0 or below; they are not similar, just nearest
+        return current.search(query, k, efSearch).stream().filter(hit -> hit.score() > 0).toList();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void openIndex() {
+        runner.execute(() -> {
+            try {
+                HnswIndex opened = HnswIndex.open(directory, embedder.dimensions(), m, efConstruction);
+                HnswIndex.Fingerprint source = sourceFingerprint();
+                if (opened.restored() && !opened.fingerprint().equals(source)) {
+                    log.info("The semantic index in {} was built from other data ({}, the database has {}); rebuilding",
+                            directory, opened.fingerprint(), source);
+                    opened.close();
+                    opened = HnswIndex.create(directory, embedder.dimensions(), m, efConstruction);
+                } else if (opened.restored() && opened.deletedCount() > opened.size()) {
+                    opened.close();
+                    opened = HnswIndex.create(directory, embedder.dimensions(), m, efConstruction);
+                }
+                index = opened;
+                if (opened.restored()) {
+                    log.info("Reopened the semantic index with {} nodes", opened.size());
+                } else {
+                    rebuild(opened);
+                }
+                applyChanges();
+            } catch (RuntimeException e) {
+                openFailure = e;
+                log.error("Could not open the semantic index in {}; semantic search is unavailable", directory, e);
+            }
+        });
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onGraphChanged(GraphChangedEvent event) {
+        if (event.upsertedNodeIds().isEmpty() && event.deletedNodeIds().isEmpty()) {
+            return;
+        }
+        synchronized (pending) {
+            event.upsertedNodeIds().forEach(pending.upsertedNodeIds::add);
+            event.deletedNodeIds().forEach(pending.deletedNodeIds::add);
+        }
+        if (updateQueued.compareAndSet(false, true)) {
+            try {
+                runner.execute(() -> {
+                    try {
+                        applyChanges();
+                    } catch (RuntimeException e) {
+                        log.warn("Updating the semantic index failed", e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Shutting down; the change is not in the index, so the next start rebuilds it
+                changesMissed = true;
+            }
+        }
+    }
+
+    private HnswIndex.Fingerprint sourceFingerprint() {
+        // Every committed change to the graph advances it, so any change since the index was closed shows up
+        return new HnswIndex.Fingerprint(changeLog.currentVersion());
+    }
+
+    // Embeds every node, a page at a time
+    private void rebuild(HnswIndex target) {
+        long started = System.nanoTime();
+        long afterId = 0;
+        int count = 0;
+        List<NodeSearchRepository.NodeText> page;
+        do {
+            page = nodeSearchRepository.textsAfter(afterId, REBUILD_PAGE_SIZE);
+            for (NodeSearchRepository.NodeText text : page) {
+                target.upsert(text.nodeId(), embedder.embed(text.title(), text.description()));
+                afterId = text.nodeId();
+            }
+            count += page.size();
+            if (Thread.currentThread().isInterrupted()) {
+                // Shutting down; the index stays marked unclean and is rebuilt on the next start
+                return;
+            }
+        } while (page.size() == REBUILD_PAGE_SIZE);
+        log.info("Built the semantic index over {} nodes in {} ms", count,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private void applyChanges() {
+        HnswIndex current = index;
+        if (current == null) {
+            // Not open yet; opening applies whatever is pending
+            return;
+        }
+        updateQueued.set(false);
+        long[] upserted;
+        long[] deleted;
+        synchronized (pending) {
+            upserted = pending.upsertedNodeIds.toArray();
+            deleted = pending.deletedNodeIds.toArray();
+            pending.upsertedNodeIds = new LongList();
+            pending.deletedNodeIds = new LongList();
+        }
+        for (long nodeId : deleted) {
+            current.remove(nodeId);
+        }
+        // A node may be edited several times, or edited and then deleted, before this runs; its text is read
+        // once, as it is now
+        LongHashSet seen = new LongHashSet(upserted.length);
+        for (int from = 0; from < upserted.length; from += MAX_BATCH_SIZE) {
+            List<Long> chunk = new ArrayList<>();
+            for (int i = from; i < Math.min(upserted.length, from + MAX_BATCH_SIZE); i++) {
+                if (seen.add(upserted[i])) {
+                    chunk.add(upserted[i]);
+                }
+            }
+            LongHashSet found = new LongHashSet(chunk.size());
+            for (Node node : nodeRepository.findAllById(chunk)) {
+                current.upsert(node.getId(), embedder.embed(node.getTitle(), node.getDescription()));
+                found.add(node.getId());
+            }
+            for (long nodeId : chunk) {
+                if (!found.contains(nodeId)) {
+                    current.remove(nodeId);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Read before the last changes are applied, so a node added after this point makes the next start rebuild
+        HnswIndex.Fingerprint source;
+        try {
+            source = sourceFingerprint();
+        } catch (RuntimeException e) {
+            source = HnswIndex.Fingerprint.UNKNOWN;
+        }
+        runner.shutdown();
+        // Only an index with every queued change applied may be marked clean; otherwise the next start rebuilds
+        if (runner.awaitTermination(10, TimeUnit.SECONDS)) {
+            HnswIndex current = index;
+            if (current != null) {
+                current.setFingerprint(changesMissed ? HnswIndex.Fingerprint.UNKNOWN : source);
+                current.close();
+            }
+        } else {
+            runner.shutdownNow();
+        }
+    }
+
+    private static final class PendingChanges {
+
+        private LongList upsertedNodeIds = new LongList();
+        private LongList deletedNodeIds = new LongList();
+    }
+}
@@ -0,0 +1,115 @@
+package com.andrew.knowledge_graph.subscription;
+
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+/**
+ * A bounded, per-subscriber buffer between the publisher and one subscriber's {@link FluxSink}.
+ *
+ * {@link #offer} never blocks: changes wait here until the subscriber asks for more, and a newer change to the
+ * same entity replaces the pending one. Delivery runs on the subscriber's own scheduler worker, so the publishing
+ * thread never executes a subscriber's GraphQL selection or waits on its socket.
+ *
+ * How far behind a subscriber is counts commits, not entities: one commit may touch thousands of entities (an
+ * import chunk, a batch delete), and a subscriber that is otherwise caught up must not be cut off for that. If
+ * the oldest change still pending is more than {@code capacity} commits old, the subscriber is too far behind to
+ * catch up from the buffer, and its stream fails so it can resync.
+ */
+final class CoalescingSink<T> {
+
+    private record Pending<T>(long commit, T change) {}
+
+    private final FluxSink<T> sink;
+    private final Scheduler.Worker worker;
+    private final int capacity;
+    // Guarded by "this"; insertion order is the order entities last changed, so the first is the oldest commit
+    private final LinkedHashMap<Long, Pending<T>> pending = new LinkedHashMap<>();
+    // Guarded by "this"; the number of commits offered so far
+    private long commits;
+    private boolean overflowed;
+    // Ensures at most one drain is scheduled or running at a time, however many threads offer or request
+    private final AtomicInteger wip = new AtomicInteger();
+
+    CoalescingSink(FluxSink<T> sink, Scheduler.Worker worker, int capacity) {
+        this.sink = sink;
+        this.worker = worker;
+        this.capacity = capacity;
+        sink.onRequest(n -> scheduleDrain());
+    }
+
+    /**
+     * Offers the changes of one commit: {@code changes.get(i)}, keyed by {@code keys[i]}, for every {@code i}
+     * that {@code include} accepts.
+     */
+    void offer(long[] keys, List<T> changes, IntPredicate include) {
+        synchronized (this) {
+            if (overflowed) {
+                return;
+            }
+            boolean offered = false;
+            for (int i = 0; i < keys.length; i++) {
+                if (include.test(i)) {
+                    // Re-inserting moves the entity to the back, so its latest change is delivered after older ones
+                    pending.remove(keys[i]);
+                    pending.put(keys[i], new Pending<>(commits, changes.get(i)));
+                    offered = true;
+                }
+            }
+            if (!offered) {
+                return;
+            }
+            commits++;
+            if (commits - pending.values().iterator().next().commit() > capacity) {
+                overflowed = true;
+                pending.clear();
+            }
+        }
+        scheduleDrain();
+    }
+
+    void dispose() {
+        worker.dispose();
+    }
+
+    private void scheduleDrain() {
+        if (wip.getAndIncrement() == 0) {
+            try {
+                worker.schedule(this::drain);
+            } catch (RejectedExecutionException e) {
+                // The subscriber went away while this change was being published
+            }
+        }
+    }
+
+    private void drain() {
+        int missed = 1;
+        do {
+            while (!sink.isCancelled()) {
+                T next;
+                synchronized (this) {
+                    if (overflowed) {
+                        sink.error(new IllegalStateException(
+                                "Subscriber fell more than " + capacity + " commits behind; resync with changesSince and subscribe again"));
+                        return;
+                    }
+                    if (pending.isEmpty() || sink.requestedFromDownstream() == 0) {
+                        break;
+                    }
+                    Iterator<Map.Entry<Long, Pending<T>>> oldest = pending.entrySet().iterator();
+                    next = oldest.next().getValue().change();
+                    oldest.remove();
+                }
+                sink.next(next);
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+}
@@ -0,0 +1,193 @@
+package com.andrew.knowledge_graph.subscription;
+
+import com.andrew.knowledge_graph.event.GraphChangedEvent;
+import com.andrew.knowledge_graph.graph.GraphIndex;
+import com.andrew.knowledge_graph.model.Node;
+import com.andrew.knowledge_graph.model.NodeChange;
+import com.andrew.knowledge_graph.model.Relationship;
+import com.andrew.knowledge_graph.model.RelationshipChange;
+import com.andrew.knowledge_graph.repository.NodeRepository;
+import com.andrew.knowledge_graph.repository.RelationshipRepository;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+/**
+ * Fans committed graph changes out to GraphQL subscribers.
+ *
+ * The committing thread only hands each commit to a single publishing worker, which loads the changed entities,
+ * grows the subscribers' neighbourhood scopes and offers each change to every subscriber's {@link CoalescingSink}.
+ * Commits are published one at a time in commit order, and the scopes are only ever touched by that worker, so
+ * they need no lock. Each subscriber is then drained on its own scheduler thread at its own pace. Changed entities
+ * are loaded once per commit, however many subscribers there are, and only if anyone is listening.
+ */
+@Component
+public class GraphChangePublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(GraphChangePublisher.class);
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    private record Subscriber<T>(NeighbourhoodScope scope, CoalescingSink<T> sink) {}
+
+    private final NodeRepository nodeRepository;
+    private final RelationshipRepository relationshipRepository;
+    private final GraphIndex graphIndex;
+    private final int bufferSize;
+    private final int maxScopeDepth;
+    private final int scopeNodeBudget;
+    private final List<Subscriber<NodeChange>> nodeSubscribers = new CopyOnWriteArrayList<>();
+    private final List<Subscriber<RelationshipChange>> relationshipSubscribers = new CopyOnWriteArrayList<>();
+    // Runs its tasks one at a time, in the order they were scheduled
+    private final Scheduler.Worker publishWorker = Schedulers.boundedElastic().createWorker();
+
+    public GraphChangePublisher(NodeRepository nodeRepository,
+                                RelationshipRepository relationshipRepository,
+                                GraphIndex graphIndex,
+                                @Value("${graph.subscriptions.buffer-size:256}") int bufferSize,
+                                @Value("${graph.subscriptions.max-scope-depth:3}") int maxScopeDepth,
+                                @Value("${graph.subscriptions.scope-node-budget:10000}") int scopeNodeBudget) {
+        this.nodeRepository = nodeRepository;
+        this.relationshipRepository = relationshipRepository;
+        this.graphIndex = graphIndex;
+        this.bufferSize = bufferSize;
+        this.maxScopeDepth = maxScopeDepth;
+        this.scopeNodeBudget = scopeNodeBudget;
+    }
+
+    /**
+     * Node changes, optionally only those within {@code depth} hops of {@code nearNodeId}.
+     */
+    public Flux<NodeChange> nodeChanges(Long nearNodeId, int depth) {
+        return subscribe(nodeSubscribers, nearNodeId, depth);
+    }
+
+    /**
+     * Relationship changes, optionally only those touching a node within {@code depth} hops of {@code nearNodeId}.
+     * Relationship deletions are always delivered, since their endpoints are no longer known.
+     */
+    public Flux<RelationshipChange> relationshipChanges(Long nearNodeId, int depth) {
+        return subscribe(relationshipSubscribers, nearNodeId, depth);
+    }
+
+    public int subscriberCount() {
+        return nodeSubscribers.size() + relationshipSubscribers.size();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onGraphChanged(GraphChangedEvent event) {
+        if (nodeSubscribers.isEmpty() && relationshipSubscribers.isEmpty()) {
+            return;
+        }
+        schedule(() -> {
+            try {
+                publish(event);
+            } catch (RuntimeException e) {
+                log.warn("Could not publish graph changes to subscribers", e);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        publishWorker.dispose();
+    }
+
+    private void publish(GraphChangedEvent event) {
+        List<NodeChange> nodeChanges = new ArrayList<>();
+        if (!nodeSubscribers.isEmpty()) {
+            for (Node node : findAllById(event.upsertedNodeIds(), nodeRepository::findAllById)) {
+                nodeChanges.add(new NodeChange(String.valueOf(node.getId()), false, node));
+            }
+            for (Long id : event.deletedNodeIds()) {
+                nodeChanges.add(new NodeChange(String.valueOf(id), true, null));
+            }
+        }
+        // Relationships are needed even without relationship subscribers, to grow the node subscribers' scopes
+        List<Relationship> added = findAllById(event.upsertedRelationshipIds(), relationshipRepository::findAllById);
+        List<RelationshipChange> relationshipChanges = new ArrayList<>();
+        for (Relationship rel : added) {
+            relationshipChanges.add(new RelationshipChange(String.valueOf(rel.getId()), false, rel));
+        }
+        for (Long id : event.deletedRelationshipIds()) {
+            relationshipChanges.add(new RelationshipChange(String.valueOf(id), true, null));
+        }
+        publish(nodeChanges, relationshipChanges, added);
+    }
+
+    private void publish(List<NodeChange> nodeChanges, List<RelationshipChange> relationshipChanges, List<Relationship> added) {
+        long[] nodeIds = nodeChanges.stream().mapToLong(change -> Long.parseLong(change.id())).toArray();
+        long[] relationshipIds = relationshipChanges.stream().mapToLong(change -> Long.parseLong(change.id())).toArray();
+        for (Subscriber<NodeChange> subscriber : nodeSubscribers) {
+            NeighbourhoodScope scope = subscriber.scope();
+            growScope(scope, added);
+            subscriber.sink().offer(nodeIds, nodeChanges, i -> scope == null || scope.containsNode(nodeIds[i]));
+        }
+        for (Subscriber<RelationshipChange> subscriber : relationshipSubscribers) {
+            NeighbourhoodScope scope = subscriber.scope();
+            growScope(scope, added);
+            subscriber.sink().offer(relationshipIds, relationshipChanges, i -> {
+                Relationship rel = relationshipChanges.get(i).relationship();
+                return scope == null || rel == null || scope.touches(rel.getFromNodeId(), rel.getToNodeId());
+            });
+        }
+    }
+
+    private <T> Flux<T> subscribe(List<Subscriber<T>> subscribers, Long nearNodeId, int depth) {
+        return Flux.create(fluxSink -> {
+            NeighbourhoodScope scope = nearNodeId == null ? null
+                    : new NeighbourhoodScope(graphIndex, nearNodeId, Math.clamp(depth, 0, maxScopeDepth), scopeNodeBudget);
+            if (scope != null) {
+                // The traversal runs on the publishing worker, ahead of any commit published after this point
+                schedule(scope::expand);
+            }
+            // Each subscriber is drained on its own worker, so a slow consumer only ever holds up itself
+            CoalescingSink<T> sink = new CoalescingSink<>(fluxSink, Schedulers.boundedElastic().createWorker(), bufferSize);
+            Subscriber<T> subscriber = new Subscriber<>(scope, sink);
+            subscribers.add(subscriber);
+            fluxSink.onDispose(() -> {
+                subscribers.remove(subscriber);
+                sink.dispose();
+            });
+        });
+    }
+
+    private void schedule(Runnable task) {
+        try {
+            publishWorker.schedule(task);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    private static void growScope(NeighbourhoodScope scope, List<Relationship> added) {
+        if (scope == null) {
+            return;
+        }
+        for (Relationship rel : added) {
+            scope.onRelationshipAdded(rel.getFromNodeId(), rel.getToNodeId());
+        }
+    }
+
+    private static <T> List<T> findAllById(List<Long> ids, Function<Collection<Long>, List<T>> loader) {
+        List<T> result = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i += MAX_BATCH_SIZE) {
+            result.addAll(loader.apply(ids.subList(i, Math.min(i + MAX_BATCH_SIZE, ids.size()))));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,88 @@
+package com.andrew.knowledge_graph.subscription;
+
+import com.andrew.knowledge_graph.graph.GraphIndex;
+import com.andrew.knowledge_graph.graph.LongList;
+import com.andrew.knowledge_graph.graph.LongLongHashMap;
+import com.andrew.knowledge_graph.model.Direction;
+
+/**
+ * The nodes within {@code depth} hops of a centre node, for subscriptions scoped to a neighbourhood.
+ *
+ * The scope starts as just the centre node; {@link #expand} computes it from the {@link GraphIndex}, and it then
+ * grows as relationships are added. It is not thread-safe: the publisher only touches it from its own worker. It does not shrink when relationships are deleted, so a scoped subscriber may see a few changes just
+ * outside its neighbourhood, but never misses one inside it (up to the node budget).
+ */
+final class NeighbourhoodScope {
+
+    private final GraphIndex graphIndex;
+    private final int depth;
+    private final int nodeBudget;
+    // Node id -> hop distance from the centre
+    private final LongLongHashMap distances = new LongLongHashMap();
+    private final long centreId;
+
+    NeighbourhoodScope(GraphIndex graphIndex, long centreId, int depth, int nodeBudget) {
+        this.graphIndex = graphIndex;
+        this.depth = depth;
+        this.nodeBudget = nodeBudget;
+        this.centreId = centreId;
+        distances.put(centreId, 0);
+    }
+
+    /**
+     * Adds everything within {@code depth} hops of the centre in the current index.
+     */
+    void expand() {
+        expandFrom(centreId);
+    }
+
+    boolean containsNode(long nodeId) {
+        return distances.containsKey(nodeId);
+    }
+
+    boolean touches(long fromNodeId, long toNodeId) {
+        return containsNode(fromNodeId) || containsNode(toNodeId);
+    }
+
+    /**
+     * Extends the scope across a new relationship. The index may not contain it yet, so it is followed explicitly.
+     */
+    void onRelationshipAdded(long fromNodeId, long toNodeId) {
+        relax(fromNodeId, toNodeId);
+        relax(toNodeId, fromNodeId);
+    }
+
+    private void relax(long near, long far) {
+        if (!containsNode(near)) {
+            return;
+        }
+        long distance = distances.get(near, Long.MAX_VALUE) + 1;
+        if (distance <= depth && distance < distances.get(far, Long.MAX_VALUE) && distances.size() < nodeBudget) {
+            distances.put(far, distance);
+            expandFrom(far);
+        }
+    }
+
+    // Breadth-first from a node whose distance was just set, lowering distances it can improve
+    private void expandFrom(long startId) {
+        LongList frontier = new LongList();
+        frontier.add(startId);
+        while (!frontier.isEmpty()) {
+            LongList next = new LongList();
+            for (int i = 0; i < frontier.size(); i++) {
+                long nodeId = frontier.get(i);
+                long distance = distances.get(nodeId, Long.MAX_VALUE) + 1;
+                if (distance > depth) {
+                    continue;
+                }
+                graphIndex.forEachEdge(nodeId, Direction.BOTH, null, (edgeId, neighbourId, type) -> {
+                    if (distance < distances.get(neighbourId, Long.MAX_VALUE) && distances.size() < nodeBudget) {
+                        distances.put(neighbourId, distance);
+                        next.add(neighbourId);
+                    }
+                });
+            }
+            frontier = next;
+        }
+    }
+}
@@ -1,11 +1,26 @@
 package com.andrew.knowledge_graph.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
 
 import javax.crypto.SecretKey;
 
@@ -13,15 +28,49 @@ import javax.crypto.SecretKey;
 
 @Component
 public class JwtUtil {
+    private static final Logger log = LoggerFactory.getLogger(JwtUtil.class);
+
+    // Every token says what it is for, so a long-lived refresh token cannot be used as an access token or vice versa
+    public static final String TOKEN_TYPE_CLAIM = "typ";
+    public static final String ACCESS_TOKEN = "access";
+    public static final String REFRESH_TOKEN = "refresh";
+
     private final long accessTokenValidity = 1000 * 60 * 15; // 15 minutes
     private final long refreshTokenValidity = 1000 * 60 * 60 * 24; // 24 hours
     private final Key key = Jwts.SIG.HS256.key().build();
     private final String EXPECTED_ISSUER = "https://localhost:8080";
 
+    // JwtParser is immutable and thread-safe, so it is built once instead of on every call.
+    // It checks the signature, the issuer and the expiry in a single pass.
+    private final JwtParser parser = Jwts.parser()
+            .verifyWith((SecretKey) key)
+            .requireIssuer(EXPECTED_ISSUER)
+            .build();
+
+    // Optional: SHA-256 of recently verified tokens -> their claims, kept until the token expires
+    private final Cache<String, Claims> verifiedTokens;
+
+    // Verification latency, split by whether the signature was actually checked or served from the cache
+    private final Timer verifiedTimer;
+    private final Timer rejectedTimer;
+    private final Timer cachedTimer;
+
+    public JwtUtil(@Value("${security.jwt.verified-token-cache.enabled:false}") boolean cacheVerifiedTokens,
+                   @Value("${security.jwt.verified-token-cache.maximum-size:10000}") long maximumSize,
+                   MeterRegistry meterRegistry) {
+        this.verifiedTokens = cacheVerifiedTokens
+                ? Caffeine.newBuilder().maximumSize(maximumSize).expireAfter(new UntilTokenExpiry()).build()
+                : null;
+        this.verifiedTimer = verificationTimer(meterRegistry, "verified");
+        this.rejectedTimer = verificationTimer(meterRegistry, "rejected");
+        this.cachedTimer = verificationTimer(meterRegistry, "cached");
+    }
+
     public String generateAccessToken(String username) {
         return Jwts.builder()
                 .subject(username)
                 .issuer(EXPECTED_ISSUER)
+                .claim(TOKEN_TYPE_CLAIM, ACCESS_TOKEN)
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + accessTokenValidity))
                 .signWith(key)
@@ -31,45 +80,92 @@ public class JwtUtil {
     public String generateRefreshToken(String username) {
         return Jwts.builder()
                 .subject(username)
+                .issuer(EXPECTED_ISSUER)
+                .claim(TOKEN_TYPE_CLAIM, REFRESH_TOKEN)
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + refreshTokenValidity))
                 .signWith(key)
                 .compact();
     }
 
-    public boolean isTokenValid(String token, String username) {
+    /**
+     * Parses and verifies a token exactly once: signature, issuer, expiry and token type.
+     * @param token the compact JWT
+     * @param expectedType {@link #ACCESS_TOKEN} or {@link #REFRESH_TOKEN}
+     * @return the verified claims (subject, expiry, ...), or null if the token is invalid, expired or of another type
+     */
+    public Claims parseAndValidate(String token, String expectedType) {
+        Claims claims = parseAndValidate(token);
+        return claims != null && expectedType.equals(claims.get(TOKEN_TYPE_CLAIM, String.class)) ? claims : null;
+    }
+
+    private Claims parseAndValidate(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        long start = System.nanoTime();
+        if (verifiedTokens == null) {
+            return parse(token, start);
+        }
+
+        String tokenHash = sha256(token);
+        Claims cached = verifiedTokens.getIfPresent(tokenHash);
+        if (cached != null && cached.getExpiration().after(new Date())) {
+            cachedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return cached;
+        }
+        Claims claims = parse(token, start);
+        if (claims != null && claims.getExpiration() != null) {
+            verifiedTokens.put(tokenHash, claims);
+        }
+        return claims;
+    }
+
+    private Claims parse(String token, long start) {
         try {
-            String subject = extractClaim(token, "sub");
-            return username.equals(subject) && !isTokenExpired(token);
-        } catch (JwtException e) {
-            return false;
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            verifiedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return claims;
+        } catch (JwtException | IllegalArgumentException e) {
+            rejectedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            log.debug("Rejected JWT: {}", e.getMessage());
+            return null;
         }
     }
 
-    private boolean isTokenExpired(String token) {
-        Date expiration = Jwts.parser()
-                                .verifyWith((SecretKey) key)
-                                .requireIssuer(EXPECTED_ISSUER)
-                                .build()
-                                .parseSignedClaims(token)
-                                .getPayload()
-                                .getExpiration();
-        
-                                return expiration.before(new Date());
+    private static Timer verificationTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("security.jwt.verification")
+                .description("Time to verify a JWT")
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
-    public String extractClaim (String token, String claimKey) {
+    private static String sha256(String token) {
         try {
-            return Jwts.parser()
-                    .verifyWith((SecretKey) key)
-                    .requireIssuer(EXPECTED_ISSUER)
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload()
-                    .get(claimKey, String.class);
-        } catch (JwtException e) {
-            System.err.println("Failed to extract claim '" + claimKey + "'. Error: " + e.getMessage());
-            return null;
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // Cached entries live exactly as long as the token they belong to
+    private static final class UntilTokenExpiry implements Expiry<String, Claims> {
+        @Override
+        public long expireAfterCreate(String tokenHash, Claims claims, long currentTime) {
+            long remainingMillis = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return Math.max(0, remainingMillis) * 1_000_000L;
+        }
+
+        @Override
+        public long expireAfterUpdate(String tokenHash, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(tokenHash, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String tokenHash, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,38 @@
+-- Baseline schema, matching what Hibernate's ddl-auto=update used to create.
+-- IF NOT EXISTS lets this run on databases created before Flyway owned the schema.
+
+CREATE TABLE IF NOT EXISTS node (
+    id          INTEGER PRIMARY KEY,
+    title       VARCHAR(255),
+    description VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS relationship (
+    id           INTEGER PRIMARY KEY,
+    type         VARCHAR(255),
+    notes        VARCHAR(255),
+    from_node_id BIGINT,
+    to_node_id   BIGINT
+);
+
+CREATE TABLE IF NOT EXISTS roles (
+    id   INTEGER PRIMARY KEY,
+    name VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS users (
+    id       INTEGER PRIMARY KEY,
+    username VARCHAR(255),
+    password VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS user_roles (
+    user_id BIGINT  NOT NULL,
+    role_id INTEGER NOT NULL,
+    PRIMARY KEY (user_id, role_id)
+);
+
+-- Registration assigns this role to every new user
+INSERT INTO roles (name)
+SELECT 'ROLE_USER'
+WHERE NOT EXISTS (SELECT 1 FROM roles WHERE name = 'ROLE_USER');
@@ -0,0 +1,26 @@
+-- SQLite cannot add foreign keys or constraints to an existing table, so the relationship table is rebuilt.
+
+CREATE TABLE relationship_new (
+    id           INTEGER PRIMARY KEY,
+    type         VARCHAR(32) NOT NULL,
+    notes        VARCHAR(255),
+    from_node_id INTEGER     NOT NULL REFERENCES node (id) ON DELETE CASCADE,
+    to_node_id   INTEGER     NOT NULL REFERENCES node (id) ON DELETE CASCADE,
+    CONSTRAINT uk_relationship_edge UNIQUE (from_node_id, to_node_id, type)
+);
+
+-- Keeps the oldest copy of any duplicated edge and drops edges whose nodes no longer exist
+INSERT OR IGNORE INTO relationship_new (id, type, notes, from_node_id, to_node_id)
+SELECT r.id, r.type, r.notes, r.from_node_id, r.to_node_id
+FROM relationship r
+WHERE r.type IS NOT NULL
+  AND r.from_node_id IN (SELECT id FROM node)
+  AND r.to_node_id IN (SELECT id FROM node)
+ORDER BY r.id;
+
+DROP TABLE relationship;
+ALTER TABLE relationship_new RENAME TO relationship;
+
+-- Serve findByFromNodeId / findByToNodeId, optionally narrowed by type
+CREATE INDEX idx_relationship_from_type ON relationship (from_node_id, type);
+CREATE INDEX idx_relationship_to_type ON relationship (to_node_id, type);
@@ -0,0 +1,22 @@
+-- Full-text index over node titles and descriptions (see NodeSearchRepository).
+-- It is an external-content FTS5 table over "node", kept in sync by the triggers below.
+
+CREATE VIRTUAL TABLE IF NOT EXISTS node_fts USING fts5(
+    title, description, content='node', content_rowid='id', tokenize='unicode61 remove_diacritics 2'
+);
+
+CREATE TRIGGER IF NOT EXISTS node_fts_after_insert AFTER INSERT ON node BEGIN
+    INSERT INTO node_fts(rowid, title, description) VALUES (new.id, new.title, new.description);
+END;
+
+CREATE TRIGGER IF NOT EXISTS node_fts_after_delete AFTER DELETE ON node BEGIN
+    INSERT INTO node_fts(node_fts, rowid, title, description) VALUES ('delete', old.id, old.title, old.description);
+END;
+
+CREATE TRIGGER IF NOT EXISTS node_fts_after_update AFTER UPDATE ON node BEGIN
+    INSERT INTO node_fts(node_fts, rowid, title, description) VALUES ('delete', old.id, old.title, old.description);
+    INSERT INTO node_fts(rowid, title, description) VALUES (new.id, new.title, new.description);
+END;
+
+-- Index every node that already exists
+INSERT INTO node_fts(node_fts) VALUES ('rebuild');
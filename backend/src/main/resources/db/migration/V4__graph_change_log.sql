@@ -0,0 +1,10 @@
+-- Append-only log of graph changes (see GraphChangeLogRepository).
+-- AUTOINCREMENT makes the version strictly increasing and never reused, even after old rows are compacted away.
+
+CREATE TABLE IF NOT EXISTS graph_change (
+    version INTEGER PRIMARY KEY AUTOINCREMENT,
+    entity TEXT NOT NULL CHECK (entity IN ('NODE', 'RELATIONSHIP')),
+    entity_id INTEGER NOT NULL,
+    deleted INTEGER NOT NULL CHECK (deleted IN (0, 1)),
+    changed_at INTEGER NOT NULL
+);
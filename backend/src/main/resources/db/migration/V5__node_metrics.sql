@@ -0,0 +1,12 @@
+-- Scores computed by GraphAnalyticsService, one row per node, replaced wholesale on every run.
+-- Rows for deleted nodes go with them; nodes created since the last run have no row until the next one.
+
+CREATE TABLE IF NOT EXISTS node_metric (
+    node_id INTEGER PRIMARY KEY REFERENCES node (id) ON DELETE CASCADE,
+    page_rank REAL NOT NULL,
+    degree_centrality REAL NOT NULL,
+    betweenness_centrality REAL NOT NULL,
+    computed_at INTEGER NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_node_metric_computed_at ON node_metric (computed_at);
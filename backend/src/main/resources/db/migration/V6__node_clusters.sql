@@ -0,0 +1,7 @@
+-- Connected component and community per node (see GraphAnalyticsService), identified by a node id.
+-- Existing rows have neither, so they are dropped and rebuilt by the recomputation that runs when the table is empty.
+
+DELETE FROM node_metric;
+
+ALTER TABLE node_metric ADD COLUMN component_id INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE node_metric ADD COLUMN community_id INTEGER NOT NULL DEFAULT 0;
@@ -0,0 +1,8 @@
+-- Layout coordinates computed by GraphLayoutService, one row per laid-out node.
+-- A full layout rewrites every row; an incremental one only the neighbourhood of a change. Rows go with their node.
+
+CREATE TABLE IF NOT EXISTS node_position (
+    node_id INTEGER PRIMARY KEY REFERENCES node (id) ON DELETE CASCADE,
+    x REAL NOT NULL,
+    y REAL NOT NULL
+);
@@ -0,0 +1,95 @@
+-- Node and relationship ids become AUTOINCREMENT, so the id of a deleted row is never handed out again
+-- (see GraphBulkRepository). Without it SQLite reuses the highest id once that row is deleted, and anything
+-- keyed by id outside the table (the GraphIndex, the change log, clients polling it) mistakes the new row
+-- for the old one.
+--
+-- SQLite cannot add AUTOINCREMENT to an existing table, so both are rebuilt, along with the tables that
+-- reference node: dropping node while they still did would cascade the implicit DELETE into them.
+
+CREATE TABLE node_copy AS SELECT id, title, description FROM node;
+CREATE TABLE relationship_copy AS SELECT id, type, notes, from_node_id, to_node_id FROM relationship;
+CREATE TABLE node_metric_copy AS SELECT * FROM node_metric;
+CREATE TABLE node_position_copy AS SELECT * FROM node_position;
+
+DROP TABLE node_position;
+DROP TABLE node_metric;
+DROP TABLE relationship;
+DROP TABLE node;
+
+CREATE TABLE node (
+    id          INTEGER PRIMARY KEY AUTOINCREMENT,
+    title       VARCHAR(255),
+    description VARCHAR(255)
+);
+
+-- Copied before the full-text triggers exist: node_fts already holds these rows under the same ids
+INSERT INTO node (id, title, description) SELECT id, title, description FROM node_copy ORDER BY id;
+
+CREATE TRIGGER node_fts_after_insert AFTER INSERT ON node BEGIN
+    INSERT INTO node_fts(rowid, title, description) VALUES (new.id, new.title, new.description);
+END;
+
+CREATE TRIGGER node_fts_after_delete AFTER DELETE ON node BEGIN
+    INSERT INTO node_fts(node_fts, rowid, title, description) VALUES ('delete', old.id, old.title, old.description);
+END;
+
+CREATE TRIGGER node_fts_after_update AFTER UPDATE ON node BEGIN
+    INSERT INTO node_fts(node_fts, rowid, title, description) VALUES ('delete', old.id, old.title, old.description);
+    INSERT INTO node_fts(rowid, title, description) VALUES (new.id, new.title, new.description);
+END;
+
+CREATE TABLE relationship (
+    id           INTEGER PRIMARY KEY AUTOINCREMENT,
+    type         VARCHAR(32) NOT NULL,
+    notes        VARCHAR(255),
+    from_node_id INTEGER     NOT NULL REFERENCES node (id) ON DELETE CASCADE,
+    to_node_id   INTEGER     NOT NULL REFERENCES node (id) ON DELETE CASCADE,
+    CONSTRAINT uk_relationship_edge UNIQUE (from_node_id, to_node_id, type)
+);
+
+INSERT INTO relationship (id, type, notes, from_node_id, to_node_id)
+SELECT id, type, notes, from_node_id, to_node_id FROM relationship_copy ORDER BY id;
+
+CREATE INDEX idx_relationship_from_type ON relationship (from_node_id, type);
+CREATE INDEX idx_relationship_to_type ON relationship (to_node_id, type);
+
+CREATE TABLE node_metric (
+    node_id INTEGER PRIMARY KEY REFERENCES node (id) ON DELETE CASCADE,
+    page_rank REAL NOT NULL,
+    degree_centrality REAL NOT NULL,
+    betweenness_centrality REAL NOT NULL,
+    computed_at INTEGER NOT NULL,
+    component_id INTEGER NOT NULL DEFAULT 0,
+    community_id INTEGER NOT NULL DEFAULT 0
+);
+
+INSERT INTO node_metric (node_id, page_rank, degree_centrality, betweenness_centrality, computed_at,
+                         component_id, community_id)
+SELECT node_id, page_rank, degree_centrality, betweenness_centrality, computed_at, component_id, community_id
+FROM node_metric_copy;
+
+CREATE INDEX idx_node_metric_computed_at ON node_metric (computed_at);
+
+CREATE TABLE node_position (
+    node_id INTEGER PRIMARY KEY REFERENCES node (id) ON DELETE CASCADE,
+    x REAL NOT NULL,
+    y REAL NOT NULL
+);
+
+INSERT INTO node_position (node_id, x, y) SELECT node_id, x, y FROM node_position_copy;
+
+-- Ids deleted before this migration may still be known to change-log readers, so they are not reused either
+INSERT INTO sqlite_sequence (name, seq)
+SELECT t.name, 0 FROM (SELECT 'node' AS name UNION ALL SELECT 'relationship') t
+WHERE t.name NOT IN (SELECT name FROM sqlite_sequence);
+UPDATE sqlite_sequence
+SET seq = MAX(seq, COALESCE((SELECT MAX(entity_id) FROM graph_change WHERE entity = 'NODE'), 0))
+WHERE name = 'node';
+UPDATE sqlite_sequence
+SET seq = MAX(seq, COALESCE((SELECT MAX(entity_id) FROM graph_change WHERE entity = 'RELATIONSHIP'), 0))
+WHERE name = 'relationship';
+
+DROP TABLE node_copy;
+DROP TABLE relationship_copy;
+DROP TABLE node_metric_copy;
+DROP TABLE node_position_copy;
@@ -0,0 +1,226 @@
+package com.andrew.knowledge_graph.analytics;
+
+import com.andrew.knowledge_graph.graph.DenseGraph;
+import com.andrew.knowledge_graph.graph.LongList;
+import com.andrew.knowledge_graph.model.RelationshipType;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class GraphAnalyticsTests {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+    private static final double[] EQUAL_WEIGHTS = {1, 1, 1, 1};
+
+    @AfterAll
+    static void shutdownPool() {
+        POOL.shutdown();
+    }
+
+    @Test
+    void pageRankFavoursTheNodeEveryoneLinksTo() {
+        // 1..4 all point at 5
+        DenseGraph graph = graph(5, new long[][] {{1, 5}, {2, 5}, {3, 5}, {4, 5}}, RelationshipType.SUPPORTS);
+
+        double[] rank = PageRank.compute(graph, EQUAL_WEIGHTS, 0.85, 100, 1e-12, POOL);
+
+        assertThat(Arrays.stream(rank).sum()).isCloseTo(1.0, within(1e-9));
+        for (int leaf = 0; leaf < 4; leaf++) {
+            assertThat(rank[4]).isGreaterThan(rank[leaf]);
+        }
+    }
+
+    @Test
+    void zeroWeightTypesConferNoRank() {
+        DenseGraph graph = graph(3, new long[][] {{1, 2}}, RelationshipType.CONTRADICTS);
+        double[] weights = EQUAL_WEIGHTS.clone();
+        weights[RelationshipType.CONTRADICTS.ordinal()] = 0;
+
+        double[] rank = PageRank.compute(graph, weights, 0.85, 100, 1e-12, POOL);
+
+        assertThat(rank[1]).isCloseTo(rank[0], within(1e-12));
+        assertThat(rank[2]).isCloseTo(rank[0], within(1e-12));
+    }
+
+    @Test
+    void pathMiddleHasAllTheBetweenness() {
+        // 1 - 2 - 3 - 4, directions mixed since centrality ignores them
+        DenseGraph graph = graph(4, new long[][] {{1, 2}, {3, 2}, {3, 4}}, RelationshipType.RELATED_TO);
+
+        double[] betweenness = Centrality.betweenness(graph, 0, 1, POOL);
+        double[] degree = Centrality.degree(graph, POOL);
+
+        // Of the 3 pairs 2 can lie between, it lies on (1,3) and (1,4)
+        assertThat(betweenness).containsExactly(new double[] {0, 2.0 / 3, 2.0 / 3, 0}, within(1e-12));
+        assertThat(degree).containsExactly(new double[] {1.0 / 3, 2.0 / 3, 2.0 / 3, 1.0 / 3}, within(1e-12));
+    }
+
+    @Test
+    void sampledBetweennessIsScaledToTheSameRange() {
+        int n = 2000;
+        long[][] edges = new long[n - 1][];
+        for (int i = 1; i < n; i++) {
+            edges[i - 1] = new long[] {i, i + 1};
+        }
+        DenseGraph graph = graph(n, edges, RelationshipType.RELATED_TO);
+
+        double[] exact = Centrality.betweenness(graph, 0, 1, POOL);
+        double[] sampled = Centrality.betweenness(graph, 500, 1, POOL);
+
+        // On a path the middle node lies between half of all pairs
+        assertThat(exact[n / 2]).isCloseTo(0.5, within(0.01));
+        assertThat(sampled[n / 2]).isCloseTo(exact[n / 2], within(0.05));
+    }
+
+    @Test
+    void componentsAreIdentifiedByTheirSmallestNode() {
+        // {1, 2, 3} and {4, 5}, plus 6 on its own
+        DenseGraph graph = graph(6, new long[][] {{3, 1}, {2, 3}, {5, 4}}, RelationshipType.RELATED_TO);
+
+        assertThat(Components.compute(graph, POOL)).containsExactly(0, 0, 0, 3, 3, 5);
+    }
+
+    @Test
+    void labelPropagationSeparatesCliquesJoinedByOneEdge() {
+        // Two 5-cliques, 1..5 and 6..10, bridged by 5 - 6
+        LongList from = new LongList();
+        LongList to = new LongList();
+        for (int base : new int[] {1, 6}) {
+            for (int i = base; i < base + 5; i++) {
+                for (int j = i + 1; j < base + 5; j++) {
+                    from.add(i);
+                    to.add(j);
+                }
+            }
+        }
+        from.add(5);
+        to.add(6);
+        long[][] edges = new long[from.size()][];
+        for (int i = 0; i < edges.length; i++) {
+            edges[i] = new long[] {from.get(i), to.get(i)};
+        }
+        DenseGraph graph = graph(10, edges, RelationshipType.RELATED_TO);
+
+        int[] labels = LabelPropagation.compute(graph, 20, 0, POOL);
+
+        for (int v = 1; v < 5; v++) {
+            assertThat(labels[v]).isEqualTo(labels[0]);
+            assertThat(labels[v + 5]).isEqualTo(labels[5]);
+        }
+        assertThat(labels[0]).isNotEqualTo(labels[5]);
+    }
+
+    @Test
+    void overlayMergesComponentsAndReplaysLinksMadeDuringARun() {
+        // Components and communities {1, 2} and {3, 4}
+        GraphMetrics base = new GraphMetrics(new long[] {1, 2, 3, 4}, new double[4], new double[4], new double[4],
+                new long[] {1, 1, 3, 3}, new long[] {1, 1, 3, 3}, 0);
+        ClusterOverlay overlay = new ClusterOverlay();
+        overlay.publish(base);
+
+        overlay.link(2, 3);
+        overlay.link(9, 4);
+
+        assertThat(overlay.componentId(4)).isEqualTo(1);
+        assertThat(overlay.componentId(9)).isEqualTo(1);
+        assertThat(overlay.componentSize(1)).isEqualTo(5);
+        assertThat(overlay.componentSize(3)).isZero();
+        assertThat(overlay.componentMembers(1, 10)).containsExactlyInAnyOrder(1, 2, 3, 4, 9);
+        assertThat(overlay.communityId(9)).isEqualTo(3);
+        assertThat(overlay.communitySize(3)).isEqualTo(3);
+
+        // A link made after the snapshot survives the publish of a result that does not contain it
+        overlay.beginRun();
+        overlay.link(10, 2);
+        overlay.publish(base);
+
+        assertThat(overlay.componentId(10)).isEqualTo(1);
+        assertThat(overlay.componentId(3)).isEqualTo(3);
+        assertThat(overlay.communityId(10)).isEqualTo(1);
+    }
+
+    @Test
+    void linkPredictionScoresSharedNeighbours() {
+        // 1 and 4 share 2 and 3; 1 and 5 share 2. 2 - 1 appears twice and counts once
+        DenseGraph graph = graph(5, new long[][] {{1, 2}, {2, 1}, {1, 3}, {4, 2}, {3, 4}, {5, 2}},
+                RelationshipType.RELATED_TO);
+
+        LinkSuggestions all = LinkPrediction.computeAll(graph, 10, 500, POOL);
+        List<LinkPrediction.Suggestion> suggestions = all.suggestions(all.indexOf(1), 10);
+
+        // 2 has three neighbours and 3 has two
+        assertThat(suggestions).extracting(LinkPrediction.Suggestion::nodeId).containsExactly(4L, 5L);
+        assertThat(suggestions.get(0).commonNeighbours()).isEqualTo(2);
+        assertThat(suggestions.get(0).adamicAdar()).isCloseTo(1 / Math.log(3) + 1 / Math.log(2), within(1e-12));
+        assertThat(suggestions.get(0).jaccard()).isCloseTo(1.0, within(1e-12));
+        assertThat(suggestions.get(1).adamicAdar()).isCloseTo(1 / Math.log(3), within(1e-12));
+        assertThat(suggestions.get(1).jaccard()).isCloseTo(0.5, within(1e-12));
+        assertThat(LinkPrediction.suggest(1, neighbours(graph), 10, 500)).isEqualTo(suggestions);
+
+        // With 2 over the degree cap, only 3 connects 1 to anything
+        assertThat(LinkPrediction.computeAll(graph, 10, 2, POOL).suggestions(0, 10))
+                .extracting(LinkPrediction.Suggestion::nodeId).containsExactly(4L);
+    }
+
+    @Test
+    void batchLinkPredictionMatchesScoringEachNode() {
+        // A sparse random graph with a few hubs, so the degree cap matters
+        int n = 3000;
+        SplittableRandom random = new SplittableRandom(11);
+        long[][] edges = new long[15_000][];
+        for (int i = 0; i < edges.length; i++) {
+            long to = random.nextInt(10) == 0 ? random.nextInt(20) + 1 : random.nextInt(n) + 1;
+            edges[i] = new long[] {random.nextInt(n) + 1, to};
+        }
+        DenseGraph graph = graph(n, edges, RelationshipType.RELATED_TO);
+
+        for (int maxDegree : new int[] {500, 30}) {
+            LinkSuggestions all = LinkPrediction.computeAll(graph, 5, maxDegree, POOL);
+            for (int v = 0; v < n; v++) {
+                assertThat(all.suggestions(v, 5))
+                        .isEqualTo(LinkPrediction.suggest(graph.nodeId(v), neighbours(graph), 5, maxDegree));
+            }
+        }
+    }
+
+    // Distinct neighbour ids in descending order, since suggest must not rely on them being sorted
+    private static LinkPrediction.NeighbourSource neighbours(DenseGraph graph) {
+        return nodeId -> {
+            int v = graph.indexOf(nodeId);
+            IntStream out = Arrays.stream(graph.outTargets(), graph.outOffsets()[v], graph.outOffsets()[v + 1]);
+            IntStream in = Arrays.stream(graph.inSources(), graph.inOffsets()[v], graph.inOffsets()[v + 1]);
+            return IntStream.concat(out, in)
+                    .filter(w -> w != v)
+                    .distinct()
+                    .mapToLong(w -> -graph.nodeId(w))
+                    .sorted()
+                    .map(id -> -id)
+                    .toArray();
+        };
+    }
+
+    private static DenseGraph graph(int nodeCount, long[][] edges, RelationshipType type) {
+        long[] ids = new long[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            ids[i] = i + 1;
+        }
+        LongList from = new LongList();
+        LongList to = new LongList();
+        LongList types = new LongList();
+        for (long[] edge : edges) {
+            from.add(edge[0]);
+            to.add(edge[1]);
+            types.add(type.ordinal());
+        }
+        return DenseGraph.build(ids, from, to, types);
+    }
+}
@@ -0,0 +1,36 @@
+package com.andrew.knowledge_graph.concurrency;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConcurrencyLimitingDataSourceTests {
+
+    private final ConcurrencyLimitingDataSource dataSource = new ConcurrencyLimitingDataSource(
+            new DriverManagerDataSource("jdbc:sqlite::memory:"), 2, Duration.ofMillis(50));
+
+    @Test
+    void threadsOverTheLimitTimeOutUntilAConnectionIsClosed() throws Exception {
+        Connection first = dataSource.getConnection();
+        Connection second = dataSource.getConnection();
+        assertThat(dataSource.activeConnections()).isEqualTo(2);
+
+        assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+
+        first.close();
+        // A second close must not hand out an extra permit
+        first.close();
+        try (Connection third = dataSource.getConnection()) {
+            assertThat(third.isValid(1)).isTrue();
+            assertThat(dataSource.activeConnections()).isEqualTo(2);
+        }
+        second.close();
+        assertThat(dataSource.activeConnections()).isZero();
+    }
+}
@@ -0,0 +1,78 @@
+package com.andrew.knowledge_graph.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("prod")
+class SqliteDataSourceConfigTests {
+
+    // WAL needs a database file; an in-memory database always reports journal_mode=memory
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws IOException {
+        Path directory = Files.createTempDirectory("sqlite-datasource-test");
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + directory.resolve("knowledge-graph.db"));
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private HikariDataSource writeDataSource;
+
+    @Autowired
+    private HikariDataSource readDataSource;
+
+    @Test
+    void bothPoolsOpenTheDatabaseInWalMode() {
+        assertThat(new JdbcTemplate(writeDataSource).queryForObject("PRAGMA journal_mode", String.class)).isEqualToIgnoringCase("wal");
+        assertThat(new JdbcTemplate(readDataSource).queryForObject("PRAGMA journal_mode", String.class)).isEqualToIgnoringCase("wal");
+        assertThat(writeDataSource.getMaximumPoolSize()).isEqualTo(1);
+    }
+
+    @Test
+    void readOnlyTransactionsUseAReaderThatCannotWrite() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        readOnly.executeWithoutResult(status -> {
+            assertThat(jdbcTemplate.queryForObject("PRAGMA query_only", Integer.class)).isEqualTo(1);
+            assertThatThrownBy(() -> jdbcTemplate.update("INSERT INTO node (title) VALUES ('From a reader')"))
+                    .isInstanceOf(DataAccessException.class);
+        });
+    }
+
+    @Test
+    void writesGoToTheWriterAndAreVisibleToReaders() {
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+        readWrite.executeWithoutResult(status -> {
+            assertThat(jdbcTemplate.queryForObject("PRAGMA query_only", Integer.class)).isZero();
+            jdbcTemplate.update("INSERT INTO node (title) VALUES ('From the writer')");
+        });
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        Integer count = readOnly.execute(status ->
+                jdbcTemplate.queryForObject("SELECT COUNT(*) FROM node WHERE title = 'From the writer'", Integer.class));
+        assertThat(count).isEqualTo(1);
+    }
+}
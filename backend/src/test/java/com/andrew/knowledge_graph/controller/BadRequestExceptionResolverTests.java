@@ -0,0 +1,17 @@
+package com.andrew.knowledge_graph.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Rejected arguments are mapped to BAD_REQUEST in LinkNodesTests and NodeSearchTests
+class BadRequestExceptionResolverTests {
+
+    @Test
+    void anIllegalArgumentFromABugIsLeftAsAnInternalError() {
+        BadRequestExceptionResolver resolver = new BadRequestExceptionResolver();
+
+        assertThat(resolver.resolveToSingleError(new IllegalArgumentException("Unexpected state of row 42"), null)).isNull();
+        assertThat(resolver.resolveToSingleError(new NumberFormatException("For input string: \"x\""), null)).isNull();
+    }
+}
@@ -0,0 +1,126 @@
+package com.andrew.knowledge_graph.controller;
+
+import com.andrew.knowledge_graph.graph.GraphIndex;
+import com.andrew.knowledge_graph.model.Node;
+import com.andrew.knowledge_graph.model.Relationship;
+import com.andrew.knowledge_graph.model.RelationshipType;
+import com.andrew.knowledge_graph.repository.NodeRepository;
+import com.andrew.knowledge_graph.repository.RelationshipRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.graphql.tester.AutoConfigureGraphQlTester;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.graphql.test.tester.GraphQlTester;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:sqlite:file:batching-test?mode=memory&cache=shared",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureGraphQlTester
+class GraphControllerBatchingTests {
+
+    private static final String FULL_GRAPH_QUERY = """
+            query {
+              nodeSearch(query: "", first: 100) {
+                edges {
+                  node {
+                    id
+                    title
+                    connections {
+                      relationship { id type from { id } to { id } }
+                      node { id title description }
+                    }
+                  }
+                }
+              }
+            }
+            """;
+
+    @Autowired
+    private GraphQlTester graphQlTester;
+
+    @Autowired
+    private NodeRepository nodeRepository;
+
+    @Autowired
+    private RelationshipRepository relationshipRepository;
+
+    @Autowired
+    private GraphIndex graphIndex;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void fullGraphQueryStatementCountDoesNotGrowWithNodeCount() {
+        long smallGraphStatements = statementsForFullGraphQuery(10);
+        long largeGraphStatements = statementsForFullGraphQuery(100);
+
+        assertThat(largeGraphStatements).isEqualTo(smallGraphStatements);
+    }
+
+    @Test
+    void deletingHubNodeStatementCountDoesNotGrowWithDegree() {
+        long smallHubStatements = statementsForHubDelete(10);
+        long largeHubStatements = statementsForHubDelete(500);
+
+        assertThat(largeHubStatements).isEqualTo(smallHubStatements);
+        assertThat(relationshipRepository.count()).isEqualTo(499 - 1);
+    }
+
+    private long statementsForHubDelete(int nodeCount) {
+        Node hub = seedGraph(nodeCount).get(0);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        graphQlTester.document("mutation($ids: [ID!]!) { deleteNodes(ids: $ids) }")
+                .variable("ids", List.of(String.valueOf(hub.getId())))
+                .execute()
+                .path("deleteNodes").entityList(String.class).containsExactly(String.valueOf(hub.getId()));
+
+        return statistics.getPrepareStatementCount();
+    }
+
+    private long statementsForFullGraphQuery(int nodeCount) {
+        seedGraph(nodeCount);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        graphQlTester.document(FULL_GRAPH_QUERY)
+                .execute()
+                .path("nodeSearch.edges").entityList(Object.class).hasSize(nodeCount);
+
+        return statistics.getPrepareStatementCount();
+    }
+
+    // Builds a chain where every node also links back to the first one
+    private List<Node> seedGraph(int nodeCount) {
+        relationshipRepository.deleteAllInBatch();
+        nodeRepository.deleteAllInBatch();
+
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < nodeCount; i++) {
+            nodes.add(new Node("Node " + i, "Description " + i));
+        }
+        nodes = nodeRepository.saveAll(nodes);
+
+        List<Relationship> relationships = new ArrayList<>();
+        for (int i = 1; i < nodes.size(); i++) {
+            relationships.add(new Relationship(RelationshipType.RELATED_TO, null, nodes.get(i - 1).getId(), nodes.get(i).getId()));
+            relationships.add(new Relationship(RelationshipType.SUPPORTS, null, nodes.get(i).getId(), nodes.get(0).getId()));
+        }
+        relationshipRepository.saveAll(relationships);
+        // Seeded through the repositories directly, so the adjacency index has to be rebuilt
+        graphIndex.reload();
+        return nodes;
+    }
+}
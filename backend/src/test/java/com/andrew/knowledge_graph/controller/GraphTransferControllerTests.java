@@ -0,0 +1,136 @@
+package com.andrew.knowledge_graph.controller;
+
+import com.andrew.knowledge_graph.graph.GraphIndex;
+import com.andrew.knowledge_graph.model.Node;
+import com.andrew.knowledge_graph.model.Relationship;
+import com.andrew.knowledge_graph.model.RelationshipType;
+import com.andrew.knowledge_graph.repository.NodeRepository;
+import com.andrew.knowledge_graph.repository.RelationshipRepository;
+import com.andrew.knowledge_graph.service.GraphWriteService;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:sqlite:file:graph-transfer-test?mode=memory&cache=shared")
+@AutoConfigureMockMvc
+class GraphTransferControllerTests {
+
+    private static final String CREDENTIALS = "{\"username\": \"graph-transfer-user\", \"password\": \"secret\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private GraphWriteService writeService;
+
+    @Autowired
+    private NodeRepository nodeRepository;
+
+    @Autowired
+    private RelationshipRepository relationshipRepository;
+
+    @Autowired
+    private GraphIndex graphIndex;
+
+    private String accessToken;
+
+    @BeforeEach
+    void loginAndClearGraph() throws Exception {
+        // Fails harmlessly with "Username already exists" after the first test
+        mockMvc.perform(post("/api/auth/register").contentType(MediaType.APPLICATION_JSON).content(CREDENTIALS));
+        String body = mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON).content(CREDENTIALS))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Map<String, String> tokens = objectMapper.readValue(body, new TypeReference<>() {});
+        accessToken = tokens.get("accessToken");
+
+        relationshipRepository.deleteAllInBatch();
+        nodeRepository.deleteAllInBatch();
+        graphIndex.reload();
+    }
+
+    @Test
+    void anExportImportsBackAsTheSameGraph() throws Exception {
+        Node a = writeService.addNode(new Node("Entropy", "Disorder, \"quoted\"\nover two lines"));
+        Node b = writeService.addNode(new Node("Información", null));
+        Node c = writeService.addNode(new Node("Heat death", "{\"kind\": \"not a record\"}"));
+        writeService.linkNodes(List.of(
+                new Relationship(RelationshipType.SUPPORTS, "Notes with \\ and \t", a.getId(), b.getId()),
+                new Relationship(RelationshipType.CONTRADICTS, null, b.getId(), c.getId()),
+                new Relationship(RelationshipType.RELATED_TO, null, c.getId(), a.getId())));
+        Map<String, Object> before = describeGraph();
+
+        byte[] export = export();
+        relationshipRepository.deleteAllInBatch();
+        nodeRepository.deleteAllInBatch();
+        graphIndex.reload();
+
+        mockMvc.perform(post("/api/graph/import").contentType("application/x-ndjson").content(export)
+                        .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nodesImported").value(3))
+                .andExpect(jsonPath("$.relationshipsImported").value(3));
+
+        assertThat(describeGraph()).isEqualTo(before);
+    }
+
+    // Exported gzipped, as browsers ask for it
+    private byte[] export() throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/graph/export")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header("Authorization", "Bearer " + accessToken))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] compressed = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+
+    // Ids change on import, so nodes are compared by title and relationships by the titles they join
+    private Map<String, Object> describeGraph() {
+        Map<Long, String> titles = new HashMap<>();
+        Map<String, String> descriptions = new HashMap<>();
+        for (Node node : nodeRepository.findAll()) {
+            titles.put(node.getId(), node.getTitle());
+            descriptions.put(node.getTitle(), String.valueOf(node.getDescription()));
+        }
+        Map<String, String> relationships = new HashMap<>();
+        for (Relationship rel : relationshipRepository.findAll()) {
+            relationships.put(titles.get(rel.getFromNodeId()) + " -[" + rel.getType() + "]-> " + titles.get(rel.getToNodeId()),
+                    String.valueOf(rel.getNotes()));
+        }
+        return Map.of("nodes", descriptions, "relationships", relationships);
+    }
+}
@@ -0,0 +1,99 @@
+package com.andrew.knowledge_graph.controller;
+
+import com.andrew.knowledge_graph.model.Node;
+import com.andrew.knowledge_graph.repository.NodeRepository;
+import com.andrew.knowledge_graph.repository.RelationshipRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.graphql.tester.AutoConfigureGraphQlTester;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.graphql.execution.ErrorType;
+import org.springframework.graphql.test.tester.GraphQlTester;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:sqlite:file:link-nodes-test?mode=memory&cache=shared")
+@AutoConfigureGraphQlTester
+class LinkNodesTests {
+
+    private static final String LINK = """
+            mutation($input: LinkNodesInput!) { linkNodes(input: $input) { id } }
+            """;
+    private static final String LINK_BATCH = """
+            mutation($inputs: [LinkNodesInput!]!) { linkNodesBatch(inputs: $inputs) { id } }
+            """;
+
+    @Autowired
+    private GraphQlTester graphQlTester;
+
+    @Autowired
+    private NodeRepository nodeRepository;
+
+    @Autowired
+    private RelationshipRepository relationshipRepository;
+
+    private String a;
+    private String b;
+
+    @BeforeEach
+    void createNodes() {
+        relationshipRepository.deleteAllInBatch();
+        nodeRepository.deleteAllInBatch();
+        a = String.valueOf(nodeRepository.save(new Node("A", null)).getId());
+        b = String.valueOf(nodeRepository.save(new Node("B", null)).getId());
+    }
+
+    @Test
+    void aDuplicateLinkIsABadRequest() {
+        graphQlTester.document(LINK).variable("input", link(a, b, "SUPPORTS")).execute().errors().verify();
+
+        graphQlTester.document(LINK).variable("input", link(a, b, "SUPPORTS"))
+                .execute()
+                .errors()
+                .satisfy(errors -> assertThat(errors).singleElement().satisfies(error -> {
+                    assertThat(error.getErrorType()).isEqualTo(ErrorType.BAD_REQUEST);
+                    assertThat(error.getMessage()).isEqualTo("Relationship already exists: " + a + " -[SUPPORTS]-> " + b);
+                }));
+        // Other types and the reverse direction are different edges
+        graphQlTester.document(LINK).variable("input", link(a, b, "CONTRADICTS")).execute().errors().verify();
+        graphQlTester.document(LINK).variable("input", link(b, a, "SUPPORTS")).execute().errors().verify();
+        assertThat(relationshipRepository.count()).isEqualTo(3);
+    }
+
+    @Test
+    void aBatchRepeatingAnEdgeIsABadRequestAndWritesNothing() {
+        graphQlTester.document(LINK_BATCH)
+                .variable("inputs", List.of(link(a, b, "SUPPORTS"), link(b, a, "SUPPORTS"), link(a, b, "SUPPORTS")))
+                .execute()
+                .errors()
+                .satisfy(errors -> assertThat(errors).singleElement().satisfies(error -> {
+                    assertThat(error.getErrorType()).isEqualTo(ErrorType.BAD_REQUEST);
+                    assertThat(error.getMessage()).startsWith("Relationship already exists");
+                }));
+
+        assertThat(relationshipRepository.count()).isZero();
+    }
+
+    @Test
+    void aBatchWithANonNumericIdIsABadRequestAndWritesNothing() {
+        graphQlTester.document(LINK_BATCH)
+                .variable("inputs", List.of(link(a, b, "SUPPORTS"), link(a, "not-a-number", "SUPPORTS")))
+                .execute()
+                .errors()
+                .satisfy(errors -> assertThat(errors).singleElement().satisfies(error -> {
+                    assertThat(error.getErrorType()).isEqualTo(ErrorType.BAD_REQUEST);
+                    assertThat(error.getMessage()).isEqualTo("Invalid node id: not-a-number");
+                }));
+
+        assertThat(relationshipRepository.count()).isZero();
+    }
+
+    private static Map<String, Object> link(String from, String to, String type) {
+        return Map.of("fromNodeId", from, "toNodeId", to, "type", type);
+    }
+}
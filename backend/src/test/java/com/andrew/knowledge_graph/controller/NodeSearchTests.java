@@ -0,0 +1,139 @@
+package com.andrew.knowledge_graph.controller;
+
+import com.andrew.knowledge_graph.model.Node;
+import com.andrew.knowledge_graph.repository.NodeRepository;
+import com.andrew.knowledge_graph.repository.RelationshipRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.graphql.tester.AutoConfigureGraphQlTester;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.graphql.execution.ErrorType;
+import org.springframework.graphql.test.tester.GraphQlTester;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:sqlite:file:node-search-test?mode=memory&cache=shared")
+@AutoConfigureGraphQlTester
+class NodeSearchTests {
+
+    private static final String PAGE_QUERY = """
+            query($query: String!, $first: Int, $after: String) {
+              nodeSearch(query: $query, first: $first, after: $after) {
+                edges { cursor node { id } }
+                pageInfo { hasNextPage endCursor }
+              }
+            }
+            """;
+
+    @Autowired
+    private GraphQlTester graphQlTester;
+
+    @Autowired
+    private NodeRepository nodeRepository;
+
+    @Autowired
+    private RelationshipRepository relationshipRepository;
+
+    @BeforeEach
+    void clearGraph() {
+        relationshipRepository.deleteAllInBatch();
+        nodeRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void titleMatchesRankAboveDescriptionMatches() {
+        Node inDescription = nodeRepository.save(new Node("Unrelated", "Mentions entropy once"));
+        Node inTitle = nodeRepository.save(new Node("Entropy", null));
+        nodeRepository.save(new Node("Nothing here", null));
+
+        graphQlTester.document("query { searchNodes(titleQuery: \"entrop\") { id } }")
+                .execute()
+                .path("searchNodes[*].id").entityList(String.class)
+                .containsExactly(String.valueOf(inTitle.getId()), String.valueOf(inDescription.getId()));
+    }
+
+    @Test
+    void searchNodesReturnsAtMostTheLimit() {
+        for (int i = 0; i < 30; i++) {
+            nodeRepository.save(new Node("Topic " + i, null));
+        }
+
+        graphQlTester.document("query { searchNodes(titleQuery: \"topic\") { id } }")
+                .execute()
+                .path("searchNodes").entityList(Object.class).hasSize(20);
+        graphQlTester.document("query { searchNodes(titleQuery: \"topic\", limit: 1000) { id } }")
+                .execute()
+                .path("searchNodes").entityList(Object.class).hasSize(30);
+    }
+
+    @Test
+    void anEmptyQueryIsBoundedAndPagesThroughEveryNode() {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            expected.add(String.valueOf(nodeRepository.save(new Node("Node " + i, null)).getId()));
+        }
+
+        graphQlTester.document("query { searchNodes(titleQuery: \"\", limit: 1000) { id } }")
+                .execute()
+                .path("searchNodes[*].id").entityList(String.class)
+                .containsExactlyElementsOf(expected.subList(0, 100));
+
+        List<String> seen = new ArrayList<>();
+        String after = null;
+        boolean hasNextPage = true;
+        while (hasNextPage) {
+            GraphQlTester.Response response = graphQlTester.document(PAGE_QUERY)
+                    .variable("query", "")
+                    .variable("first", 50)
+                    .variable("after", after)
+                    .execute();
+            seen.addAll(response.path("nodeSearch.edges[*].node.id").entityList(String.class).get());
+            hasNextPage = response.path("nodeSearch.pageInfo.hasNextPage").entity(Boolean.class).get();
+            after = response.path("nodeSearch.pageInfo.endCursor").entity(String.class).get();
+        }
+        assertThat(seen).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void pagesThroughTiedRanksWithoutGapsOrRepeats() {
+        // Identical documents score the same, so their order comes from the id tie-break alone
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            expected.add(String.valueOf(nodeRepository.save(new Node("Tied topic", null)).getId()));
+        }
+
+        List<String> seen = new ArrayList<>();
+        String after = null;
+        boolean hasNextPage = true;
+        while (hasNextPage) {
+            GraphQlTester.Response response = graphQlTester.document(PAGE_QUERY)
+                    .variable("query", "tied")
+                    .variable("first", 3)
+                    .variable("after", after)
+                    .execute();
+            seen.addAll(response.path("nodeSearch.edges[*].node.id").entityList(String.class).get());
+            hasNextPage = response.path("nodeSearch.pageInfo.hasNextPage").entity(Boolean.class).get();
+            after = response.path("nodeSearch.pageInfo.endCursor").entity(String.class).get();
+        }
+
+        assertThat(seen).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void malformedCursorIsABadRequest() {
+        for (String cursor : List.of("not base64!", "bm90LWEtY3Vyc29y", "YWJjOmRlZg")) {
+            graphQlTester.document(PAGE_QUERY)
+                    .variable("query", "anything")
+                    .variable("after", cursor)
+                    .execute()
+                    .errors()
+                    .satisfy(errors -> assertThat(errors).singleElement()
+                            .satisfies(error -> assertThat(error.getErrorType()).isEqualTo(ErrorType.BAD_REQUEST)));
+        }
+    }
+}
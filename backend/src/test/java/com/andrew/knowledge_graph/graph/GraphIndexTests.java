@@ -0,0 +1,190 @@
+package com.andrew.knowledge_graph.graph;
+
+import com.andrew.knowledge_graph.model.Direction;
+import com.andrew.knowledge_graph.model.RelationshipType;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GraphIndexTests {
+
+    private static final RelationshipType[] TYPES = RelationshipType.values();
+
+    @Test
+    void csrGroupsEdgesIntoOneRowPerSource() {
+        LongList sources = longs(5, 3, 5, 9, 3);
+        LongList targets = longs(1, 2, 3, 4, 5);
+        LongList edgeIds = longs(10, 11, 12, 13, 14);
+
+        Csr csr = Csr.build(sources, targets, edgeIds);
+
+        assertThat(csr.keys).containsExactly(3, 5, 9);
+        assertThat(csr.edgeCount()).isEqualTo(5);
+        assertThat(row(csr, 3)).containsExactlyInAnyOrder("11->2", "14->5");
+        assertThat(row(csr, 5)).containsExactlyInAnyOrder("10->1", "12->3");
+        assertThat(row(csr, 9)).containsExactly("13->4");
+        assertThat(csr.row(4)).isNegative();
+        assertThat(Csr.build(new LongList(), new LongList(), new LongList())).isSameAs(Csr.EMPTY);
+    }
+
+    @Test
+    void adjacencySeesTheSameEdgesBeforeAndAfterCompaction() {
+        Adjacency adjacency = new Adjacency();
+        adjacency.replace(Csr.build(longs(1, 1, 2), longs(2, 3, 3), longs(100, 101, 102)));
+        adjacency.add(1, 4, 103);
+        adjacency.add(3, 1, 104);
+        LongHashSet removed = new LongHashSet();
+        // One tombstone in the CSR base and one in the added overlay
+        removed.add(101);
+        removed.add(104);
+
+        List<String> before = edges(adjacency, removed);
+        adjacency.compact(removed);
+        List<String> after = edges(adjacency, new LongHashSet());
+
+        assertThat(before).containsExactlyInAnyOrder("1-100->2", "2-102->3", "1-103->4");
+        assertThat(after).containsExactlyInAnyOrderElementsOf(before);
+        assertThat(adjacency.size()).isEqualTo(3);
+    }
+
+    @Test
+    void indexMatchesAPlainModelThroughAddsRemovesAndCompactions() {
+        GraphIndex index = new GraphIndex(null);
+        // edge id -> {from, to, type}
+        Map<Long, long[]> model = new HashMap<>();
+        Random random = new Random(3);
+        int nodeCount = 200;
+        long nextEdgeId = 1;
+
+        // Well past MIN_COMPACTION_THRESHOLD, so several compactions happen along the way
+        for (int step = 1; step <= 20_000; step++) {
+            int operation = random.nextInt(10);
+            if (operation < 7 || model.isEmpty()) {
+                long from = 1 + random.nextInt(nodeCount);
+                long to = 1 + random.nextInt(nodeCount);
+                int type = random.nextInt(TYPES.length);
+                index.addEdge(nextEdgeId, from, to, TYPES[type]);
+                model.put(nextEdgeId++, new long[] {from, to, type});
+            } else if (operation < 9) {
+                List<Long> live = new ArrayList<>(model.keySet());
+                long edgeId = live.get(random.nextInt(live.size()));
+                index.removeEdge(edgeId);
+                model.remove(edgeId);
+            } else {
+                long nodeId = 1 + random.nextInt(nodeCount);
+                index.removeNode(nodeId);
+                model.values().removeIf(edge -> edge[0] == nodeId || edge[1] == nodeId);
+            }
+
+            if (step % 2500 == 0) {
+                assertMatches(index, model, nodeCount);
+            }
+        }
+    }
+
+    @Test
+    void typeFilterOnlyVisitsTheRequestedTypes() {
+        GraphIndex index = new GraphIndex(null);
+        index.addEdge(1, 1, 2, RelationshipType.SUPPORTS);
+        index.addEdge(2, 1, 3, RelationshipType.CONTRADICTS);
+        index.addEdge(3, 4, 1, RelationshipType.SUPPORTS);
+
+        assertThat(index.degree(1, Direction.OUTGOING, Set.of(RelationshipType.SUPPORTS))).isEqualTo(1);
+        assertThat(index.degree(1, Direction.BOTH, Set.of(RelationshipType.SUPPORTS))).isEqualTo(2);
+        assertThat(index.degree(1, Direction.BOTH, Set.of())).isEqualTo(3);
+        assertThat(index.degree(1, Direction.INCOMING, null)).isEqualTo(1);
+    }
+
+    @Test
+    void limitedVisitStopsAtTheLimitAndReportsTheRest() {
+        GraphIndex index = new GraphIndex(null);
+        index.addEdge(1, 1, 2, RelationshipType.SUPPORTS);
+        index.addEdge(2, 1, 3, RelationshipType.CONTRADICTS);
+        index.addEdge(3, 4, 1, RelationshipType.SUPPORTS);
+        index.removeEdge(1);
+        index.addEdge(4, 1, 5, RelationshipType.SUPPORTS);
+
+        List<Long> visited = new ArrayList<>();
+        assertThat(index.forEachEdge(1, Direction.BOTH, null, 2, (edgeId, neighbourId, type) -> visited.add(edgeId)))
+                .isFalse();
+        assertThat(visited).hasSize(2);
+
+        visited.clear();
+        // Exactly as many edges as the limit is not truncation; removed edges do not count
+        assertThat(index.forEachEdge(1, Direction.BOTH, null, 3, (edgeId, neighbourId, type) -> visited.add(edgeId)))
+                .isTrue();
+        assertThat(visited).containsExactlyInAnyOrder(2L, 3L, 4L);
+    }
+
+    @Test
+    void aRemovedEdgeIdCanBeAddedAgainWithOtherEndpoints() {
+        GraphIndex index = new GraphIndex(null);
+        index.addEdge(1, 1, 2, RelationshipType.SUPPORTS);
+        index.addEdge(2, 2, 3, RelationshipType.SUPPORTS);
+        index.removeEdge(2);
+        index.addEdge(2, 3, 4, RelationshipType.CONTRADICTS);
+
+        assertThat(index.edgeCount()).isEqualTo(2);
+        assertThat(index.degree(2, Direction.BOTH, null)).isEqualTo(1);
+        List<Long> neighbours = new ArrayList<>();
+        index.forEachEdge(3, Direction.BOTH, null, (edgeId, neighbourId, type) -> neighbours.add(neighbourId));
+        assertThat(neighbours).containsExactly(4L);
+    }
+
+    private static void assertMatches(GraphIndex index, Map<Long, long[]> model, int nodeCount) {
+        assertThat(index.edgeCount()).isEqualTo(model.size());
+        for (long nodeId = 1; nodeId <= nodeCount; nodeId++) {
+            List<String> outgoing = new ArrayList<>();
+            List<String> incoming = new ArrayList<>();
+            for (Map.Entry<Long, long[]> edge : model.entrySet()) {
+                long[] e = edge.getValue();
+                if (e[0] == nodeId) {
+                    outgoing.add(edge.getKey() + "->" + e[1] + ":" + TYPES[(int) e[2]]);
+                }
+                if (e[1] == nodeId) {
+                    incoming.add(edge.getKey() + "->" + e[0] + ":" + TYPES[(int) e[2]]);
+                }
+            }
+            assertThat(visit(index, nodeId, Direction.OUTGOING)).containsExactlyInAnyOrderElementsOf(outgoing);
+            assertThat(visit(index, nodeId, Direction.INCOMING)).containsExactlyInAnyOrderElementsOf(incoming);
+        }
+    }
+
+    private static List<String> visit(GraphIndex index, long nodeId, Direction direction) {
+        List<String> edges = new ArrayList<>();
+        index.forEachEdge(nodeId, direction, null,
+                (edgeId, neighbourId, type) -> edges.add(edgeId + "->" + neighbourId + ":" + type));
+        return edges;
+    }
+
+    private static List<String> row(Csr csr, long nodeId) {
+        int row = csr.row(nodeId);
+        List<String> edges = new ArrayList<>();
+        for (int i = csr.offsets[row]; i < csr.offsets[row + 1]; i++) {
+            edges.add(csr.edgeIds[i] + "->" + csr.neighbours[i]);
+        }
+        return edges;
+    }
+
+    private static List<String> edges(Adjacency adjacency, LongHashSet removed) {
+        List<String> edges = new ArrayList<>();
+        adjacency.forEachEdge(removed, (nodeId, neighbourId, edgeId) -> edges.add(nodeId + "-" + edgeId + "->" + neighbourId));
+        return edges;
+    }
+
+    private static LongList longs(long... values) {
+        LongList list = new LongList(values.length);
+        for (long value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
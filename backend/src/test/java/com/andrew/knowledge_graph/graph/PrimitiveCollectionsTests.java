@@ -0,0 +1,111 @@
+package com.andrew.knowledge_graph.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PrimitiveCollectionsTests {
+
+    @Test
+    void longHashSetKeepsEveryValueAcrossRehashes() {
+        // Starts at 16 slots, so this doubles the table about twelve times
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            long value = random.nextLong(-1_000_000, 1_000_000);
+            assertThat(set.add(value)).isEqualTo(expected.add(value));
+        }
+
+        assertThat(set.size()).isEqualTo(expected.size());
+        for (long value = -1_000_000; value < 1_000_000; value += 97) {
+            assertThat(set.contains(value)).isEqualTo(expected.contains(value));
+        }
+    }
+
+    @Test
+    void longHashSetStoresZeroNegativeAndExtremeValues() {
+        LongHashSet set = new LongHashSet(1);
+        for (long value : new long[] {0, -1, Long.MIN_VALUE + 1, Long.MAX_VALUE}) {
+            assertThat(set.contains(value)).isFalse();
+            assertThat(set.add(value)).isTrue();
+            assertThat(set.add(value)).isFalse();
+        }
+
+        assertThat(set.size()).isEqualTo(4);
+        assertThat(set.contains(0)).isTrue();
+        assertThat(set.contains(-1)).isTrue();
+        assertThat(set.contains(1)).isFalse();
+    }
+
+    @Test
+    void longHashSetRejectsTheEmptySlotMarker() {
+        LongHashSet set = new LongHashSet();
+
+        assertThat(set.contains(Long.MIN_VALUE)).isFalse();
+        assertThatThrownBy(() -> set.add(Long.MIN_VALUE)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(set.isEmpty()).isTrue();
+    }
+
+    @Test
+    void clearedLongHashSetCanBeRefilled() {
+        LongHashSet set = new LongHashSet();
+        for (long value = 0; value < 1000; value++) {
+            set.add(value);
+        }
+        set.clear();
+
+        assertThat(set.isEmpty()).isTrue();
+        assertThat(set.contains(500)).isFalse();
+        assertThat(set.add(500)).isTrue();
+        assertThat(set.size()).isEqualTo(1);
+    }
+
+    @Test
+    void longLongHashMapKeepsTheLatestValueAcrossRehashes() {
+        LongLongHashMap map = new LongLongHashMap();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextLong(-10_000, 10_000);
+            map.put(key, i);
+            expected.put(key, (long) i);
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (long key = -10_000; key < 10_000; key++) {
+            assertThat(map.get(key, -1)).isEqualTo(expected.getOrDefault(key, -1L));
+            assertThat(map.containsKey(key)).isEqualTo(expected.containsKey(key));
+        }
+    }
+
+    @Test
+    void longLongHashMapStoresZeroAndNegativeKeys() {
+        LongLongHashMap map = new LongLongHashMap(1);
+        map.put(0, 10);
+        map.put(-1, 20);
+        map.put(Long.MAX_VALUE, 30);
+
+        assertThat(map.get(0, -1)).isEqualTo(10);
+        assertThat(map.get(-1, -1)).isEqualTo(20);
+        assertThat(map.get(Long.MAX_VALUE, -1)).isEqualTo(30);
+        assertThat(map.get(1, -1)).isEqualTo(-1);
+    }
+
+    @Test
+    void longLongHashMapRejectsTheEmptyKeyMarker() {
+        LongLongHashMap map = new LongLongHashMap();
+
+        assertThat(map.containsKey(Long.MIN_VALUE)).isFalse();
+        assertThat(map.get(Long.MIN_VALUE, 42)).isEqualTo(42);
+        assertThatThrownBy(() -> map.put(Long.MIN_VALUE, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(map.size()).isZero();
+    }
+}
@@ -0,0 +1,144 @@
+package com.andrew.knowledge_graph.layout;
+
+import com.andrew.knowledge_graph.graph.LongHashSet;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ForceLayoutTests {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+    private static final ForceLayout.Settings SETTINGS = new ForceLayout.Settings(100, 0.8, 0.1);
+
+    @AfterAll
+    static void shutdownPool() {
+        POOL.shutdown();
+    }
+
+    @Test
+    void barnesHutApproximatesTheExactRepulsion() {
+        int n = 2000;
+        SplittableRandom random = new SplittableRandom(1);
+        double[] x = new double[n];
+        double[] y = new double[n];
+        int[] all = new int[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = random.nextDouble(-1000, 1000);
+            y[i] = random.nextDouble(-1000, 1000);
+            all[i] = i;
+        }
+        QuadTree tree = new QuadTree(x, y, all);
+
+        for (int v = 0; v < n; v += 97) {
+            double[] exact = new double[2];
+            for (int u = 0; u < n; u++) {
+                if (u != v) {
+                    double dx = x[v] - x[u];
+                    double dy = y[v] - y[u];
+                    double d2 = dx * dx + dy * dy;
+                    exact[0] += dx / d2;
+                    exact[1] += dy / d2;
+                }
+            }
+            double[] thetaZero = new double[2];
+            tree.repulsion(v, x[v], y[v], 0, 1, thetaZero);
+            double[] approximate = new double[2];
+            tree.repulsion(v, x[v], y[v], 0.5, 1, approximate);
+
+            double magnitude = Math.hypot(exact[0], exact[1]);
+            assertThat(thetaZero[0]).isCloseTo(exact[0], within(1e-9 * magnitude + 1e-12));
+            assertThat(thetaZero[1]).isCloseTo(exact[1], within(1e-9 * magnitude + 1e-12));
+            assertThat(Math.hypot(approximate[0] - exact[0], approximate[1] - exact[1])).isLessThan(0.1 * magnitude);
+        }
+    }
+
+    @Test
+    void linkedNodesEndUpCloserThanUnlinkedOnes() {
+        // Two 5-cliques, 0..4 and 5..9, bridged by 4 - 5
+        int[][] adjacency = new int[10][];
+        for (int v = 0; v < 10; v++) {
+            int base = v < 5 ? 0 : 5;
+            int[] clique = new int[v == 4 || v == 5 ? 5 : 4];
+            int count = 0;
+            for (int u = base; u < base + 5; u++) {
+                if (u != v) {
+                    clique[count++] = u;
+                }
+            }
+            if (v == 4) {
+                clique[count] = 5;
+            } else if (v == 5) {
+                clique[count] = 4;
+            }
+            adjacency[v] = clique;
+        }
+        int[] nodes = new int[10];
+        int[] offsets = new int[11];
+        for (int v = 0; v < 10; v++) {
+            nodes[v] = v;
+            offsets[v + 1] = offsets[v] + adjacency[v].length;
+        }
+        int[] neighbours = new int[offsets[10]];
+        for (int v = 0; v < 10; v++) {
+            System.arraycopy(adjacency[v], 0, neighbours, offsets[v], adjacency[v].length);
+        }
+        double[] x = new double[10];
+        double[] y = new double[10];
+        ForceLayout.place(x, y, new boolean[10], nodes, offsets, neighbours, 50, 1000, new SplittableRandom(7));
+
+        ForceLayout.run(x, y, nodes, offsets, neighbours, SETTINGS, 300, 250, POOL);
+
+        double within = 0;
+        double between = 0;
+        for (int u = 0; u < 5; u++) {
+            for (int v = u + 1; v < 5; v++) {
+                within += Math.hypot(x[u] - x[v], y[u] - y[v]) + Math.hypot(x[u + 5] - x[v + 5], y[u + 5] - y[v + 5]);
+            }
+            for (int v = 5; v < 10; v++) {
+                between += Math.hypot(x[u] - x[v], y[u] - y[v]);
+            }
+        }
+        assertThat(within / 20).isLessThan(between / 25);
+    }
+
+    @Test
+    void onlyMovableNodesMove() {
+        // 0 - 1 - 2 laid out, 3 new and linked to 2
+        double[] x = {-100, 0, 100, 0};
+        double[] y = {0, 0, 0, 0};
+        boolean[] placed = {true, true, true, false};
+        int[] movable = {2, 3};
+        int[] offsets = {0, 2, 3};
+        int[] neighbours = {1, 3, 2};
+
+        ForceLayout.place(x, y, placed, movable, offsets, neighbours, 50, 1000, new SplittableRandom(3));
+        assertThat(Math.hypot(x[3] - 100, y[3])).isLessThanOrEqualTo(50);
+        ForceLayout.run(x, y, movable, offsets, neighbours, SETTINGS, 50, 100, POOL);
+
+        assertThat(x[0]).isEqualTo(-100);
+        assertThat(x[1]).isZero();
+        assertThat(Math.hypot(x[3] - x[2], y[3] - y[2])).isBetween(20.0, 300.0);
+    }
+
+    @Test
+    void withMergesNewPositionsAndDropsRemovedNodes() {
+        NodePositions positions = new NodePositions(new long[] {1, 3, 5}, new double[] {1, 3, 5}, new double[] {1, 3, 5});
+        LongHashSet removed = new LongHashSet();
+        removed.add(5);
+
+        NodePositions merged = positions.with(new long[] {4, 3, 2}, new double[] {40, 30, 20}, new double[] {4, 3, 2}, removed);
+
+        assertThat(merged.size()).isEqualTo(4);
+        assertThat(merged.indexOf(5)).isNegative();
+        assertThat(merged.x(merged.indexOf(1))).isEqualTo(1);
+        assertThat(merged.x(merged.indexOf(2))).isEqualTo(20);
+        assertThat(merged.x(merged.indexOf(3))).isEqualTo(30);
+        assertThat(merged.x(merged.indexOf(4))).isEqualTo(40);
+    }
+}
@@ -0,0 +1,83 @@
+package com.andrew.knowledge_graph.layout;
+
+import com.andrew.knowledge_graph.graph.DenseGraph;
+import com.andrew.knowledge_graph.graph.LongList;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ViewportIndexTests {
+
+    @Test
+    void nodesAreFoundByRectangle() {
+        ViewportIndex index = ViewportIndex.build(grid(100), DenseGraph.EMPTY);
+
+        // x and y in [0, 400] hold a 5 by 5 block of the 10 by 10 grid
+        assertThat(index.nodesWithin(0, 0, 400, 400, 1000)).hasSize(25);
+        assertThat(index.nodesWithin(0, 0, 400, 400, 10)).hasSize(10);
+        assertThat(index.nodesWithin(5000, 5000, 6000, 6000, 1000)).isEmpty();
+    }
+
+    @Test
+    void clustersCoverEveryNodeAndCountTheEdgesBetweenThem() {
+        // A 10 by 10 grid with every node linked to its right-hand neighbour
+        int side = 10;
+        NodePositions positions = grid(side * side);
+        LongList from = new LongList();
+        LongList to = new LongList();
+        LongList types = new LongList();
+        for (int row = 0; row < side; row++) {
+            for (int column = 0; column + 1 < side; column++) {
+                from.add(row * side + column + 1);
+                to.add(row * side + column + 2);
+                types.add(0);
+            }
+        }
+        long[] ids = new long[side * side];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i + 1;
+        }
+        ViewportIndex index = ViewportIndex.build(positions, DenseGraph.build(ids, from, to, types));
+
+        assertThat(index.levelCount()).isEqualTo(2);
+        List<ViewportIndex.Cluster> whole = index.clustersWithin(0, -1e9, -1e9, 1e9, 1e9, 100);
+        assertThat(whole).singleElement().satisfies(cluster -> assertThat(cluster.size()).isEqualTo(100));
+
+        // Level 1 halves the grid both ways; only the 10 edges crossing the vertical middle join two cells
+        List<ViewportIndex.Cluster> quarters = index.clustersWithin(1, -1e9, -1e9, 1e9, 1e9, 100);
+        assertThat(quarters).hasSize(4).allSatisfy(cluster -> assertThat(cluster.size()).isEqualTo(25));
+        List<ViewportIndex.ClusterEdge> edges = index.edgesBetween(1, quarters, 100);
+        assertThat(edges).hasSize(2).allSatisfy(edge -> assertThat(edge.count()).isEqualTo(5));
+        assertThat(index.edgesBetween(1, quarters, 1)).hasSize(1);
+    }
+
+    @Test
+    void levelKeepsTheNumberOfCellsInViewBounded() {
+        ViewportIndex index = ViewportIndex.build(grid(10_000), DenseGraph.EMPTY);
+
+        int level = index.levelFor(0, 0, 10_000, 10_000, 0, 50);
+        List<ViewportIndex.Cluster> clusters = index.clustersWithin(level, 0, 0, 10_000, 10_000, 1000);
+
+        assertThat(level).isPositive();
+        assertThat(clusters.size()).isLessThanOrEqualTo(50);
+        // Larger cells on screen mean a coarser level
+        assertThat(index.levelFor(0, 0, 10_000, 10_000, 5000, 50)).isLessThan(level);
+    }
+
+    // Nodes 1..n on a square grid with 100 units between neighbours
+    private static NodePositions grid(int n) {
+        int side = (int) Math.ceil(Math.sqrt(n));
+        long[] ids = new long[n];
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i + 1;
+            x[i] = (i % side) * 100.0;
+            y[i] = (i / side) * 100.0;
+        }
+        return new NodePositions(ids, x, y);
+    }
+}
@@ -0,0 +1,177 @@
+package com.andrew.knowledge_graph.limits;
+
+import com.andrew.knowledge_graph.graph.GraphIndex;
+import com.andrew.knowledge_graph.model.Node;
+import com.andrew.knowledge_graph.model.Relationship;
+import com.andrew.knowledge_graph.model.RelationshipType;
+import com.andrew.knowledge_graph.model.inputs.ImportRecord;
+import com.andrew.knowledge_graph.service.GraphImportService;
+import com.andrew.knowledge_graph.service.GraphWriteService;
+
+import graphql.execution.CoercedVariables;
+import graphql.normalized.ExecutableNormalizedOperation;
+import graphql.normalized.ExecutableNormalizedOperationFactory;
+import graphql.parser.Parser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.graphql.tester.AutoConfigureGraphQlTester;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.graphql.execution.GraphQlSource;
+import org.springframework.graphql.test.tester.GraphQlTester;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:sqlite:file:query-limits-test?mode=memory&cache=shared",
+        "graph.query-limits.max-depth=4",
+        "graph.query-limits.max-cost=50"
+})
+@AutoConfigureGraphQlTester
+class QueryLimitsInstrumentationTests {
+
+    private static final String NEIGHBOURS_QUERY = "query($id: ID!) { node(id: $id) { connections { node { id } } } }";
+
+    // The query GraphPage.jsx sends for each page of the graph on load
+    private static final String GRAPH_PAGE_QUERY = """
+            query GraphPage($after: String) {
+              graphVersion
+              nodeSearch(query: "", first: 100, after: $after) {
+                edges {
+                  node {
+                    id
+                    title
+                    description
+                    position { x y }
+                    connections {
+                      relationship { id type notes from { id } to { id } }
+                      node { id title description }
+                    }
+                  }
+                }
+                pageInfo { hasNextPage endCursor }
+              }
+            }
+            """;
+
+    @Autowired
+    private GraphQlTester graphQlTester;
+
+    @Autowired
+    private GraphWriteService writeService;
+
+    @Autowired
+    private GraphIndex graphIndex;
+
+    @Autowired
+    private GraphImportService importService;
+
+    @Autowired
+    private GraphQlSource graphQlSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Node hub;
+    private Node leaf;
+
+    // A hub with 100 neighbours; one of them is the leaf
+    @BeforeEach
+    void seedGraph() {
+        hub = writeService.addNode(new Node("Hub", null));
+        List<Relationship> relationships = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Node spoke = writeService.addNode(new Node("Spoke " + i, null));
+            relationships.add(new Relationship(RelationshipType.RELATED_TO, null, hub.getId(), spoke.getId()));
+            leaf = spoke;
+        }
+        writeService.linkNodes(relationships);
+        graphIndex.reload();
+    }
+
+    @Test
+    void connectionsArePricedByActualDegree() {
+        graphQlTester.document(NEIGHBOURS_QUERY)
+                .variable("id", String.valueOf(leaf.getId()))
+                .execute()
+                .path("node.connections").entityList(Object.class).hasSize(1);
+
+        graphQlTester.document(NEIGHBOURS_QUERY)
+                .variable("id", String.valueOf(hub.getId()))
+                .execute()
+                .errors()
+                .satisfy(errors -> assertThat(errors).singleElement()
+                        .satisfies(error -> {
+                            assertThat(error.getExtensions()).containsEntry("code", "QUERY_TOO_EXPENSIVE");
+                            assertThat(((Number) error.getExtensions().get("limit")).longValue()).isEqualTo(50);
+                        }));
+    }
+
+    @Test
+    void titleSearchIsPricedByItsLimit() {
+        graphQlTester.document("{ searchNodes(titleQuery: \"Spoke\", limit: 5) { id } }")
+                .execute()
+                .path("searchNodes").entityList(Object.class).hasSize(5);
+
+        graphQlTester.document("{ searchNodes(titleQuery: \"Spoke\", limit: 100) { id } }")
+                .execute()
+                .errors()
+                .satisfy(errors -> assertThat(errors).singleElement()
+                        .satisfies(error -> assertThat(error.getExtensions()).containsEntry("code", "QUERY_TOO_EXPENSIVE")));
+    }
+
+    @Test
+    void deepQueriesAreRejectedBeforeExecution() {
+        graphQlTester.document("query($id: ID!) { node(id: $id) { connections { node { connections { node { id } } } } } }")
+                .variable("id", String.valueOf(leaf.getId()))
+                .execute()
+                .errors()
+                .satisfy(errors -> assertThat(errors).singleElement()
+                        .satisfies(error -> {
+                            assertThat(error.getExtensions()).containsEntry("code", "QUERY_TOO_DEEP");
+                            assertThat(((Number) error.getExtensions().get("depth")).intValue()).isEqualTo(6);
+                        }));
+    }
+
+    @Test
+    void aGraphPagePageIsWithinTheShippedLimitsOnALargeGraph() throws IOException {
+        // 25,000 nodes, each linked to the next three: an average degree of about 6
+        int nodes = 25_000;
+        List<ImportRecord> records = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            records.add(new ImportRecord(ImportRecord.NODE, "n" + i, "Node " + i, null, null, null, null, null, null, null));
+        }
+        for (int i = 0; i < nodes; i++) {
+            for (int j = i + 1; j <= i + 3 && j < nodes; j++) {
+                records.add(new ImportRecord(ImportRecord.RELATIONSHIP, null, null, null, "n" + i, "n" + j, null, null,
+                        RelationshipType.RELATED_TO, null));
+            }
+        }
+        importService.importRecords(records.iterator());
+
+        // This context runs with tight limits, so the page is measured against the ones application.properties ships
+        Properties shipped = PropertiesLoaderUtils.loadProperties(new ClassPathResource("application.properties"));
+        double maxCost = Double.parseDouble(shipped.getProperty("graph.query-limits.max-cost"));
+        int maxDepth = Integer.parseInt(shipped.getProperty("graph.query-limits.max-depth"));
+        long maxObjects = Long.parseLong(shipped.getProperty("graph.query-limits.max-objects"));
+        // A new estimator, so it does not use a node count cached before the import; field weights as shipped
+        QueryCostEstimator estimator = new QueryCostEstimator(graphIndex, jdbcTemplate, Map.of("Node.connections", 1.0), 100_000);
+        ExecutableNormalizedOperation operation = ExecutableNormalizedOperationFactory.createExecutableNormalizedOperation(
+                graphQlSource.schema(), Parser.parse(GRAPH_PAGE_QUERY), null, CoercedVariables.emptyVariables());
+
+        QueryCostEstimator.Cost cost = estimator.estimate(operation, maxCost);
+        assertThat(cost.aborted()).isFalse();
+        assertThat(cost.depth()).isLessThanOrEqualTo(maxDepth);
+        // Every field but the scalars weighs 1, so the cost is also the number of objects the page resolves
+        assertThat(cost.cost()).isLessThanOrEqualTo(maxObjects);
+    }
+}
@@ -0,0 +1,82 @@
+package com.andrew.knowledge_graph.metrics;
+
+import com.andrew.knowledge_graph.graph.GraphIndex;
+import com.andrew.knowledge_graph.model.Node;
+import com.andrew.knowledge_graph.model.Relationship;
+import com.andrew.knowledge_graph.model.RelationshipType;
+import com.andrew.knowledge_graph.repository.NodeRepository;
+import com.andrew.knowledge_graph.repository.RelationshipRepository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.graphql.tester.AutoConfigureGraphQlTester;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.graphql.test.tester.GraphQlTester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:sqlite:file:metrics-test?mode=memory&cache=shared")
+@AutoConfigureGraphQlTester
+class GraphQlMetricsInstrumentationTests {
+
+    @Autowired
+    private GraphQlTester graphQlTester;
+
+    @Autowired
+    private NodeRepository nodeRepository;
+
+    @Autowired
+    private RelationshipRepository relationshipRepository;
+
+    @Autowired
+    private GraphIndex graphIndex;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void recordsOperationLatencyFieldLatencyAndStatementCount() {
+        Node node = nodeRepository.save(new Node("Measured", null));
+
+        graphQlTester.document("query($id: ID!) { node(id: $id) { id title connections { node { id } } } }")
+                .variable("id", String.valueOf(node.getId()))
+                .execute()
+                .path("node.title").entity(String.class).isEqualTo("Measured");
+
+        assertThat(meterRegistry.find("graphql.operation").tags("type", "query", "root", "node", "outcome", "success").timer())
+                .isNotNull()
+                .satisfies(timer -> assertThat(timer.count()).isEqualTo(1));
+        assertThat(meterRegistry.find("graphql.field").tags("parent", "Node", "field", "connections").timer()).isNotNull();
+        // Property getters are not timed
+        assertThat(meterRegistry.find("graphql.field").tags("parent", "Node", "field", "title").timer()).isNull();
+
+        DistributionSummary statements = meterRegistry.find("graphql.operation.sql.statements").tags("root", "node").summary();
+        assertThat(statements).isNotNull();
+        assertThat(statements.totalAmount()).isGreaterThan(0);
+    }
+
+    @Test
+    void attributesBatchLoaderStatementsToTheOperation() {
+        Node a = nodeRepository.save(new Node("Batch source", null));
+        Node b = nodeRepository.save(new Node("Batch target", null));
+        Relationship rel = relationshipRepository.save(new Relationship(RelationshipType.SUPPORTS, null, a.getId(), b.getId()));
+        graphIndex.addEdge(rel.getId(), a.getId(), b.getId(), rel.getType());
+
+        double rootOnly = statementsRecordedFor("{ searchNodes(titleQuery: \"source\") { id } }");
+        double withLoaders = statementsRecordedFor(
+                "{ searchNodes(titleQuery: \"source\") { connections { relationship { from { id } to { id } } node { id } } } }");
+
+        // The batch loaders run after the root resolver has returned: Node.connections loads the relationships and
+        // the nodes on the other end, then Relationship.from and Relationship.to load their nodes
+        assertThat(withLoaders).isGreaterThanOrEqualTo(rootOnly + 4);
+    }
+
+    private double statementsRecordedFor(String document) {
+        DistributionSummary statements = meterRegistry.find("graphql.operation.sql.statements").tags("root", "searchNodes").summary();
+        double before = statements == null ? 0 : statements.totalAmount();
+        graphQlTester.document(document).execute().errors().verify();
+        return meterRegistry.get("graphql.operation.sql.statements").tags("root", "searchNodes").summary().totalAmount() - before;
+    }
+}
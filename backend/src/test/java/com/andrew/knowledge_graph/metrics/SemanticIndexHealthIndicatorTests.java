@@ -0,0 +1,58 @@
+package com.andrew.knowledge_graph.metrics;
+
+import com.andrew.knowledge_graph.semantic.HnswIndex;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:sqlite:file:semantic-health-test?mode=memory&cache=shared")
+class SemanticIndexHealthIndicatorTests {
+
+    @TempDir
+    static Path directory;
+
+    // Another instance holding the index directory
+    private static HnswIndex held;
+
+    @Autowired
+    private SemanticIndexHealthIndicator healthIndicator;
+
+    @DynamicPropertySource
+    static void indexDirectory(DynamicPropertyRegistry registry) {
+        registry.add("graph.semantic.index-dir", () -> directory.toString());
+    }
+
+    @BeforeAll
+    static void holdTheIndexDirectory() {
+        held = HnswIndex.create(directory, 8, 16, 100);
+    }
+
+    @AfterAll
+    static void releaseTheIndexDirectory() {
+        held.close();
+    }
+
+    @Test
+    void isDownWhenTheIndexDirectoryIsHeldElsewhere() throws InterruptedException {
+        Health health = healthIndicator.health();
+        for (int i = 0; i < 100 && health.getStatus().equals(Status.UNKNOWN); i++) {
+            Thread.sleep(50);
+            health = healthIndicator.health();
+        }
+
+        assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+        assertThat(health.getDetails()).containsKey("error");
+    }
+}
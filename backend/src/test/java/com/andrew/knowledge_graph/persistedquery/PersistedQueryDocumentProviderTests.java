@@ -0,0 +1,76 @@
+package com.andrew.knowledge_graph.persistedquery;
+
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.persisted.PersistedQueryIdInvalid;
+import graphql.execution.preparsed.persisted.PersistedQueryNotFound;
+import graphql.parser.Parser;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PersistedQueryDocumentProviderTests {
+
+    private static final String QUERY = "{ graphVersion }";
+    private static final String HASH = PersistedQueryDocumentProvider.sha256(QUERY);
+
+    private final AtomicInteger parses = new AtomicInteger();
+    private final Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidate = input -> {
+        parses.incrementAndGet();
+        return new PreparsedDocumentEntry(Parser.parse(input.getQuery()));
+    };
+
+    @Test
+    void unknownHashIsRegisteredOnRetryAndThenServedFromTheCache() {
+        PersistedQueryDocumentProvider provider = new PersistedQueryDocumentProvider(100, 100, false, Map.of());
+
+        assertThat(get(provider, input(null, HASH)).getErrors())
+                .singleElement().isInstanceOf(PersistedQueryNotFound.class);
+
+        assertThat(get(provider, input(QUERY, HASH)).hasErrors()).isFalse();
+        assertThat(get(provider, input(null, HASH)).getDocument()).isNotNull();
+        assertThat(get(provider, input(QUERY, null)).getDocument()).isNotNull();
+        assertThat(parses).hasValue(1);
+    }
+
+    @Test
+    void hashThatDoesNotMatchTheQueryIsRejected() {
+        PersistedQueryDocumentProvider provider = new PersistedQueryDocumentProvider(100, 100, false, Map.of());
+
+        assertThat(get(provider, input(QUERY, PersistedQueryDocumentProvider.sha256("{ other }"))).getErrors())
+                .singleElement().isInstanceOf(PersistedQueryIdInvalid.class);
+        assertThat(parses).hasValue(0);
+    }
+
+    @Test
+    void allowlistModeOnlyAcceptsPreRegisteredHashes() {
+        PersistedQueryDocumentProvider provider = new PersistedQueryDocumentProvider(100, 100, true, Map.of(HASH, QUERY));
+
+        assertThat(get(provider, input(null, HASH)).hasErrors()).isFalse();
+        assertThat(get(provider, input(QUERY, null)).getErrors())
+                .singleElement().satisfies(error -> assertThat(error.getExtensions()).containsEntry("code", "PERSISTED_QUERY_REQUIRED"));
+
+        String other = "{ searchNodes(titleQuery: \"\") { id } }";
+        String otherHash = PersistedQueryDocumentProvider.sha256(other);
+        assertThat(get(provider, input(other, otherHash)).getErrors())
+                .singleElement().satisfies(error -> assertThat(error.getExtensions()).containsEntry("code", "PERSISTED_QUERY_NOT_ALLOWED"));
+        assertThat(get(provider, input(null, otherHash)).getErrors())
+                .singleElement().isInstanceOf(PersistedQueryNotFound.class);
+    }
+
+    private PreparsedDocumentEntry get(PersistedQueryDocumentProvider provider, ExecutionInput input) {
+        return provider.getDocumentAsync(input, parseAndValidate).join();
+    }
+
+    private static ExecutionInput input(String query, String hash) {
+        ExecutionInput.Builder builder = ExecutionInput.newExecutionInput().query(query == null ? "" : query);
+        if (hash != null) {
+            builder.extensions(Map.of("persistedQuery", Map.of("version", 1, "sha256Hash", hash)));
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,78 @@
+package com.andrew.knowledge_graph.persistedquery;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The automatic persisted query round trip over HTTP, with request bodies shaped like frontend/src/helpers/graphql.js
+@SpringBootTest(properties = "spring.datasource.url=jdbc:sqlite:file:persisted-query-http-test?mode=memory&cache=shared")
+@AutoConfigureMockMvc
+class PersistedQueryHttpTests {
+
+    private static final String CREDENTIALS = "{\"username\": \"persisted-query-user\", \"password\": \"secret\"}";
+    private static final String QUERY = "query PersistedQueryHttpTests { graphVersion }";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String accessToken;
+
+    @BeforeEach
+    void login() throws Exception {
+        // Fails harmlessly with "Username already exists" after the first test
+        mockMvc.perform(post("/api/auth/register").contentType(MediaType.APPLICATION_JSON).content(CREDENTIALS));
+        String body = mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON).content(CREDENTIALS))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Map<String, String> tokens = objectMapper.readValue(body, new TypeReference<>() {});
+        accessToken = tokens.get("accessToken");
+    }
+
+    @Test
+    void anUnknownHashIsRegisteredByResendingTheQueryAndThenServedByHashAlone() throws Exception {
+        String hash = PersistedQueryDocumentProvider.sha256(QUERY);
+
+        send(null, hash)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.errors[0].message").value("PersistedQueryNotFound"))
+                .andExpect(jsonPath("$.data").doesNotExist());
+
+        send(QUERY, hash)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.errors").doesNotExist())
+                .andExpect(jsonPath("$.data.graphVersion").isString());
+
+        send(null, hash)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.errors").doesNotExist())
+                .andExpect(jsonPath("$.data.graphVersion").isString());
+    }
+
+    private ResultActions send(String query, String hash) throws Exception {
+        Map<String, Object> body = new HashMap<>();
+        if (query != null) {
+            body.put("query", query);
+        }
+        body.put("extensions", Map.of("persistedQuery", Map.of("version", 1, "sha256Hash", hash)));
+        return mockMvc.perform(post("/graphql").contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + accessToken)
+                .content(objectMapper.writeValueAsString(body)));
+    }
+}
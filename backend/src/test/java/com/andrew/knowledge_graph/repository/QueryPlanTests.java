@@ -0,0 +1,118 @@
+package com.andrew.knowledge_graph.repository;
+
+import com.andrew.knowledge_graph.graph.GraphIndex;
+import com.andrew.knowledge_graph.metrics.StatementCountingDataSource;
+import com.andrew.knowledge_graph.model.Node;
+import com.andrew.knowledge_graph.model.Relationship;
+import com.andrew.knowledge_graph.model.RelationshipType;
+import com.andrew.knowledge_graph.service.GraphWriteService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.graphql.tester.AutoConfigureGraphQlTester;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.graphql.test.tester.GraphQlTester;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards the indexes created by the Flyway migrations: every query the GraphQL resolvers send must be answered
+ * with an index search, never a full table scan. The statements checked are the ones Hibernate and the
+ * repositories really prepare, captured from the application's DataSource while each operation runs.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:sqlite:file:query-plan-test?mode=memory&cache=shared")
+@AutoConfigureGraphQlTester
+class QueryPlanTests {
+
+    @Autowired
+    private GraphQlTester graphQlTester;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private GraphWriteService writeService;
+
+    @Autowired
+    private GraphIndex graphIndex;
+
+    private final List<String> captured = new CopyOnWriteArrayList<>();
+    private StatementCountingDataSource statementSource;
+    private Consumer<String> listener;
+    private long nodeId;
+
+    @BeforeEach
+    void seedAndCapture() throws SQLException {
+        Node a = writeService.addNode(new Node("Alpha", "First node"));
+        Node b = writeService.addNode(new Node("Beta", "Second node"));
+        Relationship link = writeService.linkNode(new Relationship(RelationshipType.SUPPORTS, null, a.getId(), b.getId()));
+        graphIndex.addEdge(link.getId(), a.getId(), b.getId(), link.getType());
+        nodeId = a.getId();
+
+        // Resolvers run on the calling thread outside virtual-thread mode; background jobs are left out
+        Thread testThread = Thread.currentThread();
+        listener = sql -> {
+            if (Thread.currentThread() == testThread) {
+                captured.add(sql);
+            }
+        };
+        statementSource = dataSource.unwrap(StatementCountingDataSource.class);
+        statementSource.addSqlListener(listener);
+    }
+
+    @AfterEach
+    void stopCapturing() {
+        statementSource.removeSqlListener(listener);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            // Node lookup by id, then Node.connections and Relationship.from/to through the batch loaders
+            "query($id: ID!) { node(id: $id) { title connections { relationship { type from { id } to { id } } node { title } } } }",
+            "query($id: ID!) { neighborhood(id: $id, depth: 2) { nodes { id } relationships { id type } } }",
+            "query($id: ID!) { shortestPath(fromId: $id, toId: $id) { length } }",
+            "query { nodeSearch(query: \"alpha\") { edges { node { id title } } } }",
+            "query { nodeSearch(query: \"\") { edges { node { id title } } } }",
+            "query { changesSince(since: \"0\") { version nodes { id } relationships { id } } }"
+    })
+    void resolverQueriesUseAnIndex(String document) {
+        graphQlTester.document(document).variable("id", String.valueOf(nodeId)).execute().errors().verify();
+
+        List<String> queries = captured.stream()
+                .filter(sql -> sql.stripLeading().toLowerCase().matches("(select|with)\\b[\\s\\S]*"))
+                .toList();
+        assertThat(queries).as("SQL captured for: %s", document).isNotEmpty();
+        for (String sql : queries) {
+            List<String> plan = jdbcTemplate.queryForList("EXPLAIN QUERY PLAN " + sql).stream()
+                    .map(row -> String.valueOf(row.get("detail")))
+                    .toList();
+            assertThat(plan)
+                    .as("query plan for: %s", sql)
+                    .isNotEmpty()
+                    .noneMatch(QueryPlanTests::isTableScan);
+        }
+    }
+
+    private static boolean isTableScan(String detail) {
+        return detail.startsWith("SCAN ")
+                // Not tables: a single-row constant, FTS5 lookups, and the materialized search hits
+                && !detail.equals("SCAN CONSTANT ROW")
+                && !detail.contains("VIRTUAL TABLE INDEX")
+                && !detail.equals("SCAN hits")
+                // SQLite's own one-row-per-table AUTOINCREMENT counters
+                && !detail.equals("SCAN sqlite_sequence");
+    }
+}
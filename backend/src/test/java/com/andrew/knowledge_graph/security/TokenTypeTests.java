@@ -0,0 +1,102 @@
+package com.andrew.knowledge_graph.security;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.graphql.server.WebSocketSessionInfo;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:sqlite:file:token-type-test?mode=memory&cache=shared")
+@AutoConfigureMockMvc
+class TokenTypeTests {
+
+    private static final String CREDENTIALS = "{\"username\": \"token-type-user\", \"password\": \"secret\"}";
+    private static final String GRAPHQL_REQUEST = "{\"query\": \"{ graphVersion }\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private WebSocketAuthInterceptor webSocketAuthInterceptor;
+
+    private String accessToken;
+    private String refreshToken;
+
+    @BeforeEach
+    void login() throws Exception {
+        // Fails harmlessly with "Username already exists" after the first test
+        mockMvc.perform(post("/api/auth/register").contentType(MediaType.APPLICATION_JSON).content(CREDENTIALS));
+        String body = mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON).content(CREDENTIALS))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Map<String, String> tokens = objectMapper.readValue(body, new TypeReference<>() {});
+        accessToken = tokens.get("accessToken");
+        refreshToken = tokens.get("refreshToken");
+    }
+
+    @Test
+    void onlyAccessTokensAuthenticateRequests() throws Exception {
+        mockMvc.perform(post("/graphql").contentType(MediaType.APPLICATION_JSON).content(GRAPHQL_REQUEST)
+                        .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/graphql").contentType(MediaType.APPLICATION_JSON).content(GRAPHQL_REQUEST)
+                        .header("Authorization", "Bearer " + refreshToken))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void requestsWithoutAValidAccessTokenAreUnauthorizedNotForbidden() throws Exception {
+        mockMvc.perform(post("/graphql").contentType(MediaType.APPLICATION_JSON).content(GRAPHQL_REQUEST))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/graphql").contentType(MediaType.APPLICATION_JSON).content(GRAPHQL_REQUEST)
+                        .header("Authorization", "Bearer not-a-token"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/graph/export"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void onlyRefreshTokensRefresh() throws Exception {
+        mockMvc.perform(post("/api/auth/refresh").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("refreshToken", accessToken))))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/api/auth/refresh").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("refreshToken", refreshToken))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void onlyAccessTokensOpenASubscriptionSession() {
+        Map<String, Object> attributes = new HashMap<>();
+        WebSocketSessionInfo sessionInfo = mock(WebSocketSessionInfo.class);
+        when(sessionInfo.getAttributes()).thenReturn(attributes);
+
+        assertThatThrownBy(() -> webSocketAuthInterceptor.handleConnectionInitialization(
+                sessionInfo, Map.of("Authorization", "Bearer " + refreshToken)).block())
+                .hasMessageContaining("Invalid bearer token");
+        assertThat(attributes).isEmpty();
+
+        webSocketAuthInterceptor.handleConnectionInitialization(
+                sessionInfo, Map.of("Authorization", "Bearer " + accessToken)).block();
+        assertThat(attributes).isNotEmpty();
+    }
+}
@@ -0,0 +1,31 @@
+package com.andrew.knowledge_graph.semantic;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class HashingTextEmbedderTests {
+
+    private final HashingTextEmbedder embedder = new HashingTextEmbedder(256);
+
+    @Test
+    void sharedWordsAndWordFormsMakeTextsSimilar() {
+        float[] graphs = embedder.embed("Graph databases", "Storing knowledge graphs on disk");
+        float[] graphing = embedder.embed("Graphing knowledge", "A database of linked notes");
+        float[] cooking = embedder.embed("Sourdough bread", "Baking with a starter");
+
+        assertThat(dot(graphs, graphs)).isCloseTo(1f, within(1e-5f));
+        assertThat(dot(graphs, graphing)).isGreaterThan(dot(graphs, cooking) + 0.2f);
+        assertThat(embedder.embed("Graph databases", null)).isEqualTo(embedder.embed("graph   DATABASES", ""));
+        assertThat(embedder.embed(null, "the of and")).containsOnly(0f);
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,135 @@
+package com.andrew.knowledge_graph.semantic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HnswIndexTests {
+
+    private static final int DIMENSIONS = 32;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recallAgainstBruteForce() {
+        SplittableRandom random = new SplittableRandom(42);
+        float[][] vectors = clusteredVectors(5_000, random);
+        try (HnswIndex index = HnswIndex.create(directory, DIMENSIONS, 16, 100)) {
+            for (int i = 0; i < vectors.length; i++) {
+                index.upsert(i, vectors[i]);
+            }
+
+            int k = 10;
+            int queries = 200;
+            int found = 0;
+            for (int q = 0; q < queries; q++) {
+                float[] query = clusteredVectors(1, random)[0];
+                long[] exact = bruteForce(vectors, query, k);
+                List<HnswIndex.Hit> hits = index.search(query, k, 64);
+                assertThat(hits).hasSize(k);
+                for (HnswIndex.Hit hit : hits) {
+                    if (Arrays.stream(exact).anyMatch(id -> id == hit.nodeId())) {
+                        found++;
+                    }
+                }
+            }
+            assertThat((double) found / (queries * k)).isGreaterThan(0.95);
+        }
+    }
+
+    @Test
+    void deletedAndReplacedVectorsAreNotReturned() {
+        try (HnswIndex index = HnswIndex.create(directory, DIMENSIONS, 8, 50)) {
+            float[][] vectors = clusteredVectors(500, new SplittableRandom(7));
+            for (int i = 0; i < vectors.length; i++) {
+                index.upsert(i, vectors[i]);
+            }
+
+            assertThat(index.search(vectors[3], 1, 32)).singleElement()
+                    .satisfies(hit -> assertThat(hit.nodeId()).isEqualTo(3));
+            index.remove(3);
+            assertThat(index.search(vectors[3], 10, 32)).noneMatch(hit -> hit.nodeId() == 3);
+
+            // Node 4 takes on node 5's vector, so both are now exact matches for it
+            index.upsert(4, vectors[5]);
+            assertThat(index.search(vectors[5], 2, 32)).extracting(HnswIndex.Hit::nodeId)
+                    .containsExactlyInAnyOrder(4L, 5L);
+            assertThat(index.size()).isEqualTo(499);
+            assertThat(index.deletedCount()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void reopenedIndexAnswersTheSame() {
+        float[][] vectors = clusteredVectors(2_000, new SplittableRandom(3));
+        List<HnswIndex.Hit> before;
+        try (HnswIndex index = HnswIndex.create(directory, DIMENSIONS, 16, 100)) {
+            for (int i = 0; i < vectors.length; i++) {
+                index.upsert(i, vectors[i]);
+            }
+            index.remove(10);
+            assertThat(index.fingerprint()).isEqualTo(HnswIndex.Fingerprint.UNKNOWN);
+            index.setFingerprint(new HnswIndex.Fingerprint(2_000));
+            before = index.search(vectors[0], 10, 64);
+            assertThatThrownBy(() -> HnswIndex.open(directory, DIMENSIONS, 16, 100))
+                    .isInstanceOf(IllegalStateException.class);
+        }
+
+        try (HnswIndex index = HnswIndex.open(directory, DIMENSIONS, 16, 100)) {
+            assertThat(index.restored()).isTrue();
+            assertThat(index.size()).isEqualTo(1_999);
+            assertThat(index.fingerprint()).isEqualTo(new HnswIndex.Fingerprint(2_000));
+            assertThat(index.search(vectors[0], 10, 64)).isEqualTo(before);
+        }
+        // Other settings do not fit the file, so it starts over
+        try (HnswIndex index = HnswIndex.open(directory, DIMENSIONS * 2, 16, 100)) {
+            assertThat(index.restored()).isFalse();
+            assertThat(index.size()).isZero();
+        }
+    }
+
+    // Unit vectors scattered around 50 random centres, like texts around a few dozen topics
+    private static float[][] clusteredVectors(int count, SplittableRandom random) {
+        SplittableRandom centres = new SplittableRandom(1);
+        float[][] centre = new float[50][DIMENSIONS];
+        for (float[] c : centre) {
+            for (int d = 0; d < DIMENSIONS; d++) {
+                c[d] = (float) centres.nextGaussian();
+            }
+        }
+        float[][] vectors = new float[count][DIMENSIONS];
+        for (float[] vector : vectors) {
+            float[] c = centre[random.nextInt(centre.length)];
+            double norm = 0;
+            for (int d = 0; d < DIMENSIONS; d++) {
+                vector[d] = c[d] + (float) random.nextGaussian();
+                norm += vector[d] * vector[d];
+            }
+            for (int d = 0; d < DIMENSIONS; d++) {
+                vector[d] /= (float) Math.sqrt(norm);
+            }
+        }
+        return vectors;
+    }
+
+    private static long[] bruteForce(float[][] vectors, float[] query, int k) {
+        Integer[] order = new Integer[vectors.length];
+        double[] scores = new double[vectors.length];
+        for (int i = 0; i < vectors.length; i++) {
+            order[i] = i;
+            for (int d = 0; d < DIMENSIONS; d++) {
+                scores[i] += vectors[i][d] * query[d];
+            }
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+        return Arrays.stream(order).limit(k).mapToLong(Integer::longValue).toArray();
+    }
+}
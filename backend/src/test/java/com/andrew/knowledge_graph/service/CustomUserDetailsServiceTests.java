@@ -0,0 +1,65 @@
+package com.andrew.knowledge_graph.service;
+
+import com.andrew.knowledge_graph.model.Role;
+import com.andrew.knowledge_graph.model.User;
+import com.andrew.knowledge_graph.repository.RoleRepository;
+import com.andrew.knowledge_graph.repository.UserRepository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Transactional so the ROLE_USER role stays attached when a user is saved with it, as it is during a request
+@SpringBootTest(properties = "spring.datasource.url=jdbc:sqlite:file:user-details-test?mode=memory&cache=shared")
+@Transactional
+class CustomUserDetailsServiceTests {
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Test
+    void anEvictedUserIsReloaded() {
+        Role userRole = roleRepository.findByName("ROLE_USER").orElseThrow();
+        User user = new User("evicted-user", "first");
+        user.setRoles(Set.of(userRole));
+        user = userRepository.save(user);
+        assertThat(userDetailsService.loadUserByUsername("evicted-user").getPassword()).isEqualTo("first");
+
+        user.setPassword("second");
+        userRepository.save(user);
+        // Still the cached principal until it is evicted
+        assertThat(userDetailsService.loadUserByUsername("evicted-user").getPassword()).isEqualTo("first");
+
+        userDetailsService.evict("evicted-user");
+        UserDetails reloaded = userDetailsService.loadUserByUsername("evicted-user");
+        assertThat(reloaded.getPassword()).isEqualTo("second");
+        assertThat(reloaded.getAuthorities()).extracting("authority").containsExactly("ROLE_USER");
+    }
+
+    @Test
+    void erasingAPrincipalsCredentialsLeavesTheCachedUserIntact() {
+        User user = new User("erased-user", "secret");
+        user.setRoles(Set.of(roleRepository.findByName("ROLE_USER").orElseThrow()));
+        userRepository.save(user);
+
+        UserDetails principal = userDetailsService.loadUserByUsername("erased-user");
+        assertThat(principal).isNotInstanceOf(User.class);
+        // What Spring Security does to the principal after a successful login
+        ((CredentialsContainer) principal).eraseCredentials();
+
+        assertThat(userDetailsService.loadUserByUsername("erased-user").getPassword()).isEqualTo("secret");
+    }
+}
@@ -0,0 +1,77 @@
+package com.andrew.knowledge_graph.service;
+
+import com.andrew.knowledge_graph.model.Node;
+import com.andrew.knowledge_graph.model.Relationship;
+import com.andrew.knowledge_graph.model.RelationshipType;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:sqlite:file:change-feed-test?mode=memory&cache=shared",
+        "graph.change-log.max-entries=3"
+})
+class GraphChangeServiceTests {
+
+    @Autowired
+    private GraphWriteService writeService;
+
+    @Autowired
+    private GraphChangeService changeService;
+
+    @Test
+    void changesSinceCollapsesRepeatedChangesToTheLatest() {
+        long start = changeService.currentVersion();
+        Node a = writeService.addNode(new Node("A", null));
+        Node b = writeService.addNode(new Node("B", null));
+        Relationship link = writeService.linkNode(new Relationship(RelationshipType.SUPPORTS, null, a.getId(), b.getId()));
+        writeService.deleteLinks(List.of(link.getId()));
+        writeService.deleteNodes(List.of(b.getId()));
+
+        GraphChangeService.ChangeSet changes = changeService.changesSince(start, 100);
+
+        assertThat(changes.resyncRequired()).isFalse();
+        assertThat(changes.hasMore()).isFalse();
+        assertThat(changes.version()).isEqualTo(changeService.currentVersion());
+        assertThat(changes.upsertedNodeIds()).containsExactly(a.getId());
+        assertThat(changes.deletedNodeIds()).containsExactly(b.getId());
+        assertThat(changes.upsertedRelationshipIds()).isEmpty();
+        assertThat(changes.deletedRelationshipIds()).containsExactly(link.getId());
+    }
+
+    @Test
+    void deletingANodeLogsItsRelationshipsAndANewNodeGetsANewId() {
+        Node a = writeService.addNode(new Node("A", null));
+        Node b = writeService.addNode(new Node("B", null));
+        Relationship link = writeService.linkNode(new Relationship(RelationshipType.SUPPORTS, null, a.getId(), b.getId()));
+        long start = changeService.currentVersion();
+
+        writeService.deleteNodes(List.of(b.getId()));
+        Node c = writeService.addNode(new Node("C", null));
+
+        GraphChangeService.ChangeSet changes = changeService.changesSince(start, 100);
+        assertThat(c.getId()).isGreaterThan(b.getId());
+        assertThat(changes.deletedNodeIds()).containsExactly(b.getId());
+        assertThat(changes.deletedRelationshipIds()).containsExactly(link.getId());
+        assertThat(changes.upsertedNodeIds()).containsExactly(c.getId());
+    }
+
+    @Test
+    void clientsBehindTheCompactedLogMustResync() {
+        long start = changeService.currentVersion();
+        for (int i = 0; i < 5; i++) {
+            writeService.addNode(new Node("Node " + i, null));
+        }
+        changeService.compact();
+
+        assertThat(changeService.changesSince(start, 100).resyncRequired()).isTrue();
+        GraphChangeService.ChangeSet recent = changeService.changesSince(changeService.currentVersion() - 3, 100);
+        assertThat(recent.resyncRequired()).isFalse();
+        assertThat(recent.upsertedNodeIds()).hasSize(3);
+    }
+}
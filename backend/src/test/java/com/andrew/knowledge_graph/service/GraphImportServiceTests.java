@@ -0,0 +1,127 @@
+package com.andrew.knowledge_graph.service;
+
+import com.andrew.knowledge_graph.graph.GraphIndex;
+import com.andrew.knowledge_graph.model.Direction;
+import com.andrew.knowledge_graph.repository.DuplicateRelationshipException;
+import com.andrew.knowledge_graph.repository.NodeRepository;
+import com.andrew.knowledge_graph.repository.RelationshipRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:sqlite:file:import-test?mode=memory&cache=shared",
+        "graph.import.chunk-size=4"
+})
+class GraphImportServiceTests {
+
+    private static final String FOUR_NODES = """
+            {"kind": "node", "ref": "a", "title": "A"}
+            {"kind": "node", "ref": "b", "title": "B"}
+            {"kind": "node", "ref": "c", "title": "C"}
+            {"kind": "node", "ref": "d", "title": "D"}
+            """;
+
+    @Autowired
+    private GraphImportService importService;
+
+    @Autowired
+    private NodeRepository nodeRepository;
+
+    @Autowired
+    private RelationshipRepository relationshipRepository;
+
+    @Autowired
+    private GraphIndex graphIndex;
+
+    @BeforeEach
+    void clearGraph() {
+        relationshipRepository.deleteAllInBatch();
+        nodeRepository.deleteAllInBatch();
+        graphIndex.reload();
+    }
+
+    @Test
+    void importsAcrossSeveralChunks() throws IOException {
+        GraphImportService.ImportSummary summary = importNdjson(FOUR_NODES + """
+                {"kind": "node", "ref": "e", "title": "E"}
+                {"kind": "relationship", "from": "a", "to": "b", "type": "SUPPORTS"}
+                {"kind": "relationship", "from": "a", "to": "c", "type": "SUPPORTS"}
+                {"kind": "relationship", "from": "a", "to": "e", "type": "CONTRADICTS"}
+                {"kind": "relationship", "from": "d", "to": "e", "type": "RELATED_TO"}
+                """);
+
+        assertThat(summary.nodeCount()).isEqualTo(5);
+        assertThat(summary.relationshipCount()).isEqualTo(4);
+        assertThat(nodeRepository.count()).isEqualTo(5);
+        assertThat(relationshipRepository.count()).isEqualTo(4);
+        assertThat(graphIndex.degree(summary.nodeIdsByRef().get("a"), Direction.OUTGOING, null)).isEqualTo(3);
+    }
+
+    @Test
+    void aDuplicateRelationshipRollsBackItsChunkOnly() {
+        // The first chunk is the four nodes; the duplicate fails the second
+        assertThatThrownBy(() -> importNdjson(FOUR_NODES + """
+                {"kind": "relationship", "from": "a", "to": "b", "type": "SUPPORTS"}
+                {"kind": "relationship", "from": "b", "to": "c", "type": "SUPPORTS"}
+                {"kind": "relationship", "from": "a", "to": "b", "type": "SUPPORTS"}
+                {"kind": "relationship", "from": "c", "to": "d", "type": "SUPPORTS"}
+                """)).isInstanceOf(DuplicateRelationshipException.class);
+
+        assertThat(nodeRepository.count()).isEqualTo(4);
+        assertThat(relationshipRepository.count()).isZero();
+        assertThat(graphIndex.edgeCount()).isZero();
+    }
+
+    @Test
+    void aDuplicateNodeRefIsRejectedEvenInALaterChunk() {
+        assertThatThrownBy(() -> importNdjson(FOUR_NODES + """
+                {"kind": "node", "ref": "e", "title": "E"}
+                {"kind": "node", "ref": "a", "title": "A again"}
+                """)).isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Record 6: duplicate node ref 'a'");
+
+        assertThat(nodeRepository.count()).isEqualTo(4);
+    }
+
+    @Test
+    void aForwardReferenceIsRejectedEvenWithinOneChunk() {
+        assertThatThrownBy(() -> importNdjson("""
+                {"kind": "node", "ref": "a", "title": "A"}
+                {"kind": "relationship", "from": "a", "to": "b", "type": "SUPPORTS"}
+                {"kind": "node", "ref": "b", "title": "B"}
+                """)).isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Record 2: node ref 'b' is not defined by an earlier record");
+
+        assertThat(nodeRepository.count()).isZero();
+        assertThat(relationshipRepository.count()).isZero();
+    }
+
+    @Test
+    void malformedLinesAreBadInputAndKeepEarlierChunks() {
+        assertThatThrownBy(() -> importNdjson(FOUR_NODES + """
+                {"kind": "node", "ref": "e", "title": "E"}
+                {"kind": "node", "ref": "f", "title":
+                """)).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Malformed import record");
+        assertThatThrownBy(() -> importNdjson("""
+                {"kind": "relationship", "fromNodeId": "1", "toNodeId": "2", "type": "LIKES"}
+                """)).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Malformed import record");
+
+        assertThat(nodeRepository.count()).isEqualTo(4);
+    }
+
+    private GraphImportService.ImportSummary importNdjson(String ndjson) throws IOException {
+        return importService.importNdjson(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+    }
+}
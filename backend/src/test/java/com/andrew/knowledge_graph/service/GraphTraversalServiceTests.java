@@ -0,0 +1,90 @@
+package com.andrew.knowledge_graph.service;
+
+import com.andrew.knowledge_graph.graph.GraphIndex;
+import com.andrew.knowledge_graph.model.Direction;
+import com.andrew.knowledge_graph.model.RelationshipType;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GraphTraversalServiceTests {
+
+    private final GraphIndex graphIndex = new GraphIndex(null);
+    private long nextEdgeId = 1;
+
+    @Test
+    void findsTheShortestOfSeveralPaths() {
+        // 1 -> 2 -> 3 -> 4 -> 5 and the shortcut 2 -> 6 -> 5
+        link(1, 2);
+        link(2, 3);
+        link(3, 4);
+        link(4, 5);
+        long shortcutIn = link(2, 6);
+        long shortcutOut = link(6, 5);
+
+        GraphTraversalService.PathResult path = service(100).shortestPath(1, 5, null, Direction.OUTGOING, 6);
+
+        assertThat(path.nodeIds()).containsExactly(1, 2, 6, 5);
+        assertThat(path.relationshipIds()).containsExactly(1, shortcutIn, shortcutOut);
+    }
+
+    @Test
+    void returnsNullWhenNoPathExists() {
+        link(1, 2);
+        link(3, 4);
+        // 3 -> 1 joins the two halves only when edges are followed backwards
+        link(3, 1);
+
+        GraphTraversalService service = service(100);
+
+        assertThat(service.shortestPath(1, 4, null, Direction.BOTH, 6)).isNotNull();
+        assertThat(service.shortestPath(1, 4, null, Direction.OUTGOING, 6)).isNull();
+        assertThat(service.shortestPath(1, 4, Set.of(RelationshipType.CONTRADICTS), Direction.BOTH, 6)).isNull();
+        assertThat(service.shortestPath(1, 99, null, Direction.BOTH, 6)).isNull();
+    }
+
+    @Test
+    void givesUpOnceTheNodeBudgetIsSpent() {
+        // A hub whose first level alone is over the smaller budget, with the target one hop beyond it
+        for (long leaf = 100; leaf < 300; leaf++) {
+            link(1, leaf);
+        }
+        link(299, 1000);
+
+        assertThat(service(1000).shortestPath(1, 1000, null, Direction.BOTH, 6)).isNotNull();
+        assertThat(service(50).shortestPath(1, 1000, null, Direction.BOTH, 6)).isNull();
+    }
+
+    @Test
+    void givesUpOnceTheTimeBudgetIsSpent() {
+        for (long node = 1; node < 1000; node++) {
+            link(node, node + 1);
+        }
+        GraphTraversalService service = new GraphTraversalService(graphIndex, 100_000, 6, Duration.ZERO);
+
+        assertThat(service.shortestPath(1, 4, null, Direction.OUTGOING, 6)).isNull();
+        assertThat(service.neighborhood(1, 6, null, Direction.OUTGOING, 100).truncated()).isTrue();
+    }
+
+    @Test
+    void pathFromANodeToItselfHasNoEdges() {
+        GraphTraversalService.PathResult path = service(100).shortestPath(7, 7, null, Direction.BOTH, 6);
+
+        assertThat(path.nodeIds()).containsExactly(7);
+        assertThat(path.relationshipIds()).isEmpty();
+    }
+
+    private GraphTraversalService service(int nodeBudget) {
+        return new GraphTraversalService(graphIndex, nodeBudget, 6, Duration.ofMinutes(1));
+    }
+
+    private long link(long from, long to) {
+        long edgeId = nextEdgeId++;
+        graphIndex.addEdge(edgeId, from, to, RelationshipType.SUPPORTS);
+        return edgeId;
+    }
+}
@@ -0,0 +1,77 @@
+package com.andrew.knowledge_graph.service;
+
+import com.andrew.knowledge_graph.graph.GraphIndex;
+import com.andrew.knowledge_graph.model.Direction;
+import com.andrew.knowledge_graph.model.Node;
+import com.andrew.knowledge_graph.model.Relationship;
+import com.andrew.knowledge_graph.model.RelationshipType;
+import com.andrew.knowledge_graph.repository.DuplicateRelationshipException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:sqlite:file:write-pipeline-test?mode=memory&cache=shared",
+        "graph.write-pipeline.enabled=true",
+        "graph.write-pipeline.max-delay=20ms"
+})
+class GraphWritePipelineTests {
+
+    @Autowired
+    private GraphWritePipeline pipeline;
+
+    @Autowired
+    private GraphChangeService changeService;
+
+    @Autowired
+    private GraphIndex graphIndex;
+
+    @Test
+    void concurrentWritesAreCommittedTogetherWithTheirOwnIds() {
+        long start = changeService.currentVersion();
+        List<CompletableFuture<Node>> writes = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            writes.add(pipeline.addNode(new Node("Node " + i, null)));
+        }
+        List<Node> nodes = writes.stream().map(CompletableFuture::join).toList();
+
+        assertThat(nodes).extracting(Node::getId).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(changeService.changesSince(start, 100).upsertedNodeIds())
+                .containsExactlyInAnyOrderElementsOf(nodes.stream().map(Node::getId).toList());
+    }
+
+    @Test
+    void aFailingWriteFailsAloneAndTheRestOfItsBatchCommits() {
+        Node a = pipeline.addNode(new Node("A", null)).join();
+        Node b = pipeline.addNode(new Node("B", null)).join();
+
+        // Queued together: the second is a duplicate of the first, the third links to a node that does not exist
+        CompletableFuture<Relationship> link = pipeline.linkNode(
+                new Relationship(RelationshipType.SUPPORTS, null, a.getId(), b.getId()));
+        CompletableFuture<Relationship> duplicate = pipeline.linkNode(
+                new Relationship(RelationshipType.SUPPORTS, null, a.getId(), b.getId()));
+        CompletableFuture<Relationship> dangling = pipeline.linkNode(
+                new Relationship(RelationshipType.SUPPORTS, null, a.getId(), Long.MAX_VALUE));
+        CompletableFuture<Node> node = pipeline.addNode(new Node("C", null));
+
+        Relationship saved = link.join();
+        assertThat(node.join().getId()).isNotNull();
+        assertThatThrownBy(duplicate::join).isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(DuplicateRelationshipException.class);
+        assertThatThrownBy(dangling::join).isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(DataAccessException.class);
+        // In the index by the time the caller hears back
+        assertThat(graphIndex.degree(a.getId(), Direction.OUTGOING, null)).isEqualTo(1);
+        assertThat(saved.getId()).isNotNull();
+    }
+}
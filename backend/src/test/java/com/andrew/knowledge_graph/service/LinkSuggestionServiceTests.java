@@ -0,0 +1,71 @@
+package com.andrew.knowledge_graph.service;
+
+import com.andrew.knowledge_graph.analytics.LinkPrediction;
+import com.andrew.knowledge_graph.graph.GraphIndex;
+import com.andrew.knowledge_graph.model.Node;
+import com.andrew.knowledge_graph.model.Relationship;
+import com.andrew.knowledge_graph.model.RelationshipType;
+import com.andrew.knowledge_graph.repository.NodeRepository;
+import com.andrew.knowledge_graph.repository.RelationshipRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:sqlite:file:link-suggestion-test?mode=memory&cache=shared")
+class LinkSuggestionServiceTests {
+
+    @Autowired
+    private LinkSuggestionService linkSuggestionService;
+
+    @Autowired
+    private GraphWriteService writeService;
+
+    @Autowired
+    private NodeRepository nodeRepository;
+
+    @Autowired
+    private RelationshipRepository relationshipRepository;
+
+    @Autowired
+    private GraphIndex graphIndex;
+
+    private long a;
+    private long b;
+    private long c;
+
+    @BeforeEach
+    void createPath() {
+        relationshipRepository.deleteAllInBatch();
+        nodeRepository.deleteAllInBatch();
+        a = nodeRepository.save(new Node("A", null)).getId();
+        b = nodeRepository.save(new Node("B", null)).getId();
+        c = nodeRepository.save(new Node("C", null)).getId();
+        // A - B - C, so C is suggested for A through their shared neighbour
+        relationshipRepository.save(new Relationship(RelationshipType.SUPPORTS, null, a, b));
+        relationshipRepository.save(new Relationship(RelationshipType.SUPPORTS, null, b, c));
+        graphIndex.reload();
+        linkSuggestionService.recompute();
+    }
+
+    @Test
+    void aNodeScoredBeforeTheIndexIsUpdatedIsRescoredAfterwards() {
+        assertThat(suggestedFor(a)).containsExactly(c);
+
+        Relationship link = writeService.linkNode(new Relationship(RelationshipType.SUPPORTS, null, a, c));
+        // Committed, but not yet in the GraphIndex: A is scored against its old neighbours
+        assertThat(suggestedFor(a)).containsExactly(c);
+
+        graphIndex.addEdges(List.of(link));
+        assertThat(suggestedFor(a)).isEmpty();
+    }
+
+    private List<Long> suggestedFor(long nodeId) {
+        return linkSuggestionService.suggest(nodeId, 10).stream().map(LinkPrediction.Suggestion::nodeId).toList();
+    }
+}
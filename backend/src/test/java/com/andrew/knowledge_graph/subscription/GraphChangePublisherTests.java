@@ -0,0 +1,127 @@
+package com.andrew.knowledge_graph.subscription;
+
+import com.andrew.knowledge_graph.model.Node;
+import com.andrew.knowledge_graph.model.NodeChange;
+import com.andrew.knowledge_graph.service.GraphWriteService;
+
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:sqlite:file:subscription-test?mode=memory&cache=shared",
+        "graph.subscriptions.buffer-size=8"
+})
+class GraphChangePublisherTests {
+
+    private static final int SUBSCRIBERS = 5_000;
+    private static final int CHANGES = 20;
+
+    @Autowired
+    private GraphChangePublisher publisher;
+
+    @Autowired
+    private GraphWriteService writeService;
+
+    @Test
+    void thousandsOfSubscribersReceiveEveryChangeWhileAStalledOneIsCutOff() throws InterruptedException {
+        CountDownLatch allDelivered = new CountDownLatch(SUBSCRIBERS);
+        List<Disposable> subscriptions = new ArrayList<>();
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            subscriptions.add(publisher.nodeChanges(null, 0)
+                    .take(CHANGES)
+                    .doOnComplete(allDelivered::countDown)
+                    .subscribe());
+        }
+        // Never requests anything, so its buffer fills up
+        StalledSubscriber stalled = new StalledSubscriber();
+        publisher.nodeChanges(null, 0).subscribe(stalled);
+        assertThat(publisher.subscriberCount()).isEqualTo(SUBSCRIBERS + 1);
+
+        long started = System.nanoTime();
+        for (int i = 0; i < CHANGES; i++) {
+            writeService.addNode(new Node("Node " + i, null));
+        }
+        Duration publishing = Duration.ofNanos(System.nanoTime() - started);
+
+        assertThat(allDelivered.await(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(stalled.error.get()).isInstanceOf(IllegalStateException.class);
+        // Writers must not be held up by delivery to thousands of subscribers
+        assertThat(publishing).isLessThan(Duration.ofSeconds(10));
+
+        subscriptions.forEach(Disposable::dispose);
+    }
+
+    @Test
+    void pendingChangesToTheSameNodeAreCoalesced() throws InterruptedException {
+        StalledSubscriber subscriber = new StalledSubscriber();
+        publisher.nodeChanges(null, 0).subscribe(subscriber);
+
+        Node node = writeService.addNode(new Node("Short-lived", null));
+        writeService.deleteNodes(List.of(node.getId()));
+        subscriber.request(10);
+
+        Thread.sleep(500);
+        assertThat(subscriber.received).hasSize(1);
+        assertThat(subscriber.received.get(0).id()).isEqualTo(String.valueOf(node.getId()));
+        assertThat(subscriber.received.get(0).deleted()).isTrue();
+        subscriber.dispose();
+    }
+
+    @Test
+    void aCaughtUpSubscriberKeepsUpWithACommitLargerThanTheBuffer() throws InterruptedException {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ids.add(writeService.addNode(new Node("Batch " + i, null)).getId());
+        }
+        StalledSubscriber subscriber = new StalledSubscriber();
+        publisher.nodeChanges(null, 0).subscribe(subscriber);
+        subscriber.request(Long.MAX_VALUE);
+
+        // One commit with more entities than the buffer holds
+        writeService.deleteNodes(ids);
+
+        for (int i = 0; i < 100 && subscriber.received.stream().filter(NodeChange::deleted).count() < ids.size(); i++) {
+            Thread.sleep(50);
+        }
+        assertThat(subscriber.error.get()).isNull();
+        assertThat(subscriber.received).filteredOn(NodeChange::deleted)
+                .extracting(change -> Long.parseLong(change.id()))
+                .containsExactlyInAnyOrderElementsOf(ids);
+        subscriber.dispose();
+    }
+
+    // Requests only when asked to by the test
+    private static class StalledSubscriber extends BaseSubscriber<NodeChange> {
+        final List<NodeChange> received = new CopyOnWriteArrayList<>();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            // no initial demand
+        }
+
+        @Override
+        protected void hookOnNext(NodeChange change) {
+            received.add(change);
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            error.set(throwable);
+        }
+    }
+}
@@ -19,6 +19,10 @@ const generateBlobPath = (radius = 50, numAnchors = 16, variance = 0.25) => {
   return d3.line().curve(d3.curveCatmullRomClosed)(points);
 };
 
+// Server layout coordinates are centred on the origin; this is where the origin is drawn
+const LAYOUT_ORIGIN_X = 650;
+const LAYOUT_ORIGIN_Y = 400;
+
 const Graph = ({ data, onNodeClick }) => {
   const svgRef = useRef();
   const gRef = useRef();
@@ -43,6 +47,16 @@ const Graph = ({ data, onNodeClick }) => {
         .force("center", d3.forceCenter(650, 400));
     }
 
+    // Nodes the server has laid out are pinned where it put them (or where they were dropped);
+    // only the rest, such as a node created moments ago, are simulated
+    data.nodes.forEach((d) => {
+      if (d.position && d.fx == null) {
+        d.x = d.fx = d.position.x + LAYOUT_ORIGIN_X;
+        d.y = d.fy = d.position.y + LAYOUT_ORIGIN_Y;
+      }
+    });
+    const allPlaced = data.nodes.every((d) => d.fx != null);
+
     const simulation = simulationRef.current;
     simulation.nodes(data.nodes);
     simulation.force("link").links(data.links);
@@ -50,18 +64,26 @@ const Graph = ({ data, onNodeClick }) => {
     const drag = d3
       .drag()
       .on("start", (event, d) => {
-        if (!event.active) simulation.alphaTarget(0.3).restart();
+        if (!event.active && !allPlaced) simulation.alphaTarget(0.3).restart();
         d.fx = d.x;
         d.fy = d.y;
       })
       .on("drag", (event, d) => {
         d.fx = event.x;
         d.fy = event.y;
+        // With no simulation running, nothing else moves the node
+        if (allPlaced) {
+          d.x = event.x;
+          d.y = event.y;
+          ticked();
+        }
       })
       .on("end", (event, d) => {
-        if (!event.active) simulation.alphaTarget(0);
-        d.fx = null;
-        d.fy = null;
+        if (!event.active && !allPlaced) simulation.alphaTarget(0);
+        if (!d.position) {
+          d.fx = null;
+          d.fy = null;
+        }
       });
 
     const link = linkG
@@ -100,14 +122,23 @@ const Graph = ({ data, onNodeClick }) => {
         (exit) => exit.remove()
       );
 
-    simulation.on("tick", () => {
+    const ticked = () => {
       link
         .attr("x1", (d) => d.source.x)
         .attr("y1", (d) => d.source.y)
         .attr("x2", (d) => d.target.x)
         .attr("y2", (d) => d.target.y);
       node.attr("transform", (d) => `translate(${d.x}, ${d.y})`);
-    });
+    };
+    simulation.on("tick", ticked);
+
+    // Everything already has a position: draw once instead of simulating
+    if (allPlaced) {
+      simulation.stop();
+      ticked();
+    } else {
+      simulation.alpha(1).restart();
+    }
 
     return () => simulation.stop();
   }, [data]);
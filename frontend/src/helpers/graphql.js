@@ -0,0 +1,33 @@
+import api from "./api";
+
+// Automatic persisted queries: send only the query's SHA-256 hash, and fall back to
+// sending the full text (which registers it) when the server doesn't know the hash yet.
+const hashes = new Map();
+
+async function sha256(text) {
+    if (!hashes.has(text)) {
+        const digest = await crypto.subtle.digest("SHA-256", new TextEncoder().encode(text));
+        const hex = Array.from(new Uint8Array(digest), (b) => b.toString(16).padStart(2, "0")).join("");
+        hashes.set(text, hex);
+    }
+    return hashes.get(text);
+}
+
+function isPersistedQueryNotFound(res) {
+    return res.data?.errors?.some(
+        (e) => e.message === "PersistedQueryNotFound" || e.extensions?.classification === "PersistedQueryNotFound"
+    );
+}
+
+export async function graphqlRequest(query, variables) {
+    // crypto.subtle is only available in secure contexts (https or localhost)
+    if (!crypto?.subtle) {
+        return api.post("/graphql", { query, variables });
+    }
+    const extensions = { persistedQuery: { version: 1, sha256Hash: await sha256(query) } };
+    const res = await api.post("/graphql", { variables, extensions });
+    if (!isPersistedQueryNotFound(res)) {
+        return res;
+    }
+    return api.post("/graphql", { query, variables, extensions });
+}
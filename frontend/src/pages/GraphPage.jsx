@@ -1,10 +1,15 @@
-import { useState, useEffect, useCallback } from "react";
+import { useState, useEffect, useCallback, useRef } from "react";
 import NavbarComponent from "../components/NavbarComponent";
 import GraphComponent from "../components/GraphComponent";
-import api from "../helpers/api";
+import { graphqlRequest } from "../helpers/graphql";
 import styles from "../styles/page_styles/GraphPage.module.css";
 import authStyles from "../styles/component_styles/AuthFormComponent.module.css";
 
+// How often to pull other users' edits from the change feed
+const SYNC_INTERVAL_MS = 5000;
+// Nodes per request when loading the graph; the server returns at most 100
+const PAGE_SIZE = 100;
+
 function GraphPage() {
   const [showAddNodeForm, setShowAddNodeForm] = useState(false);
   const [newNodeTitle, setNewNodeTitle] = useState("");
@@ -12,42 +17,64 @@ function GraphPage() {
   const [graphData, setGraphData] = useState({ nodes: [], links: [] });
   const [selectedLinkIds, setSelectedLinkIds] = useState([]);
   const [selectedNodeId, setSelectedNodeId] = useState(null);
+  // Graph version the local state is up to date with; null until the first load
+  const graphVersion = useRef(null);
 
   const fetchGraphData = useCallback(async () => {
     try {
+      // One page of nodes at a time; the version comes with the first page, so edits made while
+      // the rest are loading are picked up by the next sync
       const query = `
-        query {
-          searchNodes(titleQuery: "") {
-            id
-            title
-            description
-            connections {
-              relationship {
-                id
-                type
-                notes
-                from { id }
-                to { id }
-              }
+        query GraphPage($after: String) {
+          graphVersion
+          nodeSearch(query: "", first: ${PAGE_SIZE}, after: $after) {
+            edges {
               node {
                 id
                 title
                 description
+                position { x y }
+                connections {
+                  relationship {
+                    id
+                    type
+                    notes
+                    from { id }
+                    to { id }
+                  }
+                  node {
+                    id
+                    title
+                    description
+                  }
+                }
               }
             }
+            pageInfo { hasNextPage endCursor }
           }
         }
       `;
-      const res = await api.post("/graphql", { query });
-      if (res.data.errors) {
-        console.error("Failed to fetch graph data:", res.data.errors);
-        return;
+      const nodesRaw = [];
+      let version = null;
+      let after = null;
+      let hasNextPage = true;
+      while (hasNextPage) {
+        const res = await graphqlRequest(query, { after });
+        if (res.data.errors) {
+          console.error("Failed to fetch graph data:", res.data.errors);
+          return;
+        }
+        const page = res.data.data.nodeSearch;
+        if (version === null) version = res.data.data.graphVersion;
+        page.edges.forEach((edge) => nodesRaw.push(edge.node));
+        hasNextPage = page.pageInfo.hasNextPage;
+        after = page.pageInfo.endCursor;
       }
-      const nodesRaw = res.data.data.searchNodes;
       const nodes = nodesRaw.map((node) => ({
         id: node.id,
         title: node.title,
         description: node.description,
+        position: node.position,
       }));
       const links = [];
       nodesRaw.forEach((node) => {
@@ -57,6 +84,7 @@ function GraphPage() {
           );
           if (!reverseLinkExists) {
             links.push({
+              id: conn.relationship.id,
               source: conn.relationship.from.id,
               target: conn.relationship.to.id,
               type: conn.relationship.type,
@@ -66,15 +94,59 @@ function GraphPage() {
         });
       });
       setGraphData({ nodes, links });
+      graphVersion.current = version;
     } catch (error) {
       console.error("Failed to fetch graph data:", error);
     }
   }, []);
 
+  // Applies only what changed since the last sync instead of reloading the whole graph
+  const syncChanges = useCallback(async () => {
+    if (graphVersion.current === null) return;
+    try {
+      const query = `
+        query ChangesSince($since: ID!) {
+          changesSince(since: $since) {
+            version
+            hasMore
+            resyncRequired
+            nodes { id title description position { x y } }
+            relationships { id type notes from { id } to { id } }
+            deletedNodeIds
+            deletedRelationshipIds
+          }
+        }
+      `;
+      let hasMore = true;
+      while (hasMore) {
+        const res = await graphqlRequest(query, { since: graphVersion.current });
+        if (res.data.errors) {
+          console.error("Failed to sync graph changes:", res.data.errors);
+          return;
+        }
+        const changes = res.data.data.changesSince;
+        if (changes.resyncRequired) {
+          await fetchGraphData();
+          return;
+        }
+        setGraphData((prev) => applyChanges(prev, changes));
+        graphVersion.current = changes.version;
+        hasMore = changes.hasMore;
+      }
+    } catch (error) {
+      console.error("Failed to sync graph changes:", error);
+    }
+  }, [fetchGraphData]);
+
   useEffect(() => {
     fetchGraphData();
   }, [fetchGraphData]);
 
+  useEffect(() => {
+    const timer = setInterval(syncChanges, SYNC_INTERVAL_MS);
+    return () => clearInterval(timer);
+  }, [syncChanges]);
+
   async function handleAddNode(e) {
     e.preventDefault();
     try {
@@ -88,10 +160,7 @@ function GraphPage() {
         }
       `;
       const variables = { title: newNodeTitle, description: newNodeNotes };
-      const response = await api.post("/graphql", {
-        query: mutationString,
-        variables,
-      });
+      const response = await graphqlRequest(mutationString, variables);
 
       const confirmationData = response.data;
       if (confirmationData.errors) {
@@ -101,7 +170,7 @@ function GraphPage() {
       }
 
       const newNode = confirmationData.data.addNode;
-      let newLinks = [];
+      const newLinks = [];
 
       // Link to existing nodes if any are selected
       if (selectedLinkIds.length > 0) {
@@ -114,26 +183,34 @@ function GraphPage() {
         `;
         for (const toId of selectedLinkIds) {
           try {
-            await api.post("/graphql", {
-              query: linkMutation,
-              variables: { fromId: newNode.id, toId: toId, type: "RELATED_TO" },
+            const linkRes = await graphqlRequest(linkMutation, {
+              fromId: newNode.id,
+              toId: toId,
+              type: "RELATED_TO",
+            });
+            // Keep the relationship id so later changes from the sync can be matched to this link
+            newLinks.push({
+              id: linkRes.data.data?.linkNodes?.id,
+              source: newNode.id,
+              target: toId,
+              type: "RELATED_TO",
+              notes: "",
             });
           } catch (linkError) {
             console.error(`Failed to link to node ${toId}:`, linkError);
           }
         }
-        // Prepare new links for local state update
-        newLinks = selectedLinkIds.map((toId) => ({
-          source: newNode.id,
-          target: toId,
-          type: "RELATED_TO",
-          notes: "",
-        }));
       }
 
+      // A sync may already have delivered these, so only add what is not there yet
       setGraphData((prevData) => ({
-        nodes: [...prevData.nodes, newNode],
-        links: [...prevData.links, ...newLinks],
+        nodes: prevData.nodes.some((n) => n.id === newNode.id)
+          ? prevData.nodes
+          : [...prevData.nodes, newNode],
+        links: [
+          ...prevData.links,
+          ...newLinks.filter((nl) => !prevData.links.some((l) => l.id && l.id === nl.id)),
+        ],
       }));
 
       alert(`New node created with ID: ${newNode.id}`);
@@ -166,9 +243,6 @@ function GraphPage() {
     setSelectedNodeId(id);
   }
 
-  function resolveId(val) {
-    return val && typeof val === "object" ? val.id : val;
-  }
 
   const selectedNode = selectedNodeId
     ? graphData.nodes.find((n) => n.id === selectedNodeId)
@@ -205,10 +279,7 @@ function GraphPage() {
     if (!ok) return;
     try {
       const mutation = `mutation DeleteNode($id: ID!) { deleteNode(id: $id) }`;
-      const res = await api.post("/graphql", {
-        query: mutation,
-        variables: { id },
-      });
+      const res = await graphqlRequest(mutation, { id });
       if (res.data.errors) {
         console.error("Delete errors:", res.data.errors);
         alert("Failed to delete node. See console for details.");
@@ -437,4 +508,46 @@ function GraphPage() {
   );
 }
 
+function resolveId(val) {
+  return val && typeof val === "object" ? val.id : val;
+}
+
+// Merges a changesSince result into { nodes, links }. Upserts are idempotent, so replaying a change is harmless.
+function applyChanges(prev, changes) {
+  const deletedNodeIds = new Set(changes.deletedNodeIds);
+  const deletedLinkIds = new Set(changes.deletedRelationshipIds);
+  const upsertedNodes = new Map(changes.nodes.map((n) => [n.id, n]));
+  const upsertedLinks = new Map(
+    changes.relationships.map((r) => [
+      r.id,
+      { id: r.id, source: r.from.id, target: r.to.id, type: r.type, notes: r.notes },
+    ])
+  );
+
+  const nodes = [];
+  for (const node of prev.nodes) {
+    if (deletedNodeIds.has(node.id)) continue;
+    const updated = upsertedNodes.get(node.id);
+    // Update in place so the graph layout keeps the node's position
+    nodes.push(updated ? Object.assign(node, updated) : node);
+    upsertedNodes.delete(node.id);
+  }
+  nodes.push(...upsertedNodes.values());
+
+  const links = [];
+  for (const link of prev.links) {
+    if (deletedLinkIds.has(link.id)) continue;
+    if (deletedNodeIds.has(resolveId(link.source)) || deletedNodeIds.has(resolveId(link.target))) continue;
+    if (link.id && upsertedLinks.has(link.id)) {
+      links.push({ ...link, type: upsertedLinks.get(link.id).type, notes: upsertedLinks.get(link.id).notes });
+      upsertedLinks.delete(link.id);
+    } else {
+      links.push(link);
+    }
+  }
+  links.push(...upsertedLinks.values());
+
+  return { nodes, links };
+}
+
 export default GraphPage;
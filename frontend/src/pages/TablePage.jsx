@@ -1,6 +1,6 @@
 import { useState, useEffect, useCallback } from "react";
 import NavbarComponent from "../components/NavbarComponent";
-import api from "../helpers/api";
+import { graphqlRequest } from "../helpers/graphql";
 import styles from "../styles/page_styles/TablePage.module.css";
 
 function TablePage() {
@@ -8,25 +8,39 @@ function TablePage() {
 
   const fetchNodes = useCallback(async () => {
     try {
+      // One page of nodes at a time; the server returns at most 100 per request
       const query = `
-        query {
-          searchNodes(titleQuery: "") {
-            id
-            title
-            description
-            connections {
-              relationship { id }
-              node { id title }
+        query TablePage($after: String) {
+          nodeSearch(query: "", first: 100, after: $after) {
+            edges {
+              node {
+                id
+                title
+                description
+                connections {
+                  relationship { id }
+                  node { id title }
+                }
+              }
             }
+            pageInfo { hasNextPage endCursor }
           }
         }
       `;
-      const res = await api.post("/graphql", { query });
-      if (res.data.errors) {
-        console.error("Failed to fetch nodes:", res.data.errors);
-        return;
+      const nodesRaw = [];
+      let after = null;
+      let hasNextPage = true;
+      while (hasNextPage) {
+        const res = await graphqlRequest(query, { after });
+        if (res.data.errors) {
+          console.error("Failed to fetch nodes:", res.data.errors);
+          return;
+        }
+        const page = res.data.data.nodeSearch;
+        page.edges.forEach((edge) => nodesRaw.push(edge.node));
+        hasNextPage = page.pageInfo.hasNextPage;
+        after = page.pageInfo.endCursor;
       }
-      const nodesRaw = res.data.data.searchNodes || [];
 
       // Map to a shape useful for table rows
       const mapped = nodesRaw.map((n) => {